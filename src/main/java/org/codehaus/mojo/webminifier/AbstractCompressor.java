@@ -51,9 +51,9 @@ public abstract class AbstractCompressor
     protected Log logger;
 
     /**
-     * The error reporter to use.
+     * Where to report problems to.
      */
-    protected ExceptionState exceptionState;
+    protected Diagnostics diagnostics;
 
     /**
      * Construct a compressor.
@@ -69,6 +69,7 @@ public abstract class AbstractCompressor
         this.target = target;
         this.encoding = encoding;
         this.logger = logger;
+        this.diagnostics = new Diagnostics( logger, false );
     }
 
     /**
@@ -80,10 +81,18 @@ public abstract class AbstractCompressor
         throws IOException;
 
     /**
-     * @return the error reporter used.
+     * @return where problems were reported to.
      */
-    public ExceptionState getExceptionState()
+    public Diagnostics getDiagnostics()
     {
-        return exceptionState;
+        return diagnostics;
+    }
+
+    /**
+     * @param diagnosticsParam where to report problems to, typically a scope shared with other compressors.
+     */
+    public void setDiagnostics( Diagnostics diagnosticsParam )
+    {
+        this.diagnostics = diagnosticsParam;
     }
 }
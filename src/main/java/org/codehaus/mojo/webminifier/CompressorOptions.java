@@ -0,0 +1,213 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the values of compressor options, for use by compressor providers.
+ */
+public final class CompressorOptions
+{
+    private CompressorOptions()
+    {
+    }
+
+    /**
+     * @param options the options.
+     * @param name the name of the option.
+     * @param defaultValue the value if the option is not set.
+     * @return true if the option is "true", ignoring case.
+     */
+    public static boolean getBoolean( Map<String, String> options, String name, boolean defaultValue )
+    {
+        String value = options.get( name );
+        return value != null ? Boolean.valueOf( value.trim() ).booleanValue() : defaultValue;
+    }
+
+    /**
+     * @param options the options.
+     * @param name the name of the option.
+     * @param defaultValue the value if the option is not set.
+     * @return the number.
+     * @throws IllegalArgumentException if the option is not a number.
+     */
+    public static int getInt( Map<String, String> options, String name, int defaultValue )
+    {
+        String value = options.get( name );
+        if ( value == null )
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Integer.parseInt( value.trim() );
+        }
+        catch ( NumberFormatException e )
+        {
+            throw new IllegalArgumentException( "Expected a number for " + name + ": " + value );
+        }
+    }
+
+    /**
+     * @param options the options.
+     * @param name the name of the option.
+     * @return the file, or null if the option is not set.
+     */
+    public static File getFile( Map<String, String> options, String name )
+    {
+        String value = options.get( name );
+        return value != null && value.trim().length() > 0 ? new File( value.trim() ) : null;
+    }
+
+    /**
+     * @param options the options.
+     * @param name the name of the option.
+     * @return the files of a list separated by the platform's path separator e.g. a.js:b.js, which is empty if the
+     *         option is not set.
+     */
+    public static List<File> getFiles( Map<String, String> options, String name )
+    {
+        List<File> files = new ArrayList<File>();
+        String value = options.get( name );
+        if ( value != null )
+        {
+            for ( String path : value.split( File.pathSeparator ) )
+            {
+                if ( path.trim().length() > 0 )
+                {
+                    files.add( new File( path.trim() ) );
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @param options the options.
+     * @param name the name of the option.
+     * @return the values of a comma and/or whitespace separated list, which is empty if the option is not set.
+     */
+    public static List<String> getList( Map<String, String> options, String name )
+    {
+        return parseList( options.get( name ) );
+    }
+
+    /**
+     * @param options the options.
+     * @param name the name of the option.
+     * @return the entries of a comma separated list of NAME=value pairs, which is empty if the option is not set.
+     * @throws IllegalArgumentException if an entry is not a NAME=value pair.
+     */
+    public static Map<String, String> getMap( Map<String, String> options, String name )
+    {
+        return parseMap( options.get( name ) );
+    }
+
+    /**
+     * @param value a comma and/or whitespace separated list, or null.
+     * @return the values of the list.
+     */
+    public static List<String> parseList( String value )
+    {
+        List<String> values = new ArrayList<String>();
+        if ( value != null )
+        {
+            for ( String element : value.split( "[,\\s]+" ) )
+            {
+                if ( element.length() > 0 )
+                {
+                    values.add( element );
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @param value a comma separated list of NAME=value pairs, or null. A value quoted with single or double quotes may
+     *            contain commas e.g. TITLE='a, b'; the quotes are kept as part of the value.
+     * @return the entries of the list.
+     * @throws IllegalArgumentException if an entry is not a NAME=value pair or a quote is not closed.
+     */
+    public static Map<String, String> parseMap( String value )
+    {
+        Map<String, String> entries = new LinkedHashMap<String, String>();
+        if ( value != null )
+        {
+            for ( String entry : splitUnquoted( value ) )
+            {
+                entry = entry.trim();
+                if ( entry.length() > 0 )
+                {
+                    int i = entry.indexOf( '=' );
+                    if ( i < 1 )
+                    {
+                        throw new IllegalArgumentException( "Expected NAME=value: " + entry );
+                    }
+                    entries.put( entry.substring( 0, i ).trim(), entry.substring( i + 1 ) );
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @param value a comma separated list.
+     * @return the elements of the list, where commas within single or double quotes do not separate elements.
+     * @throws IllegalArgumentException if a quote is not closed.
+     */
+    private static List<String> splitUnquoted( String value )
+    {
+        List<String> elements = new ArrayList<String>();
+        char quote = 0;
+        int start = 0;
+        for ( int i = 0; i < value.length(); ++i )
+        {
+            char c = value.charAt( i );
+            if ( quote != 0 )
+            {
+                if ( c == quote )
+                {
+                    quote = 0;
+                }
+            }
+            else if ( c == '\'' || c == '"' )
+            {
+                quote = c;
+            }
+            else if ( c == ',' )
+            {
+                elements.add( value.substring( start, i ) );
+                start = i + 1;
+            }
+        }
+        if ( quote != 0 )
+        {
+            throw new IllegalArgumentException( "Unclosed quote: " + value.substring( start ).trim() );
+        }
+        elements.add( value.substring( start ) );
+        return elements;
+    }
+}
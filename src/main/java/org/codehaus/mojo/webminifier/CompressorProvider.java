@@ -0,0 +1,67 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Creates the compressors of a given name. Providers are discovered by {@link CompressorProviders} from the
+ * META-INF/services/org.codehaus.mojo.webminifier.CompressorProvider resources of the plugin's class path, each
+ * naming provider classes one per line, so that compressors can be added by declaring them as plugin dependencies.
+ * Implementations must have a public no argument constructor.
+ */
+public interface CompressorProvider
+{
+    /**
+     * @return the name that the compressor is selected by e.g. YUI. Names are case insensitive.
+     */
+    String getName();
+
+    /**
+     * @return true if compressors may compress different scripts at the same time. When false, scripts are compressed
+     *         one at a time.
+     */
+    boolean isThreadSafe();
+
+    /**
+     * @return true if each script may be compressed independently of the others and in any order. When false,
+     *         scripts are compressed one at a time in the order that they are declared.
+     */
+    boolean isPerFileSafe();
+
+    /**
+     * Create a compressor for a script.
+     * 
+     * @param source the script to read.
+     * @param target where to write the compressed script.
+     * @param encoding the encoding of the script.
+     * @param logger where to log.
+     * @param options the options of the compressor, by name. Options that the compressor does not recognise are to be
+     *            ignored.
+     * @return the compressor.
+     * @throws IllegalArgumentException if an option has an invalid value.
+     */
+    AbstractCompressor createCompressor( InputStream source, OutputStream target, String encoding, Log logger,
+                                         Map<String, String> options );
+}
@@ -0,0 +1,151 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Discovers compressor providers from META-INF/services/org.codehaus.mojo.webminifier.CompressorProvider resources,
+ * in the same format as used by java.util.ServiceLoader, which is not available to Java 5. Blank lines and text
+ * following a # are ignored. Where two providers have the same name the first found is used.
+ */
+public final class CompressorProviders
+{
+    private static final String SERVICE_RESOURCE = "META-INF/services/" + CompressorProvider.class.getName();
+
+    private final Map<String, CompressorProvider> providers;
+
+    private CompressorProviders( Map<String, CompressorProvider> providers )
+    {
+        this.providers = providers;
+    }
+
+    /**
+     * Discover the providers visible to the context class loader, or to the class loader of this class if there is no
+     * context class loader.
+     * 
+     * @return the providers found.
+     * @throws IOException if a resource cannot be read.
+     * @throws IllegalStateException if a named provider cannot be instantiated.
+     */
+    public static CompressorProviders load()
+        throws IOException
+    {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if ( classLoader == null )
+        {
+            classLoader = CompressorProviders.class.getClassLoader();
+        }
+        return load( classLoader );
+    }
+
+    /**
+     * Discover the providers visible to a class loader.
+     * 
+     * @param classLoader the class loader to search.
+     * @return the providers found.
+     * @throws IOException if a resource cannot be read.
+     * @throws IllegalStateException if a named provider cannot be instantiated.
+     */
+    public static CompressorProviders load( ClassLoader classLoader )
+        throws IOException
+    {
+        Map<String, CompressorProvider> providers = new LinkedHashMap<String, CompressorProvider>();
+        Enumeration<URL> resources = classLoader.getResources( SERVICE_RESOURCE );
+        while ( resources.hasMoreElements() )
+        {
+            InputStream is = resources.nextElement().openStream();
+            try
+            {
+                BufferedReader reader = new BufferedReader( new InputStreamReader( is, "UTF-8" ) );
+                for ( String line = reader.readLine(); line != null; line = reader.readLine() )
+                {
+                    int commentIndex = line.indexOf( '#' );
+                    String className = ( commentIndex > -1 ? line.substring( 0, commentIndex ) : line ).trim();
+                    if ( className.length() > 0 )
+                    {
+                        CompressorProvider provider = instantiate( classLoader, className );
+                        String name = provider.getName().toUpperCase( Locale.ENGLISH );
+                        if ( !providers.containsKey( name ) )
+                        {
+                            providers.put( name, provider );
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                is.close();
+            }
+        }
+        return new CompressorProviders( Collections.unmodifiableMap( providers ) );
+    }
+
+    private static CompressorProvider instantiate( ClassLoader classLoader, String className )
+    {
+        try
+        {
+            return (CompressorProvider) Class.forName( className, true, classLoader ).newInstance();
+        }
+        catch ( ClassNotFoundException e )
+        {
+            throw new IllegalStateException( "Compressor provider not found: " + className, e );
+        }
+        catch ( InstantiationException e )
+        {
+            throw new IllegalStateException( "Cannot create compressor provider: " + className, e );
+        }
+        catch ( IllegalAccessException e )
+        {
+            throw new IllegalStateException( "Cannot create compressor provider: " + className, e );
+        }
+        catch ( ClassCastException e )
+        {
+            throw new IllegalStateException( className + " is not a " + CompressorProvider.class.getName(), e );
+        }
+    }
+
+    /**
+     * @param name the name of a compressor, in any case.
+     * @return the provider of the compressor, or null if there is none.
+     */
+    public CompressorProvider get( String name )
+    {
+        return providers.get( name.toUpperCase( Locale.ENGLISH ) );
+    }
+
+    /**
+     * @return the names of the compressors provided.
+     */
+    public Set<String> getNames()
+    {
+        return Collections.unmodifiableSet( providers.keySet() );
+    }
+}
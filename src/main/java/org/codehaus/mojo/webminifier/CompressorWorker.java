@@ -0,0 +1,145 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/**
+ * The main class of a JVM forked by {@link CompressorWorkerPool}. Requests are read from standard input and responses
+ * written to standard output, one at a time, until standard input is closed. Anything else written to standard output,
+ * by a compressor for example, is redirected to standard error so that it cannot corrupt the responses.
+ */
+public final class CompressorWorker
+{
+    private final CompressorProviders providers;
+
+    private final Log logger;
+
+    private CompressorWorker( CompressorProviders providers, Log logger )
+    {
+        this.providers = providers;
+        this.logger = logger;
+    }
+
+    /**
+     * Serve requests until standard input is closed.
+     * 
+     * @param args not used.
+     * @throws IOException if the providers cannot be loaded.
+     */
+    public static void main( String[] args )
+        throws IOException
+    {
+        DataOutputStream os =
+            new DataOutputStream( new BufferedOutputStream( new FileOutputStream( FileDescriptor.out ) ) );
+        DataInputStream is = new DataInputStream( new BufferedInputStream( new FileInputStream( FileDescriptor.in ) ) );
+        System.setOut( System.err );
+
+        int status = 0;
+        try
+        {
+            new CompressorWorker( CompressorProviders.load(), new SystemStreamLog() ).serve( is, os );
+        }
+        catch ( Throwable e )
+        {
+            e.printStackTrace();
+            status = 1;
+        }
+
+        // Closure leaves non-daemon threads behind that would otherwise keep the JVM alive.
+        System.exit( status );
+    }
+
+    private void serve( DataInputStream is, DataOutputStream os )
+        throws IOException
+    {
+        byte[] message;
+        while ( ( message = CompressorWorkerProtocol.readFrame( is ) ) != null )
+        {
+            Diagnostics diagnostics = new Diagnostics( logger, false );
+            byte[] response;
+            Error error = null;
+            try
+            {
+                byte[] content = compress( CompressorWorkerProtocol.decodeRequest( message ), diagnostics );
+                response = CompressorWorkerProtocol.encodeResponse( content, null, diagnostics );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                response = CompressorWorkerProtocol.encodeResponse( null, e.getMessage(), diagnostics );
+            }
+            catch ( Exception e )
+            {
+                response = CompressorWorkerProtocol.encodeResponse( null, "Problem compressing: " + e, diagnostics );
+            }
+            catch ( Error e )
+            {
+                // The JVM may be unfit to continue e.g. when out of memory, so respond and then exit.
+                response = CompressorWorkerProtocol.encodeResponse( null, "Problem compressing: " + e, diagnostics );
+                error = e;
+            }
+            CompressorWorkerProtocol.writeFrame( os, response );
+            if ( error != null )
+            {
+                throw error;
+            }
+        }
+    }
+
+    private byte[] compress( CompressorWorkerProtocol.Request request, Diagnostics diagnostics )
+        throws IOException
+    {
+        CompressorProvider provider = providers.get( request.getCompressorName() );
+        if ( provider == null )
+        {
+            throw new IllegalArgumentException( "Unknown compressor " + request.getCompressorName()
+                + ". Available compressors: " + providers.getNames() );
+        }
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream( request.getContent().length );
+        AbstractCompressor compressor;
+        try
+        {
+            compressor =
+                provider.createCompressor( new ByteArrayInputStream( request.getContent() ), target,
+                                           request.getEncoding(), logger, request.getOptions() );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new IllegalArgumentException( "Invalid options for the " + provider.getName() + " compressor: "
+                + e.getMessage(), e );
+        }
+        compressor.setDiagnostics( diagnostics );
+        compressor.compress();
+        return target.toByteArray();
+    }
+}
@@ -0,0 +1,508 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Compresses scripts in JVMs forked to run {@link CompressorWorker}, so that the heap and stack given to compressors
+ * are independent of those of the build and so that a compressor running out of memory cannot bring the build down.
+ * Workers are started as they are needed, up to a maximum, and kept running to compress further scripts once warmed
+ * up. A worker that exits unexpectedly is replaced, and the script that it was compressing is given to the new one
+ * once, with the last of what the worker wrote to standard error being logged as a warning. A worker that takes longer
+ * than the timeout to compress a script is stopped and the compression fails. Workers exit when the pool is closed, or
+ * when the JVM that started them exits. All methods are thread safe.
+ */
+public class CompressorWorkerPool
+{
+    /**
+     * A forked JVM along with the pipes to it.
+     */
+    private static class Worker
+    {
+        private final Process process;
+
+        private final DataOutputStream os;
+
+        private final DataInputStream is;
+
+        /**
+         * The last lines written to standard error.
+         */
+        private final LinkedList<String> errorLines = new LinkedList<String>();
+
+        private Thread errorReader;
+
+        private volatile boolean timedOut;
+
+        Worker( Process process )
+        {
+            this.process = process;
+            this.os = new DataOutputStream( new BufferedOutputStream( process.getOutputStream() ) );
+            this.is = new DataInputStream( new BufferedInputStream( process.getInputStream() ) );
+        }
+
+        boolean isAlive()
+        {
+            try
+            {
+                process.exitValue();
+                return false;
+            }
+            catch ( IllegalThreadStateException e )
+            {
+                return true;
+            }
+        }
+
+        void destroy()
+        {
+            try
+            {
+                os.close();
+            }
+            catch ( IOException e )
+            {
+                // The worker has gone already.
+            }
+            process.destroy();
+        }
+    }
+
+    /**
+     * Thrown when a worker takes too long to compress a script, which is not worth retrying.
+     */
+    private static class WorkerTimedOutException
+        extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        WorkerTimedOutException( String message )
+        {
+            super( message );
+        }
+    }
+
+    /**
+     * The number of lines written to standard error by a worker that are kept for logging should it exit.
+     */
+    private static final int MAX_ERROR_LINES = 50;
+
+    /**
+     * How long to wait for what a worker wrote to standard error before exiting to be read.
+     */
+    private static final long ERROR_READER_JOIN_MILLIS = 1000L;
+
+    private final List<String> command;
+
+    private final long timeoutMillis;
+
+    private final Log logger;
+
+    private final Semaphore permits;
+
+    private int maxWorkers;
+
+    private Timer timer;
+
+    private final LinkedList<Worker> idleWorkers = new LinkedList<Worker>();
+
+    private final Set<Worker> workers = new LinkedHashSet<Worker>();
+
+    private boolean closed;
+
+    /**
+     * @param jvmArgs the arguments of the forked JVMs e.g. -Xmx1024m.
+     * @param maxWorkers the number of workers that may be compressing at the same time.
+     * @param timeoutMillis how long a worker may take to compress a script, or 0 to wait for as long as it takes.
+     * @param logger where to log, including anything that workers write to standard error at debug level.
+     */
+    public CompressorWorkerPool( List<String> jvmArgs, int maxWorkers, long timeoutMillis, Log logger )
+    {
+        this.command = new ArrayList<String>();
+        command.add( System.getProperty( "java.home" ) + File.separator + "bin" + File.separator + "java" );
+        command.addAll( jvmArgs );
+        command.add( "-cp" );
+        command.add( getClassPath() );
+        command.add( CompressorWorker.class.getName() );
+        this.timeoutMillis = timeoutMillis;
+        this.logger = logger;
+        this.maxWorkers = Math.max( 1, maxWorkers );
+        this.permits = new Semaphore( this.maxWorkers, true );
+    }
+
+    /**
+     * Allow more workers to compress at the same time, for an execution with more compress threads than those before
+     * it.
+     * 
+     * @param maxWorkersParam the number of workers that may be compressing at the same time, which is ignored if it is
+     *            not more than it was.
+     */
+    public synchronized void ensureMaxWorkers( int maxWorkersParam )
+    {
+        if ( maxWorkersParam > maxWorkers )
+        {
+            permits.release( maxWorkersParam - maxWorkers );
+            maxWorkers = maxWorkersParam;
+        }
+    }
+
+    /**
+     * Determine the class path of the workers, being that of the plugin along with the Maven API, which Maven provides
+     * to plugins from outside of their own class loader. The JVM's own class path is always included as, from Java 9,
+     * the application class loader is not a URLClassLoader.
+     */
+    private static String getClassPath()
+    {
+        Set<File> files = new LinkedHashSet<File>();
+        for ( ClassLoader classLoader = CompressorWorkerPool.class.getClassLoader(); classLoader != null; //
+        classLoader = classLoader.getParent() )
+        {
+            if ( classLoader instanceof URLClassLoader )
+            {
+                for ( URL url : ( (URLClassLoader) classLoader ).getURLs() )
+                {
+                    File file = FileUtils.toFile( url );
+                    if ( file != null )
+                    {
+                        files.add( file );
+                    }
+                }
+            }
+        }
+        for ( String entry : System.getProperty( "java.class.path", "" ).split( File.pathSeparator ) )
+        {
+            if ( entry.length() > 0 )
+            {
+                files.add( new File( entry ).getAbsoluteFile() );
+            }
+        }
+        CodeSource apiSource = Log.class.getProtectionDomain().getCodeSource();
+        if ( apiSource != null && apiSource.getLocation() != null )
+        {
+            File file = FileUtils.toFile( apiSource.getLocation() );
+            if ( file != null )
+            {
+                files.add( file );
+            }
+        }
+        StringBuilder classPath = new StringBuilder();
+        for ( File file : files )
+        {
+            if ( classPath.length() > 0 )
+            {
+                classPath.append( File.pathSeparatorChar );
+            }
+            classPath.append( file.getAbsolutePath() );
+        }
+        return classPath.toString();
+    }
+
+    /**
+     * Compress a script in a worker, waiting for one to be free.
+     * 
+     * @param compressorName the name of the compressor.
+     * @param encoding the encoding of the script.
+     * @param options the options of the compressor.
+     * @param content the script.
+     * @param diagnostics where to report the problems reported by the compressor.
+     * @return the compressed script, or null if compression failed, in which case an error will have been reported.
+     * @throws IOException if a worker cannot be started, exits while compressing or times out.
+     * @throws InterruptedException if interrupted while waiting for a worker.
+     */
+    public byte[] compress( String compressorName, String encoding, Map<String, String> options, byte[] content,
+                            Diagnostics diagnostics )
+        throws IOException, InterruptedException
+    {
+        byte[] request =
+            CompressorWorkerProtocol.encodeRequest( new CompressorWorkerProtocol.Request( compressorName, encoding,
+                                                                                          options, content ) );
+        permits.acquire();
+        try
+        {
+            byte[] response;
+            try
+            {
+                response = send( request );
+            }
+            catch ( WorkerTimedOutException e )
+            {
+                throw e;
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Compressor worker exited unexpectedly, restarting it: " + e.getMessage() );
+                response = send( request );
+            }
+            return CompressorWorkerProtocol.decodeResponse( response, diagnostics );
+        }
+        finally
+        {
+            permits.release();
+        }
+    }
+
+    /**
+     * Send a request to an idle worker, starting one if there are none, and wait for its response.
+     */
+    private byte[] send( byte[] request )
+        throws IOException
+    {
+        final Worker worker = takeWorker();
+        TimerTask timeout = null;
+        if ( timeoutMillis > 0 )
+        {
+            timeout = new TimerTask()
+            {
+                @Override
+                public void run()
+                {
+                    worker.timedOut = true;
+                    worker.process.destroy();
+                }
+            };
+            schedule( timeout );
+        }
+
+        boolean healthy = false;
+        try
+        {
+            CompressorWorkerProtocol.writeFrame( worker.os, request );
+            byte[] response = CompressorWorkerProtocol.readFrame( worker.is );
+            if ( response == null )
+            {
+                throw new IOException( "Worker closed its output" );
+            }
+            healthy = true;
+            return response;
+        }
+        catch ( IOException e )
+        {
+            if ( worker.timedOut )
+            {
+                throw new WorkerTimedOutException( "Compressor worker timed out after " + timeoutMillis + "ms" );
+            }
+            throw e;
+        }
+        finally
+        {
+            if ( timeout != null )
+            {
+                timeout.cancel();
+            }
+            returnWorker( worker, healthy && !worker.timedOut );
+        }
+    }
+
+    private synchronized void schedule( TimerTask task )
+        throws IOException
+    {
+        if ( closed )
+        {
+            throw new IOException( "The compressor worker pool has been closed" );
+        }
+        if ( timer == null )
+        {
+            timer = new Timer( "webminifier-worker-timeout", true );
+        }
+        timer.schedule( task, timeoutMillis );
+    }
+
+    private Worker takeWorker()
+        throws IOException
+    {
+        synchronized ( this )
+        {
+            if ( closed )
+            {
+                throw new IOException( "The compressor worker pool has been closed" );
+            }
+            while ( !idleWorkers.isEmpty() )
+            {
+                Worker worker = idleWorkers.removeFirst();
+                if ( worker.isAlive() )
+                {
+                    return worker;
+                }
+                workers.remove( worker );
+                worker.destroy();
+            }
+        }
+
+        Worker worker = startWorker();
+        synchronized ( this )
+        {
+            if ( closed )
+            {
+                worker.destroy();
+                throw new IOException( "The compressor worker pool has been closed" );
+            }
+            workers.add( worker );
+        }
+        return worker;
+    }
+
+    private void returnWorker( Worker worker, boolean healthy )
+    {
+        synchronized ( this )
+        {
+            if ( healthy && !closed )
+            {
+                idleWorkers.addFirst( worker );
+                return;
+            }
+            workers.remove( worker );
+            worker.destroy();
+            if ( closed )
+            {
+                return;
+            }
+        }
+        logErrorLines( worker );
+    }
+
+    /**
+     * Log what a worker that has exited unexpectedly last wrote to standard error, which likely explains why.
+     */
+    private void logErrorLines( Worker worker )
+    {
+        try
+        {
+            worker.errorReader.join( ERROR_READER_JOIN_MILLIS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        synchronized ( worker.errorLines )
+        {
+            for ( String line : worker.errorLines )
+            {
+                logger.warn( "[worker] " + line );
+            }
+            worker.errorLines.clear();
+        }
+    }
+
+    private Worker startWorker()
+        throws IOException
+    {
+        if ( logger.isDebugEnabled() )
+        {
+            logger.debug( "Starting compressor worker: " + command );
+        }
+        final Worker worker = new Worker( new ProcessBuilder( command ).start() );
+        worker.errorReader = new Thread( "webminifier-worker-stderr" )
+        {
+            @Override
+            public void run()
+            {
+                BufferedReader reader =
+                    new BufferedReader( new InputStreamReader( worker.process.getErrorStream() ) );
+                try
+                {
+                    String line;
+                    while ( ( line = reader.readLine() ) != null )
+                    {
+                        logger.debug( "[worker] " + line );
+                        synchronized ( worker.errorLines )
+                        {
+                            worker.errorLines.addLast( line );
+                            if ( worker.errorLines.size() > MAX_ERROR_LINES )
+                            {
+                                worker.errorLines.removeFirst();
+                            }
+                        }
+                    }
+                }
+                catch ( IOException e )
+                {
+                    // The worker has exited.
+                }
+            }
+        };
+        worker.errorReader.setDaemon( true );
+        worker.errorReader.start();
+        return worker;
+    }
+
+    /**
+     * @return the number of workers running.
+     */
+    public synchronized int getWorkerCount()
+    {
+        return workers.size();
+    }
+
+    /**
+     * Stop every worker. Workers that are compressing are stopped, failing the compression.
+     */
+    public synchronized void close()
+    {
+        closed = true;
+        if ( timer != null )
+        {
+            timer.cancel();
+        }
+        for ( Worker worker : workers )
+        {
+            worker.destroy();
+        }
+        workers.clear();
+        idleWorkers.clear();
+    }
+
+    /**
+     * Stop the processes of the workers without the pool knowing, as if they had exited unexpectedly. For testing.
+     * 
+     * @throws InterruptedException if interrupted while waiting for a process to stop.
+     */
+    synchronized void destroyWorkerProcesses()
+        throws InterruptedException
+    {
+        for ( Worker worker : workers )
+        {
+            worker.process.destroy();
+            worker.process.waitFor();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The messages exchanged with a {@link CompressorWorker} over its standard input and output. Each message is a frame
+ * of its length followed by that many bytes. A request holds the name of the compressor, the encoding, the options and
+ * the script. A response holds the problems reported along with the number of times each was reported, followed by
+ * either the compressed script or the reason that compression failed.
+ */
+final class CompressorWorkerProtocol
+{
+    /**
+     * The largest frame accepted, so that a corrupt length is not mistaken for an enormous message.
+     */
+    private static final int MAX_FRAME_BYTES = 1024 * 1024 * 1024;
+
+    private static final byte COMPRESSED = 0;
+
+    private static final byte FAILED = 1;
+
+    private CompressorWorkerProtocol()
+    {
+    }
+
+    /**
+     * A request to compress a script.
+     */
+    static class Request
+    {
+        private final String compressorName;
+
+        private final String encoding;
+
+        private final Map<String, String> options;
+
+        private final byte[] content;
+
+        Request( String compressorName, String encoding, Map<String, String> options, byte[] content )
+        {
+            this.compressorName = compressorName;
+            this.encoding = encoding;
+            this.options = options;
+            this.content = content;
+        }
+
+        String getCompressorName()
+        {
+            return compressorName;
+        }
+
+        String getEncoding()
+        {
+            return encoding;
+        }
+
+        Map<String, String> getOptions()
+        {
+            return options;
+        }
+
+        byte[] getContent()
+        {
+            return content;
+        }
+    }
+
+    /**
+     * @param os where to write.
+     * @param frame the message.
+     * @throws IOException if the frame cannot be written.
+     */
+    static void writeFrame( DataOutputStream os, byte[] frame )
+        throws IOException
+    {
+        os.writeInt( frame.length );
+        os.write( frame );
+        os.flush();
+    }
+
+    /**
+     * @param is where to read from.
+     * @return the message, or null if the stream ended before it.
+     * @throws IOException if the frame cannot be read, or is corrupt.
+     */
+    static byte[] readFrame( DataInputStream is )
+        throws IOException
+    {
+        int length;
+        try
+        {
+            length = is.readInt();
+        }
+        catch ( EOFException e )
+        {
+            return null;
+        }
+        if ( length < 0 || length > MAX_FRAME_BYTES )
+        {
+            throw new IOException( "Corrupt frame of " + length + " bytes" );
+        }
+        byte[] frame = new byte[length];
+        is.readFully( frame );
+        return frame;
+    }
+
+    /**
+     * @param request the request.
+     * @return the request as a message.
+     * @throws IOException if there is a problem writing.
+     */
+    static byte[] encodeRequest( Request request )
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( request.content.length + 1024 );
+        DataOutputStream os = new DataOutputStream( bytes );
+        writeString( os, request.compressorName );
+        writeString( os, request.encoding );
+        os.writeInt( request.options.size() );
+        for ( Map.Entry<String, String> option : request.options.entrySet() )
+        {
+            writeString( os, option.getKey() );
+            writeString( os, option.getValue() );
+        }
+        writeBytes( os, request.content );
+        os.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param message a message encoded by {@link #encodeRequest(Request)}.
+     * @return the request.
+     * @throws IOException if the message is corrupt.
+     */
+    static Request decodeRequest( byte[] message )
+        throws IOException
+    {
+        DataInputStream is = new DataInputStream( new ByteArrayInputStream( message ) );
+        String compressorName = readString( is );
+        String encoding = readString( is );
+        int optionCount = is.readInt();
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for ( int i = 0; i < optionCount; ++i )
+        {
+            options.put( readString( is ), readString( is ) );
+        }
+        return new Request( compressorName, encoding, options, readBytes( is ) );
+    }
+
+    /**
+     * @param content the compressed script, or null if compression failed.
+     * @param failure why compression failed, or null if it did not.
+     * @param diagnostics the problems reported while compressing.
+     * @return the response as a message.
+     * @throws IOException if there is a problem writing.
+     */
+    static byte[] encodeResponse( byte[] content, String failure, Diagnostics diagnostics )
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( content != null ? content.length + 1024 : 1024 );
+        DataOutputStream os = new DataOutputStream( bytes );
+        List<Diagnostic> reported = diagnostics.getDiagnostics();
+        os.writeInt( reported.size() );
+        for ( Diagnostic diagnostic : reported )
+        {
+            os.writeBoolean( diagnostic.getSeverity() == Diagnostic.Severity.ERROR );
+            writeString( os, diagnostic.getMessage() );
+            writeString( os, diagnostic.getFile() );
+            os.writeInt( diagnostic.getLine() );
+            os.writeInt( diagnostic.getColumn() );
+            os.writeInt( diagnostics.getOccurrences( diagnostic ) );
+        }
+        if ( content != null )
+        {
+            os.writeByte( COMPRESSED );
+            writeBytes( os, content );
+        }
+        else
+        {
+            os.writeByte( FAILED );
+            writeString( os, failure );
+        }
+        os.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Report the problems of a response, including a failure to compress as an error.
+     * 
+     * @param message a message encoded by {@link #encodeResponse(byte[], String, Diagnostics)}.
+     * @param diagnostics where to report the problems.
+     * @return the compressed script, or null if compression failed.
+     * @throws IOException if the message is corrupt.
+     */
+    static byte[] decodeResponse( byte[] message, Diagnostics diagnostics )
+        throws IOException
+    {
+        DataInputStream is = new DataInputStream( new ByteArrayInputStream( message ) );
+        int diagnosticCount = is.readInt();
+        for ( int i = 0; i < diagnosticCount; ++i )
+        {
+            boolean error = is.readBoolean();
+            String diagnosticMessage = readString( is );
+            String file = readString( is );
+            int line = is.readInt();
+            int column = is.readInt();
+            int occurrences = is.readInt();
+            for ( int j = 0; j < occurrences; ++j )
+            {
+                if ( error )
+                {
+                    diagnostics.error( diagnosticMessage, file, line, column );
+                }
+                else
+                {
+                    diagnostics.warning( diagnosticMessage, file, line, column );
+                }
+            }
+        }
+
+        if ( is.readByte() == COMPRESSED )
+        {
+            return readBytes( is );
+        }
+        diagnostics.error( readString( is ), null, -1, -1 );
+        return null;
+    }
+
+    private static void writeString( DataOutputStream os, String value )
+        throws IOException
+    {
+        writeBytes( os, value != null ? value.getBytes( "UTF-8" ) : null );
+    }
+
+    private static String readString( DataInputStream is )
+        throws IOException
+    {
+        byte[] bytes = readBytes( is );
+        return bytes != null ? new String( bytes, "UTF-8" ) : null;
+    }
+
+    private static void writeBytes( DataOutputStream os, byte[] value )
+        throws IOException
+    {
+        if ( value == null )
+        {
+            os.writeInt( -1 );
+        }
+        else
+        {
+            os.writeInt( value.length );
+            os.write( value );
+        }
+    }
+
+    private static byte[] readBytes( DataInputStream is )
+        throws IOException
+    {
+        int length = is.readInt();
+        if ( length < 0 )
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        is.readFully( bytes );
+        return bytes;
+    }
+}
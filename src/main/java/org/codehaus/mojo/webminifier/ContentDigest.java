@@ -0,0 +1,145 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Produces digests of content so that things derived from that content can be cached and compared.
+ */
+public class ContentDigest
+{
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final MessageDigest messageDigest;
+
+    /**
+     * Start a new digest.
+     */
+    public ContentDigest()
+    {
+        try
+        {
+            messageDigest = MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // All JREs are required to support SHA-1.
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * @param file the file whose content is to be digested.
+     * @return the hex encoded digest of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static String digest( File file )
+        throws IOException
+    {
+        return new ContentDigest().update( file ).toHexString();
+    }
+
+    /**
+     * Add the content of a file to the digest.
+     * 
+     * @param file the file to add.
+     * @return this.
+     * @throws IOException if the file cannot be read.
+     */
+    public ContentDigest update( File file )
+        throws IOException
+    {
+        InputStream is = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ( ( read = is.read( buffer ) ) != -1 )
+            {
+                messageDigest.update( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            is.close();
+        }
+        return this;
+    }
+
+    /**
+     * Add content to the digest.
+     * 
+     * @param content the content to add.
+     * @return this.
+     */
+    public ContentDigest update( byte[] content )
+    {
+        messageDigest.update( content );
+        return this;
+    }
+
+    /**
+     * Add a value to the digest.
+     * 
+     * @param value the value to add, may be null.
+     * @return this.
+     */
+    public ContentDigest update( String value )
+    {
+        if ( value != null )
+        {
+            for ( int i = 0; i < value.length(); ++i )
+            {
+                char c = value.charAt( i );
+                messageDigest.update( (byte) ( c >> 8 ) );
+                messageDigest.update( (byte) c );
+            }
+        }
+        // Terminate each value so that adjacent values cannot be confused with each other.
+        messageDigest.update( (byte) 0 );
+        messageDigest.update( (byte) ( value == null ? 0 : 1 ) );
+        return this;
+    }
+
+    /**
+     * Complete the digest.
+     * 
+     * @return the hex encoded digest of everything added so far. The digest is then reset.
+     */
+    public String toHexString()
+    {
+        byte[] digest = messageDigest.digest();
+        char[] hex = new char[digest.length * 2];
+        for ( int i = 0; i < digest.length; ++i )
+        {
+            hex[i * 2] = HEX_DIGITS[( digest[i] >> 4 ) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+        return new String( hex );
+    }
+}
@@ -0,0 +1,214 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+/**
+ * A problem reported by a compressor, along with where it was found.
+ */
+public class Diagnostic
+{
+    /**
+     * How serious a problem is.
+     */
+    public enum Severity
+    {
+        /** Compression cannot complete. */
+        ERROR,
+        /** Compression can complete but the script may not behave as expected. */
+        WARNING
+    }
+
+    private final Severity severity;
+
+    private final String message;
+
+    private final String file;
+
+    private final int line;
+
+    private final int column;
+
+    private final String compressor;
+
+    private final String bundle;
+
+    /**
+     * @param severity how serious the problem is.
+     * @param message a description of the problem.
+     * @param file the name of the source that the problem was found in, or null if not known.
+     * @param line the line that the problem was found on, or a value less than 1 if not known.
+     * @param column the column that the problem was found at, or a value less than 0 if not known.
+     * @param compressor the compressor that reported the problem, or null if not known.
+     * @param bundle the script being compressed, or null if not known.
+     */
+    public Diagnostic( Severity severity, String message, String file, int line, int column, String compressor,
+                       String bundle )
+    {
+        this.severity = severity;
+        this.message = message;
+        this.file = file;
+        this.line = line;
+        this.column = column;
+        this.compressor = compressor;
+        this.bundle = bundle;
+    }
+
+    /**
+     * @return how serious the problem is.
+     */
+    public Severity getSeverity()
+    {
+        return severity;
+    }
+
+    /**
+     * @return a description of the problem.
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * @return the name of the source that the problem was found in, or null if not known.
+     */
+    public String getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return the line that the problem was found on, or a value less than 1 if not known.
+     */
+    public int getLine()
+    {
+        return line;
+    }
+
+    /**
+     * @return the column that the problem was found at, or a value less than 0 if not known.
+     */
+    public int getColumn()
+    {
+        return column;
+    }
+
+    /**
+     * @return the compressor that reported the problem, or null if not known.
+     */
+    public String getCompressor()
+    {
+        return compressor;
+    }
+
+    /**
+     * @return the script being compressed, or null if not known.
+     */
+    public String getBundle()
+    {
+        return bundle;
+    }
+
+    /**
+     * @return where the problem was found e.g. 1.js (input:10:4), or an empty string if not known.
+     */
+    public String getLocation()
+    {
+        StringBuilder location = new StringBuilder();
+        if ( bundle != null )
+        {
+            location.append( bundle );
+        }
+        if ( file != null )
+        {
+            if ( location.length() > 0 )
+            {
+                location.append( ' ' );
+            }
+            location.append( '(' ).append( file );
+            if ( line > 0 )
+            {
+                location.append( ':' ).append( line );
+                if ( column >= 0 )
+                {
+                    location.append( ':' ).append( column );
+                }
+            }
+            location.append( ')' );
+        }
+        return location.toString();
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+        if ( !( obj instanceof Diagnostic ) )
+        {
+            return false;
+        }
+        Diagnostic other = (Diagnostic) obj;
+        return severity == other.severity && line == other.line && column == other.column
+            && equals( message, other.message ) && equals( file, other.file )
+            && equals( compressor, other.compressor ) && equals( bundle, other.bundle );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        final int prime = 31;
+        int result = severity.hashCode();
+        result = prime * result + ( message != null ? message.hashCode() : 0 );
+        result = prime * result + ( file != null ? file.hashCode() : 0 );
+        result = prime * result + line;
+        result = prime * result + column;
+        result = prime * result + ( compressor != null ? compressor.hashCode() : 0 );
+        result = prime * result + ( bundle != null ? bundle.hashCode() : 0 );
+        return result;
+    }
+
+    /**
+     * @return the problem in the form "Error: message - 1.js (input:10:4)".
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append( severity == Severity.ERROR ? "Error" : "Warning" );
+        if ( message != null )
+        {
+            stringBuilder.append( ": " ).append( message );
+        }
+        String location = getLocation();
+        if ( location.length() > 0 )
+        {
+            stringBuilder.append( " - " ).append( location );
+        }
+        return stringBuilder.toString();
+    }
+
+    private static boolean equals( Object a, Object b )
+    {
+        return a == null ? b == null : a.equals( b );
+    }
+}
@@ -0,0 +1,372 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Collects the problems reported by compressors, from any number of threads. Errors are logged as they are reported.
+ * Warnings are only counted as they are reported, duplicates included, and are logged as a summary once compression
+ * has finished so that thousands of them neither flood the log nor hold up compression.
+ * <p>
+ * A compressor reports to a scope obtained with {@link #forBundle(String, String)}, which records the compressor and
+ * script being compressed with each problem and knows whether that script in particular had errors or warnings.
+ * <p>
+ * When failing fast, the first error cancels the collector, notifying its cancellation listeners so that remaining
+ * work can be abandoned.
+ */
+public class Diagnostics
+{
+    /**
+     * The diagnostics that share a message and compressor, for summarising.
+     */
+    private static class Group
+    {
+        private final Diagnostic first;
+
+        private int occurrences;
+
+        private int locations;
+
+        Group( Diagnostic first )
+        {
+            this.first = first;
+        }
+    }
+
+    private final Diagnostics root;
+
+    private final String compressor;
+
+    private final String bundle;
+
+    private final Log logger;
+
+    private final boolean failFast;
+
+    private final AtomicBoolean errors = new AtomicBoolean();
+
+    private final AtomicBoolean warnings = new AtomicBoolean();
+
+    private final AtomicBoolean cancelled;
+
+    private final ConcurrentMap<Diagnostic, AtomicInteger> occurrences;
+
+    private final ConcurrentLinkedQueue<Diagnostic> diagnostics;
+
+    private final List<Runnable> cancellationListeners;
+
+    private final List<MinifierListener> listeners;
+
+    /**
+     * Where each problem reported to this scope is also recorded, or null if not recorded.
+     */
+    private final List<Diagnostic> record;
+
+    /**
+     * Create a collector for a host other than Maven.
+     * 
+     * @param logger where to log errors as they are reported and to summarise warnings.
+     * @param failFast true if the first error is to cancel the collector.
+     */
+    public Diagnostics( MinifierLogger logger, boolean failFast )
+    {
+        this( new MinifierLoggerLog( logger ), failFast );
+    }
+
+    /**
+     * Create a collector.
+     * 
+     * @param logger where to log errors as they are reported and to summarise warnings.
+     * @param failFast true if the first error is to cancel the collector.
+     */
+    public Diagnostics( Log logger, boolean failFast )
+    {
+        this.root = this;
+        this.compressor = null;
+        this.bundle = null;
+        this.logger = logger;
+        this.failFast = failFast;
+        this.cancelled = new AtomicBoolean();
+        this.occurrences = new ConcurrentHashMap<Diagnostic, AtomicInteger>();
+        this.diagnostics = new ConcurrentLinkedQueue<Diagnostic>();
+        this.cancellationListeners = new CopyOnWriteArrayList<Runnable>();
+        this.listeners = new CopyOnWriteArrayList<MinifierListener>();
+        this.record = null;
+    }
+
+    private Diagnostics( Diagnostics root, String compressor, String bundle, List<Diagnostic> record )
+    {
+        this.root = root;
+        this.compressor = compressor;
+        this.bundle = bundle;
+        this.logger = root.logger;
+        this.failFast = root.failFast;
+        this.cancelled = root.cancelled;
+        this.occurrences = root.occurrences;
+        this.diagnostics = root.diagnostics;
+        this.cancellationListeners = root.cancellationListeners;
+        this.listeners = root.listeners;
+        this.record = record;
+    }
+
+    /**
+     * Obtain a scope to report the problems of a compressor with.
+     * 
+     * @param compressorName the compressor e.g. CLOSURE.
+     * @param bundleName the script being compressed.
+     * @return a scope that reports to this collector.
+     */
+    public Diagnostics forBundle( String compressorName, String bundleName )
+    {
+        return new Diagnostics( root, compressorName, bundleName, record );
+    }
+
+    /**
+     * Obtain a scope that also records the problems reported to it, and to the scopes obtained from it, so that they
+     * can be reported again to another collector.
+     * 
+     * @param recordParam where to add each problem, once for each time that it is reported. The list must be safe for
+     *            use by several threads.
+     * @return a scope that reports to this collector.
+     */
+    public Diagnostics recordingTo( List<Diagnostic> recordParam )
+    {
+        return new Diagnostics( root, compressor, bundle, recordParam );
+    }
+
+    /**
+     * Report an error.
+     * 
+     * @param message a description of the problem.
+     * @param file the name of the source that the problem was found in, or null if not known.
+     * @param line the line that the problem was found on, or a value less than 1 if not known.
+     * @param column the column that the problem was found at, or a value less than 0 if not known.
+     */
+    public void error( String message, String file, int line, int column )
+    {
+        report( new Diagnostic( Diagnostic.Severity.ERROR, message, file, line, column, compressor, bundle ) );
+    }
+
+    /**
+     * Report a warning.
+     * 
+     * @param message a description of the problem.
+     * @param file the name of the source that the problem was found in, or null if not known.
+     * @param line the line that the problem was found on, or a value less than 1 if not known.
+     * @param column the column that the problem was found at, or a value less than 0 if not known.
+     */
+    public void warning( String message, String file, int line, int column )
+    {
+        report( new Diagnostic( Diagnostic.Severity.WARNING, message, file, line, column, compressor, bundle ) );
+    }
+
+    /**
+     * Report a problem.
+     * 
+     * @param diagnostic the problem.
+     */
+    public void report( Diagnostic diagnostic )
+    {
+        if ( record != null )
+        {
+            record.add( diagnostic );
+        }
+
+        boolean error = diagnostic.getSeverity() == Diagnostic.Severity.ERROR;
+        if ( error )
+        {
+            errors.set( true );
+            root.errors.set( true );
+        }
+        else
+        {
+            warnings.set( true );
+            root.warnings.set( true );
+        }
+
+        AtomicInteger count = occurrences.get( diagnostic );
+        if ( count == null )
+        {
+            AtomicInteger newCount = new AtomicInteger();
+            count = occurrences.putIfAbsent( diagnostic, newCount );
+            if ( count == null )
+            {
+                count = newCount;
+                diagnostics.add( diagnostic );
+                if ( error )
+                {
+                    logger.error( diagnostic.toString() );
+                }
+                for ( MinifierListener listener : listeners )
+                {
+                    listener.diagnosticReported( diagnostic );
+                }
+            }
+        }
+        count.incrementAndGet();
+
+        if ( error && failFast && cancelled.compareAndSet( false, true ) )
+        {
+            for ( Runnable listener : cancellationListeners )
+            {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * @param listener to be run, once, by the thread reporting the error that cancels the collector.
+     */
+    public void addCancellationListener( Runnable listener )
+    {
+        cancellationListeners.add( listener );
+    }
+
+    /**
+     * @param listener to be told of each distinct problem as it is first reported to any scope of the collector.
+     */
+    public void addListener( MinifierListener listener )
+    {
+        listeners.add( listener );
+    }
+
+    /**
+     * @return true if failing fast and an error has been reported.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled.get();
+    }
+
+    /**
+     * @return true if errors have been reported to this scope.
+     */
+    public boolean hasErrors()
+    {
+        return errors.get();
+    }
+
+    /**
+     * @return true if warnings have been reported to this scope.
+     */
+    public boolean hasWarnings()
+    {
+        return warnings.get();
+    }
+
+    /**
+     * @return the distinct problems reported to any scope of the collector, in the order first reported.
+     */
+    public List<Diagnostic> getDiagnostics()
+    {
+        return Collections.unmodifiableList( new ArrayList<Diagnostic>( diagnostics ) );
+    }
+
+    /**
+     * @param diagnostic a problem.
+     * @return the number of times that the problem has been reported.
+     */
+    public int getOccurrences( Diagnostic diagnostic )
+    {
+        AtomicInteger count = occurrences.get( diagnostic );
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Log the warnings reported to any scope of the collector. Warnings sharing a message and compressor are logged
+     * once along with the number of times and places that they were reported, most frequent first.
+     * 
+     * @param maxWarnings the number of distinct warnings to log, with the remainder being counted.
+     */
+    public void logSummary( int maxWarnings )
+    {
+        Map<String, Group> groups = new LinkedHashMap<String, Group>();
+        int warningCount = 0;
+        int errorCount = 0;
+        for ( Diagnostic diagnostic : diagnostics )
+        {
+            int count = getOccurrences( diagnostic );
+            if ( diagnostic.getSeverity() == Diagnostic.Severity.ERROR )
+            {
+                errorCount += count;
+                continue;
+            }
+
+            warningCount += count;
+            String key = diagnostic.getCompressor() + '\n' + diagnostic.getMessage();
+            Group group = groups.get( key );
+            if ( group == null )
+            {
+                group = new Group( diagnostic );
+                groups.put( key, group );
+            }
+            group.occurrences += count;
+            ++group.locations;
+        }
+
+        List<Group> sortedGroups = new ArrayList<Group>( groups.values() );
+        Collections.sort( sortedGroups, new Comparator<Group>()
+        {
+            public int compare( Group o1, Group o2 )
+            {
+                return o2.occurrences - o1.occurrences;
+            }
+        } );
+
+        int logged = 0;
+        for ( Group group : sortedGroups )
+        {
+            if ( logged++ == maxWarnings )
+            {
+                logger.warn( "... and " + ( sortedGroups.size() - maxWarnings ) + " more distinct warning(s)" );
+                break;
+            }
+            StringBuilder message = new StringBuilder( group.first.toString() );
+            if ( group.locations > 1 )
+            {
+                message.append( " and " ).append( group.locations - 1 ).append( " other place(s)" );
+            }
+            if ( group.occurrences > 1 )
+            {
+                message.append( " [reported " ).append( group.occurrences ).append( " times]" );
+            }
+            logger.warn( message.toString() );
+        }
+
+        if ( errorCount > 0 || warningCount > 0 )
+        {
+            logger.info( errorCount + " error(s) and " + warningCount + " warning(s) reported" );
+        }
+    }
+}
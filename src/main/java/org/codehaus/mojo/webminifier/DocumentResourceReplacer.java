@@ -25,9 +25,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.StringWriter;
+import java.io.StringReader;
+import java.io.Writer;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 
 import javax.xml.transform.OutputKeys;
@@ -53,7 +55,6 @@ import org.xml.sax.SAXException;
  */
 public class DocumentResourceReplacer
 {
-
     private final Document document;
 
     private final File documentParentFile;
@@ -113,18 +114,25 @@ public class DocumentResourceReplacer
     }
 
     /**
-     * @return the html source as a string.
+     * Write the html source. The source is written as it is transformed so that it is never held in memory as a whole.
+     * 
+     * @param writer where to write the source to.
      * @throws TransformerException if something does wrong.
+     * @throws IOException if there is a problem writing.
      */
-    private String getHTMLSource()
-        throws TransformerException
+    private void writeHTMLSource( Writer writer )
+        throws TransformerException, IOException
     {
         // Use a Transformer for output
         TransformerFactory transformerFactory = TransformerFactory.newInstance();
         Transformer transformer = transformerFactory.newTransformer();
 
+        // Left to itself the transformer indents HTML, and from Java 9 indents it further, which only adds to the size
+        // of the document and makes it differ between JVMs.
+        transformer.setOutputProperty( OutputKeys.METHOD, "html" );
+        transformer.setOutputProperty( OutputKeys.INDENT, "no" );
+
         DOMSource source = new DOMSource( document );
-        StringWriter writer = new StringWriter();
         StreamResult result = new StreamResult( writer );
 
         DocumentType doctype = document.getDoctype();
@@ -151,8 +159,6 @@ public class DocumentResourceReplacer
         }
 
         transformer.transform( source, result );
-
-        return writer.toString();
     }
 
     /**
@@ -163,6 +169,24 @@ public class DocumentResourceReplacer
      * @param jsResources the new set.
      */
     public void replaceJSResources( File baseFolder, File documentDir, List<File> jsResources )
+    {
+        List<ScriptReference> scriptReferences = new ArrayList<ScriptReference>( jsResources.size() );
+        for ( File jsResource : jsResources )
+        {
+            scriptReferences.add( new ScriptReference( jsResource, EnumSet.noneOf( ScriptReference.Option.class ) ) );
+        }
+        replaceJSReferences( baseFolder, documentDir, scriptReferences );
+    }
+
+    /**
+     * Replace the script statements that exist in the document with the new set, honouring how each one is to be
+     * loaded.
+     * 
+     * @param baseFolder the base folder to documents and js resources.
+     * @param documentDir the folder that represents the root.
+     * @param scriptReferences the new set.
+     */
+    public void replaceJSReferences( File baseFolder, File documentDir, List<ScriptReference> scriptReferences )
     {
         // Get and remove all JS script elements
         NodeList scriptNodes = document.getElementsByTagName( "script" );
@@ -195,25 +219,188 @@ public class DocumentResourceReplacer
         }
         String docRelUri = sb.toString();
 
-        // Note the head node to add to.
+        // Note the head and body nodes to add to. Scripts destined for the body go to the head if there is no body.
 
         NodeList headElements = document.getElementsByTagName( "head" );
         if ( headElements.getLength() == 1 )
         {
             Node headElement = headElements.item( 0 );
 
-            // Insert new SCRIPT elements for all replaced resources
-            for ( File jsResource : jsResources )
+            NodeList bodyElements = document.getElementsByTagName( "body" );
+            Node bodyElement = bodyElements.getLength() == 1 ? bodyElements.item( 0 ) : headElement;
+
+            // Preload hints go ahead of anything else in the head that may block, so that the browser learns of the
+            // scripts as early as possible.
+            Node preloadInsertionPoint = getFirstBlockingChild( headElement );
+
+            for ( ScriptReference scriptReference : scriptReferences )
+            {
+                if ( scriptReference.hasOption( ScriptReference.Option.PRELOAD )
+                    && !scriptReference.hasOption( ScriptReference.Option.LAZY )
+                    && scriptReference.getInlineContent() == null )
+                {
+                    Element linkElement = document.createElement( "link" );
+                    linkElement.setAttribute( "rel", "preload" );
+                    linkElement.setAttribute( "as", "script" );
+                    linkElement.setAttribute( "href", getSrc( baseFolderUri, docRelUri, scriptReference ) );
+                    headElement.insertBefore( linkElement, preloadInsertionPoint );
+                }
+            }
+
+            // Insert new SCRIPT elements for all replaced resources, noting those that are to be loaded lazily.
+            List<String> lazySrcs = new ArrayList<String>();
+            for ( ScriptReference scriptReference : scriptReferences )
             {
-                // jsResource file path needs to have its path made relative to the document.
-                URI jsResourceBaseRelUri = baseFolderUri.relativize( jsResource.toURI() );
+                if ( scriptReference.hasOption( ScriptReference.Option.LAZY ) )
+                {
+                    lazySrcs.add( getSrc( baseFolderUri, docRelUri, scriptReference ) );
+                    continue;
+                }
+
+                Element jsElement = document.createElement( "script" );
+                jsElement.setAttribute( "type", "text/javascript" );
+
+                String inlineContent = scriptReference.getInlineContent();
+                if ( inlineContent != null )
+                {
+                    jsElement.appendChild( document.createTextNode( escapeInlineScript( inlineContent ) ) );
+                }
+                else
+                {
+                    jsElement.setAttribute( "src", getSrc( baseFolderUri, docRelUri, scriptReference ) );
+                }
+
+                if ( scriptReference.hasOption( ScriptReference.Option.DEFER ) )
+                {
+                    jsElement.setAttribute( "defer", "defer" );
+                }
+                if ( scriptReference.hasOption( ScriptReference.Option.ASYNC ) )
+                {
+                    jsElement.setAttribute( "async", "async" );
+                }
 
+                if ( scriptReference.hasOption( ScriptReference.Option.BODY ) )
+                {
+                    bodyElement.appendChild( jsElement );
+                }
+                else
+                {
+                    headElement.appendChild( jsElement );
+                }
+            }
+
+            if ( !lazySrcs.isEmpty() )
+            {
                 Element jsElement = document.createElement( "script" );
                 jsElement.setAttribute( "type", "text/javascript" );
-                jsElement.setAttribute( "src", docRelUri + jsResourceBaseRelUri.toString() );
-                headElement.appendChild( jsElement );
+                jsElement.appendChild( document.createTextNode( escapeInlineScript( createLazyLoader( lazySrcs ) ) ) );
+                bodyElement.appendChild( jsElement );
+            }
+        }
+    }
+
+    /**
+     * Generate a script that loads other scripts once the window has loaded. The scripts are fetched in parallel but
+     * executed in the order given, so that dependencies between them are honoured.
+     * 
+     * @param srcs the scripts to load.
+     * @return the loader script.
+     */
+    static String createLazyLoader( List<String> srcs )
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "(function(s){function l(){var h=document.getElementsByTagName(\"head\")[0];" );
+        sb.append( "for(var i=0;i<s.length;i++){var e=document.createElement(\"script\");" );
+        sb.append( "e.src=s[i];e.async=false;h.appendChild(e)}}" );
+        sb.append( "if(document.readyState===\"complete\"){l()}" );
+        sb.append( "else if(window.addEventListener){window.addEventListener(\"load\",l,false)}" );
+        sb.append( "else{window.attachEvent(\"onload\",l)}})([" );
+        for ( int i = 0; i < srcs.size(); ++i )
+        {
+            if ( i > 0 )
+            {
+                sb.append( ',' );
+            }
+            sb.append( '"' );
+            sb.append( srcs.get( i ).replace( "\\", "\\\\" ).replace( "\"", "\\\"" ) );
+            sb.append( '"' );
+        }
+        sb.append( "]);" );
+        return sb.toString();
+    }
+
+    /**
+     * Prevent script content from prematurely closing the script element that it is embedded in, or from opening a
+     * comment that would otherwise have the same effect. Within string, template and regular expression literals and
+     * within comments the sequence is broken with a backslash, which leaves its meaning unchanged; within code it is
+     * broken with a space instead, so that an expression such as <code>a&lt;!--b</code> remains valid. Literals
+     * and comments are told apart from code by a {@link JsScanner}.
+     * 
+     * @param content the script content.
+     * @return the content safe for embedding.
+     */
+    static String escapeInlineScript( String content )
+    {
+        StringBuilder sb = new StringBuilder( content.length() + 16 );
+        JsScanner scanner = new JsScanner( new StringReader( content ) );
+        try
+        {
+            for ( int i = 0; scanner.next() != JsScanner.EOF; ++i )
+            {
+                char c = content.charAt( i );
+                if ( c == '<'
+                    && ( content.startsWith( "<!--", i ) || content.regionMatches( true, i, "</script", 0, 8 ) ) )
+                {
+                    // Within code, the '/' or '!' that follows is still read as code.
+                    sb.append( scanner.getState() == JsScanner.CODE ? "< " : "<\\" );
+                }
+                else
+                {
+                    sb.append( c );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( e );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param baseFolderUri the base folder to documents and js resources.
+     * @param docRelUri the path from the document to the base folder.
+     * @param scriptReference the script to reference.
+     * @return the script's path relative to the document.
+     */
+    private String getSrc( URI baseFolderUri, String docRelUri, ScriptReference scriptReference )
+    {
+        // jsResource file path needs to have its path made relative to the document.
+        URI jsResourceBaseRelUri = baseFolderUri.relativize( scriptReference.getFile().toURI() );
+        return docRelUri + jsResourceBaseRelUri.toString();
+    }
+
+    /**
+     * @param headElement the head of the document.
+     * @return the first script, link or style element of the head, or null if there is none.
+     */
+    private Node getFirstBlockingChild( Node headElement )
+    {
+        NodeList childNodes = headElement.getChildNodes();
+        for ( int i = 0; i < childNodes.getLength(); ++i )
+        {
+            Node childNode = childNodes.item( i );
+            if ( childNode.getNodeType() == Node.ELEMENT_NODE )
+            {
+                String name = childNode.getNodeName();
+                if ( name.equalsIgnoreCase( "script" ) || name.equalsIgnoreCase( "link" )
+                    || name.equalsIgnoreCase( "style" ) )
+                {
+                    return childNode;
+                }
             }
         }
+        return null;
     }
 
     /**
@@ -233,7 +420,7 @@ public class DocumentResourceReplacer
             OutputStreamWriter updatedHTMLWriter = new OutputStreamWriter( new BufferedOutputStream( fos ), encoding );
             try
             {
-                updatedHTMLWriter.write( getHTMLSource() );
+                writeHTMLSource( updatedHTMLWriter );
             }
             finally
             {
@@ -0,0 +1,71 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Measures the peak use of the heap over a period of work e.g. the compression of a script. The peak is that of the
+ * whole JVM so work performed concurrently is included.
+ */
+public final class HeapUsage
+{
+    private HeapUsage()
+    {
+    }
+
+    /**
+     * Start a new period of measurement.
+     */
+    public static void resetPeak()
+    {
+        for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+        {
+            if ( pool.getType() == MemoryType.HEAP && pool.isValid() )
+            {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return the bytes of heap used at the peak of the current period of measurement. This is the sum of the peak
+     *         of each heap memory pool, and so may slightly overstate the peak of the heap as a whole.
+     */
+    public static long getPeakUsed()
+    {
+        long peakUsed = 0L;
+        for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+        {
+            if ( pool.getType() == MemoryType.HEAP && pool.isValid() )
+            {
+                MemoryUsage peakUsage = pool.getPeakUsage();
+                if ( peakUsage != null )
+                {
+                    peakUsed += peakUsage.getUsed();
+                }
+            }
+        }
+        return peakUsed;
+    }
+}
@@ -0,0 +1,383 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.Scanner;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Determines what a minification depends on, and so whether the destinationFolder is up to date, and brings the
+ * destinationFolder up to date with the sourceFolder so that only the HTML files affected by changes need be minified
+ * again.
+ */
+class IncrementalBuild
+{
+    private final File sourceFolder;
+
+    private final File destinationFolder;
+
+    private final File pageGraphFile;
+
+    private final boolean force;
+
+    private final List<File> closureExterns;
+
+    /**
+     * The values of the parameters that affect the outcome of minification, in a fixed order.
+     */
+    private final List<String> configurationValues;
+
+    private final BuildContext buildContext;
+
+    private final Log logger;
+
+    /**
+     * @param configuration what to minify and how, of which the values that affect the outcome are copied.
+     * @param buildContext tells of the files changed when the build is incremental.
+     * @param logger where to log.
+     */
+    IncrementalBuild( MinifierConfiguration configuration, BuildContext buildContext, Log logger )
+    {
+        this.sourceFolder = configuration.getSourceFolder();
+        this.destinationFolder = configuration.getDestinationFolder();
+        this.pageGraphFile = configuration.getPageGraphFile();
+        this.force = configuration.isForce();
+        this.closureExterns =
+            configuration.getClosureExterns() != null ? new ArrayList<File>( configuration.getClosureExterns() ) : null;
+        this.buildContext = buildContext;
+        this.logger = logger;
+
+        // Parameters that affect the outcome must be added here.
+        List<String> values = new ArrayList<String>();
+        values.add( configuration.getPluginVersion() );
+        values.add( String.valueOf( closureExterns ) );
+        values.add( String.valueOf( sourceFolder ) );
+        values.add( String.valueOf( destinationFolder ) );
+        values.add( String.valueOf( configuration.getHtmlIncludes() ) );
+        values.add( String.valueOf( configuration.getHtmlExcludes() ) );
+        addValues( values, configuration.getJsSplitPoints() );
+        values.add( configuration.getEncoding() );
+        values.add( String.valueOf( configuration.getJsCompressorType() ) );
+        values.add( configuration.getJsCompressor() );
+        addValues( values, configuration.getJsCompressorOptions() );
+        values.add( String.valueOf( configuration.getYuiLinebreak() ) );
+        values.add( String.valueOf( configuration.isYuiDisableOptimizations() ) );
+        values.add( String.valueOf( configuration.isYuiMunge() ) );
+        values.add( String.valueOf( configuration.isYuiPreserveSemi() ) );
+        values.add( String.valueOf( configuration.getClosureCompilationLevel() ) );
+        values.add( String.valueOf( configuration.isClosureAcceptConstKeyword() ) );
+        values.add( String.valueOf( configuration.getProjectSourceFolder() ) );
+        values.add( String.valueOf( configuration.isSplitDependencies() ) );
+        values.add( String.valueOf( configuration.getMaxBundleBytes() ) );
+        values.add( String.valueOf( configuration.isMaxBundleBytesGzipped() ) );
+        values.add( String.valueOf( configuration.isConcatenate() ) );
+        addValues( values, configuration.getJsScriptOptions() );
+        values.add( configuration.getJsDefaultScriptOptions() );
+        values.add( String.valueOf( configuration.getInlineThresholdBytes() ) );
+        values.add( String.valueOf( configuration.isClosureModules() ) );
+        values.add( String.valueOf( configuration.isClosureGenerateExterns() ) );
+        values.add( String.valueOf( configuration.getClosureRenamingMapFolder() ) );
+        addValues( values, configuration.getClosureDefines() );
+        values.add( configuration.getClosureDefaultDefines() );
+        addValues( values, configuration.getJsStripCalls() );
+        values.add( configuration.getJsDefaultStripCalls() );
+        values.add( String.valueOf( configuration.isGzip() ) );
+        values.add( String.valueOf( configuration.isJsDiscoverDependencies() ) );
+        values.add( configuration.getJsModuleBaseUrl() );
+        values.add( String.valueOf( configuration.getShardIndex() ) );
+        values.add( String.valueOf( configuration.getShardCount() ) );
+        values.add( String.valueOf( configuration.isLowMemory() ) );
+        this.configurationValues = values;
+    }
+
+    /**
+     * Add properties to the values of the configuration in the order of their names so that the fingerprint does not
+     * depend on the order in which they were declared. No properties and empty properties are equivalent.
+     * 
+     * @param values the values to add to.
+     * @param properties the properties to add, may be null.
+     */
+    private static void addValues( List<String> values, Properties properties )
+    {
+        Map<String, String> sortedProperties = new TreeMap<String, String>();
+        if ( properties != null )
+        {
+            for ( Map.Entry<Object, Object> entry : properties.entrySet() )
+            {
+                sortedProperties.put( entry.getKey().toString(), entry.getValue().toString() );
+            }
+        }
+        values.add( String.valueOf( sortedProperties.size() ) );
+        for ( Map.Entry<String, String> entry : sortedProperties.entrySet() )
+        {
+            values.add( entry.getKey() );
+            values.add( entry.getValue() );
+        }
+    }
+
+    /**
+     * Produce a fingerprint of everything that the outcome of minification depends on.
+     * 
+     * @param configurationFingerprint the fingerprint of the configuration.
+     * @param sourceDigests the digest of each file in the sourceFolder.
+     * @return the fingerprint.
+     */
+    static String getFingerprint( String configurationFingerprint, Map<String, String> sourceDigests )
+    {
+        ContentDigest digest = new ContentDigest();
+        digest.update( configurationFingerprint );
+        for ( Map.Entry<String, String> entry : sourceDigests.entrySet() )
+        {
+            digest.update( entry.getKey() ).update( entry.getValue() );
+        }
+        return digest.toHexString();
+    }
+
+    /**
+     * Produce the digest of the content of each file in the sourceFolder.
+     * 
+     * @return the digests by sourceFolder relative path, in the order of their paths.
+     * @throws IOException if there is a problem reading files.
+     */
+    Map<String, String> getSourceDigests()
+        throws IOException
+    {
+        @SuppressWarnings( "unchecked" )
+        Collection<File> sourceFiles = FileUtils.listFiles( sourceFolder, null, true );
+        Map<String, String> sourceDigests = new TreeMap<String, String>();
+        URI sourceFolderUri = sourceFolder.toURI();
+        for ( File sourceFile : sourceFiles )
+        {
+            sourceDigests.put( sourceFolderUri.relativize( sourceFile.toURI() ).toString(),
+                               ContentDigest.digest( sourceFile ) );
+        }
+        return sourceDigests;
+    }
+
+    /**
+     * Produce a fingerprint of everything other than the sourceFolder that the outcome of minification depends on: the
+     * configuration, the plugin version and the content of the externs.
+     * 
+     * @return the fingerprint.
+     * @throws IOException if there is a problem reading files.
+     */
+    String getConfigurationFingerprint()
+        throws IOException
+    {
+        ContentDigest digest = new ContentDigest();
+        for ( String value : configurationValues )
+        {
+            digest.update( value );
+        }
+        if ( closureExterns != null )
+        {
+            for ( File extern : closureExterns )
+            {
+                digest.update( extern );
+            }
+        }
+        return digest.toHexString();
+    }
+
+    /**
+     * Determine the page graph of the previous build if an incremental build can be performed.
+     * 
+     * @param configurationFingerprint the fingerprint of the current configuration.
+     * @return the graph, or null if all pages are to be minified.
+     * @throws MojoExecutionException if there is a problem reading the graph.
+     */
+    PageGraph readPageGraph( String configurationFingerprint )
+        throws MojoExecutionException
+    {
+        if ( pageGraphFile == null || force || !destinationFolder.isDirectory() )
+        {
+            return null;
+        }
+
+        PageGraph previousPageGraph;
+        try
+        {
+            previousPageGraph = PageGraph.read( pageGraphFile );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Cannot read page graph: " + pageGraphFile, e );
+        }
+        if ( previousPageGraph == null || !configurationFingerprint.equals( previousPageGraph.getConfiguration() ) )
+        {
+            return null;
+        }
+        return previousPageGraph;
+    }
+
+    /**
+     * Bring the destinationFolder up to date with the sourceFolder: changed files are copied and removed files deleted.
+     * 
+     * @param previousPageGraph the pages as they were when last minified.
+     * @param pageGraph the pages as they are to be, with the digest of each file in the sourceFolder.
+     * @return the sourceFolder relative path of each file changed or removed.
+     * @throws IOException if there is a problem copying.
+     */
+    Set<String> copyChangedFiles( PageGraph previousPageGraph, PageGraph pageGraph )
+        throws IOException
+    {
+        Set<String> changedFiles = new TreeSet<String>();
+        Set<String> removedFiles = new TreeSet<String>();
+        if ( buildContext.isIncremental() )
+        {
+            Scanner scanner = buildContext.newScanner( sourceFolder );
+            scanner.scan();
+            for ( String changedFile : scanner.getIncludedFiles() )
+            {
+                changedFiles.add( changedFile.replace( File.separatorChar, '/' ) );
+            }
+            Scanner deleteScanner = buildContext.newDeleteScanner( sourceFolder );
+            deleteScanner.scan();
+            for ( String removedFile : deleteScanner.getIncludedFiles() )
+            {
+                removedFiles.add( removedFile.replace( File.separatorChar, '/' ) );
+            }
+        }
+        else
+        {
+            Map<String, String> previousSourceDigests = previousPageGraph.getSourceDigests();
+            for ( Map.Entry<String, String> entry : pageGraph.getSourceDigests().entrySet() )
+            {
+                if ( !entry.getValue().equals( previousSourceDigests.get( entry.getKey() ) ) )
+                {
+                    changedFiles.add( entry.getKey() );
+                }
+            }
+            for ( String previousSourceFile : previousSourceDigests.keySet() )
+            {
+                if ( !pageGraph.getSourceDigests().containsKey( previousSourceFile ) )
+                {
+                    removedFiles.add( previousSourceFile );
+                }
+            }
+        }
+
+        for ( String changedFile : changedFiles )
+        {
+            FileUtils.copyFile( new File( sourceFolder, changedFile ), new File( destinationFolder, changedFile ) );
+        }
+        for ( String removedFile : removedFiles )
+        {
+            new File( destinationFolder, removedFile ).delete();
+        }
+
+        Set<String> changedAndRemovedFiles = new HashSet<String>( changedFiles );
+        changedAndRemovedFiles.addAll( removedFiles );
+        return changedAndRemovedFiles;
+    }
+
+    /**
+     * Determine the HTML files affected by changes to the sourceFolder. These are restored, and the files generated for
+     * them, or for HTML files that have been removed, are deleted. Scripts that were consumed are restored so that they
+     * can be found by the HTML files to be minified.
+     * 
+     * @param previousPageGraph the pages as they were when last minified.
+     * @param pageGraph populated with the pages that are not to be minified again.
+     * @param changedAndRemovedFiles the files changed or removed, as copied by
+     *            {@link #copyChangedFiles(PageGraph, PageGraph)}.
+     * @param currentHTMLFiles the destinationFolder relative path of each HTML file to be processed.
+     * @param restoredFiles populated with the sourceFolder relative path of each script restored.
+     * @return the destinationFolder relative path of each HTML file to be minified.
+     * @throws IOException if there is a problem copying.
+     */
+    List<String> restorePages( PageGraph previousPageGraph, PageGraph pageGraph, Set<String> changedAndRemovedFiles,
+                               String[] currentHTMLFiles, Set<String> restoredFiles )
+        throws IOException
+    {
+        Set<String> affectedHTMLFiles = previousPageGraph.getAffectedPages( changedAndRemovedFiles );
+
+        Set<String> currentHTMLFileSet = new LinkedHashSet<String>( Arrays.asList( currentHTMLFiles ) );
+        List<String> targetHTMLFiles = new ArrayList<String>();
+        for ( String currentHTMLFile : currentHTMLFileSet )
+        {
+            if ( previousPageGraph.getPage( currentHTMLFile ) == null || affectedHTMLFiles.contains( currentHTMLFile ) )
+            {
+                targetHTMLFiles.add( currentHTMLFile );
+            }
+        }
+
+        Set<String> removedHTMLFiles = new TreeSet<String>();
+        for ( String previousHTMLFile : previousPageGraph.getPages() )
+        {
+            PageGraph.Page previousPage = previousPageGraph.getPage( previousHTMLFile );
+            if ( !currentHTMLFileSet.contains( previousHTMLFile ) || targetHTMLFiles.contains( previousHTMLFile ) )
+            {
+                if ( !currentHTMLFileSet.contains( previousHTMLFile ) )
+                {
+                    removedHTMLFiles.add( previousHTMLFile );
+                }
+                for ( String output : previousPage.getOutputs() )
+                {
+                    new File( destinationFolder, output ).delete();
+                }
+            }
+            else
+            {
+                PageGraph.Page page = pageGraph.addPage( previousHTMLFile );
+                page.getInputs().addAll( previousPage.getInputs() );
+                page.getConsumed().addAll( previousPage.getConsumed() );
+                page.getOutputs().addAll( previousPage.getOutputs() );
+            }
+        }
+
+        for ( String targetHTMLFile : targetHTMLFiles )
+        {
+            FileUtils.copyFile( new File( sourceFolder, targetHTMLFile ),
+                                new File( destinationFolder, targetHTMLFile ) );
+        }
+        for ( String sourceFile : pageGraph.getSourceDigests().keySet() )
+        {
+            File destinationFile = new File( destinationFolder, sourceFile );
+            if ( !destinationFile.exists() )
+            {
+                FileUtils.copyFile( new File( sourceFolder, sourceFile ), destinationFile );
+                restoredFiles.add( sourceFile );
+            }
+        }
+
+        logger.info( "Incremental build: " + changedAndRemovedFiles.size() + " file(s) changed, "
+                           + targetHTMLFiles.size() + " HTML file(s) affected " + targetHTMLFiles + ", "
+                           + removedHTMLFiles.size() + " HTML file(s) removed " + removedHTMLFiles );
+        return targetHTMLFiles;
+    }
+}
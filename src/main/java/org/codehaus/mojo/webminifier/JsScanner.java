@@ -0,0 +1,522 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a script a character at a time, telling the code apart from string, template and regular expression literals
+ * and from comments, without parsing the script. Whether a slash begins a regular expression or is a division is
+ * determined by the token before it, as is usual for minifiers, so a regular expression following a closing
+ * parenthesis e.g. if (a) /b/.exec(c) is not recognised. The substitutions of a template literal are read as part of
+ * the literal, so a template literal nested within one is not recognised either. Scripts are read this way by the
+ * fast compressor and when inlining them into HTML.
+ */
+public class JsScanner
+{
+    /**
+     * Returned once the script has been read.
+     */
+    public static final int EOF = -1;
+
+    /**
+     * Code, including whitespace.
+     */
+    public static final int CODE = 0;
+
+    /**
+     * A string or template literal, including its quotes.
+     */
+    public static final int STRING = 1;
+
+    /**
+     * A regular expression literal, including its slashes but not its flags.
+     */
+    public static final int REGEX = 2;
+
+    /**
+     * A comment ending at the end of its line, excluding the line terminator.
+     */
+    public static final int LINE_COMMENT = 3;
+
+    /**
+     * A comment beginning with /* and ending with * followed by /.
+     */
+    public static final int BLOCK_COMMENT = 4;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The keywords after which a slash begins a regular expression.
+     */
+    private static final char[][] REGEX_KEYWORDS = { "return".toCharArray(), "typeof".toCharArray(),
+        "case".toCharArray(), "do".toCharArray(), "else".toCharArray(), "in".toCharArray(),
+        "instanceof".toCharArray(), "new".toCharArray(), "delete".toCharArray(), "void".toCharArray(),
+        "throw".toCharArray() };
+
+    private static final int MAX_KEYWORD_LENGTH = 10;
+
+    /**
+     * The characters after which a slash begins a regular expression.
+     */
+    private static final String REGEX_PRECEDING_CHARS = "(,=:[!&|?{};+-*%<>~^";
+
+    private static final int VERTICAL_TAB = 0x0b;
+
+    private static final int BYTE_ORDER_MARK = 0xfeff;
+
+    private static final int LINE_SEPARATOR = 0x2028;
+
+    private static final int PARAGRAPH_SEPARATOR = 0x2029;
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int position;
+
+    private int limit;
+
+    private int line = 1;
+
+    /**
+     * What the next character belongs to.
+     */
+    private int state = CODE;
+
+    /**
+     * What the character last read belongs to.
+     */
+    private int charState = CODE;
+
+    private boolean start;
+
+    private boolean end;
+
+    private String error;
+
+    private int startLine;
+
+    /**
+     * The quote of the string literal being read.
+     */
+    private int quote;
+
+    /**
+     * The character last read is escaped by a backslash.
+     */
+    private boolean escaped;
+
+    /**
+     * The regular expression literal being read is within a character class.
+     */
+    private boolean inClass;
+
+    /**
+     * The character last read is the * opening a block comment.
+     */
+    private boolean opening;
+
+    /**
+     * The character last read within a block comment is a *.
+     */
+    private boolean afterStar;
+
+    /**
+     * The last character of code read, ignoring whitespace and comments, or EOF if none.
+     */
+    private int lastChar = EOF;
+
+    /**
+     * The last token read was a regular expression, whose flags may follow.
+     */
+    private boolean lastRegex;
+
+    /**
+     * The last token read was a division operator.
+     */
+    private boolean lastDivision;
+
+    /**
+     * The last token read was an increment or decrement operator, after which a slash can only be a division.
+     */
+    private boolean lastIncrement;
+
+    /**
+     * Whitespace or a comment has been read since the last character of code.
+     */
+    private boolean separated;
+
+    /**
+     * The identifier being read, for as long as it could be a keyword.
+     */
+    private final char[] word = new char[MAX_KEYWORD_LENGTH];
+
+    private int wordLength;
+
+    /**
+     * @param reader the script.
+     */
+    public JsScanner( Reader reader )
+    {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next character.
+     * 
+     * @return the character, or EOF if the script has been read.
+     * @throws IOException if there is a problem reading.
+     */
+    public int next()
+        throws IOException
+    {
+        start = false;
+        end = false;
+        error = null;
+        if ( position == limit && !fill() )
+        {
+            if ( state == STRING )
+            {
+                error = "Unterminated string literal";
+            }
+            else if ( state == REGEX )
+            {
+                error = "Unterminated regular expression literal";
+            }
+            else if ( state == BLOCK_COMMENT )
+            {
+                error = "Unterminated comment";
+            }
+            state = CODE;
+            charState = CODE;
+            return EOF;
+        }
+        char c = buffer[position++];
+        if ( c == '\n' )
+        {
+            ++line;
+        }
+
+        charState = state;
+        switch ( state )
+        {
+            case STRING:
+                readString( c );
+                break;
+            case REGEX:
+                readRegex( c );
+                break;
+            case LINE_COMMENT:
+                if ( isLineTerminator( c ) )
+                {
+                    state = CODE;
+                    charState = CODE;
+                    separated = true;
+                }
+                break;
+            case BLOCK_COMMENT:
+                if ( opening )
+                {
+                    opening = false;
+                }
+                else if ( c == '/' && afterStar )
+                {
+                    state = CODE;
+                    end = true;
+                }
+                else
+                {
+                    afterStar = c == '*';
+                }
+                break;
+            default:
+                readCode( c );
+                break;
+        }
+        return c;
+    }
+
+    /**
+     * @return the character after the one last read, without reading it, or EOF if there is none.
+     * @throws IOException if there is a problem reading.
+     */
+    public int peek()
+        throws IOException
+    {
+        if ( position == limit && !fill() )
+        {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    /**
+     * @return what the character last read belongs to: CODE, STRING, REGEX, LINE_COMMENT or BLOCK_COMMENT.
+     */
+    public int getState()
+    {
+        return charState;
+    }
+
+    /**
+     * @return true if the character last read begins a literal or comment.
+     */
+    public boolean isStart()
+    {
+        return start;
+    }
+
+    /**
+     * @return true if the character last read ends a literal or a block comment.
+     */
+    public boolean isEnd()
+    {
+        return end;
+    }
+
+    /**
+     * @return the problem found on reading the last character, or on reaching the end of the script, or null if none.
+     */
+    public String getError()
+    {
+        return error;
+    }
+
+    /**
+     * @return the line that the literal or comment being read, or last read, began on.
+     */
+    public int getStartLine()
+    {
+        return startLine;
+    }
+
+    private void readCode( char c )
+        throws IOException
+    {
+        int n = c == '/' ? peek() : EOF;
+        if ( n == '/' || n == '*' )
+        {
+            begin( n == '/' ? LINE_COMMENT : BLOCK_COMMENT );
+            opening = true;
+            afterStar = false;
+            separated = true;
+        }
+        else if ( c == '/' && isRegexAllowed() )
+        {
+            begin( REGEX );
+            inClass = false;
+        }
+        else if ( c == '"' || c == '\'' || c == '`' )
+        {
+            begin( STRING );
+            quote = c;
+        }
+        else if ( isLineTerminator( c ) || isWhitespace( c ) )
+        {
+            separated = true;
+        }
+        else if ( isIdentifierChar( c ) )
+        {
+            if ( separated || !isIdentifierChar( lastChar ) )
+            {
+                wordLength = 0;
+            }
+            if ( wordLength < MAX_KEYWORD_LENGTH )
+            {
+                word[wordLength] = c;
+            }
+            ++wordLength;
+            lastDivision = false;
+            lastIncrement = false;
+            lastChar = c;
+            separated = false;
+        }
+        else
+        {
+            wordLength = 0;
+            lastRegex = false;
+            lastDivision = c == '/';
+            lastIncrement = ( c == '+' || c == '-' ) && c == lastChar && !separated && !lastIncrement;
+            lastChar = c;
+            separated = false;
+        }
+    }
+
+    private void readString( char c )
+        throws IOException
+    {
+        if ( escaped )
+        {
+            // Escapes, including line continuations.
+            escaped = c == '\r' && peek() == '\n';
+        }
+        else if ( c == '\\' )
+        {
+            escaped = true;
+        }
+        else if ( c == quote )
+        {
+            endLiteral( c );
+        }
+        else if ( quote != '`' && isLineTerminator( c ) )
+        {
+            error = "Unterminated string literal";
+        }
+    }
+
+    private void readRegex( char c )
+    {
+        if ( isLineTerminator( c ) )
+        {
+            error = "Unterminated regular expression literal";
+            state = CODE;
+            charState = CODE;
+            separated = true;
+        }
+        else if ( escaped )
+        {
+            escaped = false;
+        }
+        else if ( c == '\\' )
+        {
+            escaped = true;
+        }
+        else if ( c == '[' )
+        {
+            inClass = true;
+        }
+        else if ( c == ']' )
+        {
+            inClass = false;
+        }
+        else if ( c == '/' && !inClass )
+        {
+            endLiteral( c );
+            lastRegex = true;
+        }
+    }
+
+    private void begin( int literalState )
+    {
+        state = literalState;
+        charState = literalState;
+        start = true;
+        startLine = line;
+        escaped = false;
+    }
+
+    private void endLiteral( char c )
+    {
+        state = CODE;
+        end = true;
+        lastChar = c;
+        lastRegex = false;
+        lastDivision = false;
+        lastIncrement = false;
+        wordLength = 0;
+        separated = false;
+    }
+
+    private boolean isRegexAllowed()
+    {
+        if ( lastChar == EOF )
+        {
+            return true;
+        }
+        if ( lastChar == '/' )
+        {
+            return lastDivision;
+        }
+        if ( isIdentifierChar( lastChar ) )
+        {
+            return !lastRegex && isRegexKeyword();
+        }
+        if ( lastIncrement )
+        {
+            return false;
+        }
+        return REGEX_PRECEDING_CHARS.indexOf( lastChar ) > -1;
+    }
+
+    private boolean isRegexKeyword()
+    {
+        for ( char[] keyword : REGEX_KEYWORDS )
+        {
+            if ( keyword.length == wordLength )
+            {
+                int i = 0;
+                while ( i < wordLength && keyword[i] == word[i] )
+                {
+                    ++i;
+                }
+                if ( i == wordLength )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param c a character.
+     * @return true if the character may be part of an identifier, number or keyword.
+     */
+    public static boolean isIdentifierChar( int c )
+    {
+        return ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) || ( c >= '0' && c <= '9' ) || c == '_'
+            || c == '$' || c == '\\' || c > '~';
+    }
+
+    /**
+     * @param c a character.
+     * @return true if the character ends a line.
+     */
+    public static boolean isLineTerminator( int c )
+    {
+        return c == '\n' || c == '\r' || c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR;
+    }
+
+    /**
+     * @param c a character.
+     * @return true if the character is whitespace other than a line terminator.
+     */
+    public static boolean isWhitespace( int c )
+    {
+        return c == ' ' || c == '\t' || c == VERTICAL_TAB || c == '\f'
+            || ( c > '~' && ( c == BYTE_ORDER_MARK || ( Character.isSpaceChar( c ) && !isLineTerminator( c ) ) ) );
+    }
+
+    private boolean fill()
+        throws IOException
+    {
+        int read;
+        do
+        {
+            read = reader.read( buffer, 0, BUFFER_SIZE );
+        }
+        while ( read == 0 );
+        position = 0;
+        limit = read > 0 ? read : 0;
+        return read > 0;
+    }
+}
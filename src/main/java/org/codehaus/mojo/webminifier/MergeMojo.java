@@ -0,0 +1,311 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Mojo to combine the outputs of the shards of a minification, as produced by the minify-js goal with a shardCount,
+ * into a single destinationFolder. Each HTML file is taken from the shard that minified it, and scripts consumed by
+ * any shard are left out. Files that more than one shard generated with the same content, such as the bundle of the
+ * dependencies shared by HTML files of different shards, are kept once and the HTML files referring to the duplicates
+ * are made to refer to the file kept.
+ * 
+ * @goal merge
+ * @phase prepare-package
+ * @threadSafe
+ */
+public class MergeMojo
+    extends AbstractMojo
+{
+    /**
+     * The destinationFolders of the shards, in shard order.
+     * 
+     * @parameter
+     * @required
+     */
+    private List<File> shardFolders;
+
+    /**
+     * The output folder to write the combined files to.
+     * 
+     * @parameter default-value="${project.build.directory}/min/classes"
+     */
+    private File destinationFolder;
+
+    /**
+     * All HTML files are assumed to have this encoding.
+     * 
+     * @parameter expression="${encoding}" default-value="${project.build.sourceEncoding}"
+     */
+    private String encoding;
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute()
+        throws MojoExecutionException
+    {
+        // The destinationFolder is cleared before the shards are read.
+        for ( File shardFolder : shardFolders )
+        {
+            if ( overlaps( shardFolder, destinationFolder ) )
+            {
+                throw new MojoExecutionException( "The shard folder " + shardFolder
+                    + " must neither be, contain nor be within the destination folder " + destinationFolder );
+            }
+        }
+
+        // Note which shard minified each HTML file, and what every shard consumed and generated.
+        List<PageGraph> pageGraphs = new ArrayList<PageGraph>( shardFolders.size() );
+        Map<String, Integer> pageShards = new HashMap<String, Integer>();
+        Set<String> consumed = new HashSet<String>();
+        for ( int i = 0; i < shardFolders.size(); ++i )
+        {
+            File pageGraphFile = new File( shardFolders.get( i ), MinifierRun.SHARD_PAGE_GRAPH );
+            PageGraph pageGraph;
+            try
+            {
+                pageGraph = PageGraph.read( pageGraphFile );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Cannot read page graph: " + pageGraphFile, e );
+            }
+            if ( pageGraph == null )
+            {
+                throw new MojoExecutionException( shardFolders.get( i ) + " is not the output of a shard" );
+            }
+            pageGraphs.add( pageGraph );
+
+            for ( String path : pageGraph.getPages() )
+            {
+                Integer previousShard = pageShards.put( path, Integer.valueOf( i ) );
+                if ( previousShard != null )
+                {
+                    throw new MojoExecutionException( path + " was minified by both "
+                        + shardFolders.get( previousShard.intValue() ) + " and " + shardFolders.get( i ) );
+                }
+                consumed.addAll( pageGraph.getPage( path ).getConsumed() );
+            }
+        }
+
+        FileUtils.deleteQuietly( destinationFolder );
+        Map<String, String> generatedFiles = new HashMap<String, String>();
+        int fileCount = 0;
+        int duplicateCount = 0;
+        try
+        {
+            for ( int i = 0; i < shardFolders.size(); ++i )
+            {
+                File shardFolder = shardFolders.get( i );
+                PageGraph pageGraph = pageGraphs.get( i );
+                Set<String> outputs = new HashSet<String>();
+                for ( String path : pageGraph.getPages() )
+                {
+                    outputs.addAll( pageGraph.getPage( path ).getOutputs() );
+                }
+
+                // The files generated by this shard that duplicate the content of those of earlier shards.
+                Map<String, String> duplicates = new LinkedHashMap<String, String>();
+
+                @SuppressWarnings( "unchecked" )
+                Collection<File> files = FileUtils.listFiles( shardFolder, null, true );
+                URI shardFolderUri = shardFolder.toURI();
+                for ( File file : files )
+                {
+                    String path = shardFolderUri.relativize( file.toURI() ).toString();
+                    Integer pageShard = pageShards.get( path );
+                    if ( path.equals( MinifierRun.SHARD_PAGE_GRAPH ) || consumed.contains( path )
+                        || ( pageShard != null && pageShard.intValue() != i ) )
+                    {
+                        continue;
+                    }
+
+                    File targetFile = new File( destinationFolder, path );
+                    if ( targetFile.exists() )
+                    {
+                        if ( !FileUtils.contentEquals( file, targetFile ) )
+                        {
+                            throw new MojoExecutionException( "The shards have different versions of " + path
+                                + ". Every shard must be given the same files and configuration." );
+                        }
+                        ++duplicateCount;
+                        continue;
+                    }
+
+                    if ( outputs.contains( path ) )
+                    {
+                        String digest = ContentDigest.digest( file );
+                        String generatedFile = generatedFiles.get( digest );
+                        if ( generatedFile != null )
+                        {
+                            duplicates.put( path, generatedFile );
+                            ++duplicateCount;
+                            continue;
+                        }
+                        generatedFiles.put( digest, path );
+                    }
+
+                    FileUtils.copyFile( file, targetFile );
+                    ++fileCount;
+                }
+
+                for ( String path : pageGraph.getPages() )
+                {
+                    referToKeptFiles( path, pageGraph.getPage( path ), duplicates );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Cannot merge shards into " + destinationFolder, e );
+        }
+
+        getLog().info( "Merged " + shardFolders.size() + " shards into " + destinationFolder + ": " + fileCount
+                           + " file(s), " + duplicateCount + " duplicate(s) removed" );
+    }
+
+    /**
+     * Make a HTML file refer to the files kept in place of the duplicates of them that it refers to.
+     * 
+     * @param path the destinationFolder relative path of the HTML file.
+     * @param page the files the HTML file was minified into.
+     * @param duplicates the files kept, by the path of the duplicate.
+     * @throws IOException if there is a problem reading/writing the HTML file.
+     */
+    private void referToKeptFiles( String path, PageGraph.Page page, Map<String, String> duplicates )
+        throws IOException
+    {
+        // HTML files refer to scripts by their destinationFolder relative path, prefixed with a step up for each
+        // folder that the HTML file is nested within, and quoted.
+        StringBuilder prefix = new StringBuilder();
+        for ( int i = path.indexOf( '/' ); i > -1; i = path.indexOf( '/', i + 1 ) )
+        {
+            prefix.append( "../" );
+        }
+
+        File htmlFile = new File( destinationFolder, path );
+        String html = FileUtils.readFileToString( htmlFile, encoding );
+        String mergedHtml = html;
+        for ( String output : page.getOutputs() )
+        {
+            String keptFile = duplicates.get( output );
+            if ( keptFile != null )
+            {
+                for ( char quote : new char[] { '"', '\'' } )
+                {
+                    mergedHtml =
+                        mergedHtml.replace( quote + prefix.toString() + output + quote, quote + prefix.toString()
+                            + keptFile + quote );
+                }
+            }
+        }
+        if ( !mergedHtml.equals( html ) )
+        {
+            FileUtils.writeStringToFile( htmlFile, mergedHtml, encoding );
+        }
+    }
+
+    /**
+     * @param a a folder.
+     * @param b another folder.
+     * @return true if the folders are the same or one is within the other.
+     * @throws MojoExecutionException if a folder's path cannot be resolved.
+     */
+    private static boolean overlaps( File a, File b )
+        throws MojoExecutionException
+    {
+        String aPath;
+        String bPath;
+        try
+        {
+            aPath = a.getCanonicalPath() + File.separator;
+            bPath = b.getCanonicalPath() + File.separator;
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Cannot resolve " + a + " or " + b, e );
+        }
+        return aPath.startsWith( bPath ) || bPath.startsWith( aPath );
+    }
+
+    /**
+     * @return property.
+     */
+    public File getDestinationFolder()
+    {
+        return destinationFolder;
+    }
+
+    /**
+     * @return property.
+     */
+    public String getEncoding()
+    {
+        return encoding;
+    }
+
+    /**
+     * @return property.
+     */
+    public List<File> getShardFolders()
+    {
+        return shardFolders;
+    }
+
+    /**
+     * @param destinationFolder set property.
+     */
+    public void setDestinationFolder( File destinationFolder )
+    {
+        this.destinationFolder = destinationFolder;
+    }
+
+    /**
+     * @param encoding set property.
+     */
+    public void setEncoding( String encoding )
+    {
+        this.encoding = encoding;
+    }
+
+    /**
+     * @param shardFolders set property.
+     */
+    public void setShardFolders( List<File> shardFolders )
+    {
+        this.shardFolders = shardFolders;
+    }
+}
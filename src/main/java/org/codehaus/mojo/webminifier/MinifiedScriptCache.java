@@ -0,0 +1,187 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds minified scripts in memory, bounded by their total size. The least recently used scripts are evicted first.
+ * Each script is held along with the state of the file that it was minified from so that a script is no longer
+ * returned once its file changes.
+ */
+public class MinifiedScriptCache
+{
+    /**
+     * A minified script.
+     */
+    public static class Entry
+    {
+        private final String fileState;
+
+        private final String etag;
+
+        private final byte[] content;
+
+        private final byte[] gzippedContent;
+
+        /**
+         * @param fileState the modification time and size of the file that the script was minified from.
+         * @param etag identifies this version of the script to HTTP clients.
+         * @param content the minified script.
+         * @param gzippedContent the gzipped minified script.
+         */
+        public Entry( String fileState, String etag, byte[] content, byte[] gzippedContent )
+        {
+            this.fileState = fileState;
+            this.etag = etag;
+            this.content = content;
+            this.gzippedContent = gzippedContent;
+        }
+
+        /**
+         * @return the modification time and size of the file that the script was minified from.
+         */
+        public String getFileState()
+        {
+            return fileState;
+        }
+
+        /**
+         * @return identifies this version of the script to HTTP clients.
+         */
+        public String getEtag()
+        {
+            return etag;
+        }
+
+        /**
+         * @return the minified script.
+         */
+        public byte[] getContent()
+        {
+            return content;
+        }
+
+        /**
+         * @return the gzipped minified script.
+         */
+        public byte[] getGzippedContent()
+        {
+            return gzippedContent;
+        }
+
+        /**
+         * @return the number of bytes held by the entry.
+         */
+        long getSize()
+        {
+            return content.length + gzippedContent.length;
+        }
+    }
+
+    private final long maxBytes;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true );
+
+    private long bytes;
+
+    /**
+     * @param maxBytes the total size of the scripts that may be held.
+     */
+    public MinifiedScriptCache( long maxBytes )
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Obtain a script.
+     * 
+     * @param path the path of the script.
+     * @param fileState the modification time and size of the script's file now.
+     * @return the minified script, or null if it is not held or was minified from a different state of the file.
+     */
+    public synchronized Entry get( String path, String fileState )
+    {
+        Entry entry = entries.get( path );
+        if ( entry != null && !entry.getFileState().equals( fileState ) )
+        {
+            remove( path );
+            entry = null;
+        }
+        return entry;
+    }
+
+    /**
+     * Hold a script, evicting the least recently used scripts to make room for it. A script larger than the cache is
+     * not held at all.
+     * 
+     * @param path the path of the script.
+     * @param entry the minified script.
+     */
+    public synchronized void put( String path, Entry entry )
+    {
+        remove( path );
+        if ( entry.getSize() > maxBytes )
+        {
+            return;
+        }
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ( bytes + entry.getSize() > maxBytes )
+        {
+            bytes -= eldest.next().getSize();
+            eldest.remove();
+        }
+        entries.put( path, entry );
+        bytes += entry.getSize();
+    }
+
+    /**
+     * Stop holding a script.
+     * 
+     * @param path the path of the script.
+     */
+    public synchronized void remove( String path )
+    {
+        Entry entry = entries.remove( path );
+        if ( entry != null )
+        {
+            bytes -= entry.getSize();
+        }
+    }
+
+    /**
+     * @return the total size of the scripts held.
+     */
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * @return the number of scripts held.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+}
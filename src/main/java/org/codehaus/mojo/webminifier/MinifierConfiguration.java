@@ -0,0 +1,1317 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+
+import org.codehaus.mojo.webminifier.WebMinifierMojo.JsCompressorType;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+import com.google.javascript.jscomp.CompilationLevel;
+
+/**
+ * The configuration of a minification by {@link WebMinifier}. The properties are those of the parameters of the
+ * minify-js goal, and a configuration may be used for any number of minifications.
+ */
+public class MinifierConfiguration
+{
+    /**
+     * The source folder with un-minified files.
+     */
+    private File sourceFolder;
+
+    /**
+     * The output folder to write minified files to.
+     */
+    private File destinationFolder;
+
+    /**
+     * Process HTML files which match these patterns.
+     */
+    private List<String> htmlIncludes;
+
+    /**
+     * Do not process HTML files which match these patterns.
+     */
+    private List<String> htmlExcludes;
+
+    /**
+     * If a JavaScript resource contains one of these target/classes/js relative file names is found while minifying it
+     * will be the last script file appended to the current minified script file. A new minified script will be created
+     * for the next file, if one exists. Each name in the property corresponds to the relative file path of a file
+     * accessible from the destinationFolder e.g. js/a.js would match up with a file located at target/classes/js/a.js.
+     * Each property value, if provided, corresponds to the name component of a file that will be generated and without
+     * the file extension. If omitted then a numbering scheme will be employed to name the file at the split point.
+     */
+    private Properties jsSplitPoints;
+
+    /**
+     * All HTML, JavaScript and CSS files are assumed to have this encoding. �
+     */
+    private String encoding = "UTF-8";
+
+    /**
+     * The type of compressor to use for JS files.
+     */
+    private JsCompressorType jsCompressorType = JsCompressorType.CLOSURE;
+
+    /**
+     * The name of the compressor to use for JS files, overriding jsCompressorType. Compressors are discovered from the
+     * META-INF/services/org.codehaus.mojo.webminifier.CompressorProvider resources on the plugin's class path, so
+     * others can be used by declaring them as dependencies of the plugin. YUI, CLOSURE and FAST are always available.
+     */
+    private String jsCompressor;
+
+    /**
+     * Options to pass to the compressor, overriding those derived from the yui and closure parameters e.g.
+     * compilationLevel=ADVANCED_OPTIMIZATIONS. The options recognised depend on the compressor.
+     */
+    private Properties jsCompressorOptions;
+
+    /**
+     * YUI option 'linebreak'; insert a linebreak after VALUE columnns.
+     */
+    private int yuiLinebreak = -1;
+
+    /**
+     * YUI option 'disableOptimizations'; disable all micro-optimizations.
+     */
+    private boolean yuiDisableOptimizations;
+
+    /**
+     * YUI option 'munge'; minify and obfuscate. If false, minify only.
+     */
+    private boolean yuiMunge = true;
+
+    /**
+     * YUI option 'preserveSemi'; preserve semicolons before }.
+     */
+    private boolean yuiPreserveSemi;
+
+    /**
+     * Closure compiler level option either:
+     * <ol>
+     * <li>WHITESPACE_ONLY</li>
+     * <li>SIMPLE_OPTIMIZATIONS</li>
+     * <li>ADVANCED_OPTIMIZATIONS</li>
+     * </ol>
+     */
+    private CompilationLevel closureCompilationLevel = CompilationLevel.SIMPLE_OPTIMIZATIONS;
+
+    /**
+     * Whether or not the const keyword is to be accepted.
+     */
+    private boolean closureAcceptConstKeyword;
+
+    /**
+     * The project source folder. Scripts not found within it are taken to be dependencies of the project. If not set,
+     * every script is taken to belong to the project.
+     */
+    private File projectSourceFolder;
+
+    /**
+     * Signals whether or not dependencies should be minified into their own file. For applications, you may want to put
+     * everything in a single minified file, but for libraries you do not.
+     */
+    private boolean splitDependencies = true;
+
+    /**
+     * The maximum number of bytes that a concatenated script file may grow to before a new one is started. Files are
+     * never broken up, so a single script larger than this value still results in its own file. Script order is
+     * preserved and any extra files are named after the split point they belong to with a numeric suffix e.g.
+     * myframeworkfilename-2.js. A value of 0 or less signals that there is no limit.
+     */
+    private long maxBundleBytes;
+
+    /**
+     * Signals whether maxBundleBytes applies to the estimated gzipped size of each script rather than its raw size.
+     * This is a better measure of what is actually transferred when the server compresses its responses.
+     */
+    private boolean maxBundleBytesGzipped;
+
+    /**
+     * Signals whether or not JavaScript resources should be concatenated. When false, each script referenced by a
+     * HTML file is minified into its own file alongside the original e.g. js/a.js is minified to js/a-min.js, and the
+     * HTML continues to reference one script per original file in the original order. This is useful when serving
+     * over HTTP/2 where requests are cheap and a change to one script should not invalidate the cached copies of the
+     * others. jsSplitPoints, splitDependencies and maxBundleBytes have no effect when not concatenating.
+     */
+    private boolean concatenate = true;
+
+    /**
+     * The number of threads to use when compressing JavaScript resources. A value of 0 or less signals that the number
+     * of available processors should be used.
+     */
+    private int compressorThreads;
+
+    /**
+     * How the script produced for each split point is to be loaded by the HTML. Each name in the property corresponds
+     * to the name of a split point as generated, without the file extension e.g. myframeworkfilename or 1. When not
+     * concatenating, names correspond to the destinationFolder relative path of each script e.g. js/a.js. Each value is
+     * a comma separated list of the following options:
+     * <ul>
+     * <li>body - place the script element at the end of the body instead of the end of the head.</li>
+     * <li>defer - mark the script element as deferred.</li>
+     * <li>async - mark the script element as async.</li>
+     * <li>preload - declare a &lt;link rel="preload" as="script"&gt; early in the head so that the browser fetches
+     * the script sooner. Most useful in conjunction with body.</li>
+     * <li>lazy - do not declare a script element at all. Instead, a small loader is declared at the end of the body
+     * that fetches all lazy scripts once the window has loaded, executing them in their original order. Useful for
+     * scripts that are not required for the page to first render e.g. analytics.</li>
+     * </ul>
+     */
+    private Properties jsScriptOptions;
+
+    /**
+     * The options to use for scripts that have no entry in jsScriptOptions. See jsScriptOptions for a description of
+     * the options available. By default, scripts are loaded synchronously from the end of the head.
+     */
+    private String jsDefaultScriptOptions;
+
+    /**
+     * Scripts smaller than this number of bytes, once minified, are embedded directly into the HTML instead of being
+     * referenced. This saves a request for scripts where the cost of the request outweighs the cost of the bytes.
+     * Inlined scripts are removed from the destinationFolder unless they are also referenced by a HTML file. Scripts
+     * that are to be deferred, or loaded asynchronously or lazily are never inlined given that inline scripts execute
+     * immediately. A value of 0 or less signals that nothing is to be inlined.
+     */
+    private int inlineThresholdBytes;
+
+    /**
+     * Signals whether or not all scripts are to be compiled together in a single Closure compilation. Each script
+     * becomes a Closure module that depends on the scripts declared before it in the HTML files, and one minified
+     * file is still written per script. Compiling together allows ADVANCED_OPTIMIZATIONS to remove dead code and to
+     * rename properties consistently across scripts, and to move code into the scripts that use it. Only applies when
+     * the jsCompressorType is CLOSURE. HTML files must not declare the same scripts in conflicting orders.
+     */
+    private boolean closureModules;
+
+    /**
+     * Signals whether or not Closure externs are to be generated from the scripts that are dependencies of this
+     * project i.e. those not found within the projectSourceFolder. The externs declare the top level symbols of each
+     * dependency and every property name that it uses so that project scripts calling into dependencies can be
+     * compiled with ADVANCED_OPTIMIZATIONS without those calls being renamed. Only applies when the jsCompressorType is
+     * CLOSURE.
+     */
+    private boolean closureGenerateExterns;
+
+    /**
+     * Where generated externs are kept. Externs are named after a digest of the content of the script that they are
+     * generated from so that they are only generated again when the script changes.
+     */
+    private File closureExternsCacheFolder = new File( System.getProperty( "java.io.tmpdir" ), "webminifier/externs" );
+
+    /**
+     * Additional Closure externs files declaring symbols that are defined outside of the project's scripts e.g. by
+     * scripts that are not referenced by HTML files. Only applies when the jsCompressorType is CLOSURE.
+     */
+    private List<File> closureExterns;
+
+    /**
+     * Where Closure's variable and property renaming maps are kept, one pair per split point or, when compiling
+     * modules, one pair for all scripts. When set, the maps of the previous build are used so that identifiers keep
+     * the names they were given before and unchanged code produces unchanged output. Keep this folder outside of the
+     * build directory, e.g. ${basedir}/src/main/closure, so that the maps survive a clean and can be shared. Only
+     * applies when the jsCompressorType is CLOSURE and the compilation level renames identifiers.
+     */
+    private File closureRenamingMapFolder;
+
+    /**
+     * Values to override Closure @define constants with for the script produced for each split point. Names are as
+     * for jsScriptOptions. Each value is a comma separated list of NAME=value pairs e.g. DEBUG=false, LEVEL=2,
+     * MODE='production'. A value of true or false is a boolean, a number is a number and anything else is a string.
+     * A quoted value is always a string and may contain commas e.g. TITLE='a, b'. When compiling modules, only
+     * closureDefaultDefines apply. Only applies when the jsCompressorType is CLOSURE and the compilation level is
+     * SIMPLE_OPTIMIZATIONS or ADVANCED_OPTIMIZATIONS.
+     */
+    private Properties closureDefines;
+
+    /**
+     * The @define overrides for scripts that have no entry in closureDefines. See closureDefines for the format.
+     */
+    private String closureDefaultDefines;
+
+    /**
+     * The functions whose calls are to be removed from the script produced for each split point. Names are as for
+     * jsScriptOptions. Each value is a comma separated list of function names where a name ending with an asterisk
+     * names all functions with that prefix e.g. console.*, debugLog. Calls made as statements are removed while calls
+     * within expressions are replaced with undefined. Arguments are removed along with the call so they should be
+     * free of side effects. When compiling modules, only jsDefaultStripCalls apply. For the CLOSURE compressor, the
+     * compilation level must be SIMPLE_OPTIMIZATIONS or ADVANCED_OPTIMIZATIONS. The FAST compressor does not strip
+     * calls.
+     */
+    private Properties jsStripCalls;
+
+    /**
+     * The functions whose calls are to be removed from scripts that have no entry in jsStripCalls. See jsStripCalls
+     * for the format.
+     */
+    private String jsDefaultStripCalls;
+
+    /**
+     * Signals whether memory is to be conserved at the expense of speed, for building large scripts on machines with
+     * little memory. Scripts are compressed one at a time, and Closure output is written a statement at a time with
+     * the compiled tree being discarded as it goes. The peak heap use while compressing each script is logged.
+     */
+    private boolean lowMemory;
+
+    /**
+     * Signals whether scripts are to be compressed in separate JVMs rather than in the JVM running the build. The JVMs
+     * are started as they are needed, up to one per compress thread, and kept running for later executions with the
+     * same fork settings until the build ends. A JVM that exits unexpectedly, for example having run out of memory, is
+     * replaced. Scripts compressed together as Closure modules are always compressed by the build's JVM.
+     */
+    private boolean forkCompressors;
+
+    /**
+     * The maximum heap of each forked compressor JVM e.g. 1024m, or the JVM's default if not set.
+     */
+    private String forkMaxHeap;
+
+    /**
+     * The stack size of each thread of each forked compressor JVM e.g. 8m, or the JVM's default if not set. Compressing
+     * deeply nested scripts can require a larger stack.
+     */
+    private String forkStackSize;
+
+    /**
+     * The number of seconds that a forked compressor JVM may take to compress a script before it is stopped and the
+     * compression fails, or 0 to wait for as long as it takes.
+     */
+    private int forkTimeout = 600;
+
+    /**
+     * Signals whether or not a gzipped copy of each script is also to be written alongside it e.g. 1-min.js.gz, so
+     * that web servers able to serve precompressed files need not compress on each request.
+     */
+    private boolean gzip;
+
+    /**
+     * The number of threads to use for each stage of minification. Scripts pass through the stages read,
+     * concatenate, compress, gzip, write and html, in that order, with each stage working on a script while the
+     * stages before it work on the next. Each name in the property is that of a stage and each value is a number of
+     * threads, where a value of 0 or less signals that the number of available processors should be used. Every
+     * stage has one thread by default except compress, which has compressorThreads. The stage that took the longest
+     * is logged so that threads can be given to where they are needed.
+     */
+    private Properties stageThreads;
+
+    /**
+     * The number of scripts that may wait between one stage of minification and the next. Bounding the queues
+     * bounds the number of scripts held in memory at once. lowMemory signals a capacity of 1.
+     */
+    private int stageQueueCapacity = 4;
+
+    /**
+     * Signals whether or not the first error reported by a compressor is to stop compression of all other scripts,
+     * as opposed to waiting for the scripts being compressed to finish so that all of their errors are reported.
+     */
+    private boolean failFast;
+
+    /**
+     * Warnings are summarised once compression is complete, with each distinct warning being logged once along with
+     * the number of times that it was reported, most frequent first. This is the number of distinct warnings to log.
+     */
+    private int maxLoggedWarnings = 50;
+
+    /**
+     * Signals whether or not the scripts that the scripts declared by HTML files load at runtime are to be discovered
+     * and minified along with them. Static CommonJS require("...") calls and AMD define([...]) and require([...]) calls
+     * are followed, transitively, and the scripts found are placed before the scripts referring to them as if they
+     * had been declared by the HTML file. The loader must then find the modules already defined, which generally
+     * requires modules to be named e.g. define("a", [...], ...).
+     */
+    private boolean jsDiscoverDependencies;
+
+    /**
+     * The destinationFolder relative folder that module ids not beginning with ./ or ../ are relative to, as with the
+     * baseUrl of an AMD loader. Only applies when jsDiscoverDependencies is set.
+     */
+    private String jsModuleBaseUrl = "";
+
+    /**
+     * Where the module ids referred to by each script are kept when discovering dependencies. Ids are kept by a digest
+     * of the content of the script so that scripts are only parsed again when they change.
+     */
+    private File jsDependencyCacheFolder =
+        new File( System.getProperty( "java.io.tmpdir" ), "webminifier/dependencies" );
+
+    /**
+     * Where a fingerprint of the sourceFolder, the configuration and the plugin version is kept once minification
+     * completes. If the fingerprint is unchanged when next executed, and the destinationFolder still exists, then the
+     * destinationFolder is left as it is. Minification is always performed if no file is given.
+     */
+    private File fingerprintFile;
+
+    /**
+     * Signals whether or not minification is to be performed even if nothing has changed since it was last performed.
+     */
+    private boolean force;
+
+    /**
+     * The version of the plugin, which forms part of the fingerprint.
+     */
+    private String pluginVersion;
+
+    /**
+     * Where the scripts referred to by each HTML file, and the files generated for each, are kept between builds. When
+     * the configuration is unchanged, only the HTML files affected by the files changed since the last build are
+     * minified again and the rest of the destinationFolder is left as it is. Files generated for HTML files that have
+     * since been removed are deleted. Changes are learnt of from the IDE when it supports incremental builds, and
+     * otherwise from the digests of the files in the sourceFolder. Minification is always performed in full when
+     * forced, when generating externs or compiling modules with Closure, or if no file is given.
+     */
+    private File pageGraphFile;
+
+    /**
+     * The shard of the HTML files to minify when they are to be minified by shardCount executions, say on different
+     * machines, numbered from 0. The outputs of the shards are then combined by the merge goal.
+     */
+    private int shardIndex;
+
+    /**
+     * The number of shards that the HTML files are divided between. Each HTML file is assigned to a shard by its
+     * position in the sorted list of HTML files, and scripts split by number are numbered differently by each shard,
+     * so every shard must be given the same files and configuration.
+     */
+    private int shardCount = 1;
+
+    /**
+     * True if compressed bundles of dependencies are to be kept in the userCacheFolder, so that other builds by the
+     * same user, of this project or any other, need not compress the same bundles in the same way again. Builds
+     * running at the same time may share the folder.
+     */
+    private boolean userCache;
+
+    /**
+     * Where compressed bundles of dependencies are kept when userCache is true.
+     */
+    private File userCacheFolder = new File( System.getProperty( "user.home" ), ".m2/webminifier-cache" );
+
+    /**
+     * The total size, in bytes, of the bundles kept in the userCacheFolder. The least recently used bundles are deleted
+     * once this is exceeded.
+     */
+    private long userCacheMaxBytes = 268435456L;
+
+    /**
+     * Informs of the files changed since the last build when building incrementally, or null if every build is to be
+     * treated as a full build.
+     */
+    private BuildContext buildContext;
+
+    /**
+     * @return property.
+     */
+    public BuildContext getBuildContext()
+    {
+        return buildContext;
+    }
+
+    /**
+     * @return property
+     */
+    public CompilationLevel getClosureCompilationLevel()
+    {
+        return closureCompilationLevel;
+    }
+
+    /**
+     * @return property
+     */
+    public String getClosureDefaultDefines()
+    {
+        return closureDefaultDefines;
+    }
+
+    /**
+     * @return property
+     */
+    public Properties getClosureDefines()
+    {
+        return closureDefines;
+    }
+
+    /**
+     * @return property
+     */
+    public List<File> getClosureExterns()
+    {
+        return closureExterns;
+    }
+
+    /**
+     * @return property
+     */
+    public File getClosureExternsCacheFolder()
+    {
+        return closureExternsCacheFolder;
+    }
+
+    /**
+     * @return property
+     */
+    public File getClosureRenamingMapFolder()
+    {
+        return closureRenamingMapFolder;
+    }
+
+    /**
+     * @return property
+     */
+    public int getCompressorThreads()
+    {
+        return compressorThreads;
+    }
+
+    /**
+     * @return property
+     */
+    public File getDestinationFolder()
+    {
+        return destinationFolder;
+    }
+
+    /**
+     * @return property
+     */
+    public String getEncoding()
+    {
+        return encoding;
+    }
+
+    /**
+     * @return property.
+     */
+    public String getForkMaxHeap()
+    {
+        return forkMaxHeap;
+    }
+
+    /**
+     * @return property.
+     */
+    public String getForkStackSize()
+    {
+        return forkStackSize;
+    }
+
+    /**
+     * @return property.
+     */
+    public int getForkTimeout()
+    {
+        return forkTimeout;
+    }
+
+    /**
+     * @return property
+     */
+    public List<String> getHtmlExcludes()
+    {
+        return htmlExcludes;
+    }
+
+    /**
+     * @return property
+     */
+    public List<String> getHtmlIncludes()
+    {
+        return htmlIncludes;
+    }
+
+    /**
+     * @return property.
+     */
+    public int getMaxLoggedWarnings()
+    {
+        return maxLoggedWarnings;
+    }
+
+    /**
+     * @return property.
+     */
+    public File getFingerprintFile()
+    {
+        return fingerprintFile;
+    }
+
+    /**
+     * @return property.
+     */
+    public String getJsCompressor()
+    {
+        return jsCompressor;
+    }
+
+    /**
+     * @return property.
+     */
+    public Properties getJsCompressorOptions()
+    {
+        return jsCompressorOptions;
+    }
+
+    /**
+     * @return property
+     */
+    public JsCompressorType getJsCompressorType()
+    {
+        return jsCompressorType;
+    }
+
+    /**
+     * @return property.
+     */
+    public File getJsDependencyCacheFolder()
+    {
+        return jsDependencyCacheFolder;
+    }
+
+    /**
+     * @return property
+     */
+    public int getInlineThresholdBytes()
+    {
+        return inlineThresholdBytes;
+    }
+
+    /**
+     * @return property
+     */
+    public String getJsDefaultStripCalls()
+    {
+        return jsDefaultStripCalls;
+    }
+
+    /**
+     * @return property
+     */
+    public String getJsDefaultScriptOptions()
+    {
+        return jsDefaultScriptOptions;
+    }
+
+    /**
+     * @return property.
+     */
+    public String getJsModuleBaseUrl()
+    {
+        return jsModuleBaseUrl;
+    }
+
+    /**
+     * @return property
+     */
+    public Properties getJsScriptOptions()
+    {
+        return jsScriptOptions;
+    }
+
+    /**
+     * @return property
+     */
+    public Properties getJsSplitPoints()
+    {
+        return jsSplitPoints;
+    }
+
+    /**
+     * @return property
+     */
+    public Properties getJsStripCalls()
+    {
+        return jsStripCalls;
+    }
+
+    /**
+     * @return property.
+     */
+    public long getMaxBundleBytes()
+    {
+        return maxBundleBytes;
+    }
+
+    /**
+     * @return property.
+     */
+    public File getProjectSourceFolder()
+    {
+        return projectSourceFolder;
+    }
+
+    /**
+     * @return property.
+     */
+    public File getPageGraphFile()
+    {
+        return pageGraphFile;
+    }
+
+    /**
+     * @return property.
+     */
+    public String getPluginVersion()
+    {
+        return pluginVersion;
+    }
+
+    /**
+     * @return property.
+     */
+    public int getShardCount()
+    {
+        return shardCount;
+    }
+
+    /**
+     * @return property.
+     */
+    public int getShardIndex()
+    {
+        return shardIndex;
+    }
+
+    /**
+     * @return property
+     */
+    public File getSourceFolder()
+    {
+        return sourceFolder;
+    }
+
+    /**
+     * @return property
+     */
+    public int getYuiLinebreak()
+    {
+        return yuiLinebreak;
+    }
+
+    /**
+     * @return property.
+     */
+    public int getStageQueueCapacity()
+    {
+        return stageQueueCapacity;
+    }
+
+    /**
+     * @return property.
+     */
+    public Properties getStageThreads()
+    {
+        return stageThreads;
+    }
+
+    /**
+     * @return property.
+     */
+    public File getUserCacheFolder()
+    {
+        return userCacheFolder;
+    }
+
+    /**
+     * @return property.
+     */
+    public long getUserCacheMaxBytes()
+    {
+        return userCacheMaxBytes;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isClosureAcceptConstKeyword()
+    {
+        return closureAcceptConstKeyword;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isClosureGenerateExterns()
+    {
+        return closureGenerateExterns;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isClosureModules()
+    {
+        return closureModules;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isConcatenate()
+    {
+        return concatenate;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isFailFast()
+    {
+        return failFast;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isForce()
+    {
+        return force;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isForkCompressors()
+    {
+        return forkCompressors;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isJsDiscoverDependencies()
+    {
+        return jsDiscoverDependencies;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isGzip()
+    {
+        return gzip;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isLowMemory()
+    {
+        return lowMemory;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isMaxBundleBytesGzipped()
+    {
+        return maxBundleBytesGzipped;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isSplitDependencies()
+    {
+        return splitDependencies;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isUserCache()
+    {
+        return userCache;
+    }
+
+    /**
+     * @return property
+     */
+    public boolean isYuiDisableOptimizations()
+    {
+        return yuiDisableOptimizations;
+    }
+
+    /**
+     * @return property
+     */
+    public boolean isYuiMunge()
+    {
+        return yuiMunge;
+    }
+
+    /**
+     * @return property
+     */
+    public boolean isYuiPreserveSemi()
+    {
+        return yuiPreserveSemi;
+    }
+
+    /**
+     * @param buildContext set property.
+     */
+    public void setBuildContext( BuildContext buildContext )
+    {
+        this.buildContext = buildContext;
+    }
+
+    /**
+     * @param closureAcceptConstKeyword to set.
+     */
+    public void setClosureAcceptConstKeyword( boolean closureAcceptConstKeyword )
+    {
+        this.closureAcceptConstKeyword = closureAcceptConstKeyword;
+    }
+
+    /**
+     * @param closureCompilationLevel to set.
+     */
+    public void setClosureCompilationLevel( CompilationLevel closureCompilationLevel )
+    {
+        this.closureCompilationLevel = closureCompilationLevel;
+    }
+
+    /**
+     * @param closureDefaultDefines to set.
+     */
+    public void setClosureDefaultDefines( String closureDefaultDefines )
+    {
+        this.closureDefaultDefines = closureDefaultDefines;
+    }
+
+    /**
+     * @param closureDefines to set.
+     */
+    public void setClosureDefines( Properties closureDefines )
+    {
+        this.closureDefines = closureDefines;
+    }
+
+    /**
+     * @param closureExterns to set.
+     */
+    public void setClosureExterns( List<File> closureExterns )
+    {
+        this.closureExterns = closureExterns;
+    }
+
+    /**
+     * @param closureExternsCacheFolder to set.
+     */
+    public void setClosureExternsCacheFolder( File closureExternsCacheFolder )
+    {
+        this.closureExternsCacheFolder = closureExternsCacheFolder;
+    }
+
+    /**
+     * @param closureGenerateExterns to set.
+     */
+    public void setClosureGenerateExterns( boolean closureGenerateExterns )
+    {
+        this.closureGenerateExterns = closureGenerateExterns;
+    }
+
+    /**
+     * @param closureModules to set.
+     */
+    public void setClosureModules( boolean closureModules )
+    {
+        this.closureModules = closureModules;
+    }
+
+    /**
+     * @param closureRenamingMapFolder to set.
+     */
+    public void setClosureRenamingMapFolder( File closureRenamingMapFolder )
+    {
+        this.closureRenamingMapFolder = closureRenamingMapFolder;
+    }
+
+    /**
+     * @param compressorThreads to set.
+     */
+    public void setCompressorThreads( int compressorThreads )
+    {
+        this.compressorThreads = compressorThreads;
+    }
+
+    /**
+     * @param concatenate to set.
+     */
+    public void setConcatenate( boolean concatenate )
+    {
+        this.concatenate = concatenate;
+    }
+
+    /**
+     * @param destinationFolder to set.
+     */
+    public void setDestinationFolder( File destinationFolder )
+    {
+        this.destinationFolder = destinationFolder;
+    }
+
+    /**
+     * @param encoding to set.
+     */
+    public void setEncoding( String encoding )
+    {
+        this.encoding = encoding;
+    }
+
+    /**
+     * @param failFast set property.
+     */
+    public void setFailFast( boolean failFast )
+    {
+        this.failFast = failFast;
+    }
+
+    /**
+     * @param force set property.
+     */
+    public void setForce( boolean force )
+    {
+        this.force = force;
+    }
+
+    /**
+     * @param forkCompressors set property.
+     */
+    public void setForkCompressors( boolean forkCompressors )
+    {
+        this.forkCompressors = forkCompressors;
+    }
+
+    /**
+     * @param forkMaxHeap set property.
+     */
+    public void setForkMaxHeap( String forkMaxHeap )
+    {
+        this.forkMaxHeap = forkMaxHeap;
+    }
+
+    /**
+     * @param forkStackSize set property.
+     */
+    public void setForkStackSize( String forkStackSize )
+    {
+        this.forkStackSize = forkStackSize;
+    }
+
+    /**
+     * @param forkTimeout set property.
+     */
+    public void setForkTimeout( int forkTimeout )
+    {
+        this.forkTimeout = forkTimeout;
+    }
+
+    /**
+     * @param gzip set property.
+     */
+    public void setGzip( boolean gzip )
+    {
+        this.gzip = gzip;
+    }
+
+    /**
+     * @param htmlExcludes to set.
+     */
+    public void setHtmlExcludes( List<String> htmlExcludes )
+    {
+        this.htmlExcludes = htmlExcludes;
+    }
+
+    /**
+     * @param htmlIncludes to set.
+     */
+    public void setHtmlIncludes( List<String> htmlIncludes )
+    {
+        this.htmlIncludes = htmlIncludes;
+    }
+
+    /**
+     * @param fingerprintFile set property.
+     */
+    public void setFingerprintFile( File fingerprintFile )
+    {
+        this.fingerprintFile = fingerprintFile;
+    }
+
+    /**
+     * @param jsCompressor set property.
+     */
+    public void setJsCompressor( String jsCompressor )
+    {
+        this.jsCompressor = jsCompressor;
+    }
+
+    /**
+     * @param jsCompressorOptions set property.
+     */
+    public void setJsCompressorOptions( Properties jsCompressorOptions )
+    {
+        this.jsCompressorOptions = jsCompressorOptions;
+    }
+
+    /**
+     * @param jsCompressorType to set.
+     */
+    public void setJsCompressorType( JsCompressorType jsCompressorType )
+    {
+        this.jsCompressorType = jsCompressorType;
+    }
+
+    /**
+     * @param jsDependencyCacheFolder set property.
+     */
+    public void setJsDependencyCacheFolder( File jsDependencyCacheFolder )
+    {
+        this.jsDependencyCacheFolder = jsDependencyCacheFolder;
+    }
+
+    /**
+     * @param jsDiscoverDependencies set property.
+     */
+    public void setJsDiscoverDependencies( boolean jsDiscoverDependencies )
+    {
+        this.jsDiscoverDependencies = jsDiscoverDependencies;
+    }
+
+    /**
+     * @param inlineThresholdBytes to set.
+     */
+    public void setInlineThresholdBytes( int inlineThresholdBytes )
+    {
+        this.inlineThresholdBytes = inlineThresholdBytes;
+    }
+
+    /**
+     * @param jsDefaultStripCalls to set.
+     */
+    public void setJsDefaultStripCalls( String jsDefaultStripCalls )
+    {
+        this.jsDefaultStripCalls = jsDefaultStripCalls;
+    }
+
+    /**
+     * @param jsDefaultScriptOptions to set.
+     */
+    public void setJsDefaultScriptOptions( String jsDefaultScriptOptions )
+    {
+        this.jsDefaultScriptOptions = jsDefaultScriptOptions;
+    }
+
+    /**
+     * @param jsModuleBaseUrl set property.
+     */
+    public void setJsModuleBaseUrl( String jsModuleBaseUrl )
+    {
+        this.jsModuleBaseUrl = jsModuleBaseUrl;
+    }
+
+    /**
+     * @param jsScriptOptions to set.
+     */
+    public void setJsScriptOptions( Properties jsScriptOptions )
+    {
+        this.jsScriptOptions = jsScriptOptions;
+    }
+
+    /**
+     * @param jsSplitPoints to set.
+     */
+    public void setJsSplitPoints( Properties jsSplitPoints )
+    {
+        this.jsSplitPoints = jsSplitPoints;
+    }
+
+    /**
+     * @param jsStripCalls to set.
+     */
+    public void setJsStripCalls( Properties jsStripCalls )
+    {
+        this.jsStripCalls = jsStripCalls;
+    }
+
+    /**
+     * @param lowMemory set property.
+     */
+    public void setLowMemory( boolean lowMemory )
+    {
+        this.lowMemory = lowMemory;
+    }
+
+    /**
+     * @param maxLoggedWarnings set property.
+     */
+    public void setMaxLoggedWarnings( int maxLoggedWarnings )
+    {
+        this.maxLoggedWarnings = maxLoggedWarnings;
+    }
+
+    /**
+     * @param maxBundleBytes set property.
+     */
+    public void setMaxBundleBytes( long maxBundleBytes )
+    {
+        this.maxBundleBytes = maxBundleBytes;
+    }
+
+    /**
+     * @param maxBundleBytesGzipped set property.
+     */
+    public void setMaxBundleBytesGzipped( boolean maxBundleBytesGzipped )
+    {
+        this.maxBundleBytesGzipped = maxBundleBytesGzipped;
+    }
+
+    /**
+     * @param projectSourceFolder set property.
+     */
+    public void setProjectSourceFolder( File projectSourceFolder )
+    {
+        this.projectSourceFolder = projectSourceFolder;
+    }
+
+    /**
+     * @param pageGraphFile set property.
+     */
+    public void setPageGraphFile( File pageGraphFile )
+    {
+        this.pageGraphFile = pageGraphFile;
+    }
+
+    /**
+     * @param pluginVersion set property.
+     */
+    public void setPluginVersion( String pluginVersion )
+    {
+        this.pluginVersion = pluginVersion;
+    }
+
+    /**
+     * @param shardCount set property.
+     */
+    public void setShardCount( int shardCount )
+    {
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * @param shardIndex set property.
+     */
+    public void setShardIndex( int shardIndex )
+    {
+        this.shardIndex = shardIndex;
+    }
+
+    /**
+     * @param sourceFolder to set.
+     */
+    public void setSourceFolder( File sourceFolder )
+    {
+        this.sourceFolder = sourceFolder;
+    }
+
+    /**
+     * @param splitDependencies Set the property.
+     */
+    public void setSplitDependencies( boolean splitDependencies )
+    {
+        this.splitDependencies = splitDependencies;
+    }
+
+    /**
+     * @param stageQueueCapacity set property.
+     */
+    public void setStageQueueCapacity( int stageQueueCapacity )
+    {
+        this.stageQueueCapacity = stageQueueCapacity;
+    }
+
+    /**
+     * @param stageThreads set property.
+     */
+    public void setStageThreads( Properties stageThreads )
+    {
+        this.stageThreads = stageThreads;
+    }
+
+    /**
+     * @param userCache set property.
+     */
+    public void setUserCache( boolean userCache )
+    {
+        this.userCache = userCache;
+    }
+
+    /**
+     * @param userCacheFolder set property.
+     */
+    public void setUserCacheFolder( File userCacheFolder )
+    {
+        this.userCacheFolder = userCacheFolder;
+    }
+
+    /**
+     * @param userCacheMaxBytes set property.
+     */
+    public void setUserCacheMaxBytes( long userCacheMaxBytes )
+    {
+        this.userCacheMaxBytes = userCacheMaxBytes;
+    }
+
+    /**
+     * @param yuiDisableOptimizations to set.
+     */
+    public void setYuiDisableOptimizations( boolean yuiDisableOptimizations )
+    {
+        this.yuiDisableOptimizations = yuiDisableOptimizations;
+    }
+
+    /**
+     * @param yuiLinebreak to set.
+     */
+    public void setYuiLinebreak( int yuiLinebreak )
+    {
+        this.yuiLinebreak = yuiLinebreak;
+    }
+
+    /**
+     * @param yuiMunge to set.
+     */
+    public void setYuiMunge( boolean yuiMunge )
+    {
+        this.yuiMunge = yuiMunge;
+    }
+
+    /**
+     * @param yuiPreserveSemi to set.
+     */
+    public void setYuiPreserveSemi( boolean yuiPreserveSemi )
+    {
+        this.yuiPreserveSemi = yuiPreserveSemi;
+    }
+}
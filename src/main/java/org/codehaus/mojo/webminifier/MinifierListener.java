@@ -0,0 +1,59 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+
+/**
+ * Told of the progress of a minification by {@link WebMinifier}, and of the problems found. Scripts are minified by
+ * several threads at once, so implementations must be thread safe.
+ */
+public interface MinifierListener
+{
+    /**
+     * The HTML files to minify have been found.
+     * 
+     * @param documentCount the number of HTML files to minify, which excludes those left as they are when building
+     *            incrementally.
+     */
+    void minificationStarted( int documentCount );
+
+    /**
+     * A script referred to by HTML files has been minified.
+     * 
+     * @param script the script as referred to, which may be a concatenation of the scripts of the HTML files.
+     * @param minifiedScript the minified script that the HTML files now refer to.
+     */
+    void scriptMinified( File script, File minifiedScript );
+
+    /**
+     * A HTML file has been rewritten to refer to the minified scripts.
+     * 
+     * @param document the HTML file within the destinationFolder.
+     */
+    void documentMinified( File document );
+
+    /**
+     * A problem has been found. Each distinct problem is reported once, however many times it is found.
+     * 
+     * @param diagnostic the problem.
+     */
+    void diagnosticReported( Diagnostic diagnostic );
+}
@@ -0,0 +1,64 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+/**
+ * Where {@link WebMinifier} logs, so that hosts other than Maven need not depend on Maven's logging. Messages are
+ * logged by several threads at once, so implementations must be thread safe.
+ */
+public interface MinifierLogger
+{
+    /**
+     * @return true if debug messages are to be logged, which saves producing them otherwise.
+     */
+    boolean isDebugEnabled();
+
+    /**
+     * Log detail that is only of interest when investigating a problem.
+     * 
+     * @param message the message.
+     * @param error the error behind the message, or null.
+     */
+    void debug( String message, Throwable error );
+
+    /**
+     * Log progress.
+     * 
+     * @param message the message.
+     * @param error the error behind the message, or null.
+     */
+    void info( String message, Throwable error );
+
+    /**
+     * Log a problem that minification continues despite.
+     * 
+     * @param message the message.
+     * @param error the error behind the message, or null.
+     */
+    void warn( String message, Throwable error );
+
+    /**
+     * Log a problem that fails minification.
+     * 
+     * @param message the message.
+     * @param error the error behind the message, or null.
+     */
+    void error( String message, Throwable error );
+}
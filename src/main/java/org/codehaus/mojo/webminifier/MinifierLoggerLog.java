@@ -0,0 +1,128 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Presents a {@link MinifierLogger} as the Maven log that the rest of the plugin logs to.
+ */
+class MinifierLoggerLog
+    implements Log
+{
+    private final MinifierLogger logger;
+
+    /**
+     * @param logger where to log.
+     */
+    MinifierLoggerLog( MinifierLogger logger )
+    {
+        this.logger = logger;
+    }
+
+    /**
+     * @param content the message, or null.
+     * @return the message as a string, which is empty if there is no message.
+     */
+    private static String toMessage( CharSequence content )
+    {
+        return content != null ? content.toString() : "";
+    }
+
+    public boolean isDebugEnabled()
+    {
+        return logger.isDebugEnabled();
+    }
+
+    public void debug( CharSequence content )
+    {
+        logger.debug( toMessage( content ), null );
+    }
+
+    public void debug( CharSequence content, Throwable error )
+    {
+        logger.debug( toMessage( content ), error );
+    }
+
+    public void debug( Throwable error )
+    {
+        logger.debug( error.toString(), error );
+    }
+
+    public boolean isInfoEnabled()
+    {
+        return true;
+    }
+
+    public void info( CharSequence content )
+    {
+        logger.info( toMessage( content ), null );
+    }
+
+    public void info( CharSequence content, Throwable error )
+    {
+        logger.info( toMessage( content ), error );
+    }
+
+    public void info( Throwable error )
+    {
+        logger.info( error.toString(), error );
+    }
+
+    public boolean isWarnEnabled()
+    {
+        return true;
+    }
+
+    public void warn( CharSequence content )
+    {
+        logger.warn( toMessage( content ), null );
+    }
+
+    public void warn( CharSequence content, Throwable error )
+    {
+        logger.warn( toMessage( content ), error );
+    }
+
+    public void warn( Throwable error )
+    {
+        logger.warn( error.toString(), error );
+    }
+
+    public boolean isErrorEnabled()
+    {
+        return true;
+    }
+
+    public void error( CharSequence content )
+    {
+        logger.error( toMessage( content ), null );
+    }
+
+    public void error( CharSequence content, Throwable error )
+    {
+        logger.error( toMessage( content ), error );
+    }
+
+    public void error( Throwable error )
+    {
+        logger.error( error.toString(), error );
+    }
+}
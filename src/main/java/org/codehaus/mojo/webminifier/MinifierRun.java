@@ -0,0 +1,2339 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.transform.TransformerException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.WebMinifierMojo.JsCompressorType;
+import org.codehaus.mojo.webminifier.closure.ClosureCompressorProvider;
+import org.codehaus.mojo.webminifier.closure.ClosureExternsGenerator;
+import org.codehaus.mojo.webminifier.closure.ClosureJsModuleCompressor;
+import org.codehaus.mojo.webminifier.yui.YuiCompressorProvider;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.sonatype.plexus.build.incremental.BuildContext;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+import org.xml.sax.SAXException;
+
+import com.google.javascript.jscomp.CompilationLevel;
+
+/**
+ * A minification of the HTML files of a folder, and the scripts that they refer to, as configured. A run holds the
+ * state of one minification and is not reused.
+ */
+class MinifierRun
+{
+    /**
+     * The name given to the renaming maps of scripts that are compiled as modules.
+     */
+    private static final String MODULES_RENAMING_MAP_NAME = "modules";
+
+    private static final String VARIABLE_MAP_SUFFIX = ".variables.map";
+
+    private static final String PROPERTY_MAP_SUFFIX = ".properties.map";
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * Matches the files generated for split points named by number, capturing the number.
+     */
+    private static final Pattern SPLIT_POINT_OUTPUT = Pattern.compile( "(\\d+)(-[^/]*)?\\.js(\\.gz)?" );
+
+    /**
+     * The page graph written to the destinationFolder of a shard, for the merge goal.
+     */
+    static final String SHARD_PAGE_GRAPH = "webminifier-shard.pages";
+
+    private final File sourceFolder;
+
+    private final File destinationFolder;
+
+    private final List<String> htmlIncludes;
+
+    private final List<String> htmlExcludes;
+
+    private final Properties jsSplitPoints;
+
+    private final String encoding;
+
+    private final JsCompressorType jsCompressorType;
+
+    private final String jsCompressor;
+
+    private final Properties jsCompressorOptions;
+
+    private final int yuiLinebreak;
+
+    private final boolean yuiDisableOptimizations;
+
+    private final boolean yuiMunge;
+
+    private final boolean yuiPreserveSemi;
+
+    private final CompilationLevel closureCompilationLevel;
+
+    private final boolean closureAcceptConstKeyword;
+
+    private final File projectSourceFolder;
+
+    private final boolean splitDependencies;
+
+    private final long maxBundleBytes;
+
+    private final boolean maxBundleBytesGzipped;
+
+    private final boolean concatenate;
+
+    private final int compressorThreads;
+
+    private final Properties jsScriptOptions;
+
+    private final String jsDefaultScriptOptions;
+
+    private final int inlineThresholdBytes;
+
+    private final boolean closureModules;
+
+    private final boolean closureGenerateExterns;
+
+    private final File closureExternsCacheFolder;
+
+    private final List<File> closureExterns;
+
+    private final File closureRenamingMapFolder;
+
+    private final Properties closureDefines;
+
+    private final String closureDefaultDefines;
+
+    private final Properties jsStripCalls;
+
+    private final String jsDefaultStripCalls;
+
+    private final boolean lowMemory;
+
+    private final boolean forkCompressors;
+
+    private final String forkMaxHeap;
+
+    private final String forkStackSize;
+
+    private final int forkTimeout;
+
+    private final boolean gzip;
+
+    private final Properties stageThreads;
+
+    private final int stageQueueCapacity;
+
+    private final boolean failFast;
+
+    private final int maxLoggedWarnings;
+
+    private final boolean jsDiscoverDependencies;
+
+    private final String jsModuleBaseUrl;
+
+    private final File jsDependencyCacheFolder;
+
+    private final File fingerprintFile;
+
+    private final boolean force;
+
+    private final String pluginVersion;
+
+    private final File pageGraphFile;
+
+    private final int shardIndex;
+
+    private final int shardCount;
+
+    private final boolean userCache;
+
+    private final File userCacheFolder;
+
+    private final long userCacheMaxBytes;
+
+    private final BuildContext buildContext;
+
+    private final MinifierSession session;
+
+    private final Log logger;
+
+    private final MinifierListener listener;
+
+    private final IncrementalBuild incrementalBuild;
+
+    /**
+     * The forked JVMs that scripts are compressed in while minifying, if forkCompressors is true, which belong to the
+     * session.
+     */
+    private volatile CompressorWorkerPool compressorWorkerPool;
+
+    /**
+     * A script on its way through the minification pipeline. Content is released as soon as the stage after the one
+     * that needs it has finished with it so that only the scripts queued between stages are held in memory.
+     */
+    private static class Bundle
+    {
+        private final File file;
+
+        private final List<File> sources;
+
+        private final String name;
+
+        private List<byte[]> sourceContents;
+
+        private byte[] content;
+
+        private File minifiedFile;
+
+        private byte[] minifiedContent;
+
+        private byte[] gzippedContent;
+
+        /**
+         * @param file the script to be referenced.
+         * @param sources the scripts to concatenate into the file, or null if the file is to be minified as it is.
+         * @param name the split point name of the script.
+         */
+        Bundle( File file, List<File> sources, String name )
+        {
+            this.file = file;
+            this.sources = sources;
+            this.name = name;
+        }
+
+        void read()
+            throws IOException
+        {
+            if ( sources == null )
+            {
+                content = FileUtils.readFileToByteArray( file );
+            }
+            else
+            {
+                sourceContents = new ArrayList<byte[]>( sources.size() );
+                for ( File source : sources )
+                {
+                    sourceContents.add( FileUtils.readFileToByteArray( source ) );
+                }
+            }
+        }
+
+        void concatenate()
+            throws IOException
+        {
+            if ( sources != null )
+            {
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                for ( byte[] sourceContent : sourceContents )
+                {
+                    os.write( sourceContent );
+                    os.write( ';' );
+                    os.write( '\n' );
+                }
+                sourceContents = null;
+                content = os.toByteArray();
+                writeAtomically( file, content );
+            }
+        }
+
+        void gzip()
+            throws IOException
+        {
+            gzippedContent = MinifierRun.gzip( minifiedContent );
+        }
+
+        void write()
+            throws IOException
+        {
+            if ( !minifiedFile.equals( file ) )
+            {
+                writeAtomically( minifiedFile, minifiedContent );
+            }
+            minifiedContent = null;
+            if ( gzippedContent != null )
+            {
+                writeAtomically( getGzippedFile( minifiedFile ), gzippedContent );
+                gzippedContent = null;
+            }
+        }
+    }
+
+    /**
+     * Rewrites each HTML file to reference the minified scripts as soon as all of the scripts that it refers to have
+     * been minified, releasing the document once written.
+     */
+    private class DocumentRewriter
+    {
+        private final Map<File, List<File>> documentJsResources;
+
+        private final Map<File, String> jsResourceNames;
+
+        private final Map<File, DocumentResourceReplacer> replacers;
+
+        private final Map<File, List<File>> jsResourceDocuments = new HashMap<File, List<File>>();
+
+        private final Map<File, AtomicInteger> pendingJsResourceCounts = new HashMap<File, AtomicInteger>();
+
+        private final Map<File, File> minifiedJsResources = new ConcurrentHashMap<File, File>();
+
+        private final Set<File> inlinedJsResources = Collections.synchronizedSet( new HashSet<File>() );
+
+        private final Set<File> referencedJsResources = Collections.synchronizedSet( new HashSet<File>() );
+
+        /**
+         * @param documentJsResources the scripts that each HTML file is to reference, in order.
+         * @param jsResourceNames the split point name of each script.
+         * @param replacers the parsed HTML files, removed once written.
+         */
+        DocumentRewriter( Map<File, List<File>> documentJsResources, Map<File, String> jsResourceNames,
+                          Map<File, DocumentResourceReplacer> replacers )
+        {
+            this.documentJsResources = documentJsResources;
+            this.jsResourceNames = jsResourceNames;
+            this.replacers = replacers;
+
+            for ( Map.Entry<File, List<File>> entry : documentJsResources.entrySet() )
+            {
+                Set<File> distinctJsResources = new HashSet<File>( entry.getValue() );
+                pendingJsResourceCounts.put( entry.getKey(), new AtomicInteger( distinctJsResources.size() ) );
+                for ( File jsResource : distinctJsResources )
+                {
+                    List<File> documents = jsResourceDocuments.get( jsResource );
+                    if ( documents == null )
+                    {
+                        documents = new ArrayList<File>();
+                        jsResourceDocuments.put( jsResource, documents );
+                    }
+                    documents.add( entry.getKey() );
+                }
+            }
+        }
+
+        /**
+         * Note that a script has been minified, rewriting the HTML files that have no more scripts to wait for.
+         * 
+         * @param jsResource the script referred to by HTML files.
+         * @param minifiedJsResource the minified script to refer to instead.
+         * @throws MojoExecutionException if there is a problem rewriting a HTML file.
+         */
+        void jsResourceMinified( File jsResource, File minifiedJsResource )
+            throws MojoExecutionException
+        {
+            minifiedJsResources.put( jsResource, minifiedJsResource );
+            listener.scriptMinified( jsResource, minifiedJsResource );
+            List<File> documents = jsResourceDocuments.get( jsResource );
+            if ( documents != null )
+            {
+                for ( File targetHTML : documents )
+                {
+                    if ( pendingJsResourceCounts.get( targetHTML ).decrementAndGet() == 0 )
+                    {
+                        rewrite( targetHTML );
+                    }
+                }
+            }
+        }
+
+        /**
+         * Rewrite the HTML files that refer to no scripts.
+         * 
+         * @throws MojoExecutionException if there is a problem rewriting a HTML file.
+         */
+        void finish()
+            throws MojoExecutionException
+        {
+            for ( Map.Entry<File, AtomicInteger> entry : pendingJsResourceCounts.entrySet() )
+            {
+                if ( documentJsResources.get( entry.getKey() ).isEmpty() )
+                {
+                    rewrite( entry.getKey() );
+                }
+            }
+        }
+
+        /**
+         * @param jsResource a script referred to by HTML files.
+         * @return the minified script to refer to instead, or null if the script has not been minified.
+         */
+        File getMinifiedJsResource( File jsResource )
+        {
+            return minifiedJsResources.get( jsResource );
+        }
+
+        /**
+         * @return the scripts that were inlined into a HTML file and not referenced by any other.
+         */
+        Set<File> getUnreferencedInlinedJsResources()
+        {
+            Set<File> unreferencedJsResources = new HashSet<File>( inlinedJsResources );
+            unreferencedJsResources.removeAll( referencedJsResources );
+            return unreferencedJsResources;
+        }
+
+        private void rewrite( File targetHTML )
+            throws MojoExecutionException
+        {
+            List<File> jsResources = documentJsResources.get( targetHTML );
+            List<ScriptReference> scriptReferences = new ArrayList<ScriptReference>( jsResources.size() );
+            for ( File jsResource : jsResources )
+            {
+                Set<ScriptReference.Option> options = getScriptOptions( jsResourceNames.get( jsResource ) );
+                scriptReferences.add( createScriptReference( minifiedJsResources.get( jsResource ), options,
+                                                             inlinedJsResources, referencedJsResources ) );
+            }
+
+            // Update source references. The document is released once written.
+            DocumentResourceReplacer replacer = replacers.remove( targetHTML );
+            replacer.replaceJSReferences( destinationFolder, targetHTML, scriptReferences );
+
+            // Write HTML file to output dir
+            writeHTML( replacer, targetHTML );
+            listener.documentMinified( targetHTML );
+        }
+    }
+
+    /**
+     * @param configuration what to minify and how, which is copied so that later changes to it have no effect.
+     * @param session state shared with other minifications.
+     * @param logger where to log.
+     * @param listener told of progress and problems.
+     */
+    MinifierRun( MinifierConfiguration configuration, MinifierSession session, Log logger, MinifierListener listener )
+    {
+        this.sourceFolder = configuration.getSourceFolder();
+        this.destinationFolder = configuration.getDestinationFolder();
+        this.htmlIncludes = copyOf( configuration.getHtmlIncludes() );
+        this.htmlExcludes = copyOf( configuration.getHtmlExcludes() );
+        this.jsSplitPoints = copyOf( configuration.getJsSplitPoints() );
+        this.encoding = configuration.getEncoding();
+        this.jsCompressorType = configuration.getJsCompressorType();
+        this.jsCompressor = configuration.getJsCompressor();
+        this.jsCompressorOptions = copyOf( configuration.getJsCompressorOptions() );
+        this.yuiLinebreak = configuration.getYuiLinebreak();
+        this.yuiDisableOptimizations = configuration.isYuiDisableOptimizations();
+        this.yuiMunge = configuration.isYuiMunge();
+        this.yuiPreserveSemi = configuration.isYuiPreserveSemi();
+        this.closureCompilationLevel = configuration.getClosureCompilationLevel();
+        this.closureAcceptConstKeyword = configuration.isClosureAcceptConstKeyword();
+        this.projectSourceFolder = configuration.getProjectSourceFolder();
+        this.splitDependencies = configuration.isSplitDependencies();
+        this.maxBundleBytes = configuration.getMaxBundleBytes();
+        this.maxBundleBytesGzipped = configuration.isMaxBundleBytesGzipped();
+        this.concatenate = configuration.isConcatenate();
+        this.compressorThreads = configuration.getCompressorThreads();
+        this.jsScriptOptions = copyOf( configuration.getJsScriptOptions() );
+        this.jsDefaultScriptOptions = configuration.getJsDefaultScriptOptions();
+        this.inlineThresholdBytes = configuration.getInlineThresholdBytes();
+        this.closureModules = configuration.isClosureModules();
+        this.closureGenerateExterns = configuration.isClosureGenerateExterns();
+        this.closureExternsCacheFolder = configuration.getClosureExternsCacheFolder();
+        this.closureExterns = copyOf( configuration.getClosureExterns() );
+        this.closureRenamingMapFolder = configuration.getClosureRenamingMapFolder();
+        this.closureDefines = copyOf( configuration.getClosureDefines() );
+        this.closureDefaultDefines = configuration.getClosureDefaultDefines();
+        this.jsStripCalls = copyOf( configuration.getJsStripCalls() );
+        this.jsDefaultStripCalls = configuration.getJsDefaultStripCalls();
+        this.lowMemory = configuration.isLowMemory();
+        this.forkCompressors = configuration.isForkCompressors();
+        this.forkMaxHeap = configuration.getForkMaxHeap();
+        this.forkStackSize = configuration.getForkStackSize();
+        this.forkTimeout = configuration.getForkTimeout();
+        this.gzip = configuration.isGzip();
+        this.stageThreads = copyOf( configuration.getStageThreads() );
+        this.stageQueueCapacity = configuration.getStageQueueCapacity();
+        this.failFast = configuration.isFailFast();
+        this.maxLoggedWarnings = configuration.getMaxLoggedWarnings();
+        this.jsDiscoverDependencies = configuration.isJsDiscoverDependencies();
+        this.jsModuleBaseUrl = configuration.getJsModuleBaseUrl();
+        this.jsDependencyCacheFolder = configuration.getJsDependencyCacheFolder();
+        this.fingerprintFile = configuration.getFingerprintFile();
+        this.force = configuration.isForce();
+        this.pluginVersion = configuration.getPluginVersion();
+        this.pageGraphFile = configuration.getPageGraphFile();
+        this.shardIndex = configuration.getShardIndex();
+        this.shardCount = configuration.getShardCount();
+        this.userCache = configuration.isUserCache();
+        this.userCacheFolder = configuration.getUserCacheFolder();
+        this.userCacheMaxBytes = configuration.getUserCacheMaxBytes();
+        this.buildContext =
+            configuration.getBuildContext() != null ? configuration.getBuildContext() : new DefaultBuildContext();
+        this.session = session;
+        this.logger = logger;
+        this.listener = listener;
+        this.incrementalBuild = new IncrementalBuild( configuration, buildContext, logger );
+    }
+
+    /**
+     * @param list the list to copy, or null.
+     * @return a copy of the list, or null.
+     */
+    private static <T> List<T> copyOf( List<T> list )
+    {
+        return list != null ? new ArrayList<T>( list ) : null;
+    }
+
+    /**
+     * @param properties the properties to copy, or null.
+     * @return a copy of the properties, without their defaults, or null.
+     */
+    private static Properties copyOf( Properties properties )
+    {
+        if ( properties == null )
+        {
+            return null;
+        }
+        Properties copy = new Properties();
+        copy.putAll( properties );
+        return copy;
+    }
+
+    /**
+     * Determine how many bytes a file will contribute to a concatenated file, for the purposes of honouring
+     * maxBundleBytes.
+     * 
+     * @param jsResource the file to measure.
+     * @return the raw or estimated gzipped size of the file including the statement separator we append.
+     * @throws IOException if there is a problem reading the file.
+     */
+    private long getBundleContributionSize( File jsResource )
+        throws IOException
+    {
+        if ( maxBundleBytes <= 0L )
+        {
+            return 0L;
+        }
+
+        // Two bytes for the ";\n" appended when concatenating.
+        final long separatorBytes = 2L;
+
+        if ( !maxBundleBytesGzipped )
+        {
+            return jsResource.length() + separatorBytes;
+        }
+
+        CountingOutputStream cos = new CountingOutputStream( new NullOutputStream() );
+        InputStream is = new FileInputStream( jsResource );
+        try
+        {
+            GZIPOutputStream gos = new GZIPOutputStream( cos );
+            try
+            {
+                IOUtils.copy( is, gos );
+            }
+            finally
+            {
+                gos.close();
+            }
+        }
+        finally
+        {
+            is.close();
+        }
+
+        return cos.getByteCount() + separatorBytes;
+    }
+
+    /**
+     * Perform the minification.
+     * 
+     * @throws MojoExecutionException if there's a problem in the normal course of execution.
+     */
+    void execute()
+        throws MojoExecutionException
+    {
+        if ( isSharded() && ( shardIndex < 0 || shardIndex >= shardCount ) )
+        {
+            throw new MojoExecutionException( "shardIndex must be from 0 to " + ( shardCount - 1 ) + " but is "
+                + shardIndex );
+        }
+
+        String configurationFingerprint = null;
+        Map<String, String> sourceDigests = null;
+        String fingerprint = null;
+        if ( fingerprintFile != null || pageGraphFile != null )
+        {
+            try
+            {
+                configurationFingerprint = incrementalBuild.getConfigurationFingerprint();
+                sourceDigests = incrementalBuild.getSourceDigests();
+                fingerprint = IncrementalBuild.getFingerprint( configurationFingerprint, sourceDigests );
+                if ( fingerprintFile != null && !force && destinationFolder.isDirectory() && fingerprintFile.isFile()
+                    && fingerprint.equals( FileUtils.readFileToString( fingerprintFile, "UTF-8" ) ) )
+                {
+                    logger.info( "Nothing to minify - all files are up to date" );
+                    return;
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Problem determining whether files are up to date", e );
+            }
+        }
+
+        // Scripts compiled together as Closure modules, or for which externs are generated, depend on every HTML file.
+        PageGraph previousPageGraph = null;
+        if ( !( isJsCompressor( JsCompressorType.CLOSURE ) && ( closureModules || closureGenerateExterns ) ) )
+        {
+            previousPageGraph = incrementalBuild.readPageGraph( configurationFingerprint );
+        }
+
+        // Should minification not complete then it must be performed in full next time.
+        if ( fingerprintFile != null )
+        {
+            fingerprintFile.delete();
+        }
+        if ( pageGraphFile != null )
+        {
+            pageGraphFile.delete();
+        }
+
+        PageGraph pageGraph = new PageGraph();
+        pageGraph.setConfiguration( configurationFingerprint );
+        if ( sourceDigests != null )
+        {
+            pageGraph.getSourceDigests().putAll( sourceDigests );
+        }
+
+        minify( previousPageGraph, pageGraph );
+
+        buildContext.refresh( destinationFolder );
+
+        if ( pageGraphFile != null )
+        {
+            try
+            {
+                pageGraph.write( pageGraphFile );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Cannot write page graph: " + pageGraphFile, e );
+            }
+        }
+
+        // The merge goal learns which HTML files a shard minified, and what it generated, from the shard's graph.
+        if ( isSharded() )
+        {
+            File shardPageGraphFile = new File( destinationFolder, SHARD_PAGE_GRAPH );
+            try
+            {
+                pageGraph.write( shardPageGraphFile );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Cannot write page graph: " + shardPageGraphFile, e );
+            }
+        }
+
+        if ( fingerprintFile != null )
+        {
+            try
+            {
+                writeAtomically( fingerprintFile, fingerprint.getBytes( "UTF-8" ) );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Cannot write fingerprint: " + fingerprintFile, e );
+            }
+        }
+    }
+
+    /**
+     * Perform the copying, concatenation and minification of resources.
+     * 
+     * @param previousPageGraph the pages as they were when last minified, or null if all pages are to be minified.
+     * @param pageGraph populated with the pages as they are once minified.
+     * @throws MojoExecutionException if there's a problem in the normal course of execution.
+     */
+    private void minify( PageGraph previousPageGraph, PageGraph pageGraph )
+        throws MojoExecutionException
+    {
+        // The HTML files to minify, and the split point numbers and scripts of those that are not to be minified.
+        Collection<String> targetHTMLFiles;
+        Set<String> reservedSplitPointNames = new HashSet<String>();
+        Set<String> reservedConsumedJsResources = new HashSet<String>();
+        Set<String> restoredFiles = new HashSet<String>();
+
+        if ( previousPageGraph == null )
+        {
+            // Start off by copying all files over. We'll ultimately remove the js files that we don't need from there,
+            // and create new ones in there (same goes for css files and anything else we minify).
+
+            FileUtils.deleteQuietly( destinationFolder );
+            try
+            {
+                FileUtils.copyDirectory( sourceFolder, destinationFolder );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Cannot copy file to target folder", e );
+            }
+            targetHTMLFiles = Arrays.asList( getArrayOfTargetHTMLFiles() );
+        }
+        else
+        {
+            try
+            {
+                Set<String> changedFiles = incrementalBuild.copyChangedFiles( previousPageGraph, pageGraph );
+                targetHTMLFiles = incrementalBuild.restorePages( previousPageGraph, pageGraph, changedFiles,
+                                                                 getArrayOfTargetHTMLFiles(), restoredFiles );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Cannot copy file to target folder", e );
+            }
+            for ( String targetHTMLFile : pageGraph.getPages() )
+            {
+                PageGraph.Page page = pageGraph.getPage( targetHTMLFile );
+                for ( String output : page.getOutputs() )
+                {
+                    Matcher matcher = SPLIT_POINT_OUTPUT.matcher( output );
+                    if ( matcher.matches() )
+                    {
+                        reservedSplitPointNames.add( matcher.group( 1 ) );
+                    }
+                }
+                reservedConsumedJsResources.addAll( page.getConsumed() );
+            }
+        }
+
+        listener.minificationStarted( targetHTMLFiles.size() );
+
+        // Process each HTML source file and concatenate into unminified output scripts
+        int minifiedCounter = 0;
+
+        // If a split point already exists on disk then we've been through the minification process. As
+        // minification can be expensive, we would like to avoid performing it multiple times. Thus storing
+        // a set of what we've previously minified enables us.
+        Set<File> existingConcatenatedJsResources = new HashSet<File>();
+        Set<File> consumedJsResources = new HashSet<File>();
+
+        // The scripts to be concatenated into each concatenated file, in order. Scripts that are not concatenated,
+        // and files that already existed, are referenced as they are.
+        Map<File, List<File>> bundleJsResources = new HashMap<File, List<File>>();
+
+        // The parsed HTML files and the scripts that each is to reference, in order.
+        Map<File, DocumentResourceReplacer> replacers = new ConcurrentHashMap<File, DocumentResourceReplacer>();
+        Map<File, List<File>> documentJsResources = new LinkedHashMap<File, List<File>>();
+
+        // The name that each script to be referenced is known by, used to look up its script options. This is the name
+        // of the split point for concatenated files, and the relative path of the script otherwise.
+        Map<File, String> jsResourceNames = new HashMap<File, String>();
+
+        URI destinationFolderUri = destinationFolder.toURI();
+
+        // The Closure externs for all compilations, being those configured followed by any generated.
+        Set<File> externs = new LinkedHashSet<File>();
+        if ( closureExterns != null )
+        {
+            externs.addAll( closureExterns );
+        }
+
+        // Scripts referred to by more than one HTML file are only parsed once.
+        ScriptDependencyGraph dependencyGraph = null;
+        if ( jsDiscoverDependencies )
+        {
+            File baseFolder =
+                jsModuleBaseUrl != null ? new File( destinationFolder, jsModuleBaseUrl ) : destinationFolder;
+            dependencyGraph = new ScriptDependencyGraph( jsDependencyCacheFolder, baseFolder, encoding );
+        }
+
+        // The scripts that each HTML file referred to, as recorded in the page graph.
+        Map<File, List<File>> documentInputJsResources = new LinkedHashMap<File, List<File>>();
+
+        for ( String targetHTMLFile : targetHTMLFiles )
+        {
+            File targetHTML = new File( destinationFolder, targetHTMLFile );
+
+            // Parse HTML file and locate SCRIPT elements
+            DocumentResourceReplacer replacer;
+            try
+            {
+                replacer = new DocumentResourceReplacer( targetHTML );
+            }
+            catch ( SAXException e )
+            {
+                throw new MojoExecutionException( "Problem reading html document", e );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Problem opening html document", e );
+            }
+            replacers.put( targetHTML, replacer );
+
+            List<File> jsResources = replacer.findJSResources();
+
+            if ( jsDiscoverDependencies )
+            {
+                try
+                {
+                    jsResources = dependencyGraph.resolve( jsResources );
+                }
+                catch ( IOException e )
+                {
+                    throw new MojoExecutionException( "Problem discovering the dependencies of " + targetHTML, e );
+                }
+            }
+            documentInputJsResources.put( targetHTML, jsResources );
+
+            if ( isJsCompressor( JsCompressorType.CLOSURE ) && closureGenerateExterns )
+            {
+                generateExterns( jsResources, externs );
+            }
+
+            if ( !concatenate )
+            {
+                for ( File jsResource : jsResources )
+                {
+                    jsResourceNames.put( jsResource, destinationFolderUri.relativize( jsResource.toURI() ).toString() );
+                }
+                if ( !isJsCompressor( JsCompressorType.NONE ) )
+                {
+                    consumedJsResources.addAll( jsResources );
+                }
+                documentJsResources.put( targetHTML, jsResources );
+                continue;
+            }
+
+            File concatenatedJsResource = null;
+
+            // Split the js resources into two lists: one containing all external dependencies, the other containing
+            // project sources. We do this so that project sources can be minified without the dependencies (libraries
+            // generally don't need to distribute the dependencies).
+            int jsDependencyProjectResourcesIndex;
+
+            if ( splitDependencies )
+            {
+                List<File> jsDependencyResources = new ArrayList<File>( jsResources.size() );
+                List<File> jsProjectResources = new ArrayList<File>( jsResources.size() );
+                for ( File jsResource : jsResources )
+                {
+                    if ( isProjectResource( jsResource ) )
+                    {
+                        jsProjectResources.add( jsResource );
+                    }
+                    else
+                    {
+                        jsDependencyResources.add( jsResource );
+                    }
+                }
+
+                // Re-constitute the js resource list from dependency resources + project resources and note the index
+                // in the list that represents the start of project sources in the list. We need this information later.
+                jsDependencyProjectResourcesIndex = jsDependencyResources.size();
+
+                jsResources = jsDependencyResources;
+                jsResources.addAll( jsProjectResources );
+            }
+            else
+            {
+                jsDependencyProjectResourcesIndex = 0;
+            }
+
+            // Walk backwards through the script declarations and note what files will map to what split point.
+            Map<File, File> jsResourceTargetFiles = new LinkedHashMap<File, File>( jsResources.size() );
+            ListIterator<File> jsResourcesIter = jsResources.listIterator( jsResources.size() );
+
+            boolean splittingDependencies = false;
+
+            // Track the size of the file we're currently concatenating into along with the name of the split point
+            // it belongs to so that we can roll over into a new, consistently named file when it gets too big.
+            long concatenatedJsResourceBytes = 0L;
+            String bundleBaseName = null;
+            int bundlePart = 0;
+
+            while ( jsResourcesIter.hasPrevious() )
+            {
+                int jsResourceIterIndex = jsResourcesIter.previousIndex();
+                File jsResource = jsResourcesIter.previous();
+
+                String candidateSplitPointNameUri = destinationFolderUri.relativize( jsResource.toURI() ).toString();
+                String splitPointName =
+                    jsSplitPoints != null ? (String) jsSplitPoints.get( candidateSplitPointNameUri ) : null;
+
+                // If we do not have a split point name and the resource is a dependency of this project i.e. it is not
+                // within our src/main folder then we give it a split name of "dependencies". Factoring out dependencies
+                // into their own split point is a useful thing to do and will always be required when building
+                // libraries.
+                if ( splitDependencies && splitPointName == null && !splittingDependencies )
+                {
+                    if ( jsResourceIterIndex < jsDependencyProjectResourcesIndex )
+                    {
+                        minifiedCounter = nextSplitPointNumber( minifiedCounter, reservedSplitPointNames );
+                        splitPointName = Integer.valueOf( minifiedCounter ).toString();
+                        splittingDependencies = true;
+                    }
+                }
+
+                // If we have no name and we've not been in here before, then assign an initial name based on a number.
+                if ( splitPointName == null && concatenatedJsResource == null )
+                {
+                    minifiedCounter = nextSplitPointNumber( minifiedCounter, reservedSplitPointNames );
+                    splitPointName = Integer.valueOf( minifiedCounter ).toString();
+                }
+
+                long jsResourceBytes;
+                try
+                {
+                    jsResourceBytes = getBundleContributionSize( jsResource );
+                }
+                catch ( IOException e )
+                {
+                    throw new MojoExecutionException( "Problem determining the size of JS files", e );
+                }
+
+                if ( splitPointName != null )
+                {
+                    bundleBaseName = splitPointName;
+                    bundlePart = 1;
+                    concatenatedJsResourceBytes = 0L;
+                }
+                else if ( maxBundleBytes > 0L && concatenatedJsResourceBytes > 0L
+                    && concatenatedJsResourceBytes + jsResourceBytes > maxBundleBytes )
+                {
+                    // The current file is full so start a new one. We're walking backwards so the parts are numbered
+                    // from the split point upwards; this keeps names stable when scripts are added to the start.
+                    splitPointName = bundleBaseName + "-" + Integer.valueOf( ++bundlePart ).toString();
+                    concatenatedJsResourceBytes = 0L;
+                }
+                concatenatedJsResourceBytes += jsResourceBytes;
+
+                // We have a new split name so use it for this file and upwards in the script statements until we
+                // either hit another split point or there are no more script statements.
+                if ( splitPointName != null )
+                {
+                    concatenatedJsResource = new File( destinationFolder, splitPointName + ".js" );
+                    jsResourceNames.put( concatenatedJsResource, bundleBaseName );
+
+                    // Note that we've previously created this.
+                    if ( concatenatedJsResource.exists() || bundleJsResources.containsKey( concatenatedJsResource ) )
+                    {
+                        existingConcatenatedJsResources.add( concatenatedJsResource );
+                    }
+                }
+
+                jsResourceTargetFiles.put( jsResource, concatenatedJsResource );
+            }
+
+            for ( File jsResource : jsResources )
+            {
+                concatenatedJsResource = jsResourceTargetFiles.get( jsResource );
+                if ( !existingConcatenatedJsResources.contains( concatenatedJsResource ) )
+                {
+                    // Note that the input file is to be concatenated onto the output resource file
+                    List<File> concatenatedResources = bundleJsResources.get( concatenatedJsResource );
+                    if ( concatenatedResources == null )
+                    {
+                        concatenatedResources = new ArrayList<File>();
+                        bundleJsResources.put( concatenatedJsResource, concatenatedResources );
+                    }
+                    concatenatedResources.add( jsResource );
+
+                    // Finally, remove the JS resource from the target folder as it is no longer required (we'll have
+                    // concatenated it).
+                    consumedJsResources.add( jsResource );
+                }
+            }
+
+            // Reduce the list of js resource target files to a distinct set, in the order that they are declared.
+            List<File> concatenatedJsResources =
+                new ArrayList<File>( new LinkedHashSet<File>( jsResourceTargetFiles.values() ) );
+            Collections.reverse( concatenatedJsResources );
+            documentJsResources.put( targetHTML, concatenatedJsResources );
+        }
+
+        // Minify the JS resource files. This is the expensive bit so each one is minified just once, regardless of how
+        // many HTML files refer to it. Each HTML file is rewritten as soon as the scripts it refers to are minified.
+        DocumentRewriter documentRewriter = new DocumentRewriter( documentJsResources, jsResourceNames, replacers );
+        Diagnostics diagnostics = new Diagnostics( logger, failFast );
+        diagnostics.addListener( listener );
+        try
+        {
+            minifyJSFiles( documentJsResources.values(), bundleJsResources, jsResourceNames,
+                           new ArrayList<File>( externs ), documentRewriter, diagnostics );
+        }
+        finally
+        {
+            diagnostics.logSummary( maxLoggedWarnings );
+        }
+        documentRewriter.finish();
+
+        if ( concatenate && isJsCompressor( JsCompressorType.NONE ) )
+        {
+            logger.info( "Concatenated resources with no compression" );
+        }
+
+        // Clean up including the destination folder recursively where directories have nothing left in them.
+        for ( File consumedJsResource : consumedJsResources )
+        {
+            consumedJsResource.delete();
+        }
+        for ( File inlinedJsResource : documentRewriter.getUnreferencedInlinedJsResources() )
+        {
+            inlinedJsResource.delete();
+        }
+
+        // Scripts restored for an incremental build that remain consumed by the HTML files not minified are removed
+        // again.
+        for ( String restoredFile : restoredFiles )
+        {
+            if ( reservedConsumedJsResources.contains( restoredFile ) )
+            {
+                new File( destinationFolder, restoredFile ).delete();
+            }
+        }
+        removeEmptyFolders( destinationFolder );
+
+        recordPages( pageGraph, documentInputJsResources, documentJsResources, consumedJsResources,
+                     documentRewriter );
+    }
+
+    /**
+     * Record the HTML files minified in the page graph.
+     * 
+     * @param pageGraph the graph to record into.
+     * @param documentInputJsResources the scripts that each HTML file referred to.
+     * @param documentJsResources the scripts that each HTML file is to reference.
+     * @param consumedJsResources the scripts removed from the destinationFolder.
+     * @param documentRewriter the minified script of each script referenced.
+     */
+    private void recordPages( PageGraph pageGraph, Map<File, List<File>> documentInputJsResources,
+                              Map<File, List<File>> documentJsResources, Set<File> consumedJsResources,
+                              DocumentRewriter documentRewriter )
+    {
+        URI destinationFolderUri = destinationFolder.toURI();
+        for ( Map.Entry<File, List<File>> entry : documentInputJsResources.entrySet() )
+        {
+            PageGraph.Page page =
+                pageGraph.addPage( destinationFolderUri.relativize( entry.getKey().toURI() ).toString() );
+            for ( File jsResource : entry.getValue() )
+            {
+                String input = destinationFolderUri.relativize( jsResource.toURI() ).toString();
+                page.getInputs().add( input );
+                if ( consumedJsResources.contains( jsResource ) )
+                {
+                    page.getConsumed().add( input );
+                }
+            }
+
+            // Files are generated other than those copied from the sourceFolder.
+            List<File> outputs = new ArrayList<File>();
+            for ( File jsResource : documentJsResources.get( entry.getKey() ) )
+            {
+                outputs.add( jsResource );
+                File minifiedJsResource = documentRewriter.getMinifiedJsResource( jsResource );
+                if ( minifiedJsResource != null )
+                {
+                    outputs.add( minifiedJsResource );
+                    outputs.add( getGzippedFile( minifiedJsResource ) );
+                }
+            }
+            for ( File output : outputs )
+            {
+                String path = destinationFolderUri.relativize( output.toURI() ).toString();
+                if ( !pageGraph.getSourceDigests().containsKey( path ) )
+                {
+                    page.getOutputs().add( path );
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine the number of the next split point to be named by number, skipping those of HTML files that are not
+     * being minified. Each shard takes every shardCount-th number so that shards never generate the same file.
+     * 
+     * @param splitPointNumber the number of the previous split point, or 0.
+     * @param reservedSplitPointNames the split point names in use.
+     * @return the number.
+     */
+    private int nextSplitPointNumber( int splitPointNumber, Set<String> reservedSplitPointNames )
+    {
+        int nextSplitPointNumber = splitPointNumber + 1;
+        while ( reservedSplitPointNames.contains( Integer.toString( nextSplitPointNumber ) )
+            || ( isSharded() && ( nextSplitPointNumber - 1 ) % shardCount != shardIndex ) )
+        {
+            ++nextSplitPointNumber;
+        }
+        return nextSplitPointNumber;
+    }
+
+    /**
+     * @return true if the HTML files are divided between shards.
+     */
+    private boolean isSharded()
+    {
+        return shardCount > 1;
+    }
+
+    /**
+     * Minify each of the scripts that HTML files are to reference. Scripts pass through a pipeline of stages, each with
+     * its own threads, so that reading and writing overlap with compression: the scripts to be concatenated are read,
+     * concatenated, compressed, optionally gzipped and written, and then the HTML files referring to them are
+     * rewritten. When scripts are compiled together as Closure modules then only reading and concatenation are
+     * pipelined.
+     * 
+     * @param documentJsResources the scripts that each HTML file is to reference, in order.
+     * @param bundleJsResources the scripts to be concatenated into each script to be referenced.
+     * @param jsResourceNames the split point name of each script.
+     * @param externs the Closure externs to compile with.
+     * @param documentRewriter told of each script once minified.
+     * @param diagnostics where to report problems. When failing fast, the first error stops the pipeline.
+     * @throws MojoExecutionException if there is a problem minifying.
+     */
+    private void minifyJSFiles( Collection<List<File>> documentJsResources, Map<File, List<File>> bundleJsResources,
+                                Map<File, String> jsResourceNames, final List<File> externs,
+                                final DocumentRewriter documentRewriter, final Diagnostics diagnostics )
+        throws MojoExecutionException
+    {
+        Set<File> jsResources = new LinkedHashSet<File>();
+        for ( List<File> documentJsResource : documentJsResources )
+        {
+            jsResources.addAll( documentJsResource );
+        }
+
+        boolean minifyAsModules = isJsCompressor( JsCompressorType.CLOSURE ) && closureModules;
+
+        // Compressors that cannot be shared between threads compress one script at a time, and those that rely on
+        // seeing scripts in order have them read, concatenated and compressed in order.
+        final CompressorProvider provider = isJsCompressor( JsCompressorType.NONE ) ? null : getCompressorProvider();
+        boolean threadSafe = provider == null || provider.isThreadSafe();
+        boolean perFileSafe = provider == null || provider.isPerFileSafe();
+
+        // Forked compressors are not shared between threads whatever their provider.
+        boolean fork = forkCompressors && provider != null && !minifyAsModules;
+        if ( fork )
+        {
+            threadSafe = true;
+        }
+
+        final StagedPipeline<Bundle> pipeline = new StagedPipeline<Bundle>( lowMemory ? 1 : stageQueueCapacity );
+        diagnostics.addCancellationListener( new Runnable()
+        {
+            public void run()
+            {
+                pipeline.cancel( new MojoExecutionException( "Problem(s) prevented compression from completing." ) );
+            }
+        } );
+        pipeline.addStage( "read", perFileSafe ? getStageThreads( "read", 1 ) : 1, new StagedPipeline.Worker<Bundle>()
+        {
+            public void process( Bundle bundle )
+                throws IOException
+            {
+                bundle.read();
+            }
+        } );
+        pipeline.addStage( "concatenate", perFileSafe ? getStageThreads( "concatenate", 1 ) : 1,
+                           new StagedPipeline.Worker<Bundle>()
+        {
+            public void process( Bundle bundle )
+                throws IOException
+            {
+                if ( bundle.sources != null && logger.isDebugEnabled() )
+                {
+                    for ( File source : bundle.sources )
+                    {
+                        logger.debug( "Concatenating file: " + source );
+                    }
+                }
+                bundle.concatenate();
+            }
+        } );
+        if ( !minifyAsModules )
+        {
+            int compressThreads = threadSafe && perFileSafe ? getStageThreads( "compress", compressorThreads ) : 1;
+            if ( fork )
+            {
+                compressorWorkerPool =
+                    session.getCompressorWorkerPool( getForkJvmArgs(), compressThreads, forkTimeout * 1000L, logger );
+            }
+            pipeline.addStage( "compress", compressThreads, new StagedPipeline.Worker<Bundle>()
+            {
+                public void process( Bundle bundle )
+                    throws IOException, MojoExecutionException
+                {
+                    compress( bundle, provider, externs, diagnostics );
+                }
+            } );
+            if ( gzip )
+            {
+                pipeline.addStage( "gzip", getStageThreads( "gzip", 1 ), new StagedPipeline.Worker<Bundle>()
+                {
+                    public void process( Bundle bundle )
+                        throws IOException
+                    {
+                        bundle.gzip();
+                    }
+                } );
+            }
+            pipeline.addStage( "write", getStageThreads( "write", 1 ), new StagedPipeline.Worker<Bundle>()
+            {
+                public void process( Bundle bundle )
+                    throws IOException
+                {
+                    bundle.write();
+                }
+            } );
+            pipeline.addStage( "html", getStageThreads( "html", 1 ), new StagedPipeline.Worker<Bundle>()
+            {
+                public void process( Bundle bundle )
+                    throws MojoExecutionException
+                {
+                    documentRewriter.jsResourceMinified( bundle.file, bundle.minifiedFile );
+                }
+            } );
+        }
+
+        pipeline.start();
+        try
+        {
+            for ( File jsResource : jsResources )
+            {
+                pipeline.submit( new Bundle( jsResource, bundleJsResources.get( jsResource ),
+                                             jsResourceNames.get( jsResource ) ) );
+            }
+            pipeline.finish();
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw e;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while minifying JS", e );
+        }
+        catch ( Exception e )
+        {
+            throw new MojoExecutionException( "Problem reading/writing JS", e );
+        }
+        finally
+        {
+            pipeline.abort();
+
+            // The workers are kept running by the session for the executions that follow.
+            compressorWorkerPool = null;
+        }
+
+        for ( StagedPipeline.StageStatistics stage : pipeline.getStatistics() )
+        {
+            logger.debug( "Stage " + stage );
+        }
+        logger.info( "Slowest stage " + pipeline.getSlowestStage() );
+
+        if ( minifyAsModules )
+        {
+            Map<File, File> minifiedJsResources = new HashMap<File, File>( jsResources.size() );
+            minifyJSFilesAsModules( documentJsResources, externs, minifiedJsResources, diagnostics );
+            for ( Map.Entry<File, File> entry : minifiedJsResources.entrySet() )
+            {
+                if ( gzip )
+                {
+                    try
+                    {
+                        writeAtomically( getGzippedFile( entry.getValue() ),
+                                        gzip( FileUtils.readFileToByteArray( entry.getValue() ) ) );
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new MojoExecutionException( "Problem reading/writing JS", e );
+                    }
+                }
+                documentRewriter.jsResourceMinified( entry.getKey(), entry.getValue() );
+            }
+        }
+    }
+
+    /**
+     * Compress a script.
+     * 
+     * @param bundle the script to compress.
+     * @param provider creates the compressor, or null if scripts are not to be compressed.
+     * @param externs the Closure externs to compile with.
+     * @param diagnostics where to report problems.
+     * @throws IOException if there is a problem reading/writing.
+     * @throws MojoExecutionException if there is a problem compressing.
+     */
+    private void compress( final Bundle bundle, final CompressorProvider provider, final List<File> externs,
+                           final Diagnostics diagnostics )
+        throws IOException, MojoExecutionException
+    {
+        if ( provider == null )
+        {
+            bundle.minifiedFile = bundle.file;
+            bundle.minifiedContent = bundle.content;
+            bundle.content = null;
+            return;
+        }
+
+        if ( diagnostics.isCancelled() )
+        {
+            throw new MojoExecutionException( "Compression of " + bundle.file + " cancelled after an error" );
+        }
+
+        bundle.minifiedFile = getMinifiedFile( bundle.file );
+
+        if ( lowMemory )
+        {
+            HeapUsage.resetPeak();
+        }
+
+        // Dependencies are often shared by the modules of a build, so compress them once for all of them.
+        String sharedBundleKey = getSharedBundleKey( bundle, provider, externs );
+        if ( sharedBundleKey != null )
+        {
+            final String key = sharedBundleKey;
+            final boolean[] compressed = new boolean[1];
+            byte[] sharedBundle = session.getCompressedBundle( key, new Callable<byte[]>()
+            {
+                public byte[] call()
+                    throws IOException, MojoExecutionException
+                {
+                    return minifySharedBundle( bundle, key, provider, externs, diagnostics, compressed );
+                }
+            } );
+
+            // The problems found when compressing the bundle are reported again to the executions that did not.
+            bundle.minifiedContent = SharedBundles.decode( sharedBundle, compressed[0] ? null : diagnostics );
+        }
+        else
+        {
+            bundle.minifiedContent = minifyBundle( bundle, provider, externs, diagnostics );
+        }
+
+        logCompressionRatio( bundle.minifiedFile.getName(), bundle.content.length, bundle.minifiedContent.length );
+        if ( lowMemory )
+        {
+            logPeakHeapUsage( bundle.minifiedFile.getName() );
+        }
+        bundle.content = null;
+    }
+
+    /**
+     * Minify the content of a bundle.
+     * 
+     * @param bundle the bundle to minify.
+     * @param provider creates the compressor.
+     * @param externs the Closure externs to compile with.
+     * @param diagnostics where to report problems.
+     * @return the minified content.
+     * @throws IOException if there is a problem reading/writing.
+     * @throws MojoExecutionException if there is a problem compressing.
+     */
+    private byte[] minifyBundle( Bundle bundle, CompressorProvider provider, List<File> externs,
+                                 Diagnostics diagnostics )
+        throws IOException, MojoExecutionException
+    {
+        ByteArrayOutputStream os = new ByteArrayOutputStream( bundle.content.length );
+        boolean warningsFound =
+            minifyJS( bundle.file, new ByteArrayInputStream( bundle.content ), os, bundle.name, provider, externs,
+                      diagnostics );
+
+        // If there were warnings then the user may want to manually invoke the compressor for further
+        // investigation.
+        if ( warningsFound )
+        {
+            logger.warn( "Warnings were found. " + bundle.file + " is available for your further investigations." );
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * Minify the content of a bundle shared with other executions, taking it from the userCacheFolder if another build
+     * has already minified it.
+     * 
+     * @param bundle the bundle to minify.
+     * @param key the key under which the bundle is shared.
+     * @param provider creates the compressor.
+     * @param externs the Closure externs to compile with.
+     * @param diagnostics where to report problems.
+     * @param compressed set to true if the bundle is compressed here rather than taken from the userCacheFolder, in
+     *            which case its problems have already been reported.
+     * @return the minified content along with the problems found in compressing it, as encoded by
+     *         {@link SharedBundles#encode(byte[], List)}.
+     * @throws IOException if there is a problem reading/writing.
+     * @throws MojoExecutionException if there is a problem compressing.
+     */
+    private byte[] minifySharedBundle( Bundle bundle, String key, CompressorProvider provider, List<File> externs,
+                                       Diagnostics diagnostics, boolean[] compressed )
+        throws IOException, MojoExecutionException
+    {
+        UserCache cache = userCache ? new UserCache( userCacheFolder, userCacheMaxBytes ) : null;
+        if ( cache != null )
+        {
+            byte[] sharedBundle = cache.get( key );
+            if ( sharedBundle != null )
+            {
+                try
+                {
+                    SharedBundles.decode( sharedBundle, null );
+                    logger.info( bundle.file.getName() + " taken from " + userCacheFolder );
+                    return sharedBundle;
+                }
+                catch ( IOException e )
+                {
+                    logger.warn( "Ignoring the corrupt copy of " + bundle.file.getName() + " in " + userCacheFolder );
+                }
+            }
+        }
+
+        List<Diagnostic> reported = Collections.synchronizedList( new ArrayList<Diagnostic>() );
+        byte[] minifiedContent = minifyBundle( bundle, provider, externs, diagnostics.recordingTo( reported ) );
+        compressed[0] = true;
+        byte[] sharedBundle = SharedBundles.encode( minifiedContent, reported );
+        if ( cache != null )
+        {
+            try
+            {
+                cache.put( key, sharedBundle );
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Cannot keep " + bundle.file.getName() + " in " + userCacheFolder + ": "
+                    + e.getMessage() );
+            }
+        }
+        return sharedBundle;
+    }
+
+    /**
+     * Determine the key under which a bundle of dependencies is shared with the other executions of the build, and
+     * with other builds when userCache is true. The key is a digest of the bundle's content and of everything that
+     * determines how it is compressed, including the versions of this plugin and of the compressor provider, which
+     * include the size and modification time of the jars that they were loaded from so that rebuilt SNAPSHOT versions
+     * are told apart. Externs are identified by their content rather than their location so that executions with
+     * externs of their own may still share bundles.
+     * 
+     * @param bundle the bundle to compress.
+     * @param provider creates the compressor.
+     * @param externs the Closure externs to compile with.
+     * @return the key, or null if the bundle is not to be shared because it contains scripts of this project or
+     *         because compressing it also updates renaming maps.
+     * @throws IOException if there is a problem reading externs.
+     */
+    private String getSharedBundleKey( Bundle bundle, CompressorProvider provider, List<File> externs )
+        throws IOException
+    {
+        for ( File jsResource : bundle.sources != null ? bundle.sources : Collections.singletonList( bundle.file ) )
+        {
+            if ( isProjectResource( jsResource ) )
+            {
+                return null;
+            }
+        }
+
+        Map<String, String> options = getCompressorOptions( bundle.file, bundle.name, provider.getName(), externs );
+        if ( options.containsKey( ClosureCompressorProvider.VARIABLE_MAP )
+            || options.containsKey( ClosureCompressorProvider.PROPERTY_MAP ) )
+        {
+            return null;
+        }
+
+        ContentDigest digest = new ContentDigest();
+        digest.update( SharedBundles.FORMAT ).update( pluginVersion ).update( getCodeVersion( MinifierRun.class ) );
+        digest.update( provider.getClass().getName() ).update( getCodeVersion( provider.getClass() ) );
+        digest.update( encoding );
+        for ( Map.Entry<String, String> option : new TreeMap<String, String>( options ).entrySet() )
+        {
+            digest.update( option.getKey() );
+            if ( option.getKey().equals( ClosureCompressorProvider.EXTERNS ) )
+            {
+                for ( File extern : CompressorOptions.getFiles( options, ClosureCompressorProvider.EXTERNS ) )
+                {
+                    digest.update( extern );
+                }
+            }
+            else
+            {
+                digest.update( option.getValue() );
+            }
+        }
+        return digest.update( bundle.content ).toHexString();
+    }
+
+    /**
+     * @param type a class.
+     * @return the implementation version of the class's package along with the size and modification time of the jar
+     *         or folder that the class was loaded from, where known.
+     */
+    private static String getCodeVersion( Class<?> type )
+    {
+        StringBuilder version = new StringBuilder();
+        Package typePackage = type.getPackage();
+        if ( typePackage != null )
+        {
+            version.append( typePackage.getImplementationVersion() );
+        }
+        CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+        if ( codeSource != null && codeSource.getLocation() != null
+            && "file".equals( codeSource.getLocation().getProtocol() ) )
+        {
+            File location = FileUtils.toFile( codeSource.getLocation() );
+            version.append( ':' ).append( location.length() ).append( ':' ).append( location.lastModified() );
+        }
+        return version.toString();
+    }
+
+    /**
+     * Minify scripts in a single Closure compilation where each script is a module that depends on the script
+     * declared before it in a HTML file.
+     * 
+     * @param documentJsResources the scripts that each HTML file is to reference, in order.
+     * @param externs the Closure externs to compile with.
+     * @param minifiedJsResources populated with the minified file for each script.
+     * @param diagnostics where to report problems.
+     * @throws MojoExecutionException if there is a problem minifying.
+     */
+    private void minifyJSFilesAsModules( Collection<List<File>> documentJsResources, List<File> externs,
+                                         Map<File, File> minifiedJsResources, Diagnostics diagnostics )
+        throws MojoExecutionException
+    {
+        // Note what each script depends on.
+        Map<File, Set<File>> jsResourceDependencies = new LinkedHashMap<File, Set<File>>();
+        for ( List<File> jsResources : documentJsResources )
+        {
+            File previousJsResource = null;
+            for ( File jsResource : jsResources )
+            {
+                Set<File> dependencies = jsResourceDependencies.get( jsResource );
+                if ( dependencies == null )
+                {
+                    dependencies = new LinkedHashSet<File>();
+                    jsResourceDependencies.put( jsResource, dependencies );
+                }
+                if ( previousJsResource != null )
+                {
+                    dependencies.add( previousJsResource );
+                }
+                previousJsResource = jsResource;
+            }
+        }
+
+        // Closure requires that modules are declared after their dependencies.
+        List<File> orderedJsResources = new ArrayList<File>( jsResourceDependencies.size() );
+        for ( File jsResource : jsResourceDependencies.keySet() )
+        {
+            orderByDependencies( jsResource, jsResourceDependencies, new HashSet<File>(), orderedJsResources );
+        }
+
+        URI destinationFolderUri = destinationFolder.toURI();
+
+        ClosureJsModuleCompressor compressor = new ClosureJsModuleCompressor( encoding, logger );
+        compressor.setOptions( closureCompilationLevel, closureAcceptConstKeyword );
+        compressor.setExterns( externs );
+        compressor.setRenamingMapFiles( getRenamingMapFile( MODULES_RENAMING_MAP_NAME, VARIABLE_MAP_SUFFIX ),
+                                        getRenamingMapFile( MODULES_RENAMING_MAP_NAME, PROPERTY_MAP_SUFFIX ) );
+        compressor.setDefines( getDefines( null ) );
+        compressor.setStripCalls( getStripCalls( null ) );
+        compressor.setLowMemory( lowMemory );
+        compressor.setDiagnostics( diagnostics.forBundle( JsCompressorType.CLOSURE.name(),
+                                                          MODULES_RENAMING_MAP_NAME ) );
+
+        List<InputStream> sources = new ArrayList<InputStream>( orderedJsResources.size() );
+        List<OutputStream> targets = new ArrayList<OutputStream>( orderedJsResources.size() );
+        try
+        {
+            for ( File jsResource : orderedJsResources )
+            {
+                List<String> dependencyNames = new ArrayList<String>();
+                for ( File dependency : jsResourceDependencies.get( jsResource ) )
+                {
+                    dependencyNames.add( destinationFolderUri.relativize( dependency.toURI() ).toString() );
+                }
+
+                File minifiedJSResource = getMinifiedFile( jsResource );
+                minifiedJsResources.put( jsResource, minifiedJSResource );
+
+                InputStream is = new BufferedInputStream( new FileInputStream( jsResource ) );
+                sources.add( is );
+                OutputStream os = new FileOutputStream( minifiedJSResource );
+                targets.add( os );
+
+                compressor.addModule( destinationFolderUri.relativize( jsResource.toURI() ).toString(), is, os,
+                                      dependencyNames );
+            }
+
+            if ( lowMemory )
+            {
+                HeapUsage.resetPeak();
+            }
+
+            compressor.compress();
+
+            if ( lowMemory )
+            {
+                logPeakHeapUsage( orderedJsResources.toString() );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Problem reading/writing JS", e );
+        }
+        finally
+        {
+            for ( InputStream is : sources )
+            {
+                IOUtils.closeQuietly( is );
+            }
+            for ( OutputStream os : targets )
+            {
+                IOUtils.closeQuietly( os );
+            }
+        }
+
+        Diagnostics moduleDiagnostics = compressor.getDiagnostics();
+        if ( moduleDiagnostics.hasErrors() )
+        {
+            throw new MojoExecutionException( "Problem(s) prevented compression from completing." );
+        }
+
+        for ( File jsResource : orderedJsResources )
+        {
+            File minifiedJSResource = minifiedJsResources.get( jsResource );
+            logCompressionRatio( minifiedJSResource.getName(), jsResource.length(), minifiedJSResource.length() );
+        }
+
+        if ( moduleDiagnostics.hasWarnings() )
+        {
+            logger.warn( "Warnings were found. " + orderedJsResources
+                               + " are available for your further investigations." );
+        }
+    }
+
+    /**
+     * Add a script to a list after the scripts that it depends on.
+     * 
+     * @param jsResource the script to add.
+     * @param jsResourceDependencies what each script depends on.
+     * @param visitingJsResources the scripts being added further up the call stack, used to detect cycles.
+     * @param orderedJsResources the list to add to.
+     * @throws MojoExecutionException if scripts depend on each other.
+     */
+    private void orderByDependencies( File jsResource, Map<File, Set<File>> jsResourceDependencies,
+                                      Set<File> visitingJsResources, List<File> orderedJsResources )
+        throws MojoExecutionException
+    {
+        if ( orderedJsResources.contains( jsResource ) )
+        {
+            return;
+        }
+        if ( !visitingJsResources.add( jsResource ) )
+        {
+            throw new MojoExecutionException( "HTML files declare scripts in conflicting orders so they cannot be "
+                + "compiled as modules: " + jsResource );
+        }
+        for ( File dependency : jsResourceDependencies.get( jsResource ) )
+        {
+            orderByDependencies( dependency, jsResourceDependencies, visitingJsResources, orderedJsResources );
+        }
+        visitingJsResources.remove( jsResource );
+        orderedJsResources.add( jsResource );
+    }
+
+    /**
+     * Generate Closure externs for each of the scripts that are dependencies of this project.
+     * 
+     * @param jsResources the scripts declared by a HTML file.
+     * @param externs the externs to add to.
+     * @throws MojoExecutionException if there is a problem generating the externs.
+     */
+    private void generateExterns( List<File> jsResources, Set<File> externs )
+        throws MojoExecutionException
+    {
+        ClosureExternsGenerator generator = new ClosureExternsGenerator( closureExternsCacheFolder, encoding );
+        for ( File jsResource : jsResources )
+        {
+            if ( !isProjectResource( jsResource ) )
+            {
+                try
+                {
+                    externs.add( generator.getExterns( jsResource ) );
+                }
+                catch ( IOException e )
+                {
+                    throw new MojoExecutionException( "Problem generating externs for " + jsResource, e );
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine where a renaming map is kept.
+     * 
+     * @param name the destinationFolder relative path of the script compiled, or the name of the module compilation.
+     * @param suffix distinguishes the type of map.
+     * @return the map file or null if maps are not kept.
+     */
+    private File getRenamingMapFile( String name, String suffix )
+    {
+        return closureRenamingMapFolder != null ? new File( closureRenamingMapFolder, name + suffix ) : null;
+    }
+
+    /**
+     * Determine whether a script belongs to this project as opposed to being one of its dependencies.
+     * 
+     * @param jsResource the script within the destinationFolder.
+     * @return true if the script is found within the projectSourceFolder, or if there is no projectSourceFolder.
+     */
+    private boolean isProjectResource( File jsResource )
+    {
+        if ( projectSourceFolder == null )
+        {
+            return true;
+        }
+        String jsResourceUri = destinationFolder.toURI().relativize( jsResource.toURI() ).toString();
+        return new File( projectSourceFolder, jsResourceUri ).exists();
+    }
+
+    /**
+     * Create a reference to a script, inlining its content if it is small enough.
+     * 
+     * @param jsResource the script to reference.
+     * @param options how the script is to be loaded.
+     * @param inlinedJsResources noted with the script if it is inlined.
+     * @param referencedJsResources noted with the script if it is not inlined.
+     * @return the reference.
+     * @throws MojoExecutionException if there is a problem reading the script.
+     */
+    private ScriptReference createScriptReference( File jsResource, Set<ScriptReference.Option> options,
+                                                   Set<File> inlinedJsResources, Set<File> referencedJsResources )
+        throws MojoExecutionException
+    {
+        if ( jsResource.length() < inlineThresholdBytes && !options.contains( ScriptReference.Option.DEFER )
+            && !options.contains( ScriptReference.Option.ASYNC ) && !options.contains( ScriptReference.Option.LAZY ) )
+        {
+            String content;
+            try
+            {
+                content = FileUtils.readFileToString( jsResource, encoding );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Problem reading JS to inline", e );
+            }
+            inlinedJsResources.add( jsResource );
+            return new ScriptReference( jsResource, options, content );
+        }
+        else
+        {
+            referencedJsResources.add( jsResource );
+            return new ScriptReference( jsResource, options );
+        }
+    }
+
+    /**
+     * Determine how a script is to be loaded.
+     * 
+     * @param name the split point name or, when not concatenating, the relative path of the script.
+     * @return the options configured for the script, or the default ones.
+     * @throws MojoExecutionException if the options cannot be parsed.
+     */
+    private Set<ScriptReference.Option> getScriptOptions( String name )
+        throws MojoExecutionException
+    {
+        String value = getSplitPointSetting( jsScriptOptions, jsDefaultScriptOptions, name );
+
+        try
+        {
+            return ScriptReference.parseOptions( value );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new MojoExecutionException( "Unknown script option in: " + value, e );
+        }
+    }
+
+    /**
+     * Determine the @define overrides for a script.
+     * 
+     * @param name the split point name or, when not concatenating, the relative path of the script. Null signals that
+     *            the defaults are required.
+     * @return the value of each constant to override.
+     * @throws MojoExecutionException if the overrides cannot be parsed.
+     */
+    private Map<String, String> getDefines( String name )
+        throws MojoExecutionException
+    {
+        String value = getSplitPointSetting( closureDefines, closureDefaultDefines, name );
+
+        try
+        {
+            return CompressorOptions.parseMap( value );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new MojoExecutionException( "Invalid define. " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Determine the functions whose calls are to be removed from a script.
+     * 
+     * @param name the split point name or, when not concatenating, the relative path of the script. Null signals that
+     *            the defaults are required.
+     * @return the function names.
+     */
+    private List<String> getStripCalls( String name )
+    {
+        return CompressorOptions.parseList( getSplitPointSetting( jsStripCalls, jsDefaultStripCalls, name ) );
+    }
+
+    /**
+     * Look up a setting that can be configured per split point.
+     * 
+     * @param settings the setting for each split point, may be null.
+     * @param defaultSetting the setting for split points without an entry, may be null.
+     * @param name the split point name or, when not concatenating, the relative path of the script. May be null.
+     * @return the setting, or null if there is none.
+     */
+    private String getSplitPointSetting( Properties settings, String defaultSetting, String name )
+    {
+        String value = null;
+        if ( settings != null && name != null )
+        {
+            value = settings.getProperty( name );
+        }
+        if ( value == null )
+        {
+            value = defaultSetting;
+        }
+        return value;
+    }
+
+    /**
+     * Determine the number of threads to perform a stage of the minification pipeline with.
+     * 
+     * @param stage the name of the stage.
+     * @param defaultThreads the number of threads if none are configured.
+     * @return the number of threads.
+     * @throws MojoExecutionException if the configured number is not a number.
+     */
+    private int getStageThreads( String stage, int defaultThreads )
+        throws MojoExecutionException
+    {
+        if ( lowMemory )
+        {
+            return 1;
+        }
+
+        String value = stageThreads != null ? stageThreads.getProperty( stage ) : null;
+        int threads;
+        try
+        {
+            threads = value != null ? Integer.parseInt( value.trim() ) : defaultThreads;
+        }
+        catch ( NumberFormatException e )
+        {
+            throw new MojoExecutionException( "Expected a number of threads for the " + stage + " stage: " + value, e );
+        }
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Determine the name of the minified file for a given script e.g. a.js yields a-min.js.
+     * 
+     * @param jsResource the script to be minified.
+     * @return the minified file.
+     * @throws MojoExecutionException if there is a problem determining the file.
+     */
+    private File getMinifiedFile( File jsResource )
+        throws MojoExecutionException
+    {
+        try
+        {
+            String uri = jsResource.toURI().toString();
+            int i = uri.lastIndexOf( ".js" );
+            String minUri;
+            if ( i > -1 )
+            {
+                minUri = uri.substring( 0, i ) + "-min.js";
+            }
+            else
+            {
+                minUri = uri;
+            }
+            return FileUtils.toFile( new URL( minUri ) );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new MojoExecutionException( "Problem determining file URL", e );
+        }
+    }
+
+    /**
+     * Write a HTML file to the output dir.
+     * 
+     * @param replacer the document to write.
+     * @param targetHTML the file to write to.
+     * @throws MojoExecutionException if there is a problem writing.
+     */
+    private void writeHTML( DocumentResourceReplacer replacer, File targetHTML )
+        throws MojoExecutionException
+    {
+        try
+        {
+            replacer.writeHTML( targetHTML, encoding );
+        }
+        catch ( TransformerException e )
+        {
+            throw new MojoExecutionException( "Problem transforming html", e );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Problem writing html", e );
+        }
+    }
+
+    /**
+     * @return an array of html files to be processed, being those of this shard when sharded.
+     */
+    private String[] getArrayOfTargetHTMLFiles()
+    {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir( destinationFolder );
+
+        String[] includesArray = getPatternsOrDefault( htmlIncludes, getDefaultIncludes() );
+        scanner.setIncludes( includesArray );
+
+        String[] excludesArray = getPatternsOrDefault( htmlExcludes, getDefaultExcludes() );
+        scanner.setExcludes( excludesArray );
+
+        scanner.scan();
+        String[] includedFiles = scanner.getIncludedFiles();
+
+        if ( isSharded() )
+        {
+            Arrays.sort( includedFiles );
+            List<String> shardFiles = new ArrayList<String>( includedFiles.length / shardCount + 1 );
+            for ( int i = shardIndex; i < includedFiles.length; i += shardCount )
+            {
+                shardFiles.add( includedFiles[i] );
+            }
+            includedFiles = shardFiles.toArray( new String[shardFiles.size()] );
+        }
+
+        return includedFiles;
+    }
+
+    /**
+     * @return the list of excludes by default.
+     */
+    private String[] getDefaultExcludes()
+    {
+        return new String[0];
+    }
+
+    /**
+     * @return the list of includes by default.
+     */
+    private String[] getDefaultIncludes()
+    {
+        return new String[] { "**/*.html", "**/*.htm" };
+    }
+
+    private String[] getPatternsOrDefault( List<String> patterns, String[] defaultPatterns )
+    {
+        if ( patterns == null || patterns.isEmpty() )
+        {
+            return defaultPatterns;
+        }
+        else
+        {
+            return patterns.toArray( new String[patterns.size()] );
+        }
+    }
+
+    private void logCompressionRatio( String filename, long original, long changed )
+    {
+        String percentageString;
+        if ( original > 0 )
+        {
+            int sizePercentage = (int) ( ( Double.valueOf( changed ) / Double.valueOf( original ) ) * 100.0 );
+            percentageString = sizePercentage + "%";
+        }
+        else
+        {
+            percentageString = "-";
+        }
+
+        logger.info( filename + " minified from " + Long.valueOf( original ) + " to " + Long.valueOf( changed )
+                           + " bytes (" + percentageString + " of original size)" );
+    }
+
+    private void logPeakHeapUsage( String filename )
+    {
+        final long bytesPerMegabyte = 1024L * 1024L;
+        logger.info( filename + " compressed using a peak of " + HeapUsage.getPeakUsed() / bytesPerMegabyte
+                           + "MB of heap" );
+    }
+
+    /**
+     * Perform the actual minification.
+     * 
+     * @param jsResource the script being minified.
+     * @param is the script to read.
+     * @param os where to write the minified script.
+     * @param name the split point name of the script.
+     * @param provider creates the compressor.
+     * @param externs the Closure externs to compile with.
+     * @param diagnostics where to report problems.
+     * @throws IOException a problem reading/writing files.
+     * @throws MojoExecutionException if there's a problem during compression.
+     * @return true if minification succeeded with no warnings.
+     */
+    private boolean minifyJS( File jsResource, InputStream is, OutputStream os, String name,
+                              CompressorProvider provider, List<File> externs, Diagnostics diagnostics )
+        throws IOException, MojoExecutionException
+    {
+        String bundleName = destinationFolder.toURI().relativize( jsResource.toURI() ).toString();
+        Diagnostics bundleDiagnostics = diagnostics.forBundle( provider.getName(), bundleName );
+        Map<String, String> options = getCompressorOptions( jsResource, name, provider.getName(), externs );
+
+        CompressorWorkerPool workerPool = compressorWorkerPool;
+        if ( workerPool != null )
+        {
+            byte[] compressed;
+            try
+            {
+                compressed =
+                    workerPool.compress( provider.getName(), encoding, options, IOUtils.toByteArray( is ),
+                                         bundleDiagnostics );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException( "Interrupted while waiting for a compressor worker", e );
+            }
+            if ( compressed != null )
+            {
+                os.write( compressed );
+            }
+        }
+        else
+        {
+            AbstractCompressor compressor;
+            try
+            {
+                compressor = provider.createCompressor( is, os, encoding, logger, options );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                throw new MojoExecutionException( "Invalid options for the " + provider.getName() + " compressor: "
+                    + e.getMessage(), e );
+            }
+            compressor.setDiagnostics( bundleDiagnostics );
+            compressor.compress();
+        }
+        if ( bundleDiagnostics.hasErrors() )
+        {
+            throw new MojoExecutionException( "Problem(s) prevented compression from completing." );
+        }
+        return bundleDiagnostics.hasWarnings();
+    }
+
+    /**
+     * Minify a script on its own, as it would be minified when not concatenating.
+     * 
+     * @param path the destinationFolder relative path of the script, which is also its name for the purposes of
+     *            looking up settings by split point.
+     * @param content the script.
+     * @param diagnostics where to report problems.
+     * @return the minified script, which is the script itself if the jsCompressorType is NONE.
+     * @throws IOException if there is a problem reading/writing.
+     * @throws MojoExecutionException if there is a problem compressing.
+     */
+    byte[] minifyScript( String path, byte[] content, Diagnostics diagnostics )
+        throws IOException, MojoExecutionException
+    {
+        if ( isJsCompressor( JsCompressorType.NONE ) )
+        {
+            return content;
+        }
+
+        CompressorProvider provider = getCompressorProvider();
+        List<File> externs = closureExterns != null ? closureExterns : Collections.<File> emptyList();
+        ByteArrayOutputStream os = new ByteArrayOutputStream( content.length );
+        minifyJS( new File( destinationFolder, path ), new ByteArrayInputStream( content ), os, path, provider, externs,
+                  diagnostics );
+        return os.toByteArray();
+    }
+
+    /**
+     * Determine the options to create a compressor with. The YUI and CLOSURE options are derived from the parameters
+     * of the same prefix, and then jsCompressorOptions are applied over them.
+     * 
+     * @param jsResource the script being minified.
+     * @param name the split point name of the script.
+     * @param compressorName the name of the compressor.
+     * @param externs the Closure externs to compile with.
+     * @return the options by name.
+     */
+    private Map<String, String> getCompressorOptions( File jsResource, String name, String compressorName,
+                                                      List<File> externs )
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        String stripCalls = getSplitPointSetting( jsStripCalls, jsDefaultStripCalls, name );
+        if ( stripCalls != null )
+        {
+            options.put( YuiCompressorProvider.STRIP_CALLS, stripCalls );
+        }
+
+        if ( compressorName.equals( JsCompressorType.YUI.name() ) )
+        {
+            options.put( YuiCompressorProvider.LINEBREAK, String.valueOf( yuiLinebreak ) );
+            options.put( YuiCompressorProvider.MUNGE, String.valueOf( yuiMunge ) );
+            options.put( YuiCompressorProvider.PRESERVE_SEMI, String.valueOf( yuiPreserveSemi ) );
+            options.put( YuiCompressorProvider.DISABLE_OPTIMIZATIONS, String.valueOf( yuiDisableOptimizations ) );
+        }
+        else if ( compressorName.equals( JsCompressorType.CLOSURE.name() ) )
+        {
+            options.put( ClosureCompressorProvider.COMPILATION_LEVEL, closureCompilationLevel.name() );
+            options.put( ClosureCompressorProvider.ACCEPT_CONST_KEYWORD, String.valueOf( closureAcceptConstKeyword ) );
+            StringBuilder externPaths = new StringBuilder();
+            for ( File extern : externs )
+            {
+                if ( externPaths.length() > 0 )
+                {
+                    externPaths.append( File.pathSeparatorChar );
+                }
+                externPaths.append( extern.getAbsolutePath() );
+            }
+            options.put( ClosureCompressorProvider.EXTERNS, externPaths.toString() );
+            String mapName = destinationFolder.toURI().relativize( jsResource.toURI() ).toString();
+            File variableMapFile = getRenamingMapFile( mapName, VARIABLE_MAP_SUFFIX );
+            if ( variableMapFile != null )
+            {
+                options.put( ClosureCompressorProvider.VARIABLE_MAP, variableMapFile.getAbsolutePath() );
+            }
+            File propertyMapFile = getRenamingMapFile( mapName, PROPERTY_MAP_SUFFIX );
+            if ( propertyMapFile != null )
+            {
+                options.put( ClosureCompressorProvider.PROPERTY_MAP, propertyMapFile.getAbsolutePath() );
+            }
+            String defines = getSplitPointSetting( closureDefines, closureDefaultDefines, name );
+            if ( defines != null )
+            {
+                options.put( ClosureCompressorProvider.DEFINES, defines );
+            }
+            options.put( ClosureCompressorProvider.LOW_MEMORY, String.valueOf( lowMemory ) );
+        }
+
+        if ( jsCompressorOptions != null )
+        {
+            for ( Map.Entry<Object, Object> entry : jsCompressorOptions.entrySet() )
+            {
+                options.put( entry.getKey().toString(), entry.getValue().toString() );
+            }
+        }
+        return options;
+    }
+
+    /**
+     * @return the name of the compressor to use.
+     */
+    private String getCompressorName()
+    {
+        return jsCompressor != null ? jsCompressor.trim().toUpperCase( Locale.ENGLISH ) : jsCompressorType.name();
+    }
+
+    /**
+     * @param type a built in compressor.
+     * @return true if the compressor to use is the one given.
+     */
+    private boolean isJsCompressor( JsCompressorType type )
+    {
+        return getCompressorName().equals( type.name() );
+    }
+
+    /**
+     * @return the arguments that forked compressor JVMs are started with.
+     */
+    private List<String> getForkJvmArgs()
+    {
+        List<String> jvmArgs = new ArrayList<String>( 2 );
+        if ( forkMaxHeap != null && forkMaxHeap.trim().length() > 0 )
+        {
+            jvmArgs.add( "-Xmx" + forkMaxHeap.trim() );
+        }
+        if ( forkStackSize != null && forkStackSize.trim().length() > 0 )
+        {
+            jvmArgs.add( "-Xss" + forkStackSize.trim() );
+        }
+        return jvmArgs;
+    }
+
+    /**
+     * Find the provider of the compressor to use.
+     * 
+     * @return the provider.
+     * @throws MojoExecutionException if there is no such compressor, or providers cannot be loaded.
+     */
+    private CompressorProvider getCompressorProvider()
+        throws MojoExecutionException
+    {
+        CompressorProviders providers;
+        try
+        {
+            providers = session.getCompressorProviders();
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Problem finding compressors", e );
+        }
+        catch ( IllegalStateException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+
+        CompressorProvider provider = providers.get( getCompressorName() );
+        if ( provider == null )
+        {
+            throw new MojoExecutionException( "Unknown compressor " + getCompressorName() + ". Available compressors: "
+                + providers.getNames() );
+        }
+        return provider;
+    }
+
+    /**
+     * Write a file such that it is either written in full or not at all, by writing to a temporary file alongside it
+     * and then renaming that.
+     * 
+     * @param file the file to write.
+     * @param content what to write.
+     * @throws IOException if there is a problem writing.
+     */
+    private static void writeAtomically( File file, byte[] content )
+        throws IOException
+    {
+        File folder = file.getParentFile();
+        folder.mkdirs();
+        File tempFile = File.createTempFile( file.getName() + "-", ".tmp", folder );
+        try
+        {
+            FileUtils.writeByteArrayToFile( tempFile, content );
+            if ( !tempFile.renameTo( file ) )
+            {
+                // Renaming onto an existing file fails on some platforms.
+                file.delete();
+                if ( !tempFile.renameTo( file ) )
+                {
+                    throw new IOException( "Cannot write file: " + file );
+                }
+            }
+        }
+        finally
+        {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * @param content what to compress.
+     * @return the gzipped content.
+     * @throws IOException if there is a problem compressing.
+     */
+    static byte[] gzip( byte[] content )
+        throws IOException
+    {
+        ByteArrayOutputStream os = new ByteArrayOutputStream( content.length / 2 + 1 );
+        GZIPOutputStream gos = new GZIPOutputStream( os );
+        try
+        {
+            gos.write( content );
+        }
+        finally
+        {
+            gos.close();
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * @param file a file to be gzipped.
+     * @return the gzipped file e.g. a-min.js.gz for a-min.js.
+     */
+    private static File getGzippedFile( File file )
+    {
+        return new File( file.getParentFile(), file.getName() + GZIP_SUFFIX );
+    }
+
+    private void removeEmptyFolders( File folder )
+    {
+        File[] files = folder.listFiles();
+        boolean folderHasFile = false;
+        for ( File file : files )
+        {
+            if ( file.isDirectory() )
+            {
+                removeEmptyFolders( file );
+            }
+            else
+            {
+                folderHasFile = true;
+            }
+        }
+        if ( !folderHasFile )
+        {
+            folder.delete();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * State shared by every execution of the plugin within a build, including executions for modules being built in
+ * parallel, so that what one execution has loaded is reused by the others. Plexus creates a single instance of this
+ * component for the plugin, which Maven keeps for the whole reactor. Outside of Maven, each {@link WebMinifier} has a
+ * session of its own unless given one. All methods are thread safe.
+ */
+public class MinifierSession
+{
+    /**
+     * The default number of bytes of compressed bundles to hold.
+     */
+    public static final long DEFAULT_MAX_BUNDLE_BYTES = 64L * 1024L * 1024L;
+
+    private final long maxBundleBytes;
+
+    private ClassLoader providersClassLoader;
+
+    private CompressorProviders providers;
+
+    private final ConcurrentMap<String, FutureTask<byte[]>> compressedBundles =
+        new ConcurrentHashMap<String, FutureTask<byte[]>>();
+
+    /**
+     * The size of each compressed bundle held, in the order of their last use.
+     */
+    private final LinkedHashMap<String, Integer> bundleSizes = new LinkedHashMap<String, Integer>( 16, 0.75f, true );
+
+    private long bundleBytes;
+
+    /**
+     * The pools of forked compressor JVMs, keyed by their JVM arguments followed by their timeout.
+     */
+    private final Map<List<String>, CompressorWorkerPool> compressorWorkerPools =
+        new HashMap<List<String>, CompressorWorkerPool>();
+
+    /**
+     * Construct a session holding up to {@link #DEFAULT_MAX_BUNDLE_BYTES} of compressed bundles.
+     */
+    public MinifierSession()
+    {
+        this( DEFAULT_MAX_BUNDLE_BYTES );
+    }
+
+    /**
+     * @param maxBundleBytes the number of bytes of compressed bundles to hold, beyond which the least recently used
+     *            are discarded.
+     */
+    public MinifierSession( long maxBundleBytes )
+    {
+        this.maxBundleBytes = maxBundleBytes;
+    }
+
+    /**
+     * Obtain the compressor providers visible to the context class loader, or to the class loader of this class if
+     * there is no context class loader. The providers are only discovered the first time.
+     * 
+     * @return the providers.
+     * @throws IOException if a provider resource cannot be read.
+     * @throws IllegalStateException if a named provider cannot be instantiated.
+     */
+    public synchronized CompressorProviders getCompressorProviders()
+        throws IOException
+    {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if ( classLoader == null )
+        {
+            classLoader = MinifierSession.class.getClassLoader();
+        }
+        if ( providers == null || providersClassLoader != classLoader )
+        {
+            providers = CompressorProviders.load( classLoader );
+            providersClassLoader = classLoader;
+        }
+        return providers;
+    }
+
+    /**
+     * Obtain a compressed bundle, compressing it only if no other execution has compressed the same bundle in the same
+     * way. Executions requesting a bundle while it is being compressed wait for that compression rather than
+     * compressing it again. Bundles are held until the bundles held exceed the session's maximum bytes, when the least
+     * recently used are discarded, so only bundles that are likely to be shared, such as those of dependencies, should
+     * be obtained this way.
+     * 
+     * @param key identifies the content of the bundle and how it is compressed.
+     * @param compression compresses the bundle.
+     * @return the compressed bundle.
+     * @throws IOException if there is a problem reading/writing.
+     * @throws MojoExecutionException if there is a problem compressing, or if interrupted while waiting.
+     */
+    byte[] getCompressedBundle( String key, Callable<byte[]> compression )
+        throws IOException, MojoExecutionException
+    {
+        while ( true )
+        {
+            FutureTask<byte[]> task = new FutureTask<byte[]>( compression );
+            FutureTask<byte[]> existingTask = compressedBundles.putIfAbsent( key, task );
+            if ( existingTask == null )
+            {
+                task.run();
+            }
+            else
+            {
+                task = existingTask;
+            }
+
+            try
+            {
+                byte[] bundle = task.get();
+                used( key, task, bundle.length );
+                return bundle;
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException( "Interrupted while waiting for a bundle to be compressed", e );
+            }
+            catch ( ExecutionException e )
+            {
+                compressedBundles.remove( key, task );
+                if ( existingTask == null )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof IOException )
+                    {
+                        throw (IOException) cause;
+                    }
+                    else if ( cause instanceof MojoExecutionException )
+                    {
+                        throw (MojoExecutionException) cause;
+                    }
+                    else if ( cause instanceof RuntimeException )
+                    {
+                        throw (RuntimeException) cause;
+                    }
+                    else if ( cause instanceof Error )
+                    {
+                        throw (Error) cause;
+                    }
+                    throw new MojoExecutionException( "Problem compressing a bundle", cause );
+                }
+
+                // Another execution failed to compress the bundle, perhaps because it was cancelled after an error
+                // of its own, so compress it here instead.
+            }
+        }
+    }
+
+    /**
+     * Note the use of a compressed bundle, discarding the least recently used bundles if too many bytes are held.
+     * 
+     * @param key identifies the bundle.
+     * @param task the task that compressed the bundle.
+     * @param length the length of the bundle.
+     */
+    private void used( String key, FutureTask<byte[]> task, int length )
+    {
+        synchronized ( bundleSizes )
+        {
+            if ( bundleSizes.get( key ) == null && compressedBundles.get( key ) == task )
+            {
+                bundleSizes.put( key, Integer.valueOf( length ) );
+                bundleBytes += length;
+            }
+
+            Iterator<Map.Entry<String, Integer>> eldest = bundleSizes.entrySet().iterator();
+            while ( bundleBytes > maxBundleBytes && eldest.hasNext() )
+            {
+                Map.Entry<String, Integer> entry = eldest.next();
+                compressedBundles.remove( entry.getKey() );
+                bundleBytes -= entry.getValue().intValue();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Obtain a pool of forked compressor JVMs, so that JVMs started by one execution are used by those that follow
+     * instead of starting again. Executions forking with the same JVM arguments and timeout share a pool, which grows
+     * to the largest number of workers asked of it.
+     * 
+     * @param jvmArgs the arguments of the forked JVMs.
+     * @param maxWorkers the number of JVMs that the execution may use at once.
+     * @param timeoutMillis the number of milliseconds a JVM may take to compress a script, or 0 for no limit.
+     * @param logger the logger for the JVMs' output, if the pool is created by this call.
+     * @return the pool.
+     */
+    synchronized CompressorWorkerPool getCompressorWorkerPool( List<String> jvmArgs, int maxWorkers,
+                                                               long timeoutMillis, Log logger )
+    {
+        List<String> key = new ArrayList<String>( jvmArgs );
+        key.add( String.valueOf( timeoutMillis ) );
+        CompressorWorkerPool pool = compressorWorkerPools.get( key );
+        if ( pool == null )
+        {
+            pool = new CompressorWorkerPool( jvmArgs, maxWorkers, timeoutMillis, logger );
+            compressorWorkerPools.put( key, pool );
+        }
+        else
+        {
+            pool.ensureMaxWorkers( maxWorkers );
+        }
+        return pool;
+    }
+
+    /**
+     * Stop the forked compressor JVMs. A session that is never closed leaves its JVMs idle until the JVM holding the
+     * session exits, when they reach the end of their input and exit too.
+     */
+    public synchronized void close()
+    {
+        for ( CompressorWorkerPool pool : compressorWorkerPools.values() )
+        {
+            pool.close();
+        }
+        compressorWorkerPools.clear();
+    }
+
+    /**
+     * @return the number of bytes of compressed bundles held.
+     */
+    long getBundleBytes()
+    {
+        synchronized ( bundleSizes )
+        {
+            return bundleBytes;
+        }
+    }
+}
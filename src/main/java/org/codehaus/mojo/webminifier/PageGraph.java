@@ -0,0 +1,328 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * What was known of each HTML page when pages were last minified: the scripts that it referred to, the scripts that
+ * were removed from the destination folder on its behalf, and the files that were generated for it. Also kept are
+ * the digest of each source file and a fingerprint of the configuration, so that only the pages affected by a change
+ * need to be minified again. Paths are relative to the source and destination folders, which mirror each other, and
+ * use forward slashes.
+ */
+public class PageGraph
+{
+    /**
+     * What is known of a page.
+     */
+    public static class Page
+    {
+        private final Set<String> inputs = new LinkedHashSet<String>();
+
+        private final Set<String> consumed = new LinkedHashSet<String>();
+
+        private final Set<String> outputs = new LinkedHashSet<String>();
+
+        /**
+         * @return the scripts that the page referred to, including those discovered as dependencies.
+         */
+        public Set<String> getInputs()
+        {
+            return inputs;
+        }
+
+        /**
+         * @return the scripts that were removed from the destination folder having been concatenated or minified.
+         */
+        public Set<String> getConsumed()
+        {
+            return consumed;
+        }
+
+        /**
+         * @return the files that were generated for the page.
+         */
+        public Set<String> getOutputs()
+        {
+            return outputs;
+        }
+    }
+
+    private static final String HEADER = "# webminifier page graph 1";
+
+    private String configuration;
+
+    private final Map<String, String> sourceDigests = new TreeMap<String, String>();
+
+    private final Map<String, Page> pages = new TreeMap<String, Page>();
+
+    /**
+     * Read a graph previously written.
+     * 
+     * @param file the file to read.
+     * @return the graph, or null if the file does not exist or was written by an incompatible version.
+     * @throws IOException if there is a problem reading.
+     */
+    public static PageGraph read( File file )
+        throws IOException
+    {
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+
+        PageGraph graph = new PageGraph();
+        BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF-8" ) );
+        try
+        {
+            if ( !HEADER.equals( reader.readLine() ) )
+            {
+                return null;
+            }
+
+            Page page = null;
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                int i = line.indexOf( ' ' );
+                if ( i < 0 )
+                {
+                    return null;
+                }
+                String key = line.substring( 0, i );
+                String value = line.substring( i + 1 );
+                if ( key.equals( "configuration" ) )
+                {
+                    graph.configuration = value;
+                }
+                else if ( key.equals( "source" ) )
+                {
+                    int j = value.indexOf( ' ' );
+                    if ( j < 0 )
+                    {
+                        return null;
+                    }
+                    graph.sourceDigests.put( value.substring( j + 1 ), value.substring( 0, j ) );
+                }
+                else if ( key.equals( "page" ) )
+                {
+                    page = graph.addPage( value );
+                }
+                else if ( page != null && key.equals( "input" ) )
+                {
+                    page.inputs.add( value );
+                }
+                else if ( page != null && key.equals( "consumed" ) )
+                {
+                    page.consumed.add( value );
+                }
+                else if ( page != null && key.equals( "output" ) )
+                {
+                    page.outputs.add( value );
+                }
+                else
+                {
+                    return null;
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return graph;
+    }
+
+    /**
+     * Write the graph such that it is either written in full or not at all.
+     * 
+     * @param file the file to write.
+     * @throws IOException if there is a problem writing.
+     */
+    public void write( File file )
+        throws IOException
+    {
+        File folder = file.getParentFile();
+        folder.mkdirs();
+        File tempFile = File.createTempFile( "pages", ".tmp", folder );
+        Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( tempFile ), "UTF-8" ) );
+        try
+        {
+            writer.write( HEADER + "\n" );
+            if ( configuration != null )
+            {
+                writer.write( "configuration " + configuration + "\n" );
+            }
+            for ( Map.Entry<String, String> entry : sourceDigests.entrySet() )
+            {
+                writer.write( "source " + entry.getValue() + " " + entry.getKey() + "\n" );
+            }
+            for ( Map.Entry<String, Page> entry : pages.entrySet() )
+            {
+                writer.write( "page " + entry.getKey() + "\n" );
+                Page page = entry.getValue();
+                for ( String input : page.inputs )
+                {
+                    writer.write( "input " + input + "\n" );
+                }
+                for ( String consumed : page.consumed )
+                {
+                    writer.write( "consumed " + consumed + "\n" );
+                }
+                for ( String output : page.outputs )
+                {
+                    writer.write( "output " + output + "\n" );
+                }
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        file.delete();
+        if ( !tempFile.renameTo( file ) )
+        {
+            tempFile.delete();
+            throw new IOException( "Cannot write page graph: " + file );
+        }
+    }
+
+    /**
+     * @return a fingerprint of the configuration that the pages were minified with.
+     */
+    public String getConfiguration()
+    {
+        return configuration;
+    }
+
+    /**
+     * @param configuration a fingerprint of the configuration that the pages were minified with.
+     */
+    public void setConfiguration( String configuration )
+    {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @return the digest of the content of each file of the source folder, by path.
+     */
+    public Map<String, String> getSourceDigests()
+    {
+        return sourceDigests;
+    }
+
+    /**
+     * Declare a page, replacing anything known of it.
+     * 
+     * @param path the page.
+     * @return what is to be known of the page.
+     */
+    public Page addPage( String path )
+    {
+        Page page = new Page();
+        pages.put( path, page );
+        return page;
+    }
+
+    /**
+     * @param path the page.
+     * @return what is known of the page, or null if nothing is.
+     */
+    public Page getPage( String path )
+    {
+        return pages.get( path );
+    }
+
+    /**
+     * @param path the page to forget.
+     */
+    public void removePage( String path )
+    {
+        pages.remove( path );
+    }
+
+    /**
+     * @return the pages known of.
+     */
+    public Set<String> getPages()
+    {
+        return Collections.unmodifiableSet( pages.keySet() );
+    }
+
+    /**
+     * Determine the pages that are affected by files having changed: those that are one of the files or that referred
+     * to one of them, and then any page that shares a generated file with an affected page.
+     * 
+     * @param changedFiles the files added, modified or removed.
+     * @return the pages affected.
+     */
+    public Set<String> getAffectedPages( Collection<String> changedFiles )
+    {
+        Set<String> changed = new HashSet<String>( changedFiles );
+        Set<String> affectedPages = new TreeSet<String>();
+        Set<String> affectedOutputs = new HashSet<String>();
+        for ( Map.Entry<String, Page> entry : pages.entrySet() )
+        {
+            if ( changed.contains( entry.getKey() ) || !Collections.disjoint( changed, entry.getValue().inputs ) )
+            {
+                affectedPages.add( entry.getKey() );
+                affectedOutputs.addAll( entry.getValue().outputs );
+            }
+        }
+
+        // A generated file must be generated from all of the pages sharing it, or from none of them.
+        boolean added;
+        do
+        {
+            added = false;
+            for ( Map.Entry<String, Page> entry : pages.entrySet() )
+            {
+                if ( !affectedPages.contains( entry.getKey() )
+                    && !Collections.disjoint( affectedOutputs, entry.getValue().outputs ) )
+                {
+                    affectedPages.add( entry.getKey() );
+                    affectedOutputs.addAll( entry.getValue().outputs );
+                    added = true;
+                }
+            }
+        }
+        while ( added );
+
+        return affectedPages;
+    }
+}
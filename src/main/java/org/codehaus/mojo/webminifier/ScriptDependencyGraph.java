@@ -0,0 +1,260 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.mojo.webminifier.closure.ClosureCompilers;
+
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+/**
+ * Discovers the scripts that scripts load at runtime through static CommonJS require("...") calls and AMD
+ * define([...]) and require([...]) calls, so that they can be bundled along with the scripts declared by HTML.
+ * <p>
+ * Module ids beginning with ./ or ../ are resolved relative to the script referring to them while all others are
+ * resolved relative to a base folder, with .js being appended when there is no extension. Ids that do not resolve to
+ * a file e.g. loader plugins such as text!a.html are ignored, as are the special AMD ids require, exports and module.
+ * <p>
+ * Scripts are parsed once per content: the ids referred to by a script are cached by the digest of its content.
+ */
+public class ScriptDependencyGraph
+{
+    /**
+     * The ids that AMD loaders provide rather than load.
+     */
+    private static final Set<String> SPECIAL_IDS = new HashSet<String>( Arrays.asList( new String[] { "require",
+        "exports", "module" } ) );
+
+    private static final String JS_EXTENSION = ".js";
+
+    private final File cacheFolder;
+
+    private final File baseFolder;
+
+    private final String encoding;
+
+    private final Map<File, List<File>> dependencies = new HashMap<File, List<File>>();
+
+    /**
+     * @param cacheFolder where the ids referred to by each script are kept.
+     * @param baseFolder the folder that ids not beginning with ./ or ../ are relative to.
+     * @param encoding the encoding of scripts.
+     */
+    public ScriptDependencyGraph( File cacheFolder, File baseFolder, String encoding )
+    {
+        this.cacheFolder = cacheFolder;
+        this.baseFolder = baseFolder;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Extend a list of scripts with the scripts that they depend on, directly or indirectly. Each script is preceded
+     * by its dependencies, in the order that it refers to them, and appears once only. Cycles are broken by ignoring
+     * the reference that completes the cycle.
+     * 
+     * @param jsResources the scripts, in the order that they are declared.
+     * @return the scripts and their dependencies, in an order where dependencies come first.
+     * @throws IOException if there is a problem reading a script or its cached ids.
+     */
+    public List<File> resolve( List<File> jsResources )
+        throws IOException
+    {
+        Set<File> orderedJsResources = new LinkedHashSet<File>();
+        for ( File jsResource : jsResources )
+        {
+            visit( normalize( jsResource ), new HashSet<File>(), orderedJsResources );
+        }
+        return new ArrayList<File>( orderedJsResources );
+    }
+
+    private void visit( File jsResource, Set<File> visitingJsResources, Set<File> orderedJsResources )
+        throws IOException
+    {
+        if ( orderedJsResources.contains( jsResource ) || !visitingJsResources.add( jsResource ) )
+        {
+            return;
+        }
+        for ( File dependency : getDependencies( jsResource ) )
+        {
+            visit( dependency, visitingJsResources, orderedJsResources );
+        }
+        visitingJsResources.remove( jsResource );
+        orderedJsResources.add( jsResource );
+    }
+
+    /**
+     * @param jsResource a script.
+     * @return the existing scripts that the script refers to, in the order first referred to.
+     * @throws IOException if there is a problem reading the script or its cached ids.
+     */
+    public List<File> getDependencies( File jsResource )
+        throws IOException
+    {
+        List<File> jsResourceDependencies = dependencies.get( jsResource );
+        if ( jsResourceDependencies == null )
+        {
+            Set<File> files = new LinkedHashSet<File>();
+            for ( String id : getIds( jsResource ) )
+            {
+                File file = resolveId( jsResource, id );
+                if ( file != null )
+                {
+                    files.add( file );
+                }
+            }
+            jsResourceDependencies = new ArrayList<File>( files );
+            dependencies.put( jsResource, jsResourceDependencies );
+        }
+        return jsResourceDependencies;
+    }
+
+    private List<String> getIds( File jsResource )
+        throws IOException
+    {
+        File idsFile = new File( cacheFolder, ContentDigest.digest( jsResource ) + ".ids" );
+        if ( idsFile.isFile() )
+        {
+            @SuppressWarnings( "unchecked" )
+            List<String> ids = FileUtils.readLines( idsFile, "UTF-8" );
+            return ids;
+        }
+
+        List<String> ids = findIds( jsResource.getName(), FileUtils.readFileToString( jsResource, encoding ) );
+
+        // Write to a temporary file first so that a partially written file is never mistaken for a cached one.
+        cacheFolder.mkdirs();
+        File tempFile = File.createTempFile( "ids", ".tmp", cacheFolder );
+        FileUtils.writeLines( tempFile, "UTF-8", ids, "\n" );
+        if ( !tempFile.renameTo( idsFile ) )
+        {
+            tempFile.delete();
+            if ( !idsFile.isFile() )
+            {
+                throw new IOException( "Cannot write dependencies: " + idsFile );
+            }
+        }
+        return ids;
+    }
+
+    private File resolveId( File jsResource, String id )
+    {
+        if ( SPECIAL_IDS.contains( id ) || id.indexOf( '!' ) > -1 || id.indexOf( ':' ) > -1 )
+        {
+            return null;
+        }
+
+        File folder = id.startsWith( "./" ) || id.startsWith( "../" ) ? jsResource.getParentFile() : baseFolder;
+        String path = id.endsWith( JS_EXTENSION ) ? id : id + JS_EXTENSION;
+        File file = new File( folder, path );
+        return file.isFile() ? normalize( file ) : null;
+    }
+
+    /**
+     * @return the file with any . and .. segments removed so that a script has the one file whatever the path that
+     *         referred to it.
+     */
+    private static File normalize( File file )
+    {
+        return new File( file.toURI().normalize() );
+    }
+
+    /**
+     * Find the module ids that a script refers to.
+     * 
+     * @param name the name of the script.
+     * @param code the script.
+     * @return the ids in the order first referred to, which will be empty if the script cannot be parsed.
+     */
+    static List<String> findIds( String name, String code )
+    {
+        com.google.javascript.jscomp.Compiler compiler = ClosureCompilers.create();
+        CompilerOptions options = new CompilerOptions();
+        options.setLanguageIn( LanguageMode.ECMASCRIPT5 );
+        SourceFile input = SourceFile.fromCode( name, code );
+        List<SourceFile> noExterns = Collections.emptyList();
+        compiler.init( noExterns, Collections.singletonList( input ), options );
+
+        Node root = compiler.parse( input );
+
+        Set<String> ids = new LinkedHashSet<String>();
+        if ( root != null )
+        {
+            collectIds( root, ids );
+        }
+        return new ArrayList<String>( ids );
+    }
+
+    private static void collectIds( Node node, Set<String> ids )
+    {
+        if ( node.getType() == Token.CALL )
+        {
+            Node callee = node.getFirstChild();
+            if ( callee.getType() == Token.NAME )
+            {
+                String calleeName = callee.getString();
+                if ( calleeName.equals( "require" ) || calleeName.equals( "define" ) )
+                {
+                    // require("a"), define("name", ["a"], f), define(["a"], f) and require(["a"], f).
+                    for ( Node argument = callee.getNext(); argument != null; argument = argument.getNext() )
+                    {
+                        if ( argument.getType() == Token.STRING && calleeName.equals( "require" ) )
+                        {
+                            ids.add( argument.getString() );
+                            break;
+                        }
+                        else if ( argument.getType() == Token.ARRAYLIT )
+                        {
+                            for ( Node element = argument.getFirstChild(); element != null; element =
+                                element.getNext() )
+                            {
+                                if ( element.getType() == Token.STRING )
+                                {
+                                    ids.add( element.getString() );
+                                }
+                            }
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        for ( Node child = node.getFirstChild(); child != null; child = child.getNext() )
+        {
+            collectIds( child, ids );
+        }
+    }
+}
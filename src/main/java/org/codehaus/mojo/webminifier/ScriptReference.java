@@ -0,0 +1,133 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A script to be referenced by a document along with how it should be loaded.
+ */
+public class ScriptReference
+{
+    /**
+     * How a script is to be loaded.
+     */
+    public enum Option
+    {
+        /** Place the script element at the end of the body instead of the end of the head. */
+        BODY,
+        /** Mark the script element as deferred. */
+        DEFER,
+        /** Mark the script element as async. */
+        ASYNC,
+        /** Declare a preload link in the head so that the script is fetched early. */
+        PRELOAD,
+        /** Load the script, in order with other lazy scripts, once the window has loaded. */
+        LAZY
+    }
+
+    private final File file;
+
+    private final Set<Option> options;
+
+    private final String inlineContent;
+
+    /**
+     * @param file the script file.
+     * @param options how the script is to be loaded.
+     */
+    public ScriptReference( File file, Set<Option> options )
+    {
+        this( file, options, null );
+    }
+
+    /**
+     * @param file the script file.
+     * @param options how the script is to be loaded.
+     * @param inlineContent the script to embed in the document instead of referencing the file, or null.
+     */
+    public ScriptReference( File file, Set<Option> options, String inlineContent )
+    {
+        this.file = file;
+        this.options = Collections.unmodifiableSet( options );
+        this.inlineContent = inlineContent;
+    }
+
+    /**
+     * Parse a comma and/or whitespace separated list of options e.g. "body, defer, preload". Option names are case
+     * insensitive.
+     * 
+     * @param value the options to parse, may be null.
+     * @return the options.
+     * @throws IllegalArgumentException if an option is not recognised.
+     */
+    public static Set<Option> parseOptions( String value )
+    {
+        Set<Option> options = EnumSet.noneOf( Option.class );
+        if ( value != null )
+        {
+            for ( String name : value.split( "[,\\s]+" ) )
+            {
+                if ( name.length() > 0 )
+                {
+                    options.add( Option.valueOf( name.toUpperCase( Locale.ENGLISH ) ) );
+                }
+            }
+        }
+        return options;
+    }
+
+    /**
+     * @return the script file.
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return the script to embed in the document, or null if the file is to be referenced.
+     */
+    public String getInlineContent()
+    {
+        return inlineContent;
+    }
+
+    /**
+     * @return how the script is to be loaded.
+     */
+    public Set<Option> getOptions()
+    {
+        return options;
+    }
+
+    /**
+     * @param option the option to test for.
+     * @return true if the option applies.
+     */
+    public boolean hasOption( Option option )
+    {
+        return options.contains( option );
+    }
+}
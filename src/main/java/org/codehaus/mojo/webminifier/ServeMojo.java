@@ -0,0 +1,450 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Mojo to serve the files of the sourceFolder over HTTP during development, with scripts minified as they are
+ * requested. Each script is minified on its own the first time that it is requested, as it would be when not
+ * concatenating, and then held in memory along with a gzipped copy until its file changes. HTML files and other
+ * resources are served as they are. Scripts are served with an ETag so that browsers only fetch them again once they
+ * have changed. The server uses the HTTP server built in to the JDK and so requires Java 6 or later.
+ * 
+ * @goal serve
+ */
+public class ServeMojo
+    extends WebMinifierMojo
+{
+    private static final int NOT_MODIFIED = 304;
+
+    private static final int NOT_FOUND = 404;
+
+    private static final int METHOD_NOT_ALLOWED = 405;
+
+    private static final int SERVER_ERROR = 500;
+
+    private static final int OK = 200;
+
+    private static final String GZIP_ETAG_SUFFIX = "-gz";
+
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<String, String>();
+
+    static
+    {
+        CONTENT_TYPES.put( "css", "text/css" );
+        CONTENT_TYPES.put( "gif", "image/gif" );
+        CONTENT_TYPES.put( "htm", "text/html" );
+        CONTENT_TYPES.put( "html", "text/html" );
+        CONTENT_TYPES.put( "ico", "image/x-icon" );
+        CONTENT_TYPES.put( "jpeg", "image/jpeg" );
+        CONTENT_TYPES.put( "jpg", "image/jpeg" );
+        CONTENT_TYPES.put( "js", "application/javascript" );
+        CONTENT_TYPES.put( "json", "application/json" );
+        CONTENT_TYPES.put( "png", "image/png" );
+        CONTENT_TYPES.put( "svg", "image/svg+xml" );
+        CONTENT_TYPES.put( "txt", "text/plain" );
+    }
+
+    /**
+     * The port to serve on. 0 serves on any free port.
+     * 
+     * @parameter expression="${webminifier.port}" default-value="8080"
+     */
+    private int port;
+
+    /**
+     * The host name or address to serve on.
+     * 
+     * @parameter expression="${webminifier.host}" default-value="localhost"
+     */
+    private String serveHost;
+
+    /**
+     * The total size, in bytes, of the minified scripts held in memory. The least recently requested scripts are
+     * minified again once this is exceeded.
+     * 
+     * @parameter default-value="67108864"
+     */
+    private long serveCacheBytes;
+
+    private HttpServer server;
+
+    private MinifiedScriptCache cache;
+
+    private boolean stopped;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        start();
+        getLog().info( "Serving " + getSourceFolder() + " at http://" + serveHost + ":" + getServerPort() + "/" );
+        try
+        {
+            synchronized ( this )
+            {
+                while ( !stopped )
+                {
+                    wait();
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            stop();
+        }
+    }
+
+    /**
+     * Start serving.
+     * 
+     * @throws MojoExecutionException if the server cannot be started.
+     */
+    public synchronized void start()
+        throws MojoExecutionException
+    {
+        cache = new MinifiedScriptCache( serveCacheBytes );
+        stopped = false;
+        try
+        {
+            server = HttpServer.create( new InetSocketAddress( serveHost, port ), 0 );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Cannot serve on " + serveHost + ":" + port, e );
+        }
+        server.createContext( "/", new HttpHandler()
+        {
+            public void handle( HttpExchange exchange )
+                throws IOException
+            {
+                try
+                {
+                    serve( exchange );
+                }
+                finally
+                {
+                    exchange.close();
+                }
+            }
+        } );
+        server.start();
+    }
+
+    /**
+     * Stop serving.
+     */
+    public synchronized void stop()
+    {
+        stopped = true;
+        if ( server != null )
+        {
+            server.stop( 0 );
+            server = null;
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return the port being served on, which is only known once started when the port parameter is 0.
+     */
+    public synchronized int getServerPort()
+    {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    /**
+     * Respond to a request.
+     * 
+     * @param exchange the request and its response.
+     * @throws IOException if there is a problem reading the file requested or writing the response.
+     */
+    private void serve( HttpExchange exchange )
+        throws IOException
+    {
+        String method = exchange.getRequestMethod();
+        boolean head = method.equals( "HEAD" );
+        if ( !head && !method.equals( "GET" ) )
+        {
+            exchange.getResponseHeaders().set( "Allow", "GET, HEAD" );
+            exchange.sendResponseHeaders( METHOD_NOT_ALLOWED, -1 );
+            return;
+        }
+
+        File file = resolve( exchange.getRequestURI().getPath() );
+        if ( file == null )
+        {
+            exchange.sendResponseHeaders( NOT_FOUND, -1 );
+            return;
+        }
+
+        String path = getSourceFolder().toURI().relativize( file.toURI() ).toString();
+        String fileState = file.lastModified() + ":" + file.length();
+        Headers headers = exchange.getResponseHeaders();
+        headers.set( "Content-Type", getContentType( path ) );
+        headers.set( "Cache-Control", "no-cache" );
+
+        String etag;
+        byte[] content;
+        if ( path.endsWith( ".js" ) )
+        {
+            MinifiedScriptCache.Entry entry;
+            try
+            {
+                entry = getMinifiedScript( path, file, fileState );
+            }
+            catch ( MojoExecutionException e )
+            {
+                sendError( exchange, "Cannot minify " + path + ": " + e.getMessage() );
+                return;
+            }
+
+            headers.set( "Vary", "Accept-Encoding" );
+            etag = entry.getEtag();
+            String acceptEncoding = exchange.getRequestHeaders().getFirst( "Accept-Encoding" );
+            if ( acceptEncoding != null && acceptEncoding.contains( "gzip" ) )
+            {
+                // Each encoding is a different representation, so needs its own strong ETag.
+                etag = etag.substring( 0, etag.length() - 1 ) + GZIP_ETAG_SUFFIX + "\"";
+                headers.set( "Content-Encoding", "gzip" );
+                content = entry.getGzippedContent();
+            }
+            else
+            {
+                content = entry.getContent();
+            }
+        }
+        else
+        {
+            etag = "\"" + fileState.replace( ':', '-' ) + "\"";
+            content = null;
+        }
+        headers.set( "ETag", etag );
+
+        if ( matchesEtag( exchange.getRequestHeaders().getFirst( "If-None-Match" ), etag ) )
+        {
+            exchange.sendResponseHeaders( NOT_MODIFIED, -1 );
+            return;
+        }
+
+        if ( content == null )
+        {
+            content = FileUtils.readFileToByteArray( file );
+        }
+        if ( head )
+        {
+            headers.set( "Content-Length", String.valueOf( content.length ) );
+            exchange.sendResponseHeaders( OK, -1 );
+        }
+        else
+        {
+            exchange.sendResponseHeaders( OK, content.length );
+            OutputStream os = exchange.getResponseBody();
+            os.write( content );
+            os.close();
+        }
+    }
+
+    /**
+     * Obtain a minified script, minifying it if it is not held or its file has changed since.
+     * 
+     * @param path the sourceFolder relative path of the script.
+     * @param file the script.
+     * @param fileState the modification time and size of the script.
+     * @return the minified script.
+     * @throws IOException if there is a problem reading the script.
+     * @throws MojoExecutionException if there is a problem minifying the script.
+     */
+    private MinifiedScriptCache.Entry getMinifiedScript( String path, File file, String fileState )
+        throws IOException, MojoExecutionException
+    {
+        MinifiedScriptCache.Entry entry = cache.get( path, fileState );
+        if ( entry == null )
+        {
+            long start = System.currentTimeMillis();
+            byte[] content =
+                minifyScript( path, FileUtils.readFileToByteArray( file ), new Diagnostics( getLog(), false ) );
+            String etag = "\"" + new ContentDigest().update( content ).toHexString() + "\"";
+            entry = new MinifiedScriptCache.Entry( fileState, etag, content, MinifierRun.gzip( content ) );
+            cache.put( path, entry );
+            getLog().info( "Minified " + path + " in " + ( System.currentTimeMillis() - start ) + "ms" );
+        }
+        return entry;
+    }
+
+    /**
+     * Find the file requested. Folders are served by their index.html file.
+     * 
+     * @param requestPath the decoded path of the request.
+     * @return the file, or null if there is no such file or it is outside of the sourceFolder.
+     * @throws IOException if the file's canonical path cannot be determined.
+     */
+    private File resolve( String requestPath )
+        throws IOException
+    {
+        String folderPath = getSourceFolder().getCanonicalPath() + File.separator;
+        File file = new File( getSourceFolder(), requestPath );
+        if ( file.isDirectory() )
+        {
+            file = new File( file, "index.html" );
+        }
+        if ( !file.isFile() || !file.getCanonicalPath().startsWith( folderPath ) )
+        {
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * @param path the path of a file.
+     * @return the content type to serve the file with.
+     */
+    private String getContentType( String path )
+    {
+        String extension = path.substring( path.lastIndexOf( '.' ) + 1 ).toLowerCase( Locale.ENGLISH );
+        String contentType = CONTENT_TYPES.get( extension );
+        if ( contentType == null )
+        {
+            contentType = "application/octet-stream";
+        }
+        else if ( contentType.startsWith( "text/" ) || contentType.startsWith( "application/j" ) )
+        {
+            contentType += "; charset=" + getEncoding();
+        }
+        return contentType;
+    }
+
+    /**
+     * @param ifNoneMatch the If-None-Match header of a request, which may be null.
+     * @param etag the ETag of the representation that would be served.
+     * @return true if the header lists the ETag or is *, comparing weakly as If-None-Match requires.
+     */
+    private static boolean matchesEtag( String ifNoneMatch, String etag )
+    {
+        if ( ifNoneMatch == null )
+        {
+            return false;
+        }
+        for ( String candidate : ifNoneMatch.split( "," ) )
+        {
+            candidate = candidate.trim();
+            if ( candidate.startsWith( "W/" ) )
+            {
+                candidate = candidate.substring( 2 );
+            }
+            if ( candidate.equals( "*" ) || candidate.equals( etag ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Respond with a server error.
+     * 
+     * @param exchange the request and its response.
+     * @param message the reason for the error.
+     * @throws IOException if there is a problem writing the response.
+     */
+    private void sendError( HttpExchange exchange, String message )
+        throws IOException
+    {
+        getLog().error( message );
+        byte[] content = message.getBytes( "UTF-8" );
+        exchange.getResponseHeaders().set( "Content-Type", "text/plain; charset=UTF-8" );
+        exchange.getResponseHeaders().remove( "ETag" );
+        exchange.sendResponseHeaders( SERVER_ERROR, content.length );
+        OutputStream os = exchange.getResponseBody();
+        os.write( content );
+        os.close();
+    }
+
+    /**
+     * @return property.
+     */
+    public int getPort()
+    {
+        return port;
+    }
+
+    /**
+     * @return property.
+     */
+    public long getServeCacheBytes()
+    {
+        return serveCacheBytes;
+    }
+
+    /**
+     * @return property.
+     */
+    public String getServeHost()
+    {
+        return serveHost;
+    }
+
+    /**
+     * @param port set property.
+     */
+    public void setPort( int port )
+    {
+        this.port = port;
+    }
+
+    /**
+     * @param serveCacheBytes set property.
+     */
+    public void setServeCacheBytes( long serveCacheBytes )
+    {
+        this.serveCacheBytes = serveCacheBytes;
+    }
+
+    /**
+     * @param serveHost set property.
+     */
+    public void setServeHost( String serveHost )
+    {
+        this.serveHost = serveHost;
+    }
+}
@@ -0,0 +1,115 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Encodes the minified content of a bundle shared with other executions, along with the problems found in minifying
+ * it, so that an execution taking the bundle from another may report the same problems as if it had minified the
+ * bundle itself.
+ */
+final class SharedBundles
+{
+    /**
+     * The version of the format that shared bundles are held in, for their keys.
+     */
+    static final String FORMAT = "2";
+
+    private SharedBundles()
+    {
+    }
+
+    /**
+     * @param minifiedContent the minified content of a shared bundle.
+     * @param reported the problems found in minifying it, once for each time they were reported.
+     * @return the content and problems, to be held for other executions.
+     * @throws IOException if there is a problem writing.
+     */
+    static byte[] encode( byte[] minifiedContent, List<Diagnostic> reported )
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( minifiedContent.length + 256 );
+        DataOutputStream os = new DataOutputStream( bytes );
+        synchronized ( reported )
+        {
+            os.writeInt( reported.size() );
+            for ( Diagnostic diagnostic : reported )
+            {
+                os.writeBoolean( diagnostic.getSeverity() == Diagnostic.Severity.ERROR );
+                os.writeUTF( diagnostic.getMessage() );
+                os.writeBoolean( diagnostic.getFile() != null );
+                if ( diagnostic.getFile() != null )
+                {
+                    os.writeUTF( diagnostic.getFile() );
+                }
+                os.writeInt( diagnostic.getLine() );
+                os.writeInt( diagnostic.getColumn() );
+                os.writeUTF( String.valueOf( diagnostic.getCompressor() ) );
+                os.writeUTF( String.valueOf( diagnostic.getBundle() ) );
+            }
+        }
+        os.writeInt( minifiedContent.length );
+        os.write( minifiedContent );
+        os.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param sharedBundle a shared bundle as encoded by {@link #encode(byte[], List)}.
+     * @param diagnostics where to report the problems found in minifying the bundle, or null if they are not to be
+     *            reported.
+     * @return the minified content of the bundle.
+     * @throws IOException if the shared bundle is corrupt.
+     */
+    static byte[] decode( byte[] sharedBundle, Diagnostics diagnostics )
+        throws IOException
+    {
+        DataInputStream is = new DataInputStream( new ByteArrayInputStream( sharedBundle ) );
+        int diagnosticCount = is.readInt();
+        for ( int i = 0; i < diagnosticCount; ++i )
+        {
+            Diagnostic.Severity severity = is.readBoolean() ? Diagnostic.Severity.ERROR : Diagnostic.Severity.WARNING;
+            String message = is.readUTF();
+            String file = is.readBoolean() ? is.readUTF() : null;
+            int line = is.readInt();
+            int column = is.readInt();
+            String compressor = is.readUTF();
+            String bundle = is.readUTF();
+            if ( diagnostics != null )
+            {
+                diagnostics.report( new Diagnostic( severity, message, file, line, column, compressor, bundle ) );
+            }
+        }
+        int length = is.readInt();
+        if ( length < 0 || length != is.available() )
+        {
+            throw new IOException( "Corrupt shared bundle" );
+        }
+        byte[] minifiedContent = new byte[length];
+        is.readFully( minifiedContent );
+        return minifiedContent;
+    }
+}
@@ -0,0 +1,397 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes items through a sequence of stages, each performed by its own threads and connected to the next by a bounded
+ * queue. Stages therefore overlap e.g. one item may be written while the next is compressed, and the amount of work in
+ * flight is limited by the capacity of the queues. The pipeline stops at the first failure of any stage.
+ * 
+ * @param <T> the type of item passed through the stages.
+ */
+public class StagedPipeline<T>
+{
+    /**
+     * The work performed by a stage.
+     * 
+     * @param <T> the type of item passed through the stages.
+     */
+    public interface Worker<T>
+    {
+        /**
+         * Process an item. Called concurrently when the stage has more than one thread.
+         * 
+         * @param item the item to process.
+         * @throws Exception if the item cannot be processed, which stops the pipeline.
+         */
+        void process( T item )
+            throws Exception;
+    }
+
+    /**
+     * The time that a stage spent processing items.
+     */
+    public static class StageStatistics
+    {
+        private final String name;
+
+        private final int threads;
+
+        private final int items;
+
+        private final long busyNanos;
+
+        StageStatistics( String name, int threads, int items, long busyNanos )
+        {
+            this.name = name;
+            this.threads = threads;
+            this.items = items;
+            this.busyNanos = busyNanos;
+        }
+
+        /**
+         * @return the name of the stage.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return the number of threads of the stage.
+         */
+        public int getThreads()
+        {
+            return threads;
+        }
+
+        /**
+         * @return the number of items processed.
+         */
+        public int getItems()
+        {
+            return items;
+        }
+
+        /**
+         * @return the total time spent processing items, across all threads, in milliseconds.
+         */
+        public long getBusyMillis()
+        {
+            return TimeUnit.NANOSECONDS.toMillis( busyNanos );
+        }
+
+        /**
+         * @return the time the stage would take to process its items were its threads fully occupied, in
+         *         milliseconds. The stage with the greatest such time limits the throughput of the pipeline.
+         */
+        public long getElapsedMillis()
+        {
+            return getBusyMillis() / threads;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name + ": " + items + " item(s) in " + getBusyMillis() + "ms across " + threads + " thread(s)";
+        }
+    }
+
+    /**
+     * A stage and the queue that feeds it.
+     */
+    private class Stage
+    {
+        private final String name;
+
+        private final int threads;
+
+        private final Worker<T> worker;
+
+        private final BlockingQueue<Object> queue;
+
+        private final AtomicInteger runningThreads;
+
+        private final AtomicInteger items = new AtomicInteger();
+
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        private Stage next;
+
+        Stage( String name, int threads, Worker<T> worker )
+        {
+            this.name = name;
+            this.threads = threads;
+            this.worker = worker;
+            queue = new ArrayBlockingQueue<Object>( queueCapacity );
+            runningThreads = new AtomicInteger( threads );
+        }
+
+        @SuppressWarnings( "unchecked" )
+        void run()
+            throws Exception
+        {
+            for ( Object item = queue.take(); item != END; item = queue.take() )
+            {
+                long start = System.nanoTime();
+                worker.process( (T) item );
+                busyNanos.addAndGet( System.nanoTime() - start );
+                items.incrementAndGet();
+
+                if ( next != null )
+                {
+                    next.queue.put( item );
+                }
+            }
+
+            // Let the other threads of this stage see the end too, and the next stage once all of them have.
+            queue.put( END );
+            if ( runningThreads.decrementAndGet() == 0 && next != null )
+            {
+                next.queue.put( END );
+            }
+        }
+    }
+
+    /**
+     * Signals the end of the items.
+     */
+    private static final Object END = new Object();
+
+    /**
+     * How often to check whether the pipeline has failed while waiting on it.
+     */
+    private static final long POLL_MILLIS = 100L;
+
+    private final int queueCapacity;
+
+    private final List<Stage> stages = new ArrayList<Stage>();
+
+    private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+    private ExecutorService executor;
+
+    /**
+     * @param queueCapacity the number of items that may wait between one stage and the next.
+     */
+    public StagedPipeline( int queueCapacity )
+    {
+        this.queueCapacity = Math.max( queueCapacity, 1 );
+    }
+
+    /**
+     * Add a stage to the end of the pipeline. Stages must be added before the pipeline is started.
+     * 
+     * @param name the name of the stage, for reporting.
+     * @param threads the number of items that the stage may process concurrently.
+     * @param worker the work of the stage.
+     */
+    public void addStage( String name, int threads, Worker<T> worker )
+    {
+        if ( executor != null )
+        {
+            throw new IllegalStateException( "The pipeline has already started." );
+        }
+
+        Stage stage = new Stage( name, Math.max( threads, 1 ), worker );
+        if ( !stages.isEmpty() )
+        {
+            stages.get( stages.size() - 1 ).next = stage;
+        }
+        stages.add( stage );
+    }
+
+    /**
+     * Start the threads of each stage.
+     */
+    public void start()
+    {
+        if ( stages.isEmpty() )
+        {
+            throw new IllegalStateException( "The pipeline has no stages." );
+        }
+
+        int threads = 0;
+        for ( Stage stage : stages )
+        {
+            threads += stage.threads;
+        }
+        executor = Executors.newFixedThreadPool( Math.max( threads, 1 ) );
+
+        for ( final Stage stage : stages )
+        {
+            for ( int i = 0; i < stage.threads; ++i )
+            {
+                executor.execute( new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            stage.run();
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            // The pipeline has been stopped.
+                            Thread.currentThread().interrupt();
+                        }
+                        catch ( Exception e )
+                        {
+                            fail( e );
+                        }
+                        catch ( Error e )
+                        {
+                            fail( new RuntimeException( e ) );
+                            throw e;
+                        }
+                    }
+                } );
+            }
+        }
+    }
+
+    /**
+     * Pass an item to the first stage, waiting for space in its queue if necessary.
+     * 
+     * @param item the item.
+     * @throws Exception the failure of any stage, or an InterruptedException if interrupted while waiting.
+     */
+    public void submit( T item )
+        throws Exception
+    {
+        put( item );
+    }
+
+    /**
+     * Signal that there are no more items and wait for all items to pass through the pipeline.
+     * 
+     * @throws Exception the failure of any stage, or an InterruptedException if interrupted while waiting.
+     */
+    public void finish()
+        throws Exception
+    {
+        try
+        {
+            put( END );
+            executor.shutdown();
+            while ( !executor.awaitTermination( POLL_MILLIS, TimeUnit.MILLISECONDS ) )
+            {
+                throwFailure();
+            }
+            throwFailure();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stop the pipeline without waiting for the items within it.
+     */
+    public void abort()
+    {
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stop the pipeline as if a stage had failed, so that the failure is thrown to the submitter.
+     * 
+     * @param cause the failure to throw.
+     */
+    public void cancel( Exception cause )
+    {
+        fail( cause );
+    }
+
+    /**
+     * @return the statistics of each stage, in order.
+     */
+    public List<StageStatistics> getStatistics()
+    {
+        List<StageStatistics> statistics = new ArrayList<StageStatistics>( stages.size() );
+        for ( Stage stage : stages )
+        {
+            statistics.add( new StageStatistics( stage.name, stage.threads, stage.items.get(),
+                                                 stage.busyNanos.get() ) );
+        }
+        return Collections.unmodifiableList( statistics );
+    }
+
+    /**
+     * @return the statistics of the stage that limited the throughput of the pipeline, or null if there are no stages.
+     */
+    public StageStatistics getSlowestStage()
+    {
+        StageStatistics slowestStage = null;
+        for ( StageStatistics stage : getStatistics() )
+        {
+            if ( slowestStage == null || stage.getElapsedMillis() > slowestStage.getElapsedMillis() )
+            {
+                slowestStage = stage;
+            }
+        }
+        return slowestStage;
+    }
+
+    private void put( Object item )
+        throws Exception
+    {
+        BlockingQueue<Object> queue = stages.get( 0 ).queue;
+        while ( !queue.offer( item, POLL_MILLIS, TimeUnit.MILLISECONDS ) )
+        {
+            throwFailure();
+        }
+        throwFailure();
+    }
+
+    private void fail( Exception e )
+    {
+        if ( failure.compareAndSet( null, e ) && executor != null )
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private void throwFailure()
+        throws Exception
+    {
+        Exception e = failure.get();
+        if ( e != null )
+        {
+            throw e;
+        }
+    }
+}
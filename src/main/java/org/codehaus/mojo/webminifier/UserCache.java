@@ -0,0 +1,166 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A cache of compressed scripts kept in a folder that is shared by every build run by the user, including builds
+ * running at the same time. Scripts are written to a temporary file and then renamed so that a script is never read
+ * partially written. Reading a script marks it as recently used, and the least recently used scripts are deleted when
+ * the scripts held exceed the cache's size.
+ */
+public class UserCache
+{
+    private static final String SUFFIX = ".js";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * How old a temporary file must be before it is considered abandoned by a build that did not complete.
+     */
+    private static final long ABANDONED_MILLIS = 60L * 60L * 1000L;
+
+    private final File folder;
+
+    private final long maxBytes;
+
+    /**
+     * @param folder where the scripts are kept.
+     * @param maxBytes the total size of the scripts that may be kept.
+     */
+    public UserCache( File folder, long maxBytes )
+    {
+        this.folder = folder;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Obtain a script.
+     * 
+     * @param key identifies the script's content and how it was compressed.
+     * @return the compressed script, or null if it is not held or cannot be read.
+     */
+    public byte[] get( String key )
+    {
+        File file = new File( folder, key + SUFFIX );
+        try
+        {
+            byte[] content = FileUtils.readFileToByteArray( file );
+            file.setLastModified( System.currentTimeMillis() );
+            return content;
+        }
+        catch ( IOException e )
+        {
+            // Not held, or deleted by another build while being read.
+            return null;
+        }
+    }
+
+    /**
+     * Keep a script, deleting the least recently used scripts should the cache's size then be exceeded.
+     * 
+     * @param key identifies the script's content and how it was compressed.
+     * @param content the compressed script.
+     * @throws IOException if the script cannot be written.
+     */
+    public void put( String key, byte[] content )
+        throws IOException
+    {
+        folder.mkdirs();
+        File file = new File( folder, key + SUFFIX );
+        File tempFile = File.createTempFile( "bundle-", TEMP_SUFFIX, folder );
+        try
+        {
+            FileUtils.writeByteArrayToFile( tempFile, content );
+            if ( !tempFile.renameTo( file ) && !file.isFile() )
+            {
+                throw new IOException( "Cannot write " + file );
+            }
+        }
+        finally
+        {
+            tempFile.delete();
+        }
+        prune();
+    }
+
+    /**
+     * Delete the least recently used scripts until the scripts held no longer exceed the cache's size, along with
+     * abandoned temporary files.
+     */
+    public void prune()
+    {
+        File[] files = folder.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+
+        // Note when each script was last used up front, as other builds may use them while sorting.
+        long now = System.currentTimeMillis();
+        final Map<File, Long> lastUsed = new HashMap<File, Long>();
+        long bytes = 0L;
+        for ( File file : files )
+        {
+            if ( file.getName().endsWith( SUFFIX ) )
+            {
+                lastUsed.put( file, Long.valueOf( file.lastModified() ) );
+                bytes += file.length();
+            }
+            else if ( file.getName().endsWith( TEMP_SUFFIX ) && now - file.lastModified() > ABANDONED_MILLIS )
+            {
+                file.delete();
+            }
+        }
+        if ( bytes <= maxBytes )
+        {
+            return;
+        }
+
+        List<File> leastRecentlyUsed = new ArrayList<File>( lastUsed.keySet() );
+        Collections.sort( leastRecentlyUsed, new Comparator<File>()
+        {
+            public int compare( File o1, File o2 )
+            {
+                return lastUsed.get( o1 ).compareTo( lastUsed.get( o2 ) );
+            }
+        } );
+        for ( Iterator<File> scripts = leastRecentlyUsed.iterator(); scripts.hasNext() && bytes > maxBytes; )
+        {
+            File file = scripts.next();
+            long length = file.length();
+            if ( file.delete() )
+            {
+                bytes -= length;
+            }
+        }
+    }
+}
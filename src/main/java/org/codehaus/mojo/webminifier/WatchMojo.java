@@ -0,0 +1,257 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Mojo to minify web files and then minify them again whenever they change, until interrupted. Minifying within the
+ * same JVM keeps the compressors loaded and warm between builds, and with a pageGraphFile only the HTML files
+ * affected by a change are minified again. Both the sourceFolder and the projectSourceFolder are watched. A file
+ * changed in the projectSourceFolder is copied to the sourceFolder first, provided that the folder it belongs to
+ * exists there.
+ * 
+ * @goal watch
+ */
+public class WatchMojo
+    extends WebMinifierMojo
+{
+    /**
+     * How often, in milliseconds, the folders are checked for changes.
+     * 
+     * @parameter expression="${webminifier.watchInterval}" default-value="500"
+     */
+    private long watchInterval;
+
+    /**
+     * How long, in milliseconds, the folders must go without changing before minifying, so that files saved together
+     * are minified together.
+     * 
+     * @parameter expression="${webminifier.watchQuietPeriod}" default-value="300"
+     */
+    private long watchQuietPeriod;
+
+    private volatile boolean stopped;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        super.execute();
+
+        try
+        {
+            watch();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Minify again whenever files change.
+     * 
+     * @throws InterruptedException if interrupted while waiting for changes.
+     */
+    private void watch()
+        throws InterruptedException
+    {
+        File sourceFolder = getSourceFolder();
+        File projectSourceFolder = getProjectSourceFolder();
+        boolean watchProjectSourceFolder =
+            projectSourceFolder != null
+                && !projectSourceFolder.getAbsoluteFile().equals( sourceFolder.getAbsoluteFile() );
+
+        Map<String, String> sourceFiles = getFileStates( sourceFolder );
+        Map<String, String> projectSourceFiles =
+            watchProjectSourceFolder ? getFileStates( projectSourceFolder ) : new HashMap<String, String>();
+        getLog().info( "Watching for changes" );
+
+        while ( !stopped )
+        {
+            Thread.sleep( watchInterval );
+            Map<String, String> changedSourceFiles = getFileStates( sourceFolder );
+            Map<String, String> changedProjectSourceFiles =
+                watchProjectSourceFolder ? getFileStates( projectSourceFolder ) : projectSourceFiles;
+            if ( changedSourceFiles.equals( sourceFiles ) && changedProjectSourceFiles.equals( projectSourceFiles ) )
+            {
+                continue;
+            }
+
+            // Wait for the folders to settle.
+            long quietSince = System.currentTimeMillis();
+            while ( !stopped && System.currentTimeMillis() - quietSince < watchQuietPeriod )
+            {
+                Thread.sleep( Math.min( watchInterval, watchQuietPeriod ) );
+                Map<String, String> latestSourceFiles = getFileStates( sourceFolder );
+                Map<String, String> latestProjectSourceFiles =
+                    watchProjectSourceFolder ? getFileStates( projectSourceFolder ) : projectSourceFiles;
+                if ( !latestSourceFiles.equals( changedSourceFiles )
+                    || !latestProjectSourceFiles.equals( changedProjectSourceFiles ) )
+                {
+                    changedSourceFiles = latestSourceFiles;
+                    changedProjectSourceFiles = latestProjectSourceFiles;
+                    quietSince = System.currentTimeMillis();
+                }
+            }
+            if ( stopped )
+            {
+                break;
+            }
+
+            long start = System.currentTimeMillis();
+            if ( watchProjectSourceFolder )
+            {
+                try
+                {
+                    copyChanges( projectSourceFiles, changedProjectSourceFiles );
+                }
+                catch ( IOException e )
+                {
+                    getLog().error( "Problem copying changed files", e );
+                }
+            }
+
+            // Taken before minifying so that files changed while minifying cause another round.
+            sourceFiles = getFileStates( sourceFolder );
+            projectSourceFiles = changedProjectSourceFiles;
+
+            try
+            {
+                super.execute();
+                getLog().info( "Minified in " + ( System.currentTimeMillis() - start ) + "ms" );
+            }
+            catch ( MojoExecutionException e )
+            {
+                getLog().error( e.getMessage(), e );
+            }
+            catch ( MojoFailureException e )
+            {
+                getLog().error( e.getMessage(), e );
+            }
+        }
+    }
+
+    /**
+     * Copy the files changed in the projectSourceFolder to the sourceFolder, and delete those removed.
+     * 
+     * @param previousFiles the state of each file in the projectSourceFolder when last copied.
+     * @param files the state of each file in the projectSourceFolder now.
+     * @throws IOException if there is a problem copying.
+     */
+    private void copyChanges( Map<String, String> previousFiles, Map<String, String> files )
+        throws IOException
+    {
+        File sourceFolder = getSourceFolder();
+        for ( Map.Entry<String, String> entry : files.entrySet() )
+        {
+            File targetFile = new File( sourceFolder, entry.getKey() );
+            if ( !entry.getValue().equals( previousFiles.get( entry.getKey() ) )
+                && targetFile.getParentFile().isDirectory() )
+            {
+                FileUtils.copyFile( new File( getProjectSourceFolder(), entry.getKey() ), targetFile );
+            }
+        }
+        for ( String previousFile : previousFiles.keySet() )
+        {
+            if ( !files.containsKey( previousFile ) )
+            {
+                new File( sourceFolder, previousFile ).delete();
+            }
+        }
+    }
+
+    /**
+     * Determine the state of each file in a folder, being its modification time and size, so that changes can be
+     * detected without reading files.
+     * 
+     * @param folder the folder.
+     * @return the state of each file by folder relative path.
+     */
+    private static Map<String, String> getFileStates( File folder )
+    {
+        Map<String, String> fileStates = new HashMap<String, String>();
+        if ( folder.isDirectory() )
+        {
+            @SuppressWarnings( "unchecked" )
+            Collection<File> files = FileUtils.listFiles( folder, null, true );
+            URI folderUri = folder.toURI();
+            for ( File file : files )
+            {
+                fileStates.put( folderUri.relativize( file.toURI() ).toString(),
+                                file.lastModified() + ":" + file.length() );
+            }
+        }
+        return fileStates;
+    }
+
+    /**
+     * Stop watching for changes.
+     */
+    public void stop()
+    {
+        stopped = true;
+    }
+
+    /**
+     * @return property.
+     */
+    public long getWatchInterval()
+    {
+        return watchInterval;
+    }
+
+    /**
+     * @return property.
+     */
+    public long getWatchQuietPeriod()
+    {
+        return watchQuietPeriod;
+    }
+
+    /**
+     * @param watchInterval set property.
+     */
+    public void setWatchInterval( long watchInterval )
+    {
+        this.watchInterval = watchInterval;
+    }
+
+    /**
+     * @param watchQuietPeriod set property.
+     */
+    public void setWatchQuietPeriod( long watchQuietPeriod )
+    {
+        this.watchQuietPeriod = watchQuietPeriod;
+    }
+}
@@ -0,0 +1,175 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Minifies the HTML files of a folder, and the scripts that they refer to, independently of Maven. An engine may
+ * minify any number of configurations, one after another or at the same time, and keeps what it loads between them so
+ * that later minifications are quicker. This includes the compressed bundles of dependencies, of which the most
+ * recently used are held up to the limit of the engine's {@link MinifierSession}. The engine logs to a
+ * {@link MinifierLogger} and fails with a {@link MinifierException}, so hosts need not depend on Maven.
+ */
+public class WebMinifier
+{
+    /**
+     * Told of nothing.
+     */
+    private static final MinifierListener NO_LISTENER = new MinifierListener()
+    {
+        public void minificationStarted( int documentCount )
+        {
+        }
+
+        public void scriptMinified( File script, File minifiedScript )
+        {
+        }
+
+        public void documentMinified( File document )
+        {
+        }
+
+        public void diagnosticReported( Diagnostic diagnostic )
+        {
+        }
+    };
+
+    private final MinifierSession session;
+
+    private final Log logger;
+
+    /**
+     * True if the session was created by this engine, and so is closed with it.
+     */
+    private final boolean ownsSession;
+
+    /**
+     * @param logger where to log.
+     */
+    public WebMinifier( MinifierLogger logger )
+    {
+        this( new MinifierSession(), new MinifierLoggerLog( logger ), true );
+    }
+
+    /**
+     * @param session state to share with other engines, which is left open when this engine is closed.
+     * @param logger where to log.
+     */
+    public WebMinifier( MinifierSession session, MinifierLogger logger )
+    {
+        this( session, new MinifierLoggerLog( logger ), false );
+    }
+
+    /**
+     * @param logger where to log.
+     */
+    WebMinifier( Log logger )
+    {
+        this( new MinifierSession(), logger, true );
+    }
+
+    /**
+     * @param session state to share with other engines, which is left open when this engine is closed.
+     * @param logger where to log.
+     */
+    WebMinifier( MinifierSession session, Log logger )
+    {
+        this( session, logger, false );
+    }
+
+    private WebMinifier( MinifierSession session, Log logger, boolean ownsSession )
+    {
+        this.session = session;
+        this.logger = logger;
+        this.ownsSession = ownsSession;
+    }
+
+    /**
+     * Minify the HTML files of the configuration's sourceFolder, and the scripts that they refer to, into its
+     * destinationFolder.
+     * 
+     * @param configuration what to minify and how.
+     * @param listener told of progress and problems, or null.
+     * @throws MinifierException if there is a problem minifying.
+     */
+    public void minify( MinifierConfiguration configuration, MinifierListener listener )
+        throws MinifierException
+    {
+        try
+        {
+            new MinifierRun( configuration, session, logger, listener != null ? listener : NO_LISTENER ).execute();
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw new MinifierException( e.getMessage(), e.getCause() );
+        }
+    }
+
+    /**
+     * Minify a script on its own, as it would be minified when not concatenating.
+     * 
+     * @param configuration how to minify.
+     * @param path the destinationFolder relative path of the script, which is also its name for the purposes of
+     *            looking up settings by split point.
+     * @param content the script.
+     * @param diagnostics where to report problems.
+     * @return the minified script, which is the script itself if the jsCompressorType is NONE.
+     * @throws IOException if there is a problem reading/writing.
+     * @throws MinifierException if there is a problem compressing.
+     */
+    public byte[] minifyScript( MinifierConfiguration configuration, String path, byte[] content,
+                                Diagnostics diagnostics )
+        throws IOException, MinifierException
+    {
+        try
+        {
+            return new MinifierRun( configuration, session, logger, NO_LISTENER ).minifyScript( path, content,
+                                                                                               diagnostics );
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw new MinifierException( e.getMessage(), e.getCause() );
+        }
+    }
+
+    /**
+     * @return the state shared by the minifications of this engine.
+     */
+    public MinifierSession getSession()
+    {
+        return session;
+    }
+
+    /**
+     * Stop the forked compressor JVMs kept for later minifications, if the engine created its own session.
+     */
+    public void close()
+    {
+        if ( ownsSession )
+        {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/**
+ * Minifies from the command line, without Maven. Each property of {@link MinifierConfiguration} may be given as
+ * --name=value e.g. --sourceFolder=src/main/webapp --destinationFolder=target/min --jsCompressorType=YUI. Properties
+ * holding a list, or key/value pairs as key=value, may be given more than once.
+ */
+public final class WebMinifierCli
+{
+    /**
+     * The exit status when minification fails.
+     */
+    static final int FAILED = 1;
+
+    /**
+     * The exit status when the arguments are invalid.
+     */
+    static final int INVALID_ARGUMENTS = 2;
+
+    private WebMinifierCli()
+    {
+    }
+
+    /**
+     * Minify, exiting with 0 on success, 1 if minification fails and 2 if the arguments are invalid.
+     * 
+     * @param args the properties of the configuration.
+     */
+    public static void main( String[] args )
+    {
+        Log logger = new SystemStreamLog();
+        WebMinifier minifier = new WebMinifier( logger );
+        int status = run( args, minifier, logger );
+        minifier.close();
+
+        // Closure leaves non-daemon threads behind that would otherwise keep the JVM alive.
+        System.exit( status );
+    }
+
+    /**
+     * Minify.
+     * 
+     * @param args the properties of the configuration.
+     * @param minifier the engine to minify with.
+     * @param logger where to log.
+     * @return the exit status.
+     */
+    static int run( String[] args, WebMinifier minifier, Log logger )
+    {
+        MinifierConfiguration configuration;
+        try
+        {
+            configuration = parse( args );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            logger.error( e.getMessage() );
+            logger.error( "Usage: " + WebMinifierCli.class.getName() + " --name=value... where the names are "
+                + getProperties().keySet() );
+            return INVALID_ARGUMENTS;
+        }
+
+        final AtomicInteger documentCount = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        try
+        {
+            minifier.minify( configuration, new MinifierListener()
+            {
+                public void minificationStarted( int count )
+                {
+                }
+
+                public void scriptMinified( File script, File minifiedScript )
+                {
+                }
+
+                public void documentMinified( File document )
+                {
+                    documentCount.incrementAndGet();
+                }
+
+                public void diagnosticReported( Diagnostic diagnostic )
+                {
+                }
+            } );
+        }
+        catch ( MinifierException e )
+        {
+            if ( e.getCause() != null )
+            {
+                logger.error( e.getMessage(), e.getCause() );
+            }
+            else
+            {
+                logger.error( e.getMessage() );
+            }
+            return FAILED;
+        }
+        logger.info( "Minified " + documentCount.get() + " HTML file(s) in " + ( System.currentTimeMillis() - start )
+            + "ms" );
+        return 0;
+    }
+
+    /**
+     * Build a configuration from arguments of the form --name=value.
+     * 
+     * @param args the arguments.
+     * @return the configuration.
+     * @throws IllegalArgumentException if an argument does not name a property or has an invalid value, or if the
+     *             sourceFolder or destinationFolder are not given.
+     */
+    static MinifierConfiguration parse( String[] args )
+    {
+        Map<String, PropertyDescriptor> properties = getProperties();
+        MinifierConfiguration configuration = new MinifierConfiguration();
+        Map<String, Object> values = new TreeMap<String, Object>();
+        for ( String arg : args )
+        {
+            int separator = arg.indexOf( '=' );
+            if ( !arg.startsWith( "--" ) || separator < 0 )
+            {
+                throw new IllegalArgumentException( "Expected --name=value but found " + arg );
+            }
+            String name = arg.substring( 2, separator );
+            String value = arg.substring( separator + 1 );
+            PropertyDescriptor property = properties.get( name );
+            if ( property == null )
+            {
+                throw new IllegalArgumentException( "Unknown property " + name );
+            }
+            values.put( name, convert( property, values.get( name ), value ) );
+        }
+        if ( !values.containsKey( "sourceFolder" ) || !values.containsKey( "destinationFolder" ) )
+        {
+            throw new IllegalArgumentException( "The sourceFolder and destinationFolder must be given" );
+        }
+
+        for ( Map.Entry<String, Object> entry : values.entrySet() )
+        {
+            Method writeMethod = properties.get( entry.getKey() ).getWriteMethod();
+            try
+            {
+                writeMethod.invoke( configuration, new Object[] { entry.getValue() } );
+            }
+            catch ( IllegalAccessException e )
+            {
+                throw new IllegalStateException( e );
+            }
+            catch ( InvocationTargetException e )
+            {
+                throw new IllegalArgumentException( "Invalid " + entry.getKey() + ": " + e.getCause().getMessage() );
+            }
+        }
+        return configuration;
+    }
+
+    /**
+     * @return the properties of the configuration that can be given, by name.
+     */
+    private static Map<String, PropertyDescriptor> getProperties()
+    {
+        BeanInfo beanInfo;
+        try
+        {
+            beanInfo = Introspector.getBeanInfo( MinifierConfiguration.class );
+        }
+        catch ( IntrospectionException e )
+        {
+            throw new IllegalStateException( e );
+        }
+        Map<String, PropertyDescriptor> properties = new TreeMap<String, PropertyDescriptor>();
+        for ( PropertyDescriptor property : beanInfo.getPropertyDescriptors() )
+        {
+            Class<?> type = property.getPropertyType();
+            if ( property.getWriteMethod() != null && ( type.isPrimitive() || type.isEnum() || type == String.class
+                || type == File.class || type == List.class || type == Properties.class ) )
+            {
+                properties.put( property.getName(), property );
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Convert the value of an argument to the type of its property.
+     * 
+     * @param property the property.
+     * @param previousValue the value of an earlier argument for the same property, or null.
+     * @param value the value of the argument.
+     * @return the value of the property.
+     */
+    private static Object convert( PropertyDescriptor property, Object previousValue, String value )
+    {
+        Class<?> type = property.getPropertyType();
+        try
+        {
+            if ( type == List.class )
+            {
+                Type listType = property.getWriteMethod().getGenericParameterTypes()[0];
+                Type elementType = ( (ParameterizedType) listType ).getActualTypeArguments()[0];
+                @SuppressWarnings( "unchecked" )
+                List<Object> list = previousValue != null ? (List<Object>) previousValue : new ArrayList<Object>();
+                list.add( elementType == File.class ? new File( value ) : value );
+                return list;
+            }
+            if ( type == Properties.class )
+            {
+                int separator = value.indexOf( '=' );
+                if ( separator < 0 )
+                {
+                    throw new IllegalArgumentException( "expected key=value but found " + value );
+                }
+                Properties properties = previousValue != null ? (Properties) previousValue : new Properties();
+                properties.setProperty( value.substring( 0, separator ), value.substring( separator + 1 ) );
+                return properties;
+            }
+            if ( type == File.class )
+            {
+                return new File( value );
+            }
+            if ( type == Boolean.TYPE )
+            {
+                if ( !value.equals( "true" ) && !value.equals( "false" ) )
+                {
+                    throw new IllegalArgumentException( "expected true or false but found " + value );
+                }
+                return Boolean.valueOf( value );
+            }
+            if ( type == Integer.TYPE )
+            {
+                return Integer.valueOf( value );
+            }
+            if ( type == Long.TYPE )
+            {
+                return Long.valueOf( value );
+            }
+            if ( type.isEnum() )
+            {
+                return toEnum( type, value );
+            }
+            return value;
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new IllegalArgumentException( "Invalid " + property.getName() + ": " + e.getMessage() );
+        }
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private static Object toEnum( Class type, String value )
+    {
+        return Enum.valueOf( type, value.trim().toUpperCase( Locale.ENGLISH ) );
+    }
+}
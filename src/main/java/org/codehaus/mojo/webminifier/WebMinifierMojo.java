@@ -19,59 +19,40 @@ package org.codehaus.mojo.webminifier;
  * under the License.    
  */
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.MalformedURLException;
-import java.net.URI;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 
-import javax.xml.transform.TransformerException;
-
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.codehaus.mojo.webminifier.closure.ClosureJsCompressor;
-import org.codehaus.mojo.webminifier.yui.YuiJsCompressor;
-import org.codehaus.plexus.util.DirectoryScanner;
-import org.xml.sax.SAXException;
+import org.sonatype.plexus.build.incremental.BuildContext;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
 
 import com.google.javascript.jscomp.CompilationLevel;
 
 /**
- * Mojo to invoke WebMinifier plugin to minify web files.
+ * Mojo to invoke WebMinifier plugin to minify web files. The parameters configure a {@link WebMinifier}, which performs
+ * the minification.
  * 
  * @author Ben Jones
  * @author Christopher Hunt
  * @goal minify-js
  * @phase prepare-package
+ * @threadSafe
  */
 public class WebMinifierMojo
     extends AbstractMojo
 {
     /**
-     * The type of JS Compressor to use.
+     * The type of JS Compressor to use. FAST only removes comments and whitespace, in a single pass without parsing,
+     * which suits developer builds and scripts that are already compressed.
      */
     public enum JsCompressorType
     {
         /** Types */
-        YUI, CLOSURE, NONE
+        YUI, CLOSURE, FAST, NONE
     }
 
     /**
@@ -129,6 +110,23 @@ public class WebMinifierMojo
      */
     private JsCompressorType jsCompressorType;
 
+    /**
+     * The name of the compressor to use for JS files, overriding jsCompressorType. Compressors are discovered from the
+     * META-INF/services/org.codehaus.mojo.webminifier.CompressorProvider resources on the plugin's class path, so
+     * others can be used by declaring them as dependencies of the plugin. YUI, CLOSURE and FAST are always available.
+     * 
+     * @parameter
+     */
+    private String jsCompressor;
+
+    /**
+     * Options to pass to the compressor, overriding those derived from the yui and closure parameters e.g.
+     * compilationLevel=ADVANCED_OPTIMIZATIONS. The options recognised depend on the compressor.
+     * 
+     * @parameter
+     */
+    private Properties jsCompressorOptions;
+
     /**
      * YUI option 'linebreak'; insert a linebreak after VALUE columnns.
      * 
@@ -194,40 +192,378 @@ public class WebMinifierMojo
     private boolean splitDependencies;
 
     /**
-     * Concatenate two files.
+     * The maximum number of bytes that a concatenated script file may grow to before a new one is started. Files are
+     * never broken up, so a single script larger than this value still results in its own file. Script order is
+     * preserved and any extra files are named after the split point they belong to with a numeric suffix e.g.
+     * myframeworkfilename-2.js. A value of 0 or less signals that there is no limit.
      * 
-     * @param inputFile the file to concatenated.
-     * @param outputFile the file to be concatenated.
-     * @throws IOException if there is a problem with the operation.
+     * @parameter default-value="0"
      */
-    private void concatenateFile( File inputFile, File outputFile )
-        throws IOException
-    {
-        InputStream is = new FileInputStream( inputFile );
-        try
-        {
-            OutputStream os = new FileOutputStream( outputFile, true );
-            try
-            {
-                if ( getLog().isDebugEnabled() )
-                {
-                    getLog().debug( "Concatenating file: " + inputFile );
-                }
-                IOUtils.copy( is, os );
-                os.write( ';' );
-                os.write( '\n' );
-            }
-            finally
-            {
-                os.close();
-            }
-        }
-        finally
-        {
-            is.close();
-        }
+    private long maxBundleBytes;
 
-    }
+    /**
+     * Signals whether maxBundleBytes applies to the estimated gzipped size of each script rather than its raw size.
+     * This is a better measure of what is actually transferred when the server compresses its responses.
+     * 
+     * @parameter default-value="false"
+     */
+    private boolean maxBundleBytesGzipped;
+
+    /**
+     * Signals whether or not JavaScript resources should be concatenated. When false, each script referenced by a
+     * HTML file is minified into its own file alongside the original e.g. js/a.js is minified to js/a-min.js, and the
+     * HTML continues to reference one script per original file in the original order. This is useful when serving
+     * over HTTP/2 where requests are cheap and a change to one script should not invalidate the cached copies of the
+     * others. jsSplitPoints, splitDependencies and maxBundleBytes have no effect when not concatenating.
+     * 
+     * @parameter default-value="true"
+     */
+    private boolean concatenate = true;
+
+    /**
+     * The number of threads to use when compressing JavaScript resources. A value of 0 or less signals that the number
+     * of available processors should be used.
+     * 
+     * @parameter default-value="0"
+     */
+    private int compressorThreads;
+
+    /**
+     * How the script produced for each split point is to be loaded by the HTML. Each name in the property corresponds
+     * to the name of a split point as generated, without the file extension e.g. myframeworkfilename or 1. When not
+     * concatenating, names correspond to the destinationFolder relative path of each script e.g. js/a.js. Each value is
+     * a comma separated list of the following options:
+     * <ul>
+     * <li>body - place the script element at the end of the body instead of the end of the head.</li>
+     * <li>defer - mark the script element as deferred.</li>
+     * <li>async - mark the script element as async.</li>
+     * <li>preload - declare a &lt;link rel="preload" as="script"&gt; early in the head so that the browser fetches
+     * the script sooner. Most useful in conjunction with body.</li>
+     * <li>lazy - do not declare a script element at all. Instead, a small loader is declared at the end of the body
+     * that fetches all lazy scripts once the window has loaded, executing them in their original order. Useful for
+     * scripts that are not required for the page to first render e.g. analytics.</li>
+     * </ul>
+     * 
+     * @parameter
+     */
+    private Properties jsScriptOptions;
+
+    /**
+     * The options to use for scripts that have no entry in jsScriptOptions. See jsScriptOptions for a description of
+     * the options available. By default, scripts are loaded synchronously from the end of the head.
+     * 
+     * @parameter
+     */
+    private String jsDefaultScriptOptions;
+
+    /**
+     * Scripts smaller than this number of bytes, once minified, are embedded directly into the HTML instead of being
+     * referenced. This saves a request for scripts where the cost of the request outweighs the cost of the bytes.
+     * Inlined scripts are removed from the destinationFolder unless they are also referenced by a HTML file. Scripts
+     * that are to be deferred, or loaded asynchronously or lazily are never inlined given that inline scripts execute
+     * immediately. A value of 0 or less signals that nothing is to be inlined.
+     * 
+     * @parameter default-value="0"
+     */
+    private int inlineThresholdBytes;
+
+    /**
+     * Signals whether or not all scripts are to be compiled together in a single Closure compilation. Each script
+     * becomes a Closure module that depends on the scripts declared before it in the HTML files, and one minified
+     * file is still written per script. Compiling together allows ADVANCED_OPTIMIZATIONS to remove dead code and to
+     * rename properties consistently across scripts, and to move code into the scripts that use it. Only applies when
+     * the jsCompressorType is CLOSURE. HTML files must not declare the same scripts in conflicting orders.
+     * 
+     * @parameter default-value="false"
+     */
+    private boolean closureModules;
+
+    /**
+     * Signals whether or not Closure externs are to be generated from the scripts that are dependencies of this
+     * project i.e. those not found within the projectSourceFolder. The externs declare the top level symbols of each
+     * dependency and every property name that it uses so that project scripts calling into dependencies can be
+     * compiled with ADVANCED_OPTIMIZATIONS without those calls being renamed. Only applies when the jsCompressorType is
+     * CLOSURE.
+     * 
+     * @parameter default-value="false"
+     */
+    private boolean closureGenerateExterns;
+
+    /**
+     * Where generated externs are kept. Externs are named after a digest of the content of the script that they are
+     * generated from so that they are only generated again when the script changes.
+     * 
+     * @parameter default-value="${project.build.directory}/webminifier/externs"
+     */
+    private File closureExternsCacheFolder;
+
+    /**
+     * Additional Closure externs files declaring symbols that are defined outside of the project's scripts e.g. by
+     * scripts that are not referenced by HTML files. Only applies when the jsCompressorType is CLOSURE.
+     * 
+     * @parameter
+     */
+    private List<File> closureExterns;
+
+    /**
+     * Where Closure's variable and property renaming maps are kept, one pair per split point or, when compiling
+     * modules, one pair for all scripts. When set, the maps of the previous build are used so that identifiers keep
+     * the names they were given before and unchanged code produces unchanged output. Keep this folder outside of the
+     * build directory, e.g. ${basedir}/src/main/closure, so that the maps survive a clean and can be shared. Only
+     * applies when the jsCompressorType is CLOSURE and the compilation level renames identifiers.
+     * 
+     * @parameter
+     */
+    private File closureRenamingMapFolder;
+
+    /**
+     * Values to override Closure @define constants with for the script produced for each split point. Names are as
+     * for jsScriptOptions. Each value is a comma separated list of NAME=value pairs e.g. DEBUG=false, LEVEL=2,
+     * MODE='production'. A value of true or false is a boolean, a number is a number and anything else is a string.
+     * A quoted value is always a string and may contain commas e.g. TITLE='a, b'. When compiling modules, only
+     * closureDefaultDefines apply. Only applies when the jsCompressorType is CLOSURE and the compilation level is
+     * SIMPLE_OPTIMIZATIONS or ADVANCED_OPTIMIZATIONS.
+     * 
+     * @parameter
+     */
+    private Properties closureDefines;
+
+    /**
+     * The @define overrides for scripts that have no entry in closureDefines. See closureDefines for the format.
+     * 
+     * @parameter
+     */
+    private String closureDefaultDefines;
+
+    /**
+     * The functions whose calls are to be removed from the script produced for each split point. Names are as for
+     * jsScriptOptions. Each value is a comma separated list of function names where a name ending with an asterisk
+     * names all functions with that prefix e.g. console.*, debugLog. Calls made as statements are removed while calls
+     * within expressions are replaced with undefined. Arguments are removed along with the call so they should be
+     * free of side effects. When compiling modules, only jsDefaultStripCalls apply. For the CLOSURE compressor, the
+     * compilation level must be SIMPLE_OPTIMIZATIONS or ADVANCED_OPTIMIZATIONS. The FAST compressor does not strip
+     * calls.
+     * 
+     * @parameter
+     */
+    private Properties jsStripCalls;
+
+    /**
+     * The functions whose calls are to be removed from scripts that have no entry in jsStripCalls. See jsStripCalls
+     * for the format.
+     * 
+     * @parameter
+     */
+    private String jsDefaultStripCalls;
+
+    /**
+     * Signals whether memory is to be conserved at the expense of speed, for building large scripts on machines with
+     * little memory. Scripts are compressed one at a time, and Closure output is written a statement at a time with
+     * the compiled tree being discarded as it goes. The peak heap use while compressing each script is logged.
+     * 
+     * @parameter default-value="false"
+     */
+    private boolean lowMemory;
+
+    /**
+     * Signals whether scripts are to be compressed in separate JVMs rather than in the JVM running the build. The JVMs
+     * are started as they are needed, up to one per compress thread, and kept running for later executions with the
+     * same fork settings until the build ends. A JVM that exits unexpectedly, for example having run out of memory, is
+     * replaced. Scripts compressed together as Closure modules are always compressed by the build's JVM.
+     * 
+     * @parameter expression="${webminifier.forkCompressors}" default-value="false"
+     */
+    private boolean forkCompressors;
+
+    /**
+     * The maximum heap of each forked compressor JVM e.g. 1024m, or the JVM's default if not set.
+     * 
+     * @parameter expression="${webminifier.forkMaxHeap}"
+     */
+    private String forkMaxHeap;
+
+    /**
+     * The stack size of each thread of each forked compressor JVM e.g. 8m, or the JVM's default if not set. Compressing
+     * deeply nested scripts can require a larger stack.
+     * 
+     * @parameter expression="${webminifier.forkStackSize}"
+     */
+    private String forkStackSize;
+
+    /**
+     * The number of seconds that a forked compressor JVM may take to compress a script before it is stopped and the
+     * compression fails, or 0 to wait for as long as it takes.
+     * 
+     * @parameter expression="${webminifier.forkTimeout}" default-value="600"
+     */
+    private int forkTimeout = 600;
+
+    /**
+     * Signals whether or not a gzipped copy of each script is also to be written alongside it e.g. 1-min.js.gz, so
+     * that web servers able to serve precompressed files need not compress on each request.
+     * 
+     * @parameter default-value="false"
+     */
+    private boolean gzip;
+
+    /**
+     * The number of threads to use for each stage of minification. Scripts pass through the stages read,
+     * concatenate, compress, gzip, write and html, in that order, with each stage working on a script while the
+     * stages before it work on the next. Each name in the property is that of a stage and each value is a number of
+     * threads, where a value of 0 or less signals that the number of available processors should be used. Every
+     * stage has one thread by default except compress, which has compressorThreads. The stage that took the longest
+     * is logged so that threads can be given to where they are needed.
+     * 
+     * @parameter
+     */
+    private Properties stageThreads;
+
+    /**
+     * The number of scripts that may wait between one stage of minification and the next. Bounding the queues
+     * bounds the number of scripts held in memory at once. lowMemory signals a capacity of 1.
+     * 
+     * @parameter default-value="4"
+     */
+    private int stageQueueCapacity = 4;
+
+    /**
+     * Signals whether or not the first error reported by a compressor is to stop compression of all other scripts,
+     * as opposed to waiting for the scripts being compressed to finish so that all of their errors are reported.
+     * 
+     * @parameter default-value="false"
+     */
+    private boolean failFast;
+
+    /**
+     * Warnings are summarised once compression is complete, with each distinct warning being logged once along with
+     * the number of times that it was reported, most frequent first. This is the number of distinct warnings to log.
+     * 
+     * @parameter default-value="50"
+     */
+    private int maxLoggedWarnings = 50;
+
+    /**
+     * Signals whether or not the scripts that the scripts declared by HTML files load at runtime are to be discovered
+     * and minified along with them. Static CommonJS require("...") calls and AMD define([...]) and require([...]) calls
+     * are followed, transitively, and the scripts found are placed before the scripts referring to them as if they
+     * had been declared by the HTML file. The loader must then find the modules already defined, which generally
+     * requires modules to be named e.g. define("a", [...], ...).
+     * 
+     * @parameter default-value="false"
+     */
+    private boolean jsDiscoverDependencies;
+
+    /**
+     * The destinationFolder relative folder that module ids not beginning with ./ or ../ are relative to, as with the
+     * baseUrl of an AMD loader. Only applies when jsDiscoverDependencies is set.
+     * 
+     * @parameter default-value=""
+     */
+    private String jsModuleBaseUrl;
+
+    /**
+     * Where the module ids referred to by each script are kept when discovering dependencies. Ids are kept by a digest
+     * of the content of the script so that scripts are only parsed again when they change.
+     * 
+     * @parameter default-value="${project.build.directory}/webminifier/dependencies"
+     */
+    private File jsDependencyCacheFolder;
+
+    /**
+     * Where a fingerprint of the sourceFolder, the configuration and the plugin version is kept once minification
+     * completes. If the fingerprint is unchanged when next executed, and the destinationFolder still exists, then the
+     * destinationFolder is left as it is. Minification is always performed if no file is given.
+     * 
+     * @parameter default-value="${project.build.directory}/webminifier/fingerprint"
+     */
+    private File fingerprintFile;
+
+    /**
+     * Signals whether or not minification is to be performed even if nothing has changed since it was last performed.
+     * 
+     * @parameter expression="${webminifier.force}" default-value="false"
+     */
+    private boolean force;
+
+    /**
+     * The version of the plugin, which forms part of the fingerprint.
+     * 
+     * @parameter default-value="${plugin.version}"
+     * @readonly
+     */
+    private String pluginVersion;
+
+    /**
+     * Where the scripts referred to by each HTML file, and the files generated for each, are kept between builds. When
+     * the configuration is unchanged, only the HTML files affected by the files changed since the last build are
+     * minified again and the rest of the destinationFolder is left as it is. Files generated for HTML files that have
+     * since been removed are deleted. Changes are learnt of from the IDE when it supports incremental builds, and
+     * otherwise from the digests of the files in the sourceFolder. Minification is always performed in full when
+     * forced, when generating externs or compiling modules with Closure, or if no file is given.
+     * 
+     * @parameter default-value="${project.build.directory}/webminifier/pages"
+     */
+    private File pageGraphFile;
+
+    /**
+     * The shard of the HTML files to minify when they are to be minified by shardCount executions, say on different
+     * machines, numbered from 0. The outputs of the shards are then combined by the merge goal.
+     * 
+     * @parameter expression="${webminifier.shardIndex}" default-value="0"
+     */
+    private int shardIndex;
+
+    /**
+     * The number of shards that the HTML files are divided between. Each HTML file is assigned to a shard by its
+     * position in the sorted list of HTML files, and scripts split by number are numbered differently by each shard,
+     * so every shard must be given the same files and configuration.
+     * 
+     * @parameter expression="${webminifier.shardCount}" default-value="1"
+     */
+    private int shardCount;
+
+    /**
+     * True if compressed bundles of dependencies are to be kept in the userCacheFolder, so that other builds by the
+     * same user, of this project or any other, need not compress the same bundles in the same way again. Builds
+     * running at the same time may share the folder.
+     * 
+     * @parameter expression="${webminifier.userCache}" default-value="false"
+     */
+    private boolean userCache;
+
+    /**
+     * Where compressed bundles of dependencies are kept when userCache is true.
+     * 
+     * @parameter expression="${webminifier.userCacheFolder}" default-value="${user.home}/.m2/webminifier-cache"
+     */
+    private File userCacheFolder;
+
+    /**
+     * The total size, in bytes, of the bundles kept in the userCacheFolder. The least recently used bundles are deleted
+     * once this is exceeded.
+     * 
+     * @parameter expression="${webminifier.userCacheMaxBytes}" default-value="268435456"
+     */
+    private long userCacheMaxBytes;
+
+    /**
+     * Informs of the files changed since the last build when building incrementally.
+     * 
+     * @component
+     */
+    private BuildContext buildContext;
+
+    /**
+     * State shared with the other executions of the plugin in the same build.
+     * 
+     * @component
+     */
+    private MinifierSession session;
+
+    /**
+     * The engine that minifies, created on first use so that it is kept warm across executions of this instance.
+     */
+    private WebMinifier minifier;
 
     /**
      * Main entry point for the MOJO.
@@ -238,526 +574,675 @@ public class WebMinifierMojo
     public void execute()
         throws MojoExecutionException, MojoFailureException
     {
-        // Start off by copying all files over. We'll ultimately remove the js files that we don't need from there, and
-        // create new ones in there (same goes for css files and anything else we minify).
-
-        FileUtils.deleteQuietly( destinationFolder );
         try
         {
-            FileUtils.copyDirectory( sourceFolder, destinationFolder );
+            getMinifier().minify( getConfiguration(), null );
         }
-        catch ( IOException e )
+        catch ( MinifierException e )
         {
-            throw new MojoExecutionException( "Cannot copy file to target folder", e );
+            throw new MojoExecutionException( e.getMessage(), e );
         }
+    }
 
-        // Process each HTML source file and concatenate into unminified output scripts
-        int minifiedCounter = 0;
-
-        // If a split point already exists on disk then we've been through the minification process. As
-        // minification can be expensive, we would like to avoid performing it multiple times. Thus storing
-        // a set of what we've previously minified enables us.
-        Set<File> existingConcatenatedJsResources = new HashSet<File>();
-        Set<File> consumedJsResources = new HashSet<File>();
-
-        for ( String targetHTMLFile : getArrayOfTargetHTMLFiles() )
+    /**
+     * Minify a script on its own, as it would be minified when not concatenating.
+     * 
+     * @param path the destinationFolder relative path of the script, which is also its name for the purposes of
+     *            looking up settings by split point.
+     * @param content the script.
+     * @param diagnostics where to report problems.
+     * @return the minified script, which is the script itself if the jsCompressorType is NONE.
+     * @throws IOException if there is a problem reading/writing.
+     * @throws MojoExecutionException if there is a problem compressing.
+     */
+    byte[] minifyScript( String path, byte[] content, Diagnostics diagnostics )
+        throws IOException, MojoExecutionException
+    {
+        try
         {
-            File targetHTML = new File( destinationFolder, targetHTMLFile );
-
-            // Parse HTML file and locate SCRIPT elements
-            DocumentResourceReplacer replacer;
-            try
-            {
-                replacer = new DocumentResourceReplacer( targetHTML );
-            }
-            catch ( SAXException e )
-            {
-                throw new MojoExecutionException( "Problem reading html document", e );
-            }
-            catch ( IOException e )
-            {
-                throw new MojoExecutionException( "Problem opening html document", e );
-            }
-
-            List<File> jsResources = replacer.findJSResources();
-
-            if ( jsSplitPoints == null )
-            {
-                jsSplitPoints = new Properties();
-            }
-
-            File concatenatedJsResource = null;
-
-            URI destinationFolderUri = destinationFolder.toURI();
-
-            // Split the js resources into two lists: one containing all external dependencies, the other containing
-            // project sources. We do this so that project sources can be minified without the dependencies (libraries
-            // generally don't need to distribute the dependencies).
-            int jsDependencyProjectResourcesIndex;
-
-            if ( splitDependencies )
-            {
-                List<File> jsDependencyResources = new ArrayList<File>( jsResources.size() );
-                List<File> jsProjectResources = new ArrayList<File>( jsResources.size() );
-                for ( File jsResource : jsResources )
-                {
-                    String jsResourceUri = destinationFolderUri.relativize( jsResource.toURI() ).toString();
-                    File jsResourceFile = new File( projectSourceFolder, jsResourceUri );
-                    if ( jsResourceFile.exists() )
-                    {
-                        jsProjectResources.add( jsResource );
-                    }
-                    else
-                    {
-                        jsDependencyResources.add( jsResource );
-                    }
-                }
-
-                // Re-constitute the js resource list from dependency resources + project resources and note the index
-                // in the list that represents the start of project sources in the list. We need this information later.
-                jsDependencyProjectResourcesIndex = jsDependencyResources.size();
-
-                jsResources = jsDependencyResources;
-                jsResources.addAll( jsProjectResources );
-            }
-            else
-            {
-                jsDependencyProjectResourcesIndex = 0;
-            }
-
-            // Walk backwards through the script declarations and note what files will map to what split point.
-            Map<File, File> jsResourceTargetFiles = new LinkedHashMap<File, File>( jsResources.size() );
-            ListIterator<File> jsResourcesIter = jsResources.listIterator( jsResources.size() );
-
-            boolean splittingDependencies = false;
-
-            while ( jsResourcesIter.hasPrevious() )
-            {
-                int jsResourceIterIndex = jsResourcesIter.previousIndex();
-                File jsResource = jsResourcesIter.previous();
-
-                String candidateSplitPointNameUri = destinationFolderUri.relativize( jsResource.toURI() ).toString();
-                String splitPointName = (String) jsSplitPoints.get( candidateSplitPointNameUri );
-
-                // If we do not have a split point name and the resource is a dependency of this project i.e. it is not
-                // within our src/main folder then we give it a split name of "dependencies". Factoring out dependencies
-                // into their own split point is a useful thing to do and will always be required when building
-                // libraries.
-                if ( splitDependencies && splitPointName == null && !splittingDependencies )
-                {
-                    if ( jsResourceIterIndex < jsDependencyProjectResourcesIndex )
-                    {
-                        splitPointName = Integer.valueOf( ++minifiedCounter ).toString();
-                        splittingDependencies = true;
-                    }
-                }
-
-                // If we have no name and we've not been in here before, then assign an initial name based on a number.
-                if ( splitPointName == null && concatenatedJsResource == null )
-                {
-                    splitPointName = Integer.valueOf( ++minifiedCounter ).toString();
-                }
-
-                // We have a new split name so use it for this file and upwards in the script statements until we
-                // either hit another split point or there are no more script statements.
-                if ( splitPointName != null )
-                {
-                    concatenatedJsResource = new File( destinationFolder, splitPointName + ".js" );
-
-                    // Note that we've previously created this.
-                    if ( concatenatedJsResource.exists() )
-                    {
-                        existingConcatenatedJsResources.add( concatenatedJsResource );
-                    }
-                }
-
-                jsResourceTargetFiles.put( jsResource, concatenatedJsResource );
-            }
-
-            for ( File jsResource : jsResources )
-            {
-                concatenatedJsResource = jsResourceTargetFiles.get( jsResource );
-                if ( !existingConcatenatedJsResources.contains( concatenatedJsResource ) )
-                {
-                    // Concatenate input file onto output resource file
-                    try
-                    {
-                        concatenateFile( jsResource, concatenatedJsResource );
-                    }
-                    catch ( IOException e )
-                    {
-                        throw new MojoExecutionException( "Problem concatenating JS files", e );
-                    }
-
-                    // Finally, remove the JS resource from the target folder as it is no longer required (we've
-                    // concatenated it).
-                    consumedJsResources.add( jsResource );
-                }
-            }
-
-            // Reduce the list of js resource target files to a distinct set
-            LinkedHashSet<File> concatenatedJsResourcesSet = new LinkedHashSet<File>( jsResourceTargetFiles.values() );
-            File[] concatenatedJsResourcesArray = new File[concatenatedJsResourcesSet.size()];
-            concatenatedJsResourcesSet.toArray( concatenatedJsResourcesArray );
-            List<File> concatenatedJsResources = Arrays.asList( concatenatedJsResourcesArray );
-
-            // Minify the concatenated JS resource files
-
-            if ( jsCompressorType != JsCompressorType.NONE )
-            {
-                List<File> minifiedJSResources = new ArrayList<File>( concatenatedJsResources.size() );
-
-                ListIterator<File> concatenatedJsResourcesIter =
-                    concatenatedJsResources.listIterator( concatenatedJsResources.size() );
-                while ( concatenatedJsResourcesIter.hasPrevious() )
-                {
-                    concatenatedJsResource = concatenatedJsResourcesIter.previous();
-
-                    File minifiedJSResource;
-                    try
-                    {
-                        String uri = concatenatedJsResource.toURI().toString();
-                        int i = uri.lastIndexOf( ".js" );
-                        String minUri;
-                        if ( i > -1 )
-                        {
-                            minUri = uri.substring( 0, i ) + "-min.js";
-                        }
-                        else
-                        {
-                            minUri = uri;
-                        }
-                        minifiedJSResource = FileUtils.toFile( new URL( minUri ) );
-                    }
-                    catch ( MalformedURLException e )
-                    {
-                        throw new MojoExecutionException( "Problem determining file URL", e );
-                    }
-
-                    minifiedJSResources.add( minifiedJSResource );
-
-                    // If we've not actually performed the minification before... then do so. This is the expensive bit
-                    // so we like to avoid it if we can.
-                    if ( !existingConcatenatedJsResources.contains( concatenatedJsResource ) )
-                    {
-                        boolean warningsFound;
-                        try
-                        {
-                            warningsFound = minifyJSFile( concatenatedJsResource, minifiedJSResource );
-                        }
-                        catch ( IOException e )
-                        {
-                            throw new MojoExecutionException( "Problem reading/writing JS", e );
-                        }
-
-                        logCompressionRatio( minifiedJSResource.getName(), concatenatedJsResource.length(),
-                                             minifiedJSResource.length() );
-
-                        // If there were warnings then the user may want to manually invoke the compressor for further
-                        // investigation.
-                        if ( warningsFound )
-                        {
-                            getLog().warn( "Warnings were found. " + concatenatedJsResource
-                                               + " is available for your further investigations." );
-                        }
-                    }
-                }
-
-                // Update source references
-                replacer.replaceJSResources( destinationFolder, targetHTML, minifiedJSResources );
-            }
-            else
-            {
-                List<File> unminifiedJSResources = new ArrayList<File>( concatenatedJsResources.size() );
-
-                ListIterator<File> concatenatedJsResourcesIter =
-                    concatenatedJsResources.listIterator( concatenatedJsResources.size() );
-                while ( concatenatedJsResourcesIter.hasPrevious() )
-                {
-                    concatenatedJsResource = concatenatedJsResourcesIter.previous();
-                    unminifiedJSResources.add( concatenatedJsResource );
-                }
-
-                replacer.replaceJSResources( destinationFolder, targetHTML, unminifiedJSResources );
-                getLog().info( "Concatenated resources with no compression" );
-            }
-
-            // Write HTML file to output dir
-            try
-            {
-                replacer.writeHTML( targetHTML, encoding );
-            }
-            catch ( TransformerException e )
-            {
-                throw new MojoExecutionException( "Problem transforming html", e );
-            }
-            catch ( IOException e )
-            {
-                throw new MojoExecutionException( "Problem writing html", e );
-            }
-
+            return getMinifier().minifyScript( getConfiguration(), path, content, diagnostics );
         }
-
-        // Clean up including the destination folder recursively where directories have nothing left in them.
-        for ( File consumedJsResource : consumedJsResources )
+        catch ( MinifierException e )
         {
-            consumedJsResource.delete();
+            throw new MojoExecutionException( e.getMessage(), e );
         }
-        removeEmptyFolders( destinationFolder );
     }
 
     /**
-     * @return an array of html files to be processed.
+     * @return the engine to minify with, which is replaced if the session has been.
      */
-    private String[] getArrayOfTargetHTMLFiles()
+    private synchronized WebMinifier getMinifier()
     {
-        DirectoryScanner scanner = new DirectoryScanner();
-        scanner.setBasedir( destinationFolder );
-
-        String[] includesArray = getPatternsOrDefault( htmlIncludes, getDefaultIncludes() );
-        scanner.setIncludes( includesArray );
-
-        String[] excludesArray = getPatternsOrDefault( htmlExcludes, getDefaultExcludes() );
-        scanner.setExcludes( excludesArray );
-
-        scanner.scan();
-        String[] includedFiles = scanner.getIncludedFiles();
-
-        return includedFiles;
+        if ( minifier == null || minifier.getSession() != getSession() )
+        {
+            minifier = new WebMinifier( getSession(), getLog() );
+        }
+        return minifier;
     }
 
     /**
-     * @return the list of excludes by default.
+     * @return the configuration of the engine, as given by the parameters.
      */
-    protected String[] getDefaultExcludes()
+    MinifierConfiguration getConfiguration()
     {
-        return new String[0];
+        MinifierConfiguration configuration = new MinifierConfiguration();
+        configuration.setSourceFolder( sourceFolder );
+        configuration.setDestinationFolder( destinationFolder );
+        configuration.setHtmlIncludes( htmlIncludes );
+        configuration.setHtmlExcludes( htmlExcludes );
+        configuration.setJsSplitPoints( jsSplitPoints );
+        configuration.setEncoding( encoding );
+        configuration.setJsCompressorType( jsCompressorType );
+        configuration.setJsCompressor( jsCompressor );
+        configuration.setJsCompressorOptions( jsCompressorOptions );
+        configuration.setYuiLinebreak( yuiLinebreak );
+        configuration.setYuiDisableOptimizations( yuiDisableOptimizations );
+        configuration.setYuiMunge( yuiMunge );
+        configuration.setYuiPreserveSemi( yuiPreserveSemi );
+        configuration.setClosureCompilationLevel( closureCompilationLevel );
+        configuration.setClosureAcceptConstKeyword( closureAcceptConstKeyword );
+        configuration.setProjectSourceFolder( projectSourceFolder );
+        configuration.setSplitDependencies( splitDependencies );
+        configuration.setMaxBundleBytes( maxBundleBytes );
+        configuration.setMaxBundleBytesGzipped( maxBundleBytesGzipped );
+        configuration.setConcatenate( concatenate );
+        configuration.setCompressorThreads( compressorThreads );
+        configuration.setJsScriptOptions( jsScriptOptions );
+        configuration.setJsDefaultScriptOptions( jsDefaultScriptOptions );
+        configuration.setInlineThresholdBytes( inlineThresholdBytes );
+        configuration.setClosureModules( closureModules );
+        configuration.setClosureGenerateExterns( closureGenerateExterns );
+        configuration.setClosureExternsCacheFolder( closureExternsCacheFolder );
+        configuration.setClosureExterns( closureExterns );
+        configuration.setClosureRenamingMapFolder( closureRenamingMapFolder );
+        configuration.setClosureDefines( closureDefines );
+        configuration.setClosureDefaultDefines( closureDefaultDefines );
+        configuration.setJsStripCalls( jsStripCalls );
+        configuration.setJsDefaultStripCalls( jsDefaultStripCalls );
+        configuration.setLowMemory( lowMemory );
+        configuration.setForkCompressors( forkCompressors );
+        configuration.setForkMaxHeap( forkMaxHeap );
+        configuration.setForkStackSize( forkStackSize );
+        configuration.setForkTimeout( forkTimeout );
+        configuration.setGzip( gzip );
+        configuration.setStageThreads( stageThreads );
+        configuration.setStageQueueCapacity( stageQueueCapacity );
+        configuration.setFailFast( failFast );
+        configuration.setMaxLoggedWarnings( maxLoggedWarnings );
+        configuration.setJsDiscoverDependencies( jsDiscoverDependencies );
+        configuration.setJsModuleBaseUrl( jsModuleBaseUrl );
+        configuration.setJsDependencyCacheFolder( jsDependencyCacheFolder );
+        configuration.setFingerprintFile( fingerprintFile );
+        configuration.setForce( force );
+        configuration.setPluginVersion( pluginVersion );
+        configuration.setPageGraphFile( pageGraphFile );
+        configuration.setShardIndex( shardIndex );
+        configuration.setShardCount( shardCount );
+        configuration.setUserCache( userCache );
+        configuration.setUserCacheFolder( userCacheFolder );
+        configuration.setUserCacheMaxBytes( userCacheMaxBytes );
+        configuration.setBuildContext( getBuildContext() );
+        return configuration;
     }
 
     /**
-     * @return the list of includes by default.
+     * @return property, or a context that treats every build as a full build if none has been set.
      */
-    protected String[] getDefaultIncludes()
+    public BuildContext getBuildContext()
     {
-        return new String[] { "**/*.html", "**/*.htm" };
+        if ( buildContext == null )
+        {
+            buildContext = new DefaultBuildContext();
+        }
+        return buildContext;
     }
 
     /**
      * @return property
      */
-    public File getDestinationFolder()
+    public CompilationLevel getClosureCompilationLevel()
     {
-        return destinationFolder;
+        return closureCompilationLevel;
     }
 
     /**
      * @return property
      */
-    public String getEncoding()
+    public String getClosureDefaultDefines()
     {
-        return encoding;
+        return closureDefaultDefines;
     }
 
     /**
      * @return property
      */
-    public List<String> getHtmlExcludes()
+    public Properties getClosureDefines()
     {
-        return htmlExcludes;
+        return closureDefines;
     }
 
     /**
      * @return property
      */
-    public List<String> getHtmlIncludes()
+    public List<File> getClosureExterns()
     {
-        return htmlIncludes;
+        return closureExterns;
     }
 
     /**
      * @return property
      */
-    public JsCompressorType getJsCompressorType()
+    public File getClosureExternsCacheFolder()
     {
-        return jsCompressorType;
+        return closureExternsCacheFolder;
     }
 
     /**
      * @return property
      */
-    public Properties getJsSplitPoints()
+    public File getClosureRenamingMapFolder()
     {
-        return jsSplitPoints;
+        return closureRenamingMapFolder;
     }
 
-    private String[] getPatternsOrDefault( List<String> patterns, String[] defaultPatterns )
+    /**
+     * @return property
+     */
+    public int getCompressorThreads()
     {
-        if ( patterns == null || patterns.isEmpty() )
-        {
-            return defaultPatterns;
-        }
-        else
-        {
-            return patterns.toArray( new String[patterns.size()] );
-        }
+        return compressorThreads;
     }
 
     /**
-     * @return property.
+     * @return property
      */
-    public File getProjectSourceFolder()
+    public File getDestinationFolder()
     {
-        return projectSourceFolder;
+        return destinationFolder;
     }
 
     /**
      * @return property
      */
-    public File getSourceFolder()
+    public String getEncoding()
     {
-        return sourceFolder;
+        return encoding;
     }
 
     /**
-     * @return property
+     * @return property.
      */
-    public int getYuiLinebreak()
+    public String getForkMaxHeap()
     {
-        return yuiLinebreak;
+        return forkMaxHeap;
     }
 
     /**
      * @return property.
      */
-    public boolean isSplitDependencies()
+    public String getForkStackSize()
     {
-        return splitDependencies;
+        return forkStackSize;
     }
 
     /**
-     * @return property
+     * @return property.
      */
-    public boolean isYuiDisableOptimizations()
+    public int getForkTimeout()
     {
-        return yuiDisableOptimizations;
+        return forkTimeout;
     }
 
     /**
      * @return property
      */
-    public boolean isYuiMunge()
+    public List<String> getHtmlExcludes()
     {
-        return yuiMunge;
+        return htmlExcludes;
     }
 
     /**
      * @return property
      */
-    public boolean isYuiPreserveSemi()
+    public List<String> getHtmlIncludes()
     {
-        return yuiPreserveSemi;
+        return htmlIncludes;
     }
 
-    private void logCompressionRatio( String filename, long original, long changed )
+    /**
+     * @return property.
+     */
+    public int getMaxLoggedWarnings()
     {
-        String percentageString;
-        if ( original > 0 )
-        {
-            int sizePercentage = (int) ( ( Double.valueOf( changed ) / Double.valueOf( original ) ) * 100.0 );
-            percentageString = sizePercentage + "%";
-        }
-        else
-        {
-            percentageString = "-";
-        }
+        return maxLoggedWarnings;
+    }
 
-        getLog().info( filename + " minified from " + Long.valueOf( original ) + " to " + Long.valueOf( changed )
-                           + " bytes (" + percentageString + " of original size)" );
+    /**
+     * @return property.
+     */
+    public File getFingerprintFile()
+    {
+        return fingerprintFile;
     }
 
     /**
-     * Perform the actual minification.
-     * 
-     * @throws IOException a problem reading/writing files.
-     * @throws MojoExecutionException if there's a problem during compression.
-     * @return true if minification succeeded with no warnings.
+     * @return property.
      */
-    private boolean minifyJSFile( File source, File target )
-        throws IOException, MojoExecutionException
+    public String getJsCompressor()
     {
-        boolean warningsFound = false;
+        return jsCompressor;
+    }
 
-        // Minify JS file and append to output JS file
-        InputStream is = new BufferedInputStream( new FileInputStream( source ) );
-        try
-        {
-            OutputStream os = new FileOutputStream( target );
-            try
-            {
-                AbstractCompressor compressor;
-                switch ( jsCompressorType )
-                {
-                    case YUI:
-                        compressor = new YuiJsCompressor( is, os, encoding, getLog() );
-                        ( (YuiJsCompressor) compressor ).setOptions( yuiLinebreak, yuiMunge, yuiPreserveSemi,
-                                                                     yuiDisableOptimizations );
-                        break;
-                    case CLOSURE:
-                        compressor = new ClosureJsCompressor( is, os, encoding, getLog() );
-                        ( (ClosureJsCompressor) compressor ).setOptions( closureCompilationLevel,
-                                                                         closureAcceptConstKeyword );
-                        break;
-                    default:
-                        assert false;
-                        compressor = null;
-                }
-
-                if ( compressor != null )
-                {
-                    compressor.compress();
-                    ExceptionState exceptionState = compressor.getExceptionState();
-                    if ( exceptionState.hasErrors() )
-                    {
-                        throw new MojoExecutionException( "Problem(s) prevented compression from completing." );
-                    }
-                    else
-                    {
-                        warningsFound = exceptionState.hasWarnings();
-                    }
-                }
-            }
-            finally
-            {
-                os.close();
-            }
-        }
-        finally
-        {
-            is.close();
-        }
+    /**
+     * @return property.
+     */
+    public Properties getJsCompressorOptions()
+    {
+        return jsCompressorOptions;
+    }
+
+    /**
+     * @return property
+     */
+    public JsCompressorType getJsCompressorType()
+    {
+        return jsCompressorType;
+    }
 
-        return warningsFound;
+    /**
+     * @return property.
+     */
+    public File getJsDependencyCacheFolder()
+    {
+        return jsDependencyCacheFolder;
     }
 
-    private void removeEmptyFolders( File folder )
+    /**
+     * @return property
+     */
+    public int getInlineThresholdBytes()
     {
-        File[] files = folder.listFiles();
-        boolean folderHasFile = false;
-        for ( File file : files )
-        {
-            if ( file.isDirectory() )
-            {
-                removeEmptyFolders( file );
-            }
-            else
-            {
-                folderHasFile = true;
-            }
-        }
-        if ( !folderHasFile )
+        return inlineThresholdBytes;
+    }
+
+    /**
+     * @return property
+     */
+    public String getJsDefaultStripCalls()
+    {
+        return jsDefaultStripCalls;
+    }
+
+    /**
+     * @return property
+     */
+    public String getJsDefaultScriptOptions()
+    {
+        return jsDefaultScriptOptions;
+    }
+
+    /**
+     * @return property.
+     */
+    public String getJsModuleBaseUrl()
+    {
+        return jsModuleBaseUrl;
+    }
+
+    /**
+     * @return property
+     */
+    public Properties getJsScriptOptions()
+    {
+        return jsScriptOptions;
+    }
+
+    /**
+     * @return property
+     */
+    public Properties getJsSplitPoints()
+    {
+        return jsSplitPoints;
+    }
+
+    /**
+     * @return property
+     */
+    public Properties getJsStripCalls()
+    {
+        return jsStripCalls;
+    }
+
+    /**
+     * @return property.
+     */
+    public long getMaxBundleBytes()
+    {
+        return maxBundleBytes;
+    }
+
+    /**
+     * @return property.
+     */
+    public File getProjectSourceFolder()
+    {
+        return projectSourceFolder;
+    }
+
+    /**
+     * @return property.
+     */
+    public File getPageGraphFile()
+    {
+        return pageGraphFile;
+    }
+
+    /**
+     * @return property.
+     */
+    public String getPluginVersion()
+    {
+        return pluginVersion;
+    }
+
+    /**
+     * @return property.
+     */
+    public int getShardCount()
+    {
+        return shardCount;
+    }
+
+    /**
+     * @return property.
+     */
+    public int getShardIndex()
+    {
+        return shardIndex;
+    }
+
+    /**
+     * @return property, or state private to this execution if none has been set.
+     */
+    public MinifierSession getSession()
+    {
+        if ( session == null )
         {
-            folder.delete();
+            session = new MinifierSession();
         }
+        return session;
+    }
+
+    /**
+     * @return property
+     */
+    public File getSourceFolder()
+    {
+        return sourceFolder;
+    }
+
+    /**
+     * @return property
+     */
+    public int getYuiLinebreak()
+    {
+        return yuiLinebreak;
+    }
+
+    /**
+     * @return property.
+     */
+    public int getStageQueueCapacity()
+    {
+        return stageQueueCapacity;
+    }
+
+    /**
+     * @return property.
+     */
+    public Properties getStageThreads()
+    {
+        return stageThreads;
+    }
+
+    /**
+     * @return property.
+     */
+    public File getUserCacheFolder()
+    {
+        return userCacheFolder;
+    }
+
+    /**
+     * @return property.
+     */
+    public long getUserCacheMaxBytes()
+    {
+        return userCacheMaxBytes;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isClosureAcceptConstKeyword()
+    {
+        return closureAcceptConstKeyword;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isClosureGenerateExterns()
+    {
+        return closureGenerateExterns;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isClosureModules()
+    {
+        return closureModules;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isConcatenate()
+    {
+        return concatenate;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isFailFast()
+    {
+        return failFast;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isForce()
+    {
+        return force;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isForkCompressors()
+    {
+        return forkCompressors;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isJsDiscoverDependencies()
+    {
+        return jsDiscoverDependencies;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isGzip()
+    {
+        return gzip;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isLowMemory()
+    {
+        return lowMemory;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isMaxBundleBytesGzipped()
+    {
+        return maxBundleBytesGzipped;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isSplitDependencies()
+    {
+        return splitDependencies;
+    }
+
+    /**
+     * @return property.
+     */
+    public boolean isUserCache()
+    {
+        return userCache;
+    }
+
+    /**
+     * @return property
+     */
+    public boolean isYuiDisableOptimizations()
+    {
+        return yuiDisableOptimizations;
+    }
+
+    /**
+     * @return property
+     */
+    public boolean isYuiMunge()
+    {
+        return yuiMunge;
+    }
+
+    /**
+     * @return property
+     */
+    public boolean isYuiPreserveSemi()
+    {
+        return yuiPreserveSemi;
+    }
+
+    /**
+     * @param buildContext set property.
+     */
+    public void setBuildContext( BuildContext buildContext )
+    {
+        this.buildContext = buildContext;
+    }
+
+    /**
+     * @param closureAcceptConstKeyword to set.
+     */
+    public void setClosureAcceptConstKeyword( boolean closureAcceptConstKeyword )
+    {
+        this.closureAcceptConstKeyword = closureAcceptConstKeyword;
+    }
+
+    /**
+     * @param closureCompilationLevel to set.
+     */
+    public void setClosureCompilationLevel( CompilationLevel closureCompilationLevel )
+    {
+        this.closureCompilationLevel = closureCompilationLevel;
+    }
+
+    /**
+     * @param closureDefaultDefines to set.
+     */
+    public void setClosureDefaultDefines( String closureDefaultDefines )
+    {
+        this.closureDefaultDefines = closureDefaultDefines;
+    }
+
+    /**
+     * @param closureDefines to set.
+     */
+    public void setClosureDefines( Properties closureDefines )
+    {
+        this.closureDefines = closureDefines;
+    }
+
+    /**
+     * @param closureExterns to set.
+     */
+    public void setClosureExterns( List<File> closureExterns )
+    {
+        this.closureExterns = closureExterns;
+    }
+
+    /**
+     * @param closureExternsCacheFolder to set.
+     */
+    public void setClosureExternsCacheFolder( File closureExternsCacheFolder )
+    {
+        this.closureExternsCacheFolder = closureExternsCacheFolder;
+    }
+
+    /**
+     * @param closureGenerateExterns to set.
+     */
+    public void setClosureGenerateExterns( boolean closureGenerateExterns )
+    {
+        this.closureGenerateExterns = closureGenerateExterns;
+    }
+
+    /**
+     * @param closureModules to set.
+     */
+    public void setClosureModules( boolean closureModules )
+    {
+        this.closureModules = closureModules;
+    }
+
+    /**
+     * @param closureRenamingMapFolder to set.
+     */
+    public void setClosureRenamingMapFolder( File closureRenamingMapFolder )
+    {
+        this.closureRenamingMapFolder = closureRenamingMapFolder;
+    }
+
+    /**
+     * @param compressorThreads to set.
+     */
+    public void setCompressorThreads( int compressorThreads )
+    {
+        this.compressorThreads = compressorThreads;
+    }
+
+    /**
+     * @param concatenate to set.
+     */
+    public void setConcatenate( boolean concatenate )
+    {
+        this.concatenate = concatenate;
     }
 
     /**
@@ -776,6 +1261,62 @@ public class WebMinifierMojo
         this.encoding = encoding;
     }
 
+    /**
+     * @param failFast set property.
+     */
+    public void setFailFast( boolean failFast )
+    {
+        this.failFast = failFast;
+    }
+
+    /**
+     * @param force set property.
+     */
+    public void setForce( boolean force )
+    {
+        this.force = force;
+    }
+
+    /**
+     * @param forkCompressors set property.
+     */
+    public void setForkCompressors( boolean forkCompressors )
+    {
+        this.forkCompressors = forkCompressors;
+    }
+
+    /**
+     * @param forkMaxHeap set property.
+     */
+    public void setForkMaxHeap( String forkMaxHeap )
+    {
+        this.forkMaxHeap = forkMaxHeap;
+    }
+
+    /**
+     * @param forkStackSize set property.
+     */
+    public void setForkStackSize( String forkStackSize )
+    {
+        this.forkStackSize = forkStackSize;
+    }
+
+    /**
+     * @param forkTimeout set property.
+     */
+    public void setForkTimeout( int forkTimeout )
+    {
+        this.forkTimeout = forkTimeout;
+    }
+
+    /**
+     * @param gzip set property.
+     */
+    public void setGzip( boolean gzip )
+    {
+        this.gzip = gzip;
+    }
+
     /**
      * @param htmlExcludes to set.
      */
@@ -792,6 +1333,30 @@ public class WebMinifierMojo
         this.htmlIncludes = htmlIncludes;
     }
 
+    /**
+     * @param fingerprintFile set property.
+     */
+    public void setFingerprintFile( File fingerprintFile )
+    {
+        this.fingerprintFile = fingerprintFile;
+    }
+
+    /**
+     * @param jsCompressor set property.
+     */
+    public void setJsCompressor( String jsCompressor )
+    {
+        this.jsCompressor = jsCompressor;
+    }
+
+    /**
+     * @param jsCompressorOptions set property.
+     */
+    public void setJsCompressorOptions( Properties jsCompressorOptions )
+    {
+        this.jsCompressorOptions = jsCompressorOptions;
+    }
+
     /**
      * @param jsCompressorType to set.
      */
@@ -800,6 +1365,62 @@ public class WebMinifierMojo
         this.jsCompressorType = jsCompressorType;
     }
 
+    /**
+     * @param jsDependencyCacheFolder set property.
+     */
+    public void setJsDependencyCacheFolder( File jsDependencyCacheFolder )
+    {
+        this.jsDependencyCacheFolder = jsDependencyCacheFolder;
+    }
+
+    /**
+     * @param jsDiscoverDependencies set property.
+     */
+    public void setJsDiscoverDependencies( boolean jsDiscoverDependencies )
+    {
+        this.jsDiscoverDependencies = jsDiscoverDependencies;
+    }
+
+    /**
+     * @param inlineThresholdBytes to set.
+     */
+    public void setInlineThresholdBytes( int inlineThresholdBytes )
+    {
+        this.inlineThresholdBytes = inlineThresholdBytes;
+    }
+
+    /**
+     * @param jsDefaultStripCalls to set.
+     */
+    public void setJsDefaultStripCalls( String jsDefaultStripCalls )
+    {
+        this.jsDefaultStripCalls = jsDefaultStripCalls;
+    }
+
+    /**
+     * @param jsDefaultScriptOptions to set.
+     */
+    public void setJsDefaultScriptOptions( String jsDefaultScriptOptions )
+    {
+        this.jsDefaultScriptOptions = jsDefaultScriptOptions;
+    }
+
+    /**
+     * @param jsModuleBaseUrl set property.
+     */
+    public void setJsModuleBaseUrl( String jsModuleBaseUrl )
+    {
+        this.jsModuleBaseUrl = jsModuleBaseUrl;
+    }
+
+    /**
+     * @param jsScriptOptions to set.
+     */
+    public void setJsScriptOptions( Properties jsScriptOptions )
+    {
+        this.jsScriptOptions = jsScriptOptions;
+    }
+
     /**
      * @param jsSplitPoints to set.
      */
@@ -808,6 +1429,46 @@ public class WebMinifierMojo
         this.jsSplitPoints = jsSplitPoints;
     }
 
+    /**
+     * @param jsStripCalls to set.
+     */
+    public void setJsStripCalls( Properties jsStripCalls )
+    {
+        this.jsStripCalls = jsStripCalls;
+    }
+
+    /**
+     * @param lowMemory set property.
+     */
+    public void setLowMemory( boolean lowMemory )
+    {
+        this.lowMemory = lowMemory;
+    }
+
+    /**
+     * @param maxLoggedWarnings set property.
+     */
+    public void setMaxLoggedWarnings( int maxLoggedWarnings )
+    {
+        this.maxLoggedWarnings = maxLoggedWarnings;
+    }
+
+    /**
+     * @param maxBundleBytes set property.
+     */
+    public void setMaxBundleBytes( long maxBundleBytes )
+    {
+        this.maxBundleBytes = maxBundleBytes;
+    }
+
+    /**
+     * @param maxBundleBytesGzipped set property.
+     */
+    public void setMaxBundleBytesGzipped( boolean maxBundleBytesGzipped )
+    {
+        this.maxBundleBytesGzipped = maxBundleBytesGzipped;
+    }
+
     /**
      * @param projectSourceFolder set property.
      */
@@ -816,6 +1477,46 @@ public class WebMinifierMojo
         this.projectSourceFolder = projectSourceFolder;
     }
 
+    /**
+     * @param pageGraphFile set property.
+     */
+    public void setPageGraphFile( File pageGraphFile )
+    {
+        this.pageGraphFile = pageGraphFile;
+    }
+
+    /**
+     * @param pluginVersion set property.
+     */
+    public void setPluginVersion( String pluginVersion )
+    {
+        this.pluginVersion = pluginVersion;
+    }
+
+    /**
+     * @param shardCount set property.
+     */
+    public void setShardCount( int shardCount )
+    {
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * @param shardIndex set property.
+     */
+    public void setShardIndex( int shardIndex )
+    {
+        this.shardIndex = shardIndex;
+    }
+
+    /**
+     * @param session set property.
+     */
+    public void setSession( MinifierSession session )
+    {
+        this.session = session;
+    }
+
     /**
      * @param sourceFolder to set.
      */
@@ -832,6 +1533,46 @@ public class WebMinifierMojo
         this.splitDependencies = splitDependencies;
     }
 
+    /**
+     * @param stageQueueCapacity set property.
+     */
+    public void setStageQueueCapacity( int stageQueueCapacity )
+    {
+        this.stageQueueCapacity = stageQueueCapacity;
+    }
+
+    /**
+     * @param stageThreads set property.
+     */
+    public void setStageThreads( Properties stageThreads )
+    {
+        this.stageThreads = stageThreads;
+    }
+
+    /**
+     * @param userCache set property.
+     */
+    public void setUserCache( boolean userCache )
+    {
+        this.userCache = userCache;
+    }
+
+    /**
+     * @param userCacheFolder set property.
+     */
+    public void setUserCacheFolder( File userCacheFolder )
+    {
+        this.userCacheFolder = userCacheFolder;
+    }
+
+    /**
+     * @param userCacheMaxBytes set property.
+     */
+    public void setUserCacheMaxBytes( long userCacheMaxBytes )
+    {
+        this.userCacheMaxBytes = userCacheMaxBytes;
+    }
+
     /**
      * @param yuiDisableOptimizations to set.
      */
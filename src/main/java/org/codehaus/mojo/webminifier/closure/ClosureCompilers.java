@@ -0,0 +1,47 @@
+package org.codehaus.mojo.webminifier.closure;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.util.logging.Level;
+
+/**
+ * Creates Closure compilers. Closure logs to a JDK logger that is shared by every compiler in the JVM. It is silenced
+ * once, when this class is loaded, rather than by each compilation so that compilations running in parallel, as they
+ * do in parallel builds, never set it concurrently.
+ */
+public final class ClosureCompilers
+{
+    static
+    {
+        com.google.javascript.jscomp.Compiler.setLoggingLevel( Level.OFF );
+    }
+
+    private ClosureCompilers()
+    {
+    }
+
+    /**
+     * @return a new compiler that logs nothing.
+     */
+    public static com.google.javascript.jscomp.Compiler create()
+    {
+        return new com.google.javascript.jscomp.Compiler();
+    }
+}
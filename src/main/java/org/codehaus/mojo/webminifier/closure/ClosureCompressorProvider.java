@@ -0,0 +1,108 @@
+package org.codehaus.mojo.webminifier.closure;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.AbstractCompressor;
+import org.codehaus.mojo.webminifier.CompressorOptions;
+import org.codehaus.mojo.webminifier.CompressorProvider;
+
+import com.google.javascript.jscomp.CompilationLevel;
+
+/**
+ * Provides the Closure compressor, compiling each script on its own.
+ */
+public class ClosureCompressorProvider
+    implements CompressorProvider
+{
+    /** WHITESPACE_ONLY, SIMPLE_OPTIMIZATIONS (the default) or ADVANCED_OPTIMIZATIONS. */
+    public static final String COMPILATION_LEVEL = "compilationLevel";
+
+    /** Accept the const keyword. */
+    public static final String ACCEPT_CONST_KEYWORD = "acceptConstKeyword";
+
+    /** The externs files, separated by the platform's path separator. */
+    public static final String EXTERNS = "externs";
+
+    /** Where the variable renaming map is kept. */
+    public static final String VARIABLE_MAP = "variableMap";
+
+    /** Where the property renaming map is kept. */
+    public static final String PROPERTY_MAP = "propertyMap";
+
+    /** The @define overrides, as a comma separated list of NAME=value pairs. */
+    public static final String DEFINES = "defines";
+
+    /** The functions whose calls are to be removed, as a comma separated list. */
+    public static final String STRIP_CALLS = "stripCalls";
+
+    /** Write output in chunks, discarding the compiled tree as it goes. */
+    public static final String LOW_MEMORY = "lowMemory";
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getName()
+    {
+        return "CLOSURE";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isPerFileSafe()
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public AbstractCompressor createCompressor( InputStream source, OutputStream target, String encoding,
+                                                Log logger, Map<String, String> options )
+    {
+        String compilationLevelName = options.get( COMPILATION_LEVEL );
+        CompilationLevel compilationLevel =
+            compilationLevelName != null ? CompilationLevel.valueOf( compilationLevelName.trim() )
+                            : CompilationLevel.SIMPLE_OPTIMIZATIONS;
+
+        ClosureJsCompressor compressor = new ClosureJsCompressor( source, target, encoding, logger );
+        compressor.setOptions( compilationLevel, CompressorOptions.getBoolean( options, ACCEPT_CONST_KEYWORD, false ) );
+        compressor.setExterns( CompressorOptions.getFiles( options, EXTERNS ) );
+        compressor.setRenamingMapFiles( CompressorOptions.getFile( options, VARIABLE_MAP ),
+                                        CompressorOptions.getFile( options, PROPERTY_MAP ) );
+        compressor.setDefines( CompressorOptions.getMap( options, DEFINES ) );
+        compressor.setStripCalls( CompressorOptions.getList( options, STRIP_CALLS ) );
+        compressor.setLowMemory( CompressorOptions.getBoolean( options, LOW_MEMORY, false ) );
+        return compressor;
+    }
+}
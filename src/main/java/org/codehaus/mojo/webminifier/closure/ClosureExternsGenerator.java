@@ -0,0 +1,227 @@
+package org.codehaus.mojo.webminifier.closure;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.mojo.webminifier.ContentDigest;
+
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+/**
+ * Generates Closure externs from a script so that other scripts calling into it can be compiled with
+ * ADVANCED_OPTIMIZATIONS. The externs declare the script's global variables and every property name that it uses,
+ * so that neither are renamed or removed. Generated externs are cached by the digest of the script's content.
+ */
+public class ClosureExternsGenerator
+{
+    /**
+     * Property names that cannot be declared using dot notation.
+     */
+    private static final Set<String> RESERVED_WORDS = new HashSet<String>( Arrays.asList( new String[] { "break",
+        "case", "catch", "class", "const", "continue", "debugger", "default", "delete", "do", "else", "enum", "export",
+        "extends", "false", "finally", "for", "function", "if", "implements", "import", "in", "instanceof",
+        "interface", "let", "new", "null", "package", "private", "protected", "public", "return", "static", "super",
+        "switch", "this", "throw", "true", "try", "typeof", "var", "void", "while", "with", "yield" } ) );
+
+    /**
+     * Property names that can be declared using dot notation, as opposed to quoted object literal keys.
+     */
+    private static final Pattern IDENTIFIER = Pattern.compile( "[A-Za-z_$][A-Za-z0-9_$]*" );
+
+    private final File cacheFolder;
+
+    private final String encoding;
+
+    /**
+     * @param cacheFolder where generated externs are kept.
+     * @param encoding the encoding of scripts and externs.
+     */
+    public ClosureExternsGenerator( File cacheFolder, String encoding )
+    {
+        this.cacheFolder = cacheFolder;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Obtain the externs for a script, generating them if they have not been generated for the script's content
+     * before.
+     * 
+     * @param script the script to generate externs for.
+     * @return the file containing the externs.
+     * @throws IOException if there is a problem reading the script or writing the externs.
+     */
+    public File getExterns( File script )
+        throws IOException
+    {
+        File externsFile = new File( cacheFolder, ContentDigest.digest( script ) + ".js" );
+        if ( !externsFile.isFile() )
+        {
+            String externs = generateExterns( script.getName(), FileUtils.readFileToString( script, encoding ) );
+
+            // Write to a temporary file first so that a partially written file is never mistaken for a cached one.
+            cacheFolder.mkdirs();
+            File tempFile = File.createTempFile( "externs", ".tmp", cacheFolder );
+            FileUtils.writeStringToFile( tempFile, externs, encoding );
+            if ( !tempFile.renameTo( externsFile ) )
+            {
+                tempFile.delete();
+                if ( !externsFile.isFile() )
+                {
+                    throw new IOException( "Cannot write externs: " + externsFile );
+                }
+            }
+        }
+        return externsFile;
+    }
+
+    /**
+     * Generate externs for a script.
+     * 
+     * @param name the name of the script.
+     * @param code the script.
+     * @return the externs, which will be empty if the script cannot be parsed.
+     */
+    static String generateExterns( String name, String code )
+    {
+        com.google.javascript.jscomp.Compiler compiler = ClosureCompilers.create();
+        CompilerOptions options = new CompilerOptions();
+        options.setLanguageIn( LanguageMode.ECMASCRIPT5 );
+        SourceFile input = SourceFile.fromCode( name, code );
+        List<SourceFile> noExterns = Collections.emptyList();
+        compiler.init( noExterns, Collections.singletonList( input ), options );
+
+        Node root = compiler.parse( input );
+
+        SortedSet<String> globalNames = new TreeSet<String>();
+        SortedSet<String> propertyNames = new TreeSet<String>();
+        if ( root != null )
+        {
+            collectGlobalNames( root, globalNames );
+            collectNames( root, globalNames, propertyNames );
+        }
+
+        StringBuilder externs = new StringBuilder();
+        externs.append( "/**\n * @fileoverview Generated from " ).append( name ).append( "\n * @externs\n */\n" );
+        for ( String globalName : globalNames )
+        {
+            externs.append( "var " ).append( globalName ).append( ";\n" );
+        }
+        for ( String propertyName : propertyNames )
+        {
+            if ( !RESERVED_WORDS.contains( propertyName ) && IDENTIFIER.matcher( propertyName ).matches() )
+            {
+                externs.append( "Object.prototype." ).append( propertyName ).append( ";\n" );
+            }
+        }
+        return externs.toString();
+    }
+
+    /**
+     * Collect the names declared at the top level of a script, either by var and function statements or by
+     * assignment to an undeclared name.
+     */
+    private static void collectGlobalNames( Node root, Set<String> globalNames )
+    {
+        for ( Node statement = root.getFirstChild(); statement != null; statement = statement.getNext() )
+        {
+            switch ( statement.getType() )
+            {
+                case Token.VAR:
+                    for ( Node nameNode = statement.getFirstChild(); nameNode != null; nameNode = nameNode.getNext() )
+                    {
+                        globalNames.add( nameNode.getString() );
+                    }
+                    break;
+                case Token.FUNCTION:
+                    String functionName = statement.getFirstChild().getString();
+                    if ( functionName.length() > 0 )
+                    {
+                        globalNames.add( functionName );
+                    }
+                    break;
+                case Token.EXPR_RESULT:
+                    Node expression = statement.getFirstChild();
+                    while ( expression.getType() == Token.ASSIGN )
+                    {
+                        Node target = expression.getFirstChild();
+                        if ( target.getType() == Token.NAME )
+                        {
+                            globalNames.add( target.getString() );
+                        }
+                        expression = expression.getLastChild();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Collect every property name used by a script, and the globals declared as properties of the window.
+     */
+    private static void collectNames( Node node, Set<String> globalNames, Set<String> propertyNames )
+    {
+        switch ( node.getType() )
+        {
+            case Token.GETPROP:
+                Node owner = node.getFirstChild();
+                String propertyName = owner.getNext().getString();
+                propertyNames.add( propertyName );
+                if ( owner.getType() == Token.NAME && owner.getString().equals( "window" ) )
+                {
+                    globalNames.add( propertyName );
+                }
+                break;
+            case Token.OBJECTLIT:
+                for ( Node key = node.getFirstChild(); key != null; key = key.getNext() )
+                {
+                    if ( key.getType() == Token.STRING_KEY || key.getType() == Token.GETTER_DEF
+                        || key.getType() == Token.SETTER_DEF )
+                    {
+                        propertyNames.add( key.getString() );
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+
+        for ( Node child = node.getFirstChild(); child != null; child = child.getNext() )
+        {
+            collectNames( child, globalNames, propertyNames );
+        }
+    }
+}
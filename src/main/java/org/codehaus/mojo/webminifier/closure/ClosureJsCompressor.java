@@ -19,27 +19,38 @@ package org.codehaus.mojo.webminifier.closure;
  * under the License.    
  */
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.logging.Level;
+import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.mojo.webminifier.AbstractCompressor;
-import org.codehaus.mojo.webminifier.ExceptionState;
+import org.codehaus.mojo.webminifier.Diagnostics;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.CompilationLevel;
 import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.CustomPassExecutionTime;
 import com.google.javascript.jscomp.DiagnosticGroups;
 import com.google.javascript.jscomp.JSError;
 import com.google.javascript.jscomp.Result;
 import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.jscomp.VariableMap;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.Node;
 
 /**
  * Provide a compressor around Google's Closure Compiler. TODO: Write unit tests.
@@ -58,6 +69,36 @@ public class ClosureJsCompressor
      */
     private boolean acceptConstKeyword;
 
+    /**
+     * Files declaring the symbols that are defined outside of the script.
+     */
+    private List<File> externs = Collections.emptyList();
+
+    /**
+     * Where the renaming of variables is read from and written to, or null.
+     */
+    private File variableMapFile;
+
+    /**
+     * Where the renaming of properties is read from and written to, or null.
+     */
+    private File propertyMapFile;
+
+    /**
+     * Values to override @define constants with.
+     */
+    private Map<String, String> defines = Collections.emptyMap();
+
+    /**
+     * The functions whose calls are to be removed.
+     */
+    private List<String> stripCalls = Collections.emptyList();
+
+    /**
+     * Signal whether output is to be written in chunks, discarding the compiled tree as it goes.
+     */
+    private boolean lowMemory;
+
     /**
      * Construct the compressor.
      * 
@@ -76,13 +117,93 @@ public class ClosureJsCompressor
         throws IOException
     {
         // Setup the compiler
-        com.google.javascript.jscomp.Compiler.setLoggingLevel( Level.OFF );
-        com.google.javascript.jscomp.Compiler compiler = new com.google.javascript.jscomp.Compiler();
+        com.google.javascript.jscomp.Compiler compiler = ClosureCompilers.create();
 
         SourceFile sourceFile = SourceFile.builder()//
         .withCharset( Charset.forName( encoding ) )//
         .buildFromInputStream( "input", source );
 
+        CompilerOptions options = createCompilerOptions( compilationLevel, acceptConstKeyword, encoding );
+        readRenamingMaps( options, variableMapFile, propertyMapFile, logger );
+        applyDefines( options, defines );
+        applyStripCalls( options, compiler, stripCalls );
+
+        // Compile
+        List<SourceFile> inputs = Arrays.asList( new SourceFile[] { sourceFile } );
+        Result result = compiler.compile( createExterns( externs, encoding ), inputs, options );
+
+        // Report the outcomes.
+        reportResult( result, diagnostics );
+        if ( !diagnostics.hasErrors() )
+        {
+            writeRenamingMaps( result, variableMapFile, propertyMapFile );
+        }
+
+        // Write the compiled source.
+
+        OutputStreamWriter resourceWriter = new OutputStreamWriter( target, encoding );
+        try
+        {
+            if ( lowMemory && compiler.getRoot() != null )
+            {
+                // The original source is no longer required.
+                sourceFile.clearCachedSource();
+                writeSource( compiler, compiler.getRoot().getLastChild().getFirstChild(), true, resourceWriter );
+            }
+            else
+            {
+                resourceWriter.append( compiler.toSource() );
+            }
+        }
+        finally
+        {
+            resourceWriter.close();
+        }
+    }
+
+    /**
+     * Write the compiled source of a script one top level statement at a time. Each statement is removed from the
+     * tree once written so that neither the whole of the output, nor the whole of the tree, need be held in memory.
+     * 
+     * @param compiler the compiler that compiled the script.
+     * @param script the compiled script, which is left empty.
+     * @param first true if this is the first script to be written to the output.
+     * @param writer where to write the source to.
+     * @throws IOException if there is a problem writing.
+     */
+    static void writeSource( com.google.javascript.jscomp.Compiler compiler, Node script, boolean first,
+                             Writer writer )
+        throws IOException
+    {
+        // The license of a script is declared on the script itself so it would otherwise be lost.
+        JSDocInfo info = script.getJSDocInfo();
+        if ( info != null && info.getLicense() != null )
+        {
+            writer.write( "/*\n" + info.getLicense() + "*/\n" );
+        }
+
+        int chunk = first ? 0 : 1;
+        for ( Node statement = script.getFirstChild(); statement != null; statement = script.getFirstChild() )
+        {
+            com.google.javascript.jscomp.Compiler.CodeBuilder codeBuilder =
+                new com.google.javascript.jscomp.Compiler.CodeBuilder();
+            compiler.toSource( codeBuilder, chunk++, statement );
+            writer.write( codeBuilder.toString() );
+            script.removeChild( statement );
+        }
+    }
+
+    /**
+     * Establish the compiler options common to all of our Closure compilations.
+     * 
+     * @param compilationLevel how aggresive the compression should be as a result of compilation.
+     * @param acceptConstKeyword true if the const keyword is acceptable.
+     * @param encoding js file encoding to write.
+     * @return the options.
+     */
+    static CompilerOptions createCompilerOptions( CompilationLevel compilationLevel, boolean acceptConstKeyword,
+                                                  String encoding )
+    {
         CompilerOptions options = new CompilerOptions();
         compilationLevel.setOptionsForCompilationLevel( options );
         options.setAcceptConstKeyword( acceptConstKeyword );
@@ -91,44 +212,169 @@ public class ClosureJsCompressor
         // We're never concerned with non standard JSDOC - it is hardly a standard...
         options.setWarningLevel( DiagnosticGroups.NON_STANDARD_JSDOC, CheckLevel.OFF );
 
-        // Compile
-        List<SourceFile> externs = Collections.emptyList();
-        List<SourceFile> inputs = Arrays.asList( new SourceFile[] { sourceFile } );
-        Result result = compiler.compile( externs, inputs, options );
+        return options;
+    }
 
-        // Report the outcomes.
-        exceptionState = new ExceptionState();
+    /**
+     * Override the values of @define constants. A value of true or false is a boolean, a value that parses as a number
+     * is a number, and any other value is a string. Strings may be quoted to prevent them being taken as anything else
+     * e.g. 'true'.
+     * 
+     * @param options the options of the compilation.
+     * @param defines the value of each constant to override.
+     */
+    static void applyDefines( CompilerOptions options, Map<String, String> defines )
+    {
+        for ( Map.Entry<String, String> define : defines.entrySet() )
+        {
+            String name = define.getKey();
+            String value = define.getValue().trim();
+            if ( value.equals( "true" ) || value.equals( "false" ) )
+            {
+                options.setDefineToBooleanLiteral( name, Boolean.parseBoolean( value ) );
+            }
+            else if ( value.length() > 1
+                && ( ( value.startsWith( "'" ) && value.endsWith( "'" ) )
+                || ( value.startsWith( "\"" ) && value.endsWith( "\"" ) ) ) )
+            {
+                options.setDefineToStringLiteral( name, value.substring( 1, value.length() - 1 ) );
+            }
+            else
+            {
+                try
+                {
+                    options.setDefineToDoubleLiteral( name, Double.parseDouble( value ) );
+                }
+                catch ( NumberFormatException e )
+                {
+                    options.setDefineToStringLiteral( name, value );
+                }
+            }
+        }
+    }
 
-        JSError[] errors = result.errors;
-        for ( JSError error : errors )
+    /**
+     * Have a compilation remove calls to debugging functions.
+     * 
+     * @param options the options of the compilation.
+     * @param compiler the compiler to perform the compilation.
+     * @param stripCalls the functions whose calls are to be removed.
+     */
+    static void applyStripCalls( CompilerOptions options, com.google.javascript.jscomp.Compiler compiler,
+                                 List<String> stripCalls )
+    {
+        if ( !stripCalls.isEmpty() )
         {
-            logger.error( error.toString() );
+            if ( options.customPasses == null )
+            {
+                options.customPasses = ArrayListMultimap.create();
+            }
+            options.customPasses.put( CustomPassExecutionTime.BEFORE_OPTIMIZATIONS,
+                                      new DebugCallStripper( compiler, stripCalls ) );
         }
-        if ( errors.length > 0 )
+    }
+
+    /**
+     * Establish the externs for a compilation.
+     * 
+     * @param externFiles the files declaring external symbols.
+     * @param encoding the encoding of the files.
+     * @return the externs.
+     */
+    static List<SourceFile> createExterns( List<File> externFiles, String encoding )
+    {
+        List<SourceFile> externs = new ArrayList<SourceFile>( externFiles.size() );
+        for ( File externFile : externFiles )
         {
-            exceptionState.signalErrors();
+            externs.add( SourceFile.fromFile( externFile, Charset.forName( encoding ) ) );
         }
+        return externs;
+    }
 
-        JSError[] warnings = result.warnings;
-        for ( JSError warning : warnings )
+    /**
+     * Have a compilation reuse the renaming of a previous one so that unchanged code is output identically.
+     * 
+     * @param options the options of the compilation.
+     * @param variableMapFile the variable renaming from a previous compilation, or null.
+     * @param propertyMapFile the property renaming from a previous compilation, or null.
+     * @param logger where to log problems.
+     * @throws IOException if there is a problem reading the maps.
+     */
+    static void readRenamingMaps( CompilerOptions options, File variableMapFile, File propertyMapFile, Log logger )
+        throws IOException
+    {
+        byte[] variableMap = readRenamingMap( variableMapFile, logger );
+        if ( variableMap != null )
         {
-            logger.warn( warning.toString() );
+            options.setInputVariableMapSerialized( variableMap );
         }
-        if ( warnings.length > 0 )
+        byte[] propertyMap = readRenamingMap( propertyMapFile, logger );
+        if ( propertyMap != null )
         {
-            exceptionState.signalWarnings();
+            options.setInputPropertyMapSerialized( propertyMap );
         }
+    }
 
-        // Write the compiled source.
+    private static byte[] readRenamingMap( File mapFile, Log logger )
+        throws IOException
+    {
+        if ( mapFile == null || !mapFile.isFile() )
+        {
+            return null;
+        }
 
-        OutputStreamWriter resourceWriter = new OutputStreamWriter( target, encoding );
+        byte[] map = FileUtils.readFileToByteArray( mapFile );
         try
         {
-            resourceWriter.append( compiler.toSource() );
+            VariableMap.fromBytes( map );
         }
-        finally
+        catch ( ParseException e )
         {
-            resourceWriter.close();
+            // A damaged map only costs us the stability of names, so carry on without it.
+            logger.warn( "Ignoring unreadable renaming map " + mapFile + ": " + e.getMessage() );
+            return null;
+        }
+        return map;
+    }
+
+    /**
+     * Record the renaming performed by a compilation for the next one to reuse.
+     * 
+     * @param result the outcome of the compilation.
+     * @param variableMapFile where to write the variable renaming, or null.
+     * @param propertyMapFile where to write the property renaming, or null.
+     * @throws IOException if there is a problem writing the maps.
+     */
+    static void writeRenamingMaps( Result result, File variableMapFile, File propertyMapFile )
+        throws IOException
+    {
+        if ( variableMapFile != null && result.variableMap != null )
+        {
+            FileUtils.writeByteArrayToFile( variableMapFile, result.variableMap.toBytes() );
+        }
+        if ( propertyMapFile != null && result.propertyMap != null )
+        {
+            FileUtils.writeByteArrayToFile( propertyMapFile, result.propertyMap.toBytes() );
+        }
+    }
+
+    /**
+     * Report the errors and warnings of a compilation.
+     * 
+     * @param result the outcome of the compilation.
+     * @param diagnostics where to report problems.
+     */
+    static void reportResult( Result result, Diagnostics diagnostics )
+    {
+        for ( JSError error : result.errors )
+        {
+            diagnostics.error( error.getType().key + ". " + error.description, error.sourceName, error.lineNumber,
+                               error.getCharno() );
+        }
+        for ( JSError warning : result.warnings )
+        {
+            diagnostics.warning( warning.getType().key + ". " + warning.description, warning.sourceName,
+                                 warning.lineNumber, warning.getCharno() );
         }
     }
 
@@ -144,4 +390,53 @@ public class ClosureJsCompressor
         this.acceptConstKeyword = acceptConstKeywordParam;
     }
 
+    /**
+     * @param externsParam files declaring the symbols that are defined outside of the scripts being compiled. Such
+     *            symbols are neither renamed nor removed.
+     */
+    public void setExterns( List<File> externsParam )
+    {
+        this.externs = new ArrayList<File>( externsParam );
+    }
+
+    /**
+     * Declare where renaming maps are kept. A map is read before compiling, if it exists, so that names are assigned
+     * as they were previously, and is written after compiling.
+     * 
+     * @param variableMapFileParam where the variable renaming is kept, or null.
+     * @param propertyMapFileParam where the property renaming is kept, or null.
+     */
+    public void setRenamingMapFiles( File variableMapFileParam, File propertyMapFileParam )
+    {
+        this.variableMapFile = variableMapFileParam;
+        this.propertyMapFile = propertyMapFileParam;
+    }
+
+    /**
+     * @param definesParam the values to override @define constants with. Only applied by SIMPLE_OPTIMIZATIONS and
+     *            ADVANCED_OPTIMIZATIONS.
+     */
+    public void setDefines( Map<String, String> definesParam )
+    {
+        this.defines = new LinkedHashMap<String, String>( definesParam );
+    }
+
+    /**
+     * @param stripCallsParam the functions whose calls are to be removed e.g. console.* or debugLog. Only applied by
+     *            SIMPLE_OPTIMIZATIONS and ADVANCED_OPTIMIZATIONS.
+     */
+    public void setStripCalls( List<String> stripCallsParam )
+    {
+        this.stripCalls = new ArrayList<String>( stripCallsParam );
+    }
+
+    /**
+     * @param lowMemoryParam true if output is to be written in chunks, discarding the compiled tree as it goes. This
+     *            reduces the memory required to compress large scripts.
+     */
+    public void setLowMemory( boolean lowMemoryParam )
+    {
+        this.lowMemory = lowMemoryParam;
+    }
+
 }
@@ -0,0 +1,316 @@
+package org.codehaus.mojo.webminifier.closure;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.Diagnostics;
+
+import com.google.javascript.jscomp.CompilationLevel;
+import com.google.javascript.jscomp.CompilerInput;
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.JSModule;
+import com.google.javascript.jscomp.Result;
+import com.google.javascript.jscomp.SourceFile;
+
+/**
+ * Compress a number of scripts, that depend on each other, in a single Closure compilation. Each script becomes a
+ * Closure module so that dead code can be removed, and symbols renamed and moved, consistently across all of them.
+ */
+public class ClosureJsModuleCompressor
+{
+    /**
+     * A script to be compiled as a module.
+     */
+    private static class Module
+    {
+        private final InputStream source;
+
+        private final OutputStream target;
+
+        private final List<String> dependencies;
+
+        Module( InputStream source, OutputStream target, List<String> dependencies )
+        {
+            this.source = source;
+            this.target = target;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * The name given to the module at the root of the graph, if one has to be introduced.
+     */
+    private static final String ROOT_MODULE_NAME = "$root";
+
+    private final String encoding;
+
+    private final Log logger;
+
+    private final Map<String, Module> modules = new LinkedHashMap<String, Module>();
+
+    private CompilationLevel compilationLevel;
+
+    private boolean acceptConstKeyword;
+
+    private List<File> externs = Collections.emptyList();
+
+    private File variableMapFile;
+
+    private File propertyMapFile;
+
+    private Map<String, String> defines = Collections.emptyMap();
+
+    private List<String> stripCalls = Collections.emptyList();
+
+    private boolean lowMemory;
+
+    private Diagnostics diagnostics;
+
+    /**
+     * Construct the compressor.
+     * 
+     * @param encoding js file encoding to read/write.
+     * @param logger where to log problems.
+     */
+    public ClosureJsModuleCompressor( String encoding, Log logger )
+    {
+        this.encoding = encoding;
+        this.logger = logger;
+        this.diagnostics = new Diagnostics( logger, false );
+    }
+
+    /**
+     * Declare a script to be compiled. Scripts must be added after the scripts that they depend on.
+     * 
+     * @param name the unique name of the module.
+     * @param source js to read.
+     * @param target js to write.
+     * @param dependencies the names of the modules that must be loaded before this one.
+     */
+    public void addModule( String name, InputStream source, OutputStream target, List<String> dependencies )
+    {
+        if ( modules.containsKey( name ) )
+        {
+            throw new IllegalArgumentException( "Module already added: " + name );
+        }
+        for ( String dependency : dependencies )
+        {
+            if ( !modules.containsKey( dependency ) )
+            {
+                throw new IllegalArgumentException( "Module " + name + " depends on " + dependency
+                    + " which has not been added." );
+            }
+        }
+        modules.put( name, new Module( source, target, new ArrayList<String>( dependencies ) ) );
+    }
+
+    /**
+     * Perform the compression.
+     * 
+     * @throws IOException if there is a problem reading/writing the scripts.
+     */
+    public void compress()
+        throws IOException
+    {
+        // Setup the compiler
+        com.google.javascript.jscomp.Compiler compiler = ClosureCompilers.create();
+
+        // Closure requires a single module at the root of the graph. If there is more than one module without
+        // dependencies then they are made to depend on an empty one.
+        JSModule rootModule = null;
+        int rootCount = 0;
+        for ( Module module : modules.values() )
+        {
+            if ( module.dependencies.isEmpty() )
+            {
+                ++rootCount;
+            }
+        }
+        if ( rootCount > 1 )
+        {
+            rootModule = new JSModule( ROOT_MODULE_NAME );
+            rootModule.add( SourceFile.fromCode( ROOT_MODULE_NAME, "" ) );
+        }
+
+        Map<String, JSModule> jsModules = new LinkedHashMap<String, JSModule>( modules.size() );
+        for ( Map.Entry<String, Module> entry : modules.entrySet() )
+        {
+            String name = entry.getKey();
+            Module module = entry.getValue();
+
+            JSModule jsModule = new JSModule( name );
+            jsModule.add( SourceFile.builder()//
+            .withCharset( Charset.forName( encoding ) )//
+            .buildFromInputStream( name, module.source ) );
+            for ( String dependency : module.dependencies )
+            {
+                jsModule.addDependency( jsModules.get( dependency ) );
+            }
+            if ( rootModule != null && module.dependencies.isEmpty() )
+            {
+                jsModule.addDependency( rootModule );
+            }
+            jsModules.put( name, jsModule );
+        }
+
+        List<JSModule> jsModuleGraph = new ArrayList<JSModule>( jsModules.size() + 1 );
+        if ( rootModule != null )
+        {
+            jsModuleGraph.add( rootModule );
+        }
+        jsModuleGraph.addAll( jsModules.values() );
+
+        CompilerOptions options =
+            ClosureJsCompressor.createCompilerOptions( compilationLevel, acceptConstKeyword, encoding );
+        options.setCrossModuleCodeMotion( true );
+        options.setCrossModuleMethodMotion( true );
+        ClosureJsCompressor.readRenamingMaps( options, variableMapFile, propertyMapFile, logger );
+        ClosureJsCompressor.applyDefines( options, defines );
+        ClosureJsCompressor.applyStripCalls( options, compiler, stripCalls );
+
+        // Compile
+        Result result =
+            compiler.compileModules( ClosureJsCompressor.createExterns( externs, encoding ), jsModuleGraph, options );
+
+        // Report the outcomes.
+        ClosureJsCompressor.reportResult( result, diagnostics );
+        if ( !diagnostics.hasErrors() )
+        {
+            ClosureJsCompressor.writeRenamingMaps( result, variableMapFile, propertyMapFile );
+        }
+
+        // Write the compiled source of each module.
+        for ( Map.Entry<String, Module> entry : modules.entrySet() )
+        {
+            OutputStreamWriter resourceWriter = new OutputStreamWriter( entry.getValue().target, encoding );
+            try
+            {
+                JSModule jsModule = jsModules.get( entry.getKey() );
+                if ( lowMemory )
+                {
+                    boolean first = true;
+                    for ( CompilerInput input : jsModule.getInputs() )
+                    {
+                        ClosureJsCompressor.writeSource( compiler, input.getAstRoot( compiler ), first,
+                                                         resourceWriter );
+                        first = false;
+                    }
+                }
+                else
+                {
+                    resourceWriter.append( compiler.toSource( jsModule ) );
+                }
+            }
+            finally
+            {
+                resourceWriter.close();
+            }
+        }
+    }
+
+    /**
+     * @return where problems were reported to.
+     */
+    public Diagnostics getDiagnostics()
+    {
+        return diagnostics;
+    }
+
+    /**
+     * @param diagnosticsParam where to report problems to.
+     */
+    public void setDiagnostics( Diagnostics diagnosticsParam )
+    {
+        this.diagnostics = diagnosticsParam;
+    }
+
+    /**
+     * Build options.
+     * 
+     * @param compilationLevelParam how aggresive the compression should be as a result of compilation.
+     * @param acceptConstKeywordParam true if the const keyword is acceptable.
+     */
+    public void setOptions( CompilationLevel compilationLevelParam, boolean acceptConstKeywordParam )
+    {
+        this.compilationLevel = compilationLevelParam;
+        this.acceptConstKeyword = acceptConstKeywordParam;
+    }
+
+    /**
+     * @param externsParam files declaring the symbols that are defined outside of the scripts being compiled. Such
+     *            symbols are neither renamed nor removed.
+     */
+    public void setExterns( List<File> externsParam )
+    {
+        this.externs = new ArrayList<File>( externsParam );
+    }
+
+    /**
+     * Declare where renaming maps are kept. A map is read before compiling, if it exists, so that names are assigned
+     * as they were previously, and is written after compiling.
+     * 
+     * @param variableMapFileParam where the variable renaming is kept, or null.
+     * @param propertyMapFileParam where the property renaming is kept, or null.
+     */
+    public void setRenamingMapFiles( File variableMapFileParam, File propertyMapFileParam )
+    {
+        this.variableMapFile = variableMapFileParam;
+        this.propertyMapFile = propertyMapFileParam;
+    }
+
+    /**
+     * @param definesParam the values to override @define constants with. Only applied by SIMPLE_OPTIMIZATIONS and
+     *            ADVANCED_OPTIMIZATIONS.
+     */
+    public void setDefines( Map<String, String> definesParam )
+    {
+        this.defines = new LinkedHashMap<String, String>( definesParam );
+    }
+
+    /**
+     * @param stripCallsParam the functions whose calls are to be removed e.g. console.* or debugLog. Only applied by
+     *            SIMPLE_OPTIMIZATIONS and ADVANCED_OPTIMIZATIONS.
+     */
+    public void setStripCalls( List<String> stripCallsParam )
+    {
+        this.stripCalls = new ArrayList<String>( stripCallsParam );
+    }
+
+    /**
+     * @param lowMemoryParam true if output is to be written in chunks, discarding the compiled tree as it goes. This
+     *            reduces the memory required to compress large scripts.
+     */
+    public void setLowMemory( boolean lowMemoryParam )
+    {
+        this.lowMemory = lowMemoryParam;
+    }
+}
@@ -0,0 +1,183 @@
+package org.codehaus.mojo.webminifier.closure;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import com.google.javascript.jscomp.CompilerPass;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+/**
+ * Removes calls to debugging functions such as console.log. A function is named either exactly e.g. debugLog or
+ * console.log, or by a prefix followed by an asterisk e.g. console.* which names all of the functions of console.
+ * Calls that are statements in their own right are removed. Calls within expressions are replaced by void 0 given
+ * that their result may be used. Arguments are removed along with the call, so they must not have side effects
+ * that the script relies on.
+ */
+public class DebugCallStripper
+    implements CompilerPass
+{
+    private static final Pattern LICENSE_COMMENT = Pattern.compile( "/\\*!.*?\\*/", Pattern.DOTALL );
+
+    private final com.google.javascript.jscomp.Compiler compiler;
+
+    private final List<String> functionNames;
+
+    /**
+     * @param compiler the compiler that the pass is run by.
+     * @param functionNames the functions whose calls are to be removed.
+     */
+    public DebugCallStripper( com.google.javascript.jscomp.Compiler compiler, Collection<String> functionNames )
+    {
+        this.compiler = compiler;
+        this.functionNames = new ArrayList<String>( functionNames );
+    }
+
+    /**
+     * Remove the calls from a script independently of a Closure compilation, for the benefit of other compressors.
+     * 
+     * @param name the name of the script.
+     * @param code the script.
+     * @param functionNames the functions whose calls are to be removed.
+     * @return the script without the calls. The script is returned unchanged if there are no calls to remove or if it
+     *         cannot be parsed, leaving the compressor to report the problem. Other comments are lost in reprinting the
+     *         script, except for licence comments i.e. those starting with /*! which are moved ahead of the code.
+     */
+    public static String strip( String name, String code, Collection<String> functionNames )
+    {
+        com.google.javascript.jscomp.Compiler compiler = ClosureCompilers.create();
+        CompilerOptions options = new CompilerOptions();
+        options.setLanguageIn( LanguageMode.ECMASCRIPT5 );
+        SourceFile input = SourceFile.fromCode( name, code );
+        List<SourceFile> noExterns = Collections.emptyList();
+        compiler.init( noExterns, Collections.singletonList( input ), options );
+
+        Node root = compiler.parse( input );
+        if ( root == null || compiler.hasErrors() )
+        {
+            return code;
+        }
+
+        if ( !new DebugCallStripper( compiler, functionNames ).strip( root ) )
+        {
+            return code;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        Matcher licenseComment = LICENSE_COMMENT.matcher( code );
+        while ( licenseComment.find() )
+        {
+            sb.append( licenseComment.group() ).append( '\n' );
+        }
+        com.google.javascript.jscomp.Compiler.CodeBuilder codeBuilder =
+            new com.google.javascript.jscomp.Compiler.CodeBuilder();
+        compiler.toSource( codeBuilder, 0, root );
+        return sb.append( codeBuilder.toString() ).toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void process( Node externs, Node root )
+    {
+        if ( strip( root ) )
+        {
+            compiler.reportCodeChange();
+        }
+    }
+
+    /**
+     * Remove the calls within a tree.
+     * 
+     * @param root the tree.
+     * @return true if any calls were removed.
+     */
+    private boolean strip( Node root )
+    {
+        List<Node> calls = new ArrayList<Node>();
+        findCalls( root, calls );
+
+        for ( Node call : calls )
+        {
+            Node parent = call.getParent();
+            Node statementParent = parent.getParent();
+            if ( parent.getType() == Token.EXPR_RESULT
+                && ( statementParent.getType() == Token.BLOCK || statementParent.getType() == Token.SCRIPT ) )
+            {
+                statementParent.removeChild( parent );
+            }
+            else
+            {
+                parent.replaceChild( call, new Node( Token.VOID, Node.newNumber( 0 ) ) );
+            }
+        }
+
+        return !calls.isEmpty();
+    }
+
+    /**
+     * Find the outermost calls to remove. Calls nested within the arguments of those are removed along with them.
+     */
+    private void findCalls( Node node, List<Node> calls )
+    {
+        if ( node.getType() == Token.CALL && isStripped( node.getFirstChild() ) )
+        {
+            calls.add( node );
+            return;
+        }
+        for ( Node child = node.getFirstChild(); child != null; child = child.getNext() )
+        {
+            findCalls( child, calls );
+        }
+    }
+
+    private boolean isStripped( Node function )
+    {
+        if ( !function.isQualifiedName() )
+        {
+            return false;
+        }
+        String qualifiedName = function.getQualifiedName();
+        for ( String functionName : functionNames )
+        {
+            if ( functionName.endsWith( "*" ) )
+            {
+                if ( qualifiedName.startsWith( functionName.substring( 0, functionName.length() - 1 ) ) )
+                {
+                    return true;
+                }
+            }
+            else if ( qualifiedName.equals( functionName ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
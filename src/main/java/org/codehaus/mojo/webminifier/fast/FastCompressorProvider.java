@@ -0,0 +1,68 @@
+package org.codehaus.mojo.webminifier.fast;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.AbstractCompressor;
+import org.codehaus.mojo.webminifier.CompressorProvider;
+
+/**
+ * Provides the FAST compressor, which has no options.
+ */
+public class FastCompressorProvider
+    implements CompressorProvider
+{
+    /**
+     * {@inheritDoc}
+     */
+    public String getName()
+    {
+        return "FAST";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isPerFileSafe()
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public AbstractCompressor createCompressor( InputStream source, OutputStream target, String encoding,
+                                                Log logger, Map<String, String> options )
+    {
+        return new FastJsCompressor( source, target, encoding, logger );
+    }
+}
@@ -0,0 +1,301 @@
+package org.codehaus.mojo.webminifier.fast;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.AbstractCompressor;
+import org.codehaus.mojo.webminifier.JsScanner;
+
+/**
+ * Removes the comments and whitespace of a script in a single streaming pass, without parsing it. String, template
+ * and regular expression literals are copied as they are, and line breaks are kept where removing them could change
+ * how semicolons are inserted. Comments beginning with /*! are kept as they generally hold licenses. Identifiers are
+ * not renamed and no other optimisations are made, so compression is far faster, but less effective, than that of the
+ * other compressors. Literals and comments are told apart from code by a {@link JsScanner}, with its limitations.
+ */
+public class FastJsCompressor
+    extends AbstractCompressor
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The name given to the script in diagnostics.
+     */
+    private static final String SOURCE_NAME = "input";
+
+    private final char[] outputBuffer = new char[BUFFER_SIZE];
+
+    private int outputPosition;
+
+    private JsScanner scanner;
+
+    private Writer writer;
+
+    /**
+     * The last character written, ignoring whitespace, or EOF if none.
+     */
+    private int lastChar;
+
+    /**
+     * The last token written was a regular expression, whose flags may follow.
+     */
+    private boolean lastRegex;
+
+    /**
+     * The last thing written was a license comment, after which a line break of the script is kept as it is.
+     */
+    private boolean lastLicense;
+
+    /**
+     * The block comment being read is a license comment, which is copied.
+     */
+    private boolean inLicense;
+
+    /**
+     * The last character read began a block comment.
+     */
+    private boolean commentStart;
+
+    private boolean pendingSpace;
+
+    private boolean pendingLineBreak;
+
+    /**
+     * Construct the compressor.
+     * 
+     * @param source js to read.
+     * @param target js to write.
+     * @param encoding js file encoding to read/write.
+     * @param logger where to log problems.
+     */
+    public FastJsCompressor( InputStream source, OutputStream target, String encoding, Log logger )
+    {
+        super( source, target, encoding, logger );
+    }
+
+    @Override
+    public void compress()
+        throws IOException
+    {
+        Reader reader = new InputStreamReader( source, encoding );
+        try
+        {
+            writer = new OutputStreamWriter( target, encoding );
+            try
+            {
+                minify( reader );
+                writer.write( outputBuffer, 0, outputPosition );
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private void minify( Reader reader )
+        throws IOException
+    {
+        scanner = new JsScanner( reader );
+        outputPosition = 0;
+        lastChar = JsScanner.EOF;
+        lastRegex = false;
+        lastLicense = false;
+        inLicense = false;
+        commentStart = false;
+        pendingSpace = false;
+        pendingLineBreak = false;
+
+        int c;
+        do
+        {
+            c = scanner.next();
+            switch ( scanner.getState() )
+            {
+                case JsScanner.STRING:
+                case JsScanner.REGEX:
+                    copyLiteral( c );
+                    break;
+                case JsScanner.LINE_COMMENT:
+                    // The line terminator is left to be read as whitespace.
+                    pendingSpace = true;
+                    break;
+                case JsScanner.BLOCK_COMMENT:
+                    readBlockComment( c );
+                    break;
+                default:
+                    if ( c > ' ' && c <= '~' )
+                    {
+                        // Neither whitespace nor a line terminator, which is by far the most common case.
+                        writeSeparator( c );
+                        writeToken( c );
+                    }
+                    else if ( JsScanner.isLineTerminator( c ) )
+                    {
+                        pendingLineBreak = true;
+                    }
+                    else if ( JsScanner.isWhitespace( c ) )
+                    {
+                        pendingSpace = true;
+                    }
+                    else if ( c != JsScanner.EOF )
+                    {
+                        writeSeparator( c );
+                        writeToken( c );
+                    }
+                    break;
+            }
+            if ( scanner.getError() != null )
+            {
+                diagnostics.error( scanner.getError(), SOURCE_NAME, scanner.getStartLine(), -1 );
+            }
+        }
+        while ( c != JsScanner.EOF );
+    }
+
+    /**
+     * Write the whitespace, if any, needed before a token and reset the pending whitespace.
+     * 
+     * @param c the first character of the token.
+     */
+    private void writeSeparator( int c )
+        throws IOException
+    {
+        if ( pendingLineBreak && ( lastLicense || ( mayEndStatement( lastChar ) && mayStartStatement( c ) ) ) )
+        {
+            emit( '\n' );
+        }
+        else if ( ( pendingSpace || pendingLineBreak ) && needsSpace( lastChar, c ) )
+        {
+            emit( ' ' );
+        }
+        pendingSpace = false;
+        pendingLineBreak = false;
+        lastLicense = false;
+    }
+
+    /**
+     * Write a character of an identifier, number, operator or punctuator.
+     */
+    private void writeToken( int c )
+        throws IOException
+    {
+        // The flags of a regular expression are identifier characters.
+        lastRegex = lastRegex && JsScanner.isIdentifierChar( c );
+        emit( c );
+        lastChar = c;
+    }
+
+    private void copyLiteral( int c )
+        throws IOException
+    {
+        if ( scanner.isStart() )
+        {
+            writeSeparator( c );
+        }
+        emit( c );
+        if ( scanner.isEnd() )
+        {
+            lastChar = c;
+            lastRegex = scanner.getState() == JsScanner.REGEX;
+        }
+    }
+
+    private void readBlockComment( int c )
+        throws IOException
+    {
+        if ( commentStart && scanner.peek() == '!' )
+        {
+            // Line breaks around the comment are kept only where the script has them, as adding one after e.g.
+            // return would change the meaning of the script.
+            inLicense = true;
+            if ( pendingLineBreak && lastChar != JsScanner.EOF )
+            {
+                emit( '\n' );
+            }
+            pendingSpace = false;
+            pendingLineBreak = false;
+            emit( '/' );
+        }
+        if ( inLicense )
+        {
+            emit( c );
+        }
+        if ( JsScanner.isLineTerminator( c ) )
+        {
+            // A comment spanning lines is a line terminator as far as semicolon insertion is concerned.
+            pendingLineBreak = true;
+        }
+        commentStart = scanner.isStart();
+        if ( scanner.isEnd() )
+        {
+            pendingSpace = true;
+            lastLicense = inLicense;
+            inLicense = false;
+        }
+    }
+
+    private boolean needsSpace( int a, int b )
+    {
+        return ( JsScanner.isIdentifierChar( a ) && JsScanner.isIdentifierChar( b ) ) || ( a == '+' && b == '+' )
+            || ( a == '-' && b == '-' ) || ( a == '/' && b == '/' ) || ( isDigit( a ) && b == '.' )
+            || ( a == '/' && lastRegex && JsScanner.isIdentifierChar( b ) );
+    }
+
+    private boolean mayEndStatement( int c )
+    {
+        return JsScanner.isIdentifierChar( c ) || c == ')' || c == ']' || c == '}' || c == '"' || c == '\''
+            || c == '`' || c == '+' || c == '-' || ( c == '/' && lastRegex );
+    }
+
+    private static boolean mayStartStatement( int c )
+    {
+        return JsScanner.isIdentifierChar( c ) || c == '(' || c == '[' || c == '{' || c == '"' || c == '\''
+            || c == '`' || c == '+' || c == '-' || c == '!' || c == '~' || c == '/';
+    }
+
+    private static boolean isDigit( int c )
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private void emit( int c )
+        throws IOException
+    {
+        if ( outputPosition == BUFFER_SIZE )
+        {
+            writer.write( outputBuffer, 0, BUFFER_SIZE );
+            outputPosition = 0;
+        }
+        outputBuffer[outputPosition++] = (char) c;
+    }
+}
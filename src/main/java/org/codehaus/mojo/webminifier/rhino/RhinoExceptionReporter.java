@@ -19,50 +19,34 @@ package org.codehaus.mojo.webminifier.rhino;
  * under the License.    
  */
 
-import org.apache.maven.plugin.logging.Log;
-import org.codehaus.mojo.webminifier.ExceptionState;
+import org.codehaus.mojo.webminifier.Diagnostics;
 import org.mozilla.javascript.ErrorReporter;
 import org.mozilla.javascript.EvaluatorException;
 
 /**
- * A Rhino compatible error reporter.
+ * A Rhino compatible error reporter that reports to diagnostics.
  */
 public class RhinoExceptionReporter
-    extends ExceptionState
     implements ErrorReporter
 {
-    private final Log logger;
+    private final Diagnostics diagnostics;
 
     /**
-     * @param logger the logger to use for reporting.
+     * @param diagnostics where to report problems.
      */
-    public RhinoExceptionReporter( Log logger )
+    public RhinoExceptionReporter( Diagnostics diagnostics )
     {
         super();
-        this.logger = logger;
+        this.diagnostics = diagnostics;
     }
 
-    private String constructMessage( String type, String message, String sourceName, int line, String lineSource,
-                                     int lineOffset )
+    private String constructMessage( String message, String lineSource )
     {
-        StringBuilder stringBuilder = new StringBuilder();
-
-        stringBuilder.append( type );
-
-        if ( message != null )
-        {
-            stringBuilder.append( ": " + message );
-        }
-
-        if ( sourceName != null && lineSource != null )
+        if ( message != null && lineSource != null )
         {
-            stringBuilder.append( " - " + sourceName );
-            stringBuilder.append( ":" + Integer.valueOf( line ) );
-            stringBuilder.append( ":" + Integer.valueOf( lineOffset ) );
-            stringBuilder.append( ":" + lineSource );
+            return message + ": " + lineSource;
         }
-
-        return stringBuilder.toString();
+        return message;
     }
 
     /**
@@ -70,8 +54,7 @@ public class RhinoExceptionReporter
      */
     public void error( String message, String sourceName, int line, String lineSource, int lineOffset )
     {
-        signalErrors();
-        logger.error( constructMessage( "Error", message, sourceName, line, lineSource, lineOffset ) );
+        diagnostics.error( constructMessage( message, lineSource ), sourceName, line, lineOffset );
     }
 
     /**
@@ -80,8 +63,7 @@ public class RhinoExceptionReporter
     public EvaluatorException runtimeError( String message, String sourceName, int line, String lineSource,
                                             int lineOffset )
     {
-        signalErrors();
-        logger.error( constructMessage( "Runtime error", message, sourceName, line, lineSource, lineOffset ) );
+        diagnostics.error( constructMessage( message, lineSource ), sourceName, line, lineOffset );
         return new EvaluatorException( message, sourceName, line, lineSource, lineOffset );
     }
 
@@ -90,7 +72,6 @@ public class RhinoExceptionReporter
      */
     public void warning( String message, String sourceName, int line, String lineSource, int lineOffset )
     {
-        signalWarnings();
-        logger.warn( constructMessage( "Warning", message, sourceName, line, lineSource, lineOffset ) );
+        diagnostics.warning( constructMessage( message, lineSource ), sourceName, line, lineOffset );
     }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package org.codehaus.mojo.webminifier.yui;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.AbstractCompressor;
+import org.codehaus.mojo.webminifier.CompressorOptions;
+import org.codehaus.mojo.webminifier.CompressorProvider;
+
+/**
+ * Provides the YUI compressor.
+ */
+public class YuiCompressorProvider
+    implements CompressorProvider
+{
+    /** Insert a line break after this many columns, or -1 for none. */
+    public static final String LINEBREAK = "linebreak";
+
+    /** Rename local symbols, true by default. */
+    public static final String MUNGE = "munge";
+
+    /** Keep all semicolons. */
+    public static final String PRESERVE_SEMI = "preserveSemi";
+
+    /** Disable micro optimisations. */
+    public static final String DISABLE_OPTIMIZATIONS = "disableOptimizations";
+
+    /** The functions whose calls are to be removed, as a comma separated list. */
+    public static final String STRIP_CALLS = "stripCalls";
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getName()
+    {
+        return "YUI";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isPerFileSafe()
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public AbstractCompressor createCompressor( InputStream source, OutputStream target, String encoding,
+                                                Log logger, Map<String, String> options )
+    {
+        YuiJsCompressor compressor = new YuiJsCompressor( source, target, encoding, logger );
+        compressor.setOptions( CompressorOptions.getInt( options, LINEBREAK, -1 ),
+                               CompressorOptions.getBoolean( options, MUNGE, true ),
+                               CompressorOptions.getBoolean( options, PRESERVE_SEMI, false ),
+                               CompressorOptions.getBoolean( options, DISABLE_OPTIMIZATIONS, false ) );
+        compressor.setStripCalls( CompressorOptions.getList( options, STRIP_CALLS ) );
+        return compressor;
+    }
+}
@@ -24,9 +24,16 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.mojo.webminifier.AbstractCompressor;
+import org.codehaus.mojo.webminifier.closure.DebugCallStripper;
 import org.codehaus.mojo.webminifier.rhino.RhinoExceptionReporter;
 
 import com.yahoo.platform.yui.compressor.JavaScriptCompressor;
@@ -45,6 +52,8 @@ public class YuiJsCompressor
 
     private boolean yuiDisableOptimizations;
 
+    private List<String> stripCalls = Collections.emptyList();
+
     /**
      * Constructor
      * 
@@ -65,13 +74,19 @@ public class YuiJsCompressor
         InputStreamReader resourceReader = new InputStreamReader( source, encoding );
         try
         {
+            Reader scriptReader = resourceReader;
+            if ( !stripCalls.isEmpty() )
+            {
+                String script = IOUtils.toString( resourceReader );
+                scriptReader = new StringReader( DebugCallStripper.strip( "input", script, stripCalls ) );
+            }
+
             OutputStreamWriter resourceWriter = new OutputStreamWriter( target, encoding );
             try
             {
                 // Setup JavaScriptCompressor and compress JS
-                exceptionState = new RhinoExceptionReporter( logger );
                 JavaScriptCompressor compressor =
-                    new JavaScriptCompressor( resourceReader, (RhinoExceptionReporter) exceptionState );
+                    new JavaScriptCompressor( scriptReader, new RhinoExceptionReporter( diagnostics ) );
                 compressor.compress( resourceWriter, yuiLinebreak, yuiMunge, false, yuiPreserveSemi,
                                      yuiDisableOptimizations );
             }
@@ -103,4 +118,13 @@ public class YuiJsCompressor
         this.yuiDisableOptimizations = yuiDisableOptimizationsParam;
     }
 
+    /**
+     * @param stripCallsParam the functions whose calls are to be removed before compressing e.g. console.* or
+     *            debugLog.
+     */
+    public void setStripCalls( List<String> stripCallsParam )
+    {
+        this.stripCalls = new ArrayList<String>( stripCallsParam );
+    }
+
 }
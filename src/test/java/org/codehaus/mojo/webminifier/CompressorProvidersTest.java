@@ -0,0 +1,102 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.yui.YuiCompressorProvider;
+import org.junit.Test;
+
+/**
+ * Test the discovery of compressors.
+ */
+public class CompressorProvidersTest
+{
+    /**
+     * The compressors of the plugin should be discovered and looked up regardless of case.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testLoad()
+        throws IOException
+    {
+        CompressorProviders providers = CompressorProviders.load();
+
+        assertTrue( providers.getNames().containsAll( Arrays.asList( "YUI", "CLOSURE", "FAST" ) ) );
+        assertEquals( "FAST", providers.get( "fast" ).getName() );
+        assertNotNull( providers.get( "Closure" ) );
+        assertNull( providers.get( "unknown" ) );
+    }
+
+    /**
+     * A compressor should be created with the options given.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCreateCompressor()
+        throws IOException
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put( YuiCompressorProvider.MUNGE, "false" );
+        options.put( YuiCompressorProvider.STRIP_CALLS, "console.log" );
+        options.put( "unrecognised", "ignored" );
+
+        String script = "function f( longName ) { console.log( longName ); return longName; }";
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        CompressorProvider provider = CompressorProviders.load().get( "YUI" );
+        AbstractCompressor compressor =
+            provider.createCompressor( new ByteArrayInputStream( script.getBytes( "UTF-8" ) ), target, "UTF-8",
+                                       mock( Log.class ), options );
+        compressor.compress();
+
+        assertEquals( "function f(longName){return longName};", target.toString( "UTF-8" ) );
+    }
+
+    /**
+     * An invalid option should be rejected.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test( expected = IllegalArgumentException.class )
+    public void testInvalidOption()
+        throws IOException
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put( YuiCompressorProvider.LINEBREAK, "wide" );
+
+        CompressorProviders.load().get( "YUI" ).createCompressor( new ByteArrayInputStream( new byte[0] ),
+                                                                   new ByteArrayOutputStream(), "UTF-8",
+                                                                   mock( Log.class ), options );
+    }
+}
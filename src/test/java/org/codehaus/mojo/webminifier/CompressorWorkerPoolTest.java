@@ -0,0 +1,166 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test compressing in forked JVMs.
+ */
+public class CompressorWorkerPoolTest
+{
+    private CompressorWorkerPool pool;
+
+    /**
+     * Start with a pool of one worker.
+     */
+    @Before
+    public void setUpPool()
+    {
+        pool = new CompressorWorkerPool( Arrays.asList( new String[] { "-Xmx64m" } ), 1, 0L, mock( Log.class ) );
+    }
+
+    /**
+     * Tidy up.
+     */
+    @After
+    public void tearDownPool()
+    {
+        pool.close();
+    }
+
+    /**
+     * Scripts should be compressed by the same worker, one after another.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testCompress()
+        throws Exception
+    {
+        Map<String, String> options = Collections.emptyMap();
+        Diagnostics diagnostics = new Diagnostics( mock( Log.class ), false );
+
+        byte[] compressed =
+            pool.compress( "YUI", "UTF-8", options, "var a = 1;\n\nvar b = 2;\n".getBytes( "UTF-8" ), diagnostics );
+        assertEquals( "var a=1;var b=2;", new String( compressed, "UTF-8" ) );
+        compressed = pool.compress( "YUI", "UTF-8", options, "function f( x ) { return x; }".getBytes( "UTF-8" ),
+                                    diagnostics );
+        assertEquals( "function f(a){return a};", new String( compressed, "UTF-8" ) );
+        assertFalse( diagnostics.hasErrors() );
+        assertEquals( 1, pool.getWorkerCount() );
+    }
+
+    /**
+     * The problems found by a worker should be reported as if the script had been compressed without forking.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testCompressError()
+        throws Exception
+    {
+        Map<String, String> options = Collections.emptyMap();
+        Diagnostics diagnostics = new Diagnostics( mock( Log.class ), false );
+        Diagnostics bundleDiagnostics = diagnostics.forBundle( "YUI", "1.js" );
+
+        assertNull( pool.compress( "YUI", "UTF-8", options, "var = ;".getBytes( "UTF-8" ), bundleDiagnostics ) );
+        assertTrue( bundleDiagnostics.hasErrors() );
+        assertEquals( "1.js", diagnostics.getDiagnostics().get( 0 ).getBundle() );
+
+        // The worker should survive to compress the next script.
+        assertEquals( "var a=1;", new String( pool.compress( "YUI", "UTF-8", options, "var a = 1;".getBytes( "UTF-8" ),
+                                                             diagnostics ), "UTF-8" ) );
+        assertEquals( 1, pool.getWorkerCount() );
+    }
+
+    /**
+     * A worker that has died between scripts should be replaced without the next script failing.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testWorkerRestarted()
+        throws Exception
+    {
+        Map<String, String> options = Collections.emptyMap();
+        Diagnostics diagnostics = new Diagnostics( mock( Log.class ), false );
+
+        pool.compress( "YUI", "UTF-8", options, "var a = 1;".getBytes( "UTF-8" ), diagnostics );
+        pool.destroyWorkerProcesses();
+        byte[] compressed = pool.compress( "YUI", "UTF-8", options, "var b = 2;".getBytes( "UTF-8" ), diagnostics );
+        assertEquals( "var b=2;", new String( compressed, "UTF-8" ) );
+        assertFalse( diagnostics.hasErrors() );
+    }
+
+    /**
+     * A worker taking longer than the timeout should be stopped and the compression should fail.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testTimeout()
+        throws Exception
+    {
+        pool.close();
+        pool = new CompressorWorkerPool( Arrays.asList( new String[] { "-Xmx64m" } ), 1, 1L, mock( Log.class ) );
+        Map<String, String> options = Collections.emptyMap();
+        try
+        {
+            pool.compress( "YUI", "UTF-8", options, "var a = 1;".getBytes( "UTF-8" ),
+                           new Diagnostics( mock( Log.class ), false ) );
+            fail( "Expected the worker to time out" );
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "timed out" ) );
+        }
+    }
+
+    /**
+     * A closed pool should not start workers.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test( expected = IOException.class )
+    public void testClosed()
+        throws Exception
+    {
+        pool.close();
+        Map<String, String> options = Collections.emptyMap();
+        pool.compress( "YUI", "UTF-8", options, "var a = 1;".getBytes( "UTF-8" ),
+                       new Diagnostics( mock( Log.class ), false ) );
+    }
+}
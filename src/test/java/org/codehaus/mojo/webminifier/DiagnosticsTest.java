@@ -0,0 +1,149 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the collection of diagnostics.
+ */
+public class DiagnosticsTest
+{
+    private Log logger;
+
+    /**
+     * Setup the tests.
+     */
+    @Before
+    public void setUp()
+    {
+        logger = mock( Log.class );
+    }
+
+    /**
+     * Each scope should know of its own problems while the collector knows of them all.
+     */
+    @Test
+    public void testScopes()
+    {
+        Diagnostics diagnostics = new Diagnostics( logger, false );
+        Diagnostics a = diagnostics.forBundle( "CLOSURE", "a.js" );
+        Diagnostics b = diagnostics.forBundle( "CLOSURE", "b.js" );
+
+        a.warning( "Suspicious code", "input", 1, 4 );
+        b.error( "Parse error", "input", 2, 0 );
+
+        assertTrue( a.hasWarnings() );
+        assertFalse( a.hasErrors() );
+        assertTrue( b.hasErrors() );
+        assertFalse( b.hasWarnings() );
+        assertTrue( diagnostics.hasErrors() );
+        assertTrue( diagnostics.hasWarnings() );
+        assertEquals( 2, a.getDiagnostics().size() );
+        assertFalse( diagnostics.isCancelled() );
+
+        verify( logger ).error( "Error: Parse error - b.js (input:2:0)" );
+    }
+
+    /**
+     * Warnings sharing a message should be summarised in one line, most frequent first.
+     */
+    @Test
+    public void testSummary()
+    {
+        Diagnostics diagnostics = new Diagnostics( logger, false );
+        Diagnostics a = diagnostics.forBundle( "CLOSURE", "a.js" );
+        Diagnostics b = diagnostics.forBundle( "CLOSURE", "b.js" );
+
+        a.warning( "Rare", "input", 1, 0 );
+        for ( int i = 0; i < 1000; ++i )
+        {
+            a.warning( "Common", "input", 2, 0 );
+            b.warning( "Common", "input", 3, 0 );
+        }
+        b.warning( "Another", "input", 4, 0 );
+
+        diagnostics.logSummary( 2 );
+
+        verify( logger ).warn( "Warning: Common - a.js (input:2:0) and 1 other place(s) [reported 2000 times]" );
+        verify( logger ).warn( "Warning: Rare - a.js (input:1:0)" );
+        verify( logger ).warn( "... and 1 more distinct warning(s)" );
+        verify( logger ).info( "0 error(s) and 2002 warning(s) reported" );
+    }
+
+    /**
+     * When failing fast, the first error should cancel the collector, once.
+     */
+    @Test
+    public void testFailFast()
+    {
+        final AtomicInteger cancellations = new AtomicInteger();
+        Diagnostics diagnostics = new Diagnostics( logger, true );
+        diagnostics.addCancellationListener( new Runnable()
+        {
+            public void run()
+            {
+                cancellations.incrementAndGet();
+            }
+        } );
+        Diagnostics a = diagnostics.forBundle( "YUI", "a.js" );
+
+        a.warning( "Suspicious code", null, 0, -1 );
+        assertFalse( diagnostics.isCancelled() );
+
+        a.error( "Parse error", null, 0, -1 );
+        a.error( "Another parse error", null, 0, -1 );
+        assertTrue( a.isCancelled() );
+        assertEquals( 1, cancellations.get() );
+
+        verify( logger, times( 1 ) ).error( "Error: Parse error - a.js" );
+    }
+
+    /**
+     * A recording scope should record each report to it and to the scopes obtained from it, and nothing else.
+     */
+    @Test
+    public void testRecording()
+    {
+        Diagnostics diagnostics = new Diagnostics( logger, false );
+        List<Diagnostic> record = new ArrayList<Diagnostic>();
+        Diagnostics bundle = diagnostics.recordingTo( record ).forBundle( "YUI", "1.js" );
+        bundle.warning( "Unused", "a.js", 1, 0 );
+        bundle.warning( "Unused", "a.js", 1, 0 );
+        diagnostics.forBundle( "YUI", "2.js" ).warning( "Unused", "b.js", 1, 0 );
+
+        assertEquals( 2, record.size() );
+        assertEquals( "1.js", record.get( 0 ).getBundle() );
+        assertEquals( 2, diagnostics.getDiagnostics().size() );
+    }
+}
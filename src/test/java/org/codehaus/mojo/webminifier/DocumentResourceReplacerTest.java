@@ -20,6 +20,8 @@ package org.codehaus.mojo.webminifier;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
@@ -30,6 +32,7 @@ import java.util.List;
 
 import javax.xml.transform.TransformerException;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.xml.sax.SAXException;
@@ -95,6 +98,106 @@ public class DocumentResourceReplacerTest
         assertEquals( "d.js", jsFiles.get( 0 ).getName() );
     }
 
+    /**
+     * Test that script options are reflected in the elements written out.
+     * 
+     * @throws URISyntaxException if something goes wrong.
+     * @throws IOException if something goes wrong.
+     * @throws TransformerException if something goes wrong.
+     */
+    @Test
+    public void testReplaceJSReferencesWithOptions()
+        throws URISyntaxException, IOException, TransformerException
+    {
+        URL url = DocumentResourceReplacer.class.getResource( "d.js" );
+        File js = new File( url.toURI() );
+        List<ScriptReference> scriptReferences = new ArrayList<ScriptReference>( 1 );
+        scriptReferences.add( new ScriptReference( js, ScriptReference.parseOptions( "body, defer, preload" ) ) );
+        replacer.replaceJSReferences( html.getParentFile(), html, scriptReferences );
+
+        File htmlFile = File.createTempFile( "tempHtml", ".html" );
+        replacer.writeHTML( htmlFile, "UTF-8" );
+        String htmlSource = FileUtils.readFileToString( htmlFile, "UTF-8" );
+        htmlFile.delete();
+
+        String head = htmlSource.replaceFirst( "(?is).*<head>(.*)</head>.*", "$1" );
+        assertTrue( head.matches( "(?is).*<link[^>]* href=\"d.js\"[^>]* rel=\"preload\">.*" ) );
+        assertFalse( head.matches( "(?is).*<script.*" ) );
+
+        String body = htmlSource.replaceFirst( "(?is).*<body>(.*)</body>.*", "$1" );
+        assertTrue( body.matches( "(?is).*<script defer src=\"d.js\"[^>]*>.*" ) );
+    }
+
+    /**
+     * Test that inlined scripts are embedded without escaping and cannot close their own element.
+     * 
+     * @throws URISyntaxException if something goes wrong.
+     * @throws IOException if something goes wrong.
+     * @throws TransformerException if something goes wrong.
+     */
+    @Test
+    public void testReplaceJSReferencesInline()
+        throws URISyntaxException, IOException, TransformerException
+    {
+        URL url = DocumentResourceReplacer.class.getResource( "d.js" );
+        File js = new File( url.toURI() );
+        List<ScriptReference> scriptReferences = new ArrayList<ScriptReference>( 1 );
+        scriptReferences.add( new ScriptReference( js, ScriptReference.parseOptions( null ),
+                                                   "if(a<b&&c){d(\"</script>\")}" ) );
+        replacer.replaceJSReferences( html.getParentFile(), html, scriptReferences );
+
+        File htmlFile = File.createTempFile( "tempHtml", ".html" );
+        replacer.writeHTML( htmlFile, "UTF-8" );
+        String htmlSource = FileUtils.readFileToString( htmlFile, "UTF-8" );
+        htmlFile.delete();
+
+        assertTrue( htmlSource.contains( ">if(a<b&&c){d(\"<\\/script>\")}</SCRIPT>" ) );
+        assertFalse( htmlSource.contains( "src=" ) );
+    }
+
+    /**
+     * Test that literals and comments are escaped with a backslash while code is escaped with a space.
+     */
+    @Test
+    public void testEscapeInlineScript()
+    {
+        assertEquals( "d('<\\!--');e(\"<\\/SCRIPT>\")", //
+                      DocumentResourceReplacer.escapeInlineScript( "d('<!--');e(\"</SCRIPT>\")" ) );
+        assertEquals( "if(a< !--b){c=/<\\!--/}",
+                      DocumentResourceReplacer.escapeInlineScript( "if(a<!--b){c=/<!--/}" ) );
+        assertEquals( "x=a< /script/.test(b)//<\\/script\n",
+                      DocumentResourceReplacer.escapeInlineScript( "x=a</script/.test(b)//</script\n" ) );
+        assertEquals( "m=1/*<\\!--*/;r=`<\\/script>`",
+                      DocumentResourceReplacer.escapeInlineScript( "m=1/*<!--*/;r=`</script>`" ) );
+    }
+
+    /**
+     * Test that lazy scripts are loaded by a generated loader instead of being declared.
+     * 
+     * @throws URISyntaxException if something goes wrong.
+     * @throws IOException if something goes wrong.
+     * @throws TransformerException if something goes wrong.
+     */
+    @Test
+    public void testReplaceJSReferencesLazy()
+        throws URISyntaxException, IOException, TransformerException
+    {
+        URL url = DocumentResourceReplacer.class.getResource( "d.js" );
+        File js = new File( url.toURI() );
+        List<ScriptReference> scriptReferences = new ArrayList<ScriptReference>( 1 );
+        scriptReferences.add( new ScriptReference( js, ScriptReference.parseOptions( "lazy" ) ) );
+        replacer.replaceJSReferences( html.getParentFile(), html, scriptReferences );
+
+        File htmlFile = File.createTempFile( "tempHtml", ".html" );
+        replacer.writeHTML( htmlFile, "UTF-8" );
+        String htmlSource = FileUtils.readFileToString( htmlFile, "UTF-8" );
+        htmlFile.delete();
+
+        assertFalse( htmlSource.contains( "src=\"" ) );
+        String body = htmlSource.replaceFirst( "(?is).*<body>(.*)</body>.*", "$1" );
+        assertTrue( body.contains( "})([\"d.js\"]);</SCRIPT>" ) );
+    }
+
     /**
      * Test that we can successfully write out the html document.
      * 
@@ -107,7 +210,7 @@ public class DocumentResourceReplacerTest
     {
         File htmlFile = File.createTempFile( "tempHtml", ".html" );
         replacer.writeHTML( htmlFile, "UTF-8" );
-        final long expectedLength = 535L;
+        final long expectedLength = 525L;
         assertEquals( expectedLength, htmlFile.length() );
         htmlFile.delete();
     }
@@ -0,0 +1,229 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+
+/**
+ * Test the determination of what a minification depends on, and the preparation of incremental builds.
+ */
+public class IncrementalBuildTest
+{
+    private File folder;
+
+    private MinifierConfiguration configuration;
+
+    /**
+     * Start with empty source and destination folders.
+     */
+    @Before
+    public void setUpFolder()
+    {
+        folder = new File( System.getProperty( "java.io.tmpdir" ), "IncrementalBuildTest" );
+        FileUtils.deleteQuietly( folder );
+        configuration = new MinifierConfiguration();
+        configuration.setSourceFolder( new File( folder, "source" ) );
+        configuration.setDestinationFolder( new File( folder, "destination" ) );
+        configuration.setPageGraphFile( new File( folder, "pages" ) );
+        configuration.setPluginVersion( "1.0" );
+    }
+
+    /**
+     * Tidy up.
+     */
+    @After
+    public void tearDownFolder()
+    {
+        FileUtils.deleteQuietly( folder );
+    }
+
+    private IncrementalBuild createIncrementalBuild()
+    {
+        return new IncrementalBuild( configuration, new DefaultBuildContext(), mock( Log.class ) );
+    }
+
+    private void write( String folderName, String path, String content )
+        throws IOException
+    {
+        FileUtils.writeStringToFile( new File( new File( folder, folderName ), path ), content, "UTF-8" );
+    }
+
+    private String read( String folderName, String path )
+        throws IOException
+    {
+        return FileUtils.readFileToString( new File( new File( folder, folderName ), path ), "UTF-8" );
+    }
+
+    /**
+     * The configuration fingerprint should change with the configuration, as it was when the build was created, and
+     * with the content of the externs, but not with the order in which properties were declared.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testConfigurationFingerprint()
+        throws IOException
+    {
+        File extern = new File( folder, "externs.js" );
+        FileUtils.writeStringToFile( extern, "var a;", "UTF-8" );
+        configuration.setClosureExterns( Collections.singletonList( extern ) );
+        Properties defines = new Properties();
+        defines.setProperty( "a.js", "DEBUG=false" );
+        defines.setProperty( "b.js", "DEBUG=true" );
+        configuration.setClosureDefines( defines );
+        IncrementalBuild incrementalBuild = createIncrementalBuild();
+        String fingerprint = incrementalBuild.getConfigurationFingerprint();
+
+        configuration.setGzip( !configuration.isGzip() );
+        assertEquals( fingerprint, incrementalBuild.getConfigurationFingerprint() );
+        assertFalse( fingerprint.equals( createIncrementalBuild().getConfigurationFingerprint() ) );
+        configuration.setGzip( !configuration.isGzip() );
+
+        Properties reorderedDefines = new Properties();
+        reorderedDefines.setProperty( "b.js", "DEBUG=true" );
+        reorderedDefines.setProperty( "a.js", "DEBUG=false" );
+        configuration.setClosureDefines( reorderedDefines );
+        assertEquals( fingerprint, createIncrementalBuild().getConfigurationFingerprint() );
+
+        FileUtils.writeStringToFile( extern, "var b;", "UTF-8" );
+        assertFalse( fingerprint.equals( incrementalBuild.getConfigurationFingerprint() ) );
+    }
+
+    /**
+     * Each file of the source folder should have a digest of its content, by relative path.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testSourceDigests()
+        throws IOException
+    {
+        write( "source", "a.html", "<html/>" );
+        write( "source", "js/a.js", "var a;" );
+        IncrementalBuild incrementalBuild = createIncrementalBuild();
+        Map<String, String> sourceDigests = incrementalBuild.getSourceDigests();
+        assertEquals( Arrays.asList( "a.html", "js/a.js" ), Arrays.asList( sourceDigests.keySet().toArray() ) );
+        String fingerprint = IncrementalBuild.getFingerprint( "abc", sourceDigests );
+
+        write( "source", "js/a.js", "var b;" );
+        Map<String, String> changedSourceDigests = incrementalBuild.getSourceDigests();
+        assertEquals( sourceDigests.get( "a.html" ), changedSourceDigests.get( "a.html" ) );
+        assertFalse( sourceDigests.get( "js/a.js" ).equals( changedSourceDigests.get( "js/a.js" ) ) );
+        assertFalse( fingerprint.equals( IncrementalBuild.getFingerprint( "abc", changedSourceDigests ) ) );
+        assertFalse( fingerprint.equals( IncrementalBuild.getFingerprint( "def", sourceDigests ) ) );
+    }
+
+    /**
+     * The previous page graph should only be used if it was written for the same configuration, and not when forced.
+     * 
+     * @throws IOException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     */
+    @Test
+    public void testReadPageGraph()
+        throws IOException, MojoExecutionException
+    {
+        assertNull( createIncrementalBuild().readPageGraph( "abc" ) );
+
+        configuration.getDestinationFolder().mkdirs();
+        PageGraph pageGraph = new PageGraph();
+        pageGraph.setConfiguration( "abc" );
+        pageGraph.write( configuration.getPageGraphFile() );
+        assertNotNull( createIncrementalBuild().readPageGraph( "abc" ) );
+        assertNull( createIncrementalBuild().readPageGraph( "def" ) );
+
+        configuration.setForce( true );
+        assertNull( createIncrementalBuild().readPageGraph( "abc" ) );
+    }
+
+    /**
+     * Only the HTML files affected by changes should be minified again, with the files generated for them deleted and
+     * the scripts that they consumed restored.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testIncrementalBuild()
+        throws IOException
+    {
+        write( "source", "a.html", "<html>a</html>" );
+        write( "source", "b.html", "<html>b</html>" );
+        write( "source", "a.js", "var a;" );
+        write( "source", "b.js", "var b;" );
+        write( "destination", "a.html", "<html>1.js</html>" );
+        write( "destination", "b.html", "<html>2.js</html>" );
+        write( "destination", "1.js", "var a;" );
+        write( "destination", "2.js", "var b;" );
+
+        IncrementalBuild incrementalBuild = createIncrementalBuild();
+        PageGraph previousPageGraph = new PageGraph();
+        previousPageGraph.getSourceDigests().putAll( incrementalBuild.getSourceDigests() );
+        previousPageGraph.getSourceDigests().put( "a.js", "changed" );
+        PageGraph.Page page = previousPageGraph.addPage( "a.html" );
+        page.getInputs().add( "a.js" );
+        page.getConsumed().add( "a.js" );
+        page.getOutputs().add( "1.js" );
+        page = previousPageGraph.addPage( "b.html" );
+        page.getInputs().add( "b.js" );
+        page.getConsumed().add( "b.js" );
+        page.getOutputs().add( "2.js" );
+
+        PageGraph pageGraph = new PageGraph();
+        pageGraph.getSourceDigests().putAll( incrementalBuild.getSourceDigests() );
+        Set<String> changedFiles = incrementalBuild.copyChangedFiles( previousPageGraph, pageGraph );
+        assertEquals( Collections.singleton( "a.js" ), changedFiles );
+        Set<String> restoredFiles = new HashSet<String>();
+        assertEquals( Collections.singletonList( "a.html" ),
+                      incrementalBuild.restorePages( previousPageGraph, pageGraph, changedFiles,
+                                                     new String[] { "a.html", "b.html" }, restoredFiles ) );
+
+        assertEquals( "<html>a</html>", read( "destination", "a.html" ) );
+        assertEquals( "<html>2.js</html>", read( "destination", "b.html" ) );
+        assertEquals( "var a;", read( "destination", "a.js" ) );
+        assertEquals( "var b;", read( "destination", "b.js" ) );
+        assertFalse( new File( configuration.getDestinationFolder(), "1.js" ).exists() );
+        assertTrue( new File( configuration.getDestinationFolder(), "2.js" ).exists() );
+        assertEquals( Collections.singleton( "b.js" ), restoredFiles );
+        assertEquals( Collections.singleton( "b.html" ), pageGraph.getPages() );
+        assertEquals( Collections.singleton( "2.js" ), pageGraph.getPage( "b.html" ).getOutputs() );
+    }
+}
@@ -0,0 +1,128 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * Test telling code apart from literals and comments.
+ */
+public class JsScannerTest
+{
+    /**
+     * @param script the script to read.
+     * @return a letter for what each character belongs to: c for code, s for a string, r for a regular expression, l
+     *         for a line comment and b for a block comment.
+     * @throws IOException if something goes wrong.
+     */
+    private static String scan( String script )
+        throws IOException
+    {
+        StringBuilder states = new StringBuilder();
+        JsScanner scanner = new JsScanner( new StringReader( script ) );
+        while ( scanner.next() != JsScanner.EOF )
+        {
+            states.append( "csrlb".charAt( scanner.getState() ) );
+        }
+        return states.toString();
+    }
+
+    /**
+     * String and template literals should end at their own unescaped quote, and only template literals may span lines.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testStrings()
+        throws IOException
+    {
+        assertEquals( "ccsssssscssssss", scan( "a=\"/*\\\"\",'/\\'x'" ) );
+        assertEquals( "ccsssssc", scan( "a=`x\ny`;" ) );
+    }
+
+    /**
+     * Regular expressions should be told apart from division by the token before them.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testRegularExpressions()
+        throws IOException
+    {
+        assertEquals( "ccccccc", scan( "a=b/c/d" ) );
+        assertEquals( "ccrrrrrrrc", scan( "e=/[/]\\//g" ) );
+        assertEquals( "cccccccrrrc", scan( "return /x/g" ) );
+        assertEquals( "cccccrrr", scan( "a=b/ /c/" ) );
+        assertEquals( "ccccccc", scan( "n=i++/2" ) );
+        assertEquals( "ccccccrrr", scan( "k=a+ +/x/" ) );
+        assertEquals( "ccrrrccc", scan( "a=/x/g/2" ) );
+    }
+
+    /**
+     * Comments should be recognised wherever code is, and line comments should end before the line terminator.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testComments()
+        throws IOException
+    {
+        assertEquals( "cbbbbbbclllcc", scan( "a/*/ */b//c\nd" ) );
+        assertEquals( "ccsssslll", scan( "a=\"//\"//x" ) );
+    }
+
+    /**
+     * Unterminated literals and comments should be reported with the line that they began on.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testErrors()
+        throws IOException
+    {
+        JsScanner scanner = new JsScanner( new StringReader( "a;\nb='c\nd" ) );
+        while ( scanner.next() != '\n' || scanner.getState() != JsScanner.STRING )
+        {
+            assertNull( scanner.getError() );
+        }
+        assertEquals( "Unterminated string literal", scanner.getError() );
+        assertEquals( 2, scanner.getStartLine() );
+
+        scanner = new JsScanner( new StringReader( "x=/a\n" ) );
+        while ( scanner.next() != '\n' )
+        {
+            assertNull( scanner.getError() );
+        }
+        assertEquals( "Unterminated regular expression literal", scanner.getError() );
+
+        scanner = new JsScanner( new StringReader( "a; /* b" ) );
+        while ( scanner.next() != JsScanner.EOF )
+        {
+            assertNull( scanner.getError() );
+        }
+        assertEquals( "Unterminated comment", scanner.getError() );
+    }
+}
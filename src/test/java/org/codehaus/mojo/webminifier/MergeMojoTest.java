@@ -0,0 +1,176 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.mojo.webminifier.WebMinifierMojo.JsCompressorType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the merge mojo.
+ */
+public class MergeMojoTest
+{
+    private static final Pattern SRC = Pattern.compile( "src=\"([^\"]*)\"" );
+
+    private File folder;
+
+    /**
+     * Set up a project of two HTML files sharing a dependency.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Before
+    public void setUpProject()
+        throws Exception
+    {
+        folder = new File( System.getProperty( "java.io.tmpdir" ), "MergeMojoTest" );
+        FileUtils.deleteQuietly( folder );
+        File projectSourceFolder = new File( folder, "src" );
+        for ( String name : new String[] { "a", "b" } )
+        {
+            FileUtils.writeStringToFile( new File( projectSourceFolder, name + ".html" ),
+                                         "<html><head><script src=\"lib.js\"></script><script src=\"" + name
+                                             + ".js\"></script></head><body></body></html>" );
+            FileUtils.writeStringToFile( new File( projectSourceFolder, name + ".js" ), "var " + name + " = 1;" );
+        }
+        File sourceFolder = new File( folder, "classes" );
+        FileUtils.copyDirectory( projectSourceFolder, sourceFolder );
+        FileUtils.writeStringToFile( new File( sourceFolder, "lib.js" ), "var lib = 1;" );
+    }
+
+    /**
+     * Tidy up.
+     */
+    @After
+    public void tearDownProject()
+    {
+        FileUtils.deleteQuietly( folder );
+    }
+
+    /**
+     * Shards should each minify their own HTML files, and merging them should keep the shared dependency once.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testMerge()
+        throws Exception
+    {
+        List<File> shardFolders = new ArrayList<File>();
+        for ( int i = 0; i < 2; ++i )
+        {
+            WebMinifierMojo mojo = new WebMinifierMojo();
+            mojo.setSourceFolder( new File( folder, "classes" ) );
+            mojo.setProjectSourceFolder( new File( folder, "src" ) );
+            mojo.setDestinationFolder( new File( folder, "shard" + i ) );
+            mojo.setEncoding( "UTF-8" );
+            mojo.setJsCompressorType( JsCompressorType.YUI );
+            mojo.setYuiLinebreak( -1 );
+            mojo.setSplitDependencies( true );
+            mojo.setShardIndex( i );
+            mojo.setShardCount( 2 );
+            mojo.execute();
+            shardFolders.add( mojo.getDestinationFolder() );
+        }
+        assertTrue( FileUtils.readFileToString( new File( folder, "shard0/a.html" ) ).contains( "-min.js" ) );
+        assertFalse( FileUtils.readFileToString( new File( folder, "shard0/b.html" ) ).contains( "-min.js" ) );
+
+        MergeMojo mergeMojo = new MergeMojo();
+        mergeMojo.setShardFolders( shardFolders );
+        mergeMojo.setDestinationFolder( new File( folder, "min" ) );
+        mergeMojo.setEncoding( "UTF-8" );
+        mergeMojo.execute();
+
+        File destinationFolder = mergeMojo.getDestinationFolder();
+        assertFalse( new File( destinationFolder, MinifierRun.SHARD_PAGE_GRAPH ).exists() );
+        @SuppressWarnings( "unchecked" )
+        Collection<File> minifiedFiles = FileUtils.listFiles( destinationFolder, new String[] { "js" }, false );
+        int minifiedFileCount = 0;
+        for ( File minifiedFile : minifiedFiles )
+        {
+            if ( minifiedFile.getName().endsWith( "-min.js" ) )
+            {
+                ++minifiedFileCount;
+            }
+        }
+        assertEquals( 3, minifiedFileCount );
+
+        for ( String name : new String[] { "a", "b" } )
+        {
+            String html = FileUtils.readFileToString( new File( destinationFolder, name + ".html" ) );
+            Matcher matcher = SRC.matcher( html );
+            int srcCount = 0;
+            while ( matcher.find() )
+            {
+                assertTrue( matcher.group( 1 ).endsWith( "-min.js" ) );
+                assertTrue( new File( destinationFolder, matcher.group( 1 ) ).isFile() );
+                ++srcCount;
+            }
+            assertEquals( 2, srcCount );
+        }
+    }
+
+    /**
+     * A shard folder that is, contains or is within the destination folder should be refused rather than deleted.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testOverlappingFolders()
+        throws Exception
+    {
+        File shardFolder = new File( folder, "min/shard0" );
+        FileUtils.writeStringToFile( new File( shardFolder, "a.html" ), "<html></html>" );
+        for ( File destinationFolder : new File[] { shardFolder, new File( folder, "min" ),
+            new File( shardFolder, "min" ) } )
+        {
+            MergeMojo mergeMojo = new MergeMojo();
+            mergeMojo.setShardFolders( Collections.singletonList( shardFolder ) );
+            mergeMojo.setDestinationFolder( destinationFolder );
+            mergeMojo.setEncoding( "UTF-8" );
+            try
+            {
+                mergeMojo.execute();
+                fail( "Expected " + destinationFolder + " to be refused" );
+            }
+            catch ( MojoExecutionException e )
+            {
+                assertTrue( new File( shardFolder, "a.html" ).isFile() );
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Test the minified script cache.
+ */
+public class MinifiedScriptCacheTest
+{
+    private static MinifiedScriptCache.Entry createEntry( String fileState, int size )
+    {
+        return new MinifiedScriptCache.Entry( fileState, "\"" + fileState + "\"", new byte[size], new byte[0] );
+    }
+
+    /**
+     * The least recently used scripts should be evicted to keep within the size, and a script should not be returned
+     * once its file has changed.
+     */
+    @Test
+    public void testEviction()
+    {
+        MinifiedScriptCache cache = new MinifiedScriptCache( 10L );
+        cache.put( "a.js", createEntry( "1:4", 4 ) );
+        cache.put( "b.js", createEntry( "1:4", 4 ) );
+        assertNotNull( cache.get( "a.js", "1:4" ) );
+
+        cache.put( "c.js", createEntry( "1:4", 4 ) );
+        assertNull( cache.get( "b.js", "1:4" ) );
+        assertNotNull( cache.get( "a.js", "1:4" ) );
+        assertNotNull( cache.get( "c.js", "1:4" ) );
+        assertEquals( 8L, cache.getBytes() );
+
+        assertNull( cache.get( "a.js", "2:4" ) );
+        assertEquals( 1, cache.size() );
+        assertEquals( 4L, cache.getBytes() );
+
+        cache.put( "d.js", createEntry( "1:11", 11 ) );
+        assertNull( cache.get( "d.js", "1:11" ) );
+        assertEquals( 1, cache.size() );
+    }
+}
@@ -0,0 +1,187 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Test;
+
+/**
+ * Test the state shared by executions.
+ */
+public class MinifierSessionTest
+{
+    /**
+     * Concurrent requests for the same bundle should be satisfied by a single compression.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testCompressedBundleCoalesced()
+        throws Exception
+    {
+        final MinifierSession session = new MinifierSession();
+        final AtomicInteger compressions = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final Callable<byte[]> compression = new Callable<byte[]>()
+        {
+            public byte[] call()
+                throws InterruptedException
+            {
+                compressions.incrementAndGet();
+                started.countDown();
+                release.await();
+                return new byte[] { 1 };
+            }
+        };
+
+        final Exception[] exceptions = new Exception[2];
+        final byte[][] otherResult = new byte[1][];
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    otherResult[0] = session.getCompressedBundle( "key", compression );
+                }
+                catch ( Exception e )
+                {
+                    exceptions[0] = e;
+                }
+            }
+        };
+        thread.start();
+        started.await();
+
+        final byte[][] result = new byte[1][];
+        Thread waitingThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    result[0] = session.getCompressedBundle( "key", compression );
+                }
+                catch ( Exception e )
+                {
+                    exceptions[1] = e;
+                }
+            }
+        };
+        waitingThread.start();
+        release.countDown();
+        thread.join();
+        waitingThread.join();
+        for ( Exception exception : exceptions )
+        {
+            if ( exception != null )
+            {
+                throw exception;
+            }
+        }
+
+        assertArrayEquals( new byte[] { 1 }, otherResult[0] );
+        assertArrayEquals( new byte[] { 1 }, result[0] );
+        assertArrayEquals( new byte[] { 1 }, session.getCompressedBundle( "key", compression ) );
+        assertEquals( 1, compressions.get() );
+    }
+
+    /**
+     * A failed compression should be reported to the requester and not be held.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testCompressedBundleFailure()
+        throws Exception
+    {
+        MinifierSession session = new MinifierSession();
+        try
+        {
+            session.getCompressedBundle( "key", new Callable<byte[]>()
+            {
+                public byte[] call()
+                    throws MojoExecutionException
+                {
+                    throw new MojoExecutionException( "failed" );
+                }
+            } );
+            fail( "Expected the compression to fail" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertEquals( "failed", e.getMessage() );
+        }
+
+        assertArrayEquals( new byte[] { 2 }, session.getCompressedBundle( "key", new Callable<byte[]>()
+        {
+            public byte[] call()
+            {
+                return new byte[] { 2 };
+            }
+        } ) );
+    }
+
+    /**
+     * The least recently used bundles should be discarded once the bundles held exceed the maximum bytes.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testCompressedBundleEvicted()
+        throws Exception
+    {
+        MinifierSession session = new MinifierSession( 4L );
+        final AtomicInteger compressions = new AtomicInteger();
+        Callable<byte[]> compression = new Callable<byte[]>()
+        {
+            public byte[] call()
+            {
+                compressions.incrementAndGet();
+                return new byte[] { 1, 2 };
+            }
+        };
+
+        session.getCompressedBundle( "a", compression );
+        session.getCompressedBundle( "b", compression );
+        session.getCompressedBundle( "a", compression );
+        assertEquals( 2, compressions.get() );
+        assertEquals( 4L, session.getBundleBytes() );
+
+        // Discards b, being the least recently used.
+        session.getCompressedBundle( "c", compression );
+        assertEquals( 4L, session.getBundleBytes() );
+        session.getCompressedBundle( "a", compression );
+        assertEquals( 3, compressions.get() );
+        session.getCompressedBundle( "b", compression );
+        assertEquals( 4, compressions.get() );
+    }
+}
@@ -0,0 +1,100 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Test the page graph.
+ */
+public class PageGraphTest
+{
+    private PageGraph createGraph()
+    {
+        PageGraph graph = new PageGraph();
+        graph.setConfiguration( "abc" );
+        graph.getSourceDigests().put( "a b.html", "123" );
+        PageGraph.Page page = graph.addPage( "a b.html" );
+        page.getInputs().addAll( Arrays.asList( "a.js", "b.js" ) );
+        page.getConsumed().add( "a.js" );
+        page.getOutputs().addAll( Arrays.asList( "1.js", "1-min.js" ) );
+        page = graph.addPage( "c.html" );
+        page.getInputs().add( "c.js" );
+        page.getOutputs().addAll( Arrays.asList( "2.js", "shared.js" ) );
+        page = graph.addPage( "d.html" );
+        page.getInputs().add( "d.js" );
+        page.getOutputs().add( "shared.js" );
+        return graph;
+    }
+
+    /**
+     * A graph should be read as it was written.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testReadWrite()
+        throws IOException
+    {
+        File file = File.createTempFile( "PageGraphTest", ".pages" );
+        try
+        {
+            createGraph().write( file );
+            PageGraph graph = PageGraph.read( file );
+
+            assertEquals( "abc", graph.getConfiguration() );
+            assertEquals( Collections.singletonMap( "a b.html", "123" ), graph.getSourceDigests() );
+            assertEquals( Arrays.asList( "a b.html", "c.html", "d.html" ),
+                          Arrays.asList( graph.getPages().toArray() ) );
+            PageGraph.Page page = graph.getPage( "a b.html" );
+            assertEquals( Arrays.asList( "a.js", "b.js" ), Arrays.asList( page.getInputs().toArray() ) );
+            assertEquals( Collections.singleton( "a.js" ), page.getConsumed() );
+            assertEquals( Arrays.asList( "1.js", "1-min.js" ), Arrays.asList( page.getOutputs().toArray() ) );
+        }
+        finally
+        {
+            file.delete();
+        }
+        assertNull( PageGraph.read( file ) );
+    }
+
+    /**
+     * Pages referring to changed files should be affected, along with those sharing generated files with them.
+     */
+    @Test
+    public void testAffectedPages()
+    {
+        PageGraph graph = createGraph();
+
+        assertEquals( Collections.singleton( "a b.html" ), graph.getAffectedPages( Arrays.asList( "b.js" ) ) );
+        assertEquals( Collections.singleton( "a b.html" ), graph.getAffectedPages( Arrays.asList( "a b.html" ) ) );
+        assertEquals( Arrays.asList( "c.html", "d.html" ),
+                      Arrays.asList( graph.getAffectedPages( Arrays.asList( "d.js" ) ).toArray() ) );
+        assertEquals( Collections.emptySet(), graph.getAffectedPages( Arrays.asList( "style.css" ) ) );
+    }
+}
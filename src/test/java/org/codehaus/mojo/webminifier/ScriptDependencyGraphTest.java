@@ -0,0 +1,114 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the discovery of script dependencies.
+ */
+public class ScriptDependencyGraphTest
+{
+    private File folder;
+
+    private File cacheFolder;
+
+    /**
+     * Write some scripts that depend on each other.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        folder = new File( System.getProperty( "java.io.tmpdir" ), "ScriptDependencyGraphTest" );
+        cacheFolder = new File( folder, "cache" );
+        FileUtils.writeStringToFile( new File( folder, "main.js" ), "require([\"lib/b\", \"./a\"], function() {});\n"
+            + "var t = require(\"text!t.html\");", "UTF-8" );
+        FileUtils.writeStringToFile( new File( folder, "a.js" ),
+                                     "define(\"a\", [\"./lib/b\", \"require\"], function() {});", "UTF-8" );
+        FileUtils.writeStringToFile( new File( folder, "lib/b.js" ),
+                                     "define(\"lib/b\", [], function() { return require(\"./c\"); });", "UTF-8" );
+        FileUtils.writeStringToFile( new File( folder, "lib/c.js" ), "var c = 1; require(\"../a\");", "UTF-8" );
+    }
+
+    /**
+     * Tidy up.
+     */
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( folder );
+    }
+
+    /**
+     * The ids of CommonJS and AMD references should be found, in order.
+     */
+    @Test
+    public void testFindIds()
+    {
+        assertEquals( Arrays.asList( new String[] { "lib/b", "./a", "text!t.html" } ),
+                      ScriptDependencyGraph.findIds( "main.js", "require([\"lib/b\", \"./a\"], function() {});\n"
+                          + "var t = require(\"text!t.html\");" ) );
+        assertEquals( Arrays.asList( new String[] { "a", "b" } ),
+                      ScriptDependencyGraph.findIds( "c.js", "define(\"c\", [\"a\", \"b\"], function(a, b) {});" ) );
+        assertEquals( Collections.emptyList(), ScriptDependencyGraph.findIds( "d.js", "var require = ;" ) );
+    }
+
+    /**
+     * Dependencies should precede the scripts depending on them, with the cycle between a and lib/b being broken,
+     * and the ids of each script should be cached.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testResolve()
+        throws IOException
+    {
+        File main = new File( folder, "main.js" );
+        File a = new File( folder, "a.js" );
+        File b = new File( folder, "lib/b.js" );
+        File c = new File( folder, "lib/c.js" );
+
+        List<File> expected = Arrays.asList( new File[] { a, c, b, main } );
+        assertEquals( expected, new ScriptDependencyGraph( cacheFolder, folder, "UTF-8" )
+            .resolve( Collections.singletonList( main ) ) );
+        assertEquals( 4, cacheFolder.list().length );
+
+        // A script that changes is parsed again.
+        FileUtils.writeStringToFile( c, "var c = 1;", "UTF-8" );
+        expected = Arrays.asList( new File[] { c, b, a, main } );
+        assertEquals( expected, new ScriptDependencyGraph( cacheFolder, folder, "UTF-8" )
+            .resolve( Collections.singletonList( main ) ) );
+        assertEquals( 5, cacheFolder.list().length );
+    }
+}
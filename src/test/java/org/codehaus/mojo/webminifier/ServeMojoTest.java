@@ -0,0 +1,173 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.mojo.webminifier.WebMinifierMojo.JsCompressorType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the serve mojo.
+ */
+public class ServeMojoTest
+{
+    private File folder;
+
+    private ServeMojo mojo;
+
+    /**
+     * Set up a mojo serving a project of its own.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Before
+    public void setUpMojo()
+        throws Exception
+    {
+        folder = new File( System.getProperty( "java.io.tmpdir" ), "ServeMojoTest" );
+        FileUtils.deleteQuietly( folder );
+        File sourceFolder = new File( folder, "classes" );
+        FileUtils.writeStringToFile( new File( sourceFolder, "index.html" ),
+                                     "<html><head><script src=\"a.js\"></script></head><body></body></html>" );
+        FileUtils.writeStringToFile( new File( sourceFolder, "a.js" ), "var a = 1;\n\nvar b = 2;\n" );
+        FileUtils.writeStringToFile( new File( folder, "secret.txt" ), "secret" );
+
+        mojo = new ServeMojo();
+        mojo.setSourceFolder( sourceFolder );
+        mojo.setDestinationFolder( new File( folder, "min" ) );
+        mojo.setEncoding( "UTF-8" );
+        mojo.setJsCompressorType( JsCompressorType.YUI );
+        mojo.setYuiLinebreak( -1 );
+        mojo.setPort( 0 );
+        mojo.setServeHost( "localhost" );
+        mojo.setServeCacheBytes( 1024L );
+        mojo.start();
+    }
+
+    /**
+     * Tidy up.
+     */
+    @After
+    public void tearDownMojo()
+    {
+        mojo.stop();
+        FileUtils.deleteQuietly( folder );
+    }
+
+    private HttpURLConnection open( String path )
+        throws IOException
+    {
+        URL url = new URL( "http://localhost:" + mojo.getServerPort() + path );
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static String read( InputStream is )
+        throws IOException
+    {
+        try
+        {
+            return IOUtils.toString( is, "UTF-8" );
+        }
+        finally
+        {
+            is.close();
+        }
+    }
+
+    /**
+     * Scripts should be served minified, with an ETag that is honoured, and gzipped when accepted. A changed script
+     * should be minified again.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testServeScript()
+        throws Exception
+    {
+        HttpURLConnection connection = open( "/a.js" );
+        assertEquals( 200, connection.getResponseCode() );
+        assertEquals( "var a=1;var b=2;", read( connection.getInputStream() ) );
+        String etag = connection.getHeaderField( "ETag" );
+
+        connection = open( "/a.js" );
+        connection.setRequestProperty( "If-None-Match", etag );
+        assertEquals( 304, connection.getResponseCode() );
+
+        connection = open( "/a.js" );
+        connection.setRequestProperty( "Accept-Encoding", "gzip" );
+        assertEquals( "gzip", connection.getContentEncoding() );
+        assertEquals( "var a=1;var b=2;", read( new GZIPInputStream( connection.getInputStream() ) ) );
+        String gzipEtag = connection.getHeaderField( "ETag" );
+        assertFalse( etag.equals( gzipEtag ) );
+
+        connection = open( "/a.js" );
+        connection.setRequestProperty( "Accept-Encoding", "gzip" );
+        connection.setRequestProperty( "If-None-Match", etag );
+        assertEquals( 200, connection.getResponseCode() );
+        connection.getInputStream().close();
+
+        connection = open( "/a.js" );
+        connection.setRequestProperty( "Accept-Encoding", "gzip" );
+        connection.setRequestProperty( "If-None-Match", etag + ", " + gzipEtag );
+        assertEquals( 304, connection.getResponseCode() );
+
+        // Ensure that the modification time changes.
+        Thread.sleep( 1000L );
+        FileUtils.writeStringToFile( new File( mojo.getSourceFolder(), "a.js" ), "var c = 3;\n" );
+        connection = open( "/a.js" );
+        connection.setRequestProperty( "If-None-Match", etag );
+        assertEquals( 200, connection.getResponseCode() );
+        assertEquals( "var c=3;", read( connection.getInputStream() ) );
+        assertFalse( etag.equals( connection.getHeaderField( "ETag" ) ) );
+    }
+
+    /**
+     * Folders should be served by their index and nothing outside of the source folder should be served.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testServeFiles()
+        throws Exception
+    {
+        HttpURLConnection connection = open( "/" );
+        assertEquals( 200, connection.getResponseCode() );
+        assertTrue( connection.getContentType().startsWith( "text/html" ) );
+        assertTrue( read( connection.getInputStream() ).contains( "a.js" ) );
+
+        assertEquals( 404, open( "/missing.js" ).getResponseCode() );
+        assertEquals( 404, open( "/../secret.txt" ).getResponseCode() );
+        assertEquals( 404, open( "/%2E%2E/secret.txt" ).getResponseCode() );
+    }
+}
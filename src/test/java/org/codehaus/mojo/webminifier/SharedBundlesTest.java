@@ -0,0 +1,101 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Test;
+
+/**
+ * Test the encoding of bundles shared with other executions.
+ */
+public class SharedBundlesTest
+{
+    private static final byte[] CONTENT = { 'v', 'a', 'r', ' ', 'a', ';' };
+
+    private static final Diagnostic WARNING =
+        new Diagnostic( Diagnostic.Severity.WARNING, "Suspicious code", "a.js", 1, 4, "CLOSURE", "1.js" );
+
+    private static final Diagnostic ERROR =
+        new Diagnostic( Diagnostic.Severity.ERROR, "Parse error", null, 2, -1, "CLOSURE", "1.js" );
+
+    /**
+     * A decoded bundle should have its content, and its problems should be reported as often as they were when the
+     * bundle was minified.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testEncodeDecode()
+        throws IOException
+    {
+        List<Diagnostic> reported = new ArrayList<Diagnostic>( Arrays.asList( WARNING, ERROR, WARNING ) );
+        byte[] sharedBundle = SharedBundles.encode( CONTENT, reported );
+
+        Diagnostics diagnostics = new Diagnostics( mock( Log.class ), false );
+        assertArrayEquals( CONTENT, SharedBundles.decode( sharedBundle, diagnostics ) );
+        assertEquals( Arrays.asList( WARNING, ERROR ), diagnostics.getDiagnostics() );
+        assertEquals( 2, diagnostics.getOccurrences( WARNING ) );
+        assertTrue( diagnostics.hasErrors() );
+
+        assertArrayEquals( CONTENT, SharedBundles.decode( sharedBundle, null ) );
+        assertArrayEquals( new byte[0], SharedBundles.decode( SharedBundles.encode( new byte[0], reported ), null ) );
+    }
+
+    /**
+     * A shared bundle that has been cut short or added to should be rejected.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCorrupt()
+        throws IOException
+    {
+        byte[] sharedBundle = SharedBundles.encode( CONTENT, Arrays.asList( WARNING ) );
+
+        byte[] truncated = new byte[sharedBundle.length - 1];
+        System.arraycopy( sharedBundle, 0, truncated, 0, truncated.length );
+        byte[] extended = new byte[sharedBundle.length + 1];
+        System.arraycopy( sharedBundle, 0, extended, 0, sharedBundle.length );
+
+        for ( byte[] corrupt : Arrays.asList( truncated, extended ) )
+        {
+            try
+            {
+                SharedBundles.decode( corrupt, null );
+                fail( "Corrupt shared bundle decoded" );
+            }
+            catch ( IOException e )
+            {
+                assertEquals( "Corrupt shared bundle", e.getMessage() );
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test the staged pipeline.
+ */
+public class StagedPipelineTest
+{
+    /**
+     * Items should pass through every stage, with the statistics of each stage reflecting them.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testStages()
+        throws Exception
+    {
+        final List<Integer> results = Collections.synchronizedList( new ArrayList<Integer>() );
+
+        StagedPipeline<int[]> pipeline = new StagedPipeline<int[]>( 1 );
+        pipeline.addStage( "double", 3, new StagedPipeline.Worker<int[]>()
+        {
+            public void process( int[] item )
+            {
+                item[0] *= 2;
+            }
+        } );
+        pipeline.addStage( "collect", 1, new StagedPipeline.Worker<int[]>()
+        {
+            public void process( int[] item )
+            {
+                results.add( Integer.valueOf( item[0] ) );
+            }
+        } );
+
+        pipeline.start();
+        for ( int i = 1; i <= 10; ++i )
+        {
+            pipeline.submit( new int[] { i } );
+        }
+        pipeline.finish();
+
+        Collections.sort( results );
+        assertEquals( "[2, 4, 6, 8, 10, 12, 14, 16, 18, 20]", results.toString() );
+
+        List<StagedPipeline.StageStatistics> statistics = pipeline.getStatistics();
+        assertEquals( 2, statistics.size() );
+        assertEquals( "double", statistics.get( 0 ).getName() );
+        assertEquals( 3, statistics.get( 0 ).getThreads() );
+        assertEquals( 10, statistics.get( 0 ).getItems() );
+        assertEquals( 10, statistics.get( 1 ).getItems() );
+    }
+
+    /**
+     * The first failure of a stage should stop the pipeline and be thrown to the submitter.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testFailure()
+        throws Exception
+    {
+        final IOException failure = new IOException( "test" );
+
+        StagedPipeline<Integer> pipeline = new StagedPipeline<Integer>( 1 );
+        pipeline.addStage( "fail", 1, new StagedPipeline.Worker<Integer>()
+        {
+            public void process( Integer item )
+                throws IOException
+            {
+                throw failure;
+            }
+        } );
+        pipeline.addStage( "never", 1, new StagedPipeline.Worker<Integer>()
+        {
+            public void process( Integer item )
+            {
+                fail( "Should not be reached" );
+            }
+        } );
+
+        pipeline.start();
+        try
+        {
+            for ( int i = 0; i < 100; ++i )
+            {
+                pipeline.submit( Integer.valueOf( i ) );
+            }
+            pipeline.finish();
+            fail( "Expected the failure to be thrown" );
+        }
+        catch ( IOException e )
+        {
+            assertSame( failure, e );
+        }
+        finally
+        {
+            pipeline.abort();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the user cache.
+ */
+public class UserCacheTest
+{
+    private File folder;
+
+    /**
+     * Start with an empty cache folder.
+     */
+    @Before
+    public void setUpFolder()
+    {
+        folder = new File( System.getProperty( "java.io.tmpdir" ), "UserCacheTest" );
+        FileUtils.deleteQuietly( folder );
+    }
+
+    /**
+     * Tidy up.
+     */
+    @After
+    public void tearDownFolder()
+    {
+        FileUtils.deleteQuietly( folder );
+    }
+
+    /**
+     * The least recently used scripts should be deleted once the cache's size is exceeded.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testPrune()
+        throws IOException
+    {
+        UserCache cache = new UserCache( folder, 10L );
+        long now = System.currentTimeMillis();
+        cache.put( "a", new byte[] { 1, 2, 3, 4 } );
+        new File( folder, "a.js" ).setLastModified( now - 3000L );
+        cache.put( "b", new byte[] { 5, 6, 7, 8 } );
+        new File( folder, "b.js" ).setLastModified( now - 2000L );
+        assertArrayEquals( new byte[] { 1, 2, 3, 4 }, cache.get( "a" ) );
+
+        cache.put( "c", new byte[] { 9, 10, 11, 12 } );
+        assertNull( cache.get( "b" ) );
+        assertArrayEquals( new byte[] { 1, 2, 3, 4 }, cache.get( "a" ) );
+        assertArrayEquals( new byte[] { 9, 10, 11, 12 }, cache.get( "c" ) );
+        assertNull( cache.get( "d" ) );
+    }
+}
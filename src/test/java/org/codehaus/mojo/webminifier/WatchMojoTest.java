@@ -0,0 +1,139 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.mojo.webminifier.WebMinifierMojo.JsCompressorType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the watch mojo.
+ */
+public class WatchMojoTest
+{
+    private static final long TIMEOUT = 10000L;
+
+    private File folder;
+
+    private WatchMojo mojo;
+
+    /**
+     * Set up a mojo watching a project of its own.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Before
+    public void setUpMojo()
+        throws IOException
+    {
+        folder = new File( System.getProperty( "java.io.tmpdir" ), "WatchMojoTest" );
+        FileUtils.deleteQuietly( folder );
+        File projectSourceFolder = new File( folder, "src" );
+        FileUtils.writeStringToFile( new File( projectSourceFolder, "a.html" ),
+                                     "<html><head><script src=\"a.js\"></script></head><body></body></html>" );
+        FileUtils.writeStringToFile( new File( projectSourceFolder, "a.js" ), "var a;" );
+        File sourceFolder = new File( folder, "classes" );
+        FileUtils.copyDirectory( projectSourceFolder, sourceFolder );
+
+        mojo = new WatchMojo();
+        mojo.setSourceFolder( sourceFolder );
+        mojo.setProjectSourceFolder( projectSourceFolder );
+        mojo.setDestinationFolder( new File( folder, "min" ) );
+        mojo.setPageGraphFile( new File( folder, "pages" ) );
+        mojo.setEncoding( "UTF-8" );
+        mojo.setJsCompressorType( JsCompressorType.YUI );
+        mojo.setYuiLinebreak( -1 );
+        mojo.setWatchInterval( 20L );
+        mojo.setWatchQuietPeriod( 50L );
+    }
+
+    /**
+     * Tidy up.
+     */
+    @After
+    public void tearDownMojo()
+    {
+        FileUtils.deleteQuietly( folder );
+    }
+
+    /**
+     * A change to the project should be minified.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testWatch()
+        throws Exception
+    {
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    mojo.execute();
+                }
+                catch ( Exception e )
+                {
+                    e.printStackTrace();
+                }
+            }
+        };
+        thread.start();
+        try
+        {
+            File minifiedFile = new File( mojo.getDestinationFolder(), "1-min.js" );
+            assertTrue( waitFor( minifiedFile, "var a" ) );
+
+            // Ensure that the modification time changes.
+            Thread.sleep( 1000L );
+            FileUtils.writeStringToFile( new File( mojo.getProjectSourceFolder(), "a.js" ), "var changed;" );
+            assertTrue( waitFor( minifiedFile, "var changed" ) );
+        }
+        finally
+        {
+            mojo.stop();
+            thread.join( TIMEOUT );
+        }
+    }
+
+    private static boolean waitFor( File file, String content )
+        throws IOException, InterruptedException
+    {
+        long start = System.currentTimeMillis();
+        while ( System.currentTimeMillis() - start < TIMEOUT )
+        {
+            if ( file.isFile() && FileUtils.readFileToString( file ).contains( content ) )
+            {
+                return true;
+            }
+            Thread.sleep( 20L );
+        }
+        return false;
+    }
+}
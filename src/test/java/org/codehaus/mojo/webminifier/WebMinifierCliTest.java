@@ -0,0 +1,132 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.WebMinifierMojo.JsCompressorType;
+import org.junit.Test;
+
+import com.google.javascript.jscomp.CompilationLevel;
+
+/**
+ * Test minifying from the command line.
+ */
+public class WebMinifierCliTest
+{
+    /**
+     * Arguments should set the properties of the configuration, accumulating those holding lists or key/value pairs.
+     */
+    @Test
+    public void testParse()
+    {
+        MinifierConfiguration configuration =
+            WebMinifierCli.parse( new String[] { "--sourceFolder=src", "--destinationFolder=min",
+                "--jsCompressorType=yui", "--closureCompilationLevel=ADVANCED_OPTIMIZATIONS", "--gzip=true",
+                "--maxBundleBytes=1024", "--htmlIncludes=*.html", "--htmlIncludes=*.htm",
+                "--closureExterns=a.js", "--jsSplitPoints=js/a.js=a", "--jsSplitPoints=js/b.js=b" } );
+
+        assertEquals( new File( "src" ), configuration.getSourceFolder() );
+        assertEquals( new File( "min" ), configuration.getDestinationFolder() );
+        assertEquals( JsCompressorType.YUI, configuration.getJsCompressorType() );
+        assertEquals( CompilationLevel.ADVANCED_OPTIMIZATIONS, configuration.getClosureCompilationLevel() );
+        assertTrue( configuration.isGzip() );
+        assertEquals( 1024L, configuration.getMaxBundleBytes() );
+        assertEquals( Arrays.asList( new String[] { "*.html", "*.htm" } ), configuration.getHtmlIncludes() );
+        assertEquals( Arrays.asList( new File[] { new File( "a.js" ) } ), configuration.getClosureExterns() );
+        assertEquals( "a", configuration.getJsSplitPoints().getProperty( "js/a.js" ) );
+        assertEquals( "b", configuration.getJsSplitPoints().getProperty( "js/b.js" ) );
+    }
+
+    /**
+     * Unknown properties, invalid values and missing folders should be rejected.
+     */
+    @Test
+    public void testInvalidArguments()
+    {
+        WebMinifier minifier = new WebMinifier( mock( Log.class ) );
+        assertEquals( WebMinifierCli.INVALID_ARGUMENTS,
+                      WebMinifierCli.run( new String[] { "--sourceFolder=src" }, minifier, mock( Log.class ) ) );
+        assertEquals( WebMinifierCli.INVALID_ARGUMENTS,
+                      WebMinifierCli.run( new String[] { "--sourceFolder=src", "--destinationFolder=min",
+                          "--unknown=1" }, minifier, mock( Log.class ) ) );
+        assertEquals( WebMinifierCli.INVALID_ARGUMENTS,
+                      WebMinifierCli.run( new String[] { "--sourceFolder=src", "--destinationFolder=min",
+                          "--compressorThreads=many" }, minifier, mock( Log.class ) ) );
+        assertEquals( WebMinifierCli.INVALID_ARGUMENTS,
+                      WebMinifierCli.run( new String[] { "src", "min" }, minifier, mock( Log.class ) ) );
+    }
+
+    /**
+     * A valid command line should minify.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testRun()
+        throws Exception
+    {
+        File sourceFolder = new File( WebMinifierCliTest.class.getResource( "a.html" ).toURI() ).getParentFile();
+        File destinationFolder = new File( System.getProperty( "java.io.tmpdir" ), "WebMinifierCliTest" );
+        try
+        {
+            assertEquals( 0, WebMinifierCli.run( new String[] { "--sourceFolder=" + sourceFolder,
+                "--destinationFolder=" + destinationFolder, "--jsCompressorType=FAST" },
+                                                 new WebMinifier( mock( Log.class ) ), mock( Log.class ) ) );
+            assertTrue( new File( destinationFolder, "1-min.js" ).isFile() );
+        }
+        finally
+        {
+            FileUtils.deleteQuietly( destinationFolder );
+        }
+    }
+
+    /**
+     * Discovering dependencies and generating externs should use the default cache folders when none are given.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testRunWithDefaultCacheFolders()
+        throws Exception
+    {
+        File sourceFolder = new File( WebMinifierCliTest.class.getResource( "a.html" ).toURI() ).getParentFile();
+        File destinationFolder = new File( System.getProperty( "java.io.tmpdir" ), "WebMinifierCliTest-caches" );
+        try
+        {
+            assertEquals( 0, WebMinifierCli.run( new String[] { "--sourceFolder=" + sourceFolder,
+                "--destinationFolder=" + destinationFolder, "--jsCompressorType=CLOSURE",
+                "--jsDiscoverDependencies=true", "--closureGenerateExterns=true" },
+                                                 new WebMinifier( mock( Log.class ) ), mock( Log.class ) ) );
+            assertTrue( new File( destinationFolder, "1-min.js" ).isFile() );
+        }
+        finally
+        {
+            FileUtils.deleteQuietly( destinationFolder );
+        }
+    }
+}
@@ -20,21 +20,33 @@ package org.codehaus.mojo.webminifier;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
 import org.codehaus.mojo.webminifier.WebMinifierMojo.JsCompressorType;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.javascript.jscomp.CompilationLevel;
+
 /**
  * Test the JSMinifierMojo class methods.
  * 
@@ -144,4 +156,493 @@ public class WebMinifierMojoTest
             }
         }
     }
+
+    /**
+     * Take the MOJO for a run where each script exceeds the maximum bundle size.
+     * 
+     * @throws MojoFailureException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     */
+    @Test
+    public void testMaxBundleBytesRun()
+        throws MojoExecutionException, MojoFailureException
+    {
+        mojo.setMaxBundleBytes( 1L );
+
+        mojo.execute();
+
+        @SuppressWarnings( "unchecked" )
+        Collection<File> files = FileUtils.listFiles( mojo.getDestinationFolder(), //
+                                                      new String[] { "html", "js" }, true );
+
+        assertEquals( 8, files.size() );
+        for ( File file : files )
+        {
+            String fileName = file.getName();
+            if ( !fileName.equals( "1.js" ) && !fileName.equals( "1-min.js" ) && !fileName.equals( "1-2.js" )
+                && !fileName.equals( "1-2-min.js" ) && !fileName.equals( "1-3.js" )
+                && !fileName.equals( "1-3-min.js" ) && !fileName.equals( "a.html" ) && !fileName.equals( "d.js" ) )
+            {
+                fail( "Unexpected filename: " + fileName );
+            }
+        }
+    }
+
+    /**
+     * Take the MOJO for a run where scripts are minified individually.
+     * 
+     * @throws MojoFailureException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     */
+    @Test
+    public void testIndividualRun()
+        throws MojoExecutionException, MojoFailureException
+    {
+        mojo.setConcatenate( false );
+
+        mojo.execute();
+
+        @SuppressWarnings( "unchecked" )
+        Collection<File> files = FileUtils.listFiles( mojo.getDestinationFolder(), //
+                                                      new String[] { "html", "js" }, true );
+
+        assertEquals( 5, files.size() );
+        for ( File file : files )
+        {
+            String fileName = file.getName();
+            if ( !fileName.equals( "a-min.js" ) && !fileName.equals( "b-min.js" ) && !fileName.equals( "c-min.js" )
+                && !fileName.equals( "a.html" ) && !fileName.equals( "d.js" ) )
+            {
+                fail( "Unexpected filename: " + fileName );
+            }
+        }
+    }
+
+    /**
+     * Take the MOJO for a run where the minified script is small enough to be inlined.
+     * 
+     * @throws MojoFailureException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     */
+    @Test
+    public void testInlineRun()
+        throws MojoExecutionException, MojoFailureException
+    {
+        mojo.setInlineThresholdBytes( 100 );
+
+        mojo.execute();
+
+        @SuppressWarnings( "unchecked" )
+        Collection<File> files = FileUtils.listFiles( mojo.getDestinationFolder(), //
+                                                      new String[] { "html", "js" }, true );
+
+        assertEquals( 3, files.size() );
+        for ( File file : files )
+        {
+            String fileName = file.getName();
+            if ( !fileName.equals( "1.js" ) && !fileName.equals( "a.html" ) && !fileName.equals( "d.js" ) )
+            {
+                fail( "Unexpected filename: " + fileName );
+            }
+        }
+    }
+
+    /**
+     * Take the MOJO for a split run where the split points are compiled together.
+     * 
+     * @throws MojoFailureException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     */
+    @Test
+    public void testClosureModulesRun()
+        throws MojoExecutionException, MojoFailureException
+    {
+        Properties jsSplitPoints = new Properties();
+        jsSplitPoints.put( "b.js", "renamed-b" );
+        mojo.setJsSplitPoints( jsSplitPoints );
+        mojo.setJsCompressorType( JsCompressorType.CLOSURE );
+        mojo.setClosureCompilationLevel( CompilationLevel.ADVANCED_OPTIMIZATIONS );
+        mojo.setClosureModules( true );
+
+        mojo.execute();
+
+        @SuppressWarnings( "unchecked" )
+        Collection<File> files = FileUtils.listFiles( mojo.getDestinationFolder(), //
+                                                      new String[] { "html", "js" }, true );
+
+        assertEquals( 6, files.size() );
+        for ( File file : files )
+        {
+            String fileName = file.getName();
+            if ( !fileName.equals( "renamed-b.js" ) && !fileName.equals( "renamed-b-min.js" )
+                && !fileName.equals( "1.js" ) && !fileName.equals( "1-min.js" ) //
+                && !fileName.equals( "a.html" ) && !fileName.equals( "d.js" ) )
+            {
+                fail( "Unexpected filename: " + fileName );
+            }
+        }
+    }
+
+    /**
+     * Take the MOJO for a run where gzipped copies of the minified scripts are written and stages have more than one
+     * thread.
+     * 
+     * @throws MojoFailureException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     */
+    @Test
+    public void testGzipRun()
+        throws MojoExecutionException, MojoFailureException
+    {
+        Properties stageThreads = new Properties();
+        stageThreads.put( "read", "2" );
+        stageThreads.put( "compress", "0" );
+        mojo.setStageThreads( stageThreads );
+        mojo.setStageQueueCapacity( 1 );
+        mojo.setGzip( true );
+
+        mojo.execute();
+
+        @SuppressWarnings( "unchecked" )
+        Collection<File> files = FileUtils.listFiles( mojo.getDestinationFolder(), //
+                                                      new String[] { "html", "js", "gz" }, true );
+
+        assertEquals( 5, files.size() );
+        for ( File file : files )
+        {
+            String fileName = file.getName();
+            if ( !fileName.equals( "1.js" ) && !fileName.equals( "1-min.js" ) && !fileName.equals( "1-min.js.gz" )
+                && !fileName.equals( "a.html" ) && !fileName.equals( "d.js" ) )
+            {
+                fail( "Unexpected filename: " + fileName );
+            }
+        }
+    }
+
+    /**
+     * Take the MOJO for a run with a compressor selected by name.
+     * 
+     * @throws MojoFailureException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     */
+    @Test
+    public void testNamedCompressorRun()
+        throws MojoExecutionException, MojoFailureException
+    {
+        mojo.setJsCompressor( "fast" );
+
+        mojo.execute();
+
+        @SuppressWarnings( "unchecked" )
+        Collection<File> files = FileUtils.listFiles( mojo.getDestinationFolder(), //
+                                                      new String[] { "html", "js" }, true );
+
+        assertEquals( 4, files.size() );
+    }
+
+    /**
+     * A compressor that cannot be found should fail the run.
+     * 
+     * @throws MojoFailureException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     */
+    @Test( expected = MojoExecutionException.class )
+    public void testUnknownCompressorRun()
+        throws MojoExecutionException, MojoFailureException
+    {
+        mojo.setJsCompressor( "unknown" );
+
+        mojo.execute();
+    }
+
+    /**
+     * Take the MOJO for a run compressing in forked JVMs, which should produce the same scripts as compressing in the
+     * build's JVM.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testForkedRun()
+        throws Exception
+    {
+        mojo.execute();
+        String expected = FileUtils.readFileToString( new File( mojo.getDestinationFolder(), "1-min.js" ), "UTF-8" );
+        FileUtils.deleteQuietly( mojo.getDestinationFolder() );
+
+        mojo.setForkCompressors( true );
+        mojo.setForkMaxHeap( "64m" );
+        mojo.setForkStackSize( "2m" );
+        mojo.execute();
+
+        assertEquals( expected,
+                      FileUtils.readFileToString( new File( mojo.getDestinationFolder(), "1-min.js" ), "UTF-8" ) );
+    }
+
+    /**
+     * Executions sharing a session should be able to run in parallel, as they do for modules of a parallel build,
+     * without changing their configuration.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testParallelRun()
+        throws Exception
+    {
+        // Each execution clears its destinationFolder, so the other's must not be within it.
+        final WebMinifierMojo otherMojo = new WebMinifierMojo();
+        otherMojo.setDestinationFolder( new File( mojo.getDestinationFolder().getPath() + "-other" ) );
+        otherMojo.setSourceFolder( mojo.getSourceFolder() );
+        otherMojo.setEncoding( "UTF-8" );
+        otherMojo.setJsCompressorType( JsCompressorType.YUI );
+        otherMojo.setYuiLinebreak( -1 );
+        otherMojo.setYuiMunge( true );
+        otherMojo.setProjectSourceFolder( mojo.getSourceFolder() );
+        otherMojo.setSession( mojo.getSession() );
+
+        final Exception[] otherException = new Exception[1];
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    otherMojo.execute();
+                }
+                catch ( Exception e )
+                {
+                    otherException[0] = e;
+                }
+            }
+        };
+        thread.start();
+        try
+        {
+            mojo.execute();
+            thread.join();
+            if ( otherException[0] != null )
+            {
+                throw otherException[0];
+            }
+
+            assertTrue( new File( mojo.getDestinationFolder(), "1-min.js" ).isFile() );
+            assertTrue( new File( otherMojo.getDestinationFolder(), "1-min.js" ).isFile() );
+            assertNull( mojo.getJsSplitPoints() );
+            assertNull( otherMojo.getJsSplitPoints() );
+        }
+        finally
+        {
+            thread.join();
+            FileUtils.deleteQuietly( otherMojo.getDestinationFolder() );
+        }
+    }
+
+    /**
+     * Bundles of dependencies should be compressed once for all of the executions sharing a session.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testSharedDependenciesRun()
+        throws Exception
+    {
+        // No script belongs to the project, so every bundle is one of dependencies.
+        File projectSourceFolder = new File( mojo.getDestinationFolder(), "project" );
+        mojo.setProjectSourceFolder( projectSourceFolder );
+        final AtomicInteger compressions = new AtomicInteger();
+        MinifierSession session = new MinifierSession()
+        {
+            @Override
+            byte[] getCompressedBundle( String key, final Callable<byte[]> compression )
+                throws IOException, MojoExecutionException
+            {
+                return super.getCompressedBundle( key, new Callable<byte[]>()
+                {
+                    public byte[] call()
+                        throws Exception
+                    {
+                        compressions.incrementAndGet();
+                        return compression.call();
+                    }
+                } );
+            }
+        };
+        mojo.setSession( session );
+        mojo.execute();
+        assertEquals( 1, compressions.get() );
+
+        WebMinifierMojo otherMojo = new WebMinifierMojo();
+        otherMojo.setDestinationFolder( new File( mojo.getDestinationFolder(), "other" ) );
+        otherMojo.setSourceFolder( mojo.getSourceFolder() );
+        otherMojo.setEncoding( "UTF-8" );
+        otherMojo.setJsCompressorType( JsCompressorType.YUI );
+        otherMojo.setYuiLinebreak( -1 );
+        otherMojo.setYuiMunge( true );
+        otherMojo.setProjectSourceFolder( projectSourceFolder );
+        otherMojo.setSession( session );
+        otherMojo.execute();
+
+        assertEquals( 1, compressions.get() );
+        assertEquals( FileUtils.readFileToString( new File( mojo.getDestinationFolder(), "1-min.js" ) ),
+                      FileUtils.readFileToString( new File( otherMojo.getDestinationFolder(), "1-min.js" ) ) );
+    }
+
+    /**
+     * Bundles of dependencies should be taken from the user cache when another build has kept them there.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testUserCacheRun()
+        throws Exception
+    {
+        File userCacheFolder = new File( System.getProperty( "java.io.tmpdir" ), "WebMinifierMojoTest-cache" );
+        FileUtils.deleteQuietly( userCacheFolder );
+        mojo.setProjectSourceFolder( new File( mojo.getDestinationFolder(), "project" ) );
+        mojo.setUserCache( true );
+        mojo.setUserCacheFolder( userCacheFolder );
+        mojo.setUserCacheMaxBytes( 1024L * 1024L );
+        mojo.execute();
+
+        // Tamper with what was kept so that the next build can be seen to use it, and to report its warnings.
+        File[] cachedFiles = userCacheFolder.listFiles();
+        assertEquals( 1, cachedFiles.length );
+        Diagnostic warning = new Diagnostic( Diagnostic.Severity.WARNING, "cached", "1.js", 1, 0, "YUI", "1.js" );
+        FileUtils.writeByteArrayToFile( cachedFiles[0],
+                                        SharedBundles.encode( "var cached;".getBytes( "UTF-8" ),
+                                                          Collections.singletonList( warning ) ) );
+
+        Log log = mock( Log.class );
+        mojo.setLog( log );
+        mojo.setSession( new MinifierSession() );
+        mojo.setForce( true );
+        mojo.execute();
+        try
+        {
+            assertEquals( "var cached;",
+                          FileUtils.readFileToString( new File( mojo.getDestinationFolder(), "1-min.js" ) ) );
+            verify( log ).warn( warning.toString() );
+        }
+        finally
+        {
+            FileUtils.deleteQuietly( userCacheFolder );
+        }
+    }
+
+    /**
+     * A second run with nothing changed should leave the destination folder alone unless forced.
+     * 
+     * @throws MojoFailureException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testUpToDateRun()
+        throws MojoExecutionException, MojoFailureException, IOException
+    {
+        File fingerprintFile =
+            new File( mojo.getDestinationFolder().getParentFile(), "WebMinifierMojoTest.fingerprint" );
+        fingerprintFile.delete();
+        mojo.setFingerprintFile( fingerprintFile );
+        mojo.setPluginVersion( "1.0" );
+        try
+        {
+            mojo.execute();
+            assertTrue( fingerprintFile.isFile() );
+
+            File minifiedFile = new File( mojo.getDestinationFolder(), "1-min.js" );
+            FileUtils.writeStringToFile( minifiedFile, "unchanged" );
+            mojo.execute();
+            assertEquals( "unchanged", FileUtils.readFileToString( minifiedFile ) );
+
+            mojo.setYuiMunge( false );
+            mojo.execute();
+            assertFalse( "unchanged".equals( FileUtils.readFileToString( minifiedFile ) ) );
+
+            FileUtils.writeStringToFile( minifiedFile, "unchanged" );
+            mojo.setLowMemory( true );
+            mojo.execute();
+            assertFalse( "unchanged".equals( FileUtils.readFileToString( minifiedFile ) ) );
+
+            FileUtils.writeStringToFile( minifiedFile, "unchanged" );
+            mojo.setForce( true );
+            mojo.execute();
+            assertFalse( "unchanged".equals( FileUtils.readFileToString( minifiedFile ) ) );
+        }
+        finally
+        {
+            fingerprintFile.delete();
+        }
+    }
+
+    /**
+     * Only the HTML files affected by a change should be minified again, and the files generated for a removed HTML
+     * file should be deleted.
+     * 
+     * @throws MojoFailureException if something goes wrong.
+     * @throws MojoExecutionException if something goes wrong.
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testIncrementalRun()
+        throws MojoExecutionException, MojoFailureException, IOException
+    {
+        File sourceFolder = new File( System.getProperty( "java.io.tmpdir" ), "WebMinifierMojoTest-source" );
+        File pageGraphFile = new File( sourceFolder.getParentFile(), "WebMinifierMojoTest.pages" );
+        FileUtils.deleteQuietly( sourceFolder );
+        pageGraphFile.delete();
+        try
+        {
+            String html = FileUtils.readFileToString( new File( mojo.getSourceFolder(), "a.html" ), "UTF-8" );
+            FileUtils.writeStringToFile( new File( sourceFolder, "a.html" ), html, "UTF-8" );
+            FileUtils.writeStringToFile( new File( sourceFolder, "e.html" ),
+                                         html.replace( "a.js", "d.js" ).replace( "b.js", "e.js" ), "UTF-8" );
+            for ( String script : new String[] { "a.js", "b.js", "c.js", "d.js", "e.js" } )
+            {
+                FileUtils.writeStringToFile( new File( sourceFolder, script ), "var " + script.charAt( 0 ) + ";" );
+            }
+            mojo.setSourceFolder( sourceFolder );
+            mojo.setProjectSourceFolder( sourceFolder );
+            mojo.setPageGraphFile( pageGraphFile );
+
+            mojo.execute();
+            File aMinifiedFile = new File( mojo.getDestinationFolder(), "1-min.js" );
+            File eMinifiedFile = new File( mojo.getDestinationFolder(), "2-min.js" );
+            if ( !FileUtils.readFileToString( aMinifiedFile ).contains( "var a" ) )
+            {
+                File minifiedFile = aMinifiedFile;
+                aMinifiedFile = eMinifiedFile;
+                eMinifiedFile = minifiedFile;
+            }
+            assertTrue( FileUtils.readFileToString( aMinifiedFile ).contains( "var a" ) );
+            assertTrue( FileUtils.readFileToString( eMinifiedFile ).contains( "var d" ) );
+            assertFalse( new File( mojo.getDestinationFolder(), "d.js" ).exists() );
+
+            // Only e.html refers to e.js.
+            FileUtils.writeStringToFile( aMinifiedFile, "unchanged" );
+            FileUtils.writeStringToFile( new File( sourceFolder, "e.js" ), "var changed;" );
+            mojo.execute();
+            assertEquals( "unchanged", FileUtils.readFileToString( aMinifiedFile ) );
+            assertTrue( FileUtils.readFileToString( eMinifiedFile ).contains( "changed" ) );
+            assertFalse( new File( mojo.getDestinationFolder(), "d.js" ).exists() );
+
+            // Both refer to c.js.
+            FileUtils.writeStringToFile( new File( sourceFolder, "c.js" ), "var changed;" );
+            mojo.execute();
+            assertFalse( "unchanged".equals( FileUtils.readFileToString( aMinifiedFile ) ) );
+
+            FileUtils.writeStringToFile( aMinifiedFile, "unchanged" );
+            new File( sourceFolder, "e.html" ).delete();
+            mojo.execute();
+            assertEquals( "unchanged", FileUtils.readFileToString( aMinifiedFile ) );
+            assertFalse( eMinifiedFile.exists() );
+            assertFalse( new File( mojo.getDestinationFolder(), "e.html" ).exists() );
+            assertTrue( new File( mojo.getDestinationFolder(), "d.js" ).isFile() );
+        }
+        finally
+        {
+            FileUtils.deleteQuietly( sourceFolder );
+            pageGraphFile.delete();
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package org.codehaus.mojo.webminifier;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.mojo.webminifier.WebMinifierMojo.JsCompressorType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test minifying without Maven.
+ */
+public class WebMinifierTest
+{
+    private MinifierConfiguration configuration;
+
+    /**
+     * Configure a minification of the test HTML files.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Before
+    public void setUpConfiguration()
+        throws Exception
+    {
+        File sourceFolder = new File( WebMinifierTest.class.getResource( "a.html" ).toURI() ).getParentFile();
+        configuration = new MinifierConfiguration();
+        configuration.setSourceFolder( sourceFolder );
+        configuration.setDestinationFolder( new File( System.getProperty( "java.io.tmpdir" ), "WebMinifierTest" ) );
+        configuration.setProjectSourceFolder( sourceFolder );
+        configuration.setJsCompressorType( JsCompressorType.YUI );
+        configuration.setSplitDependencies( false );
+    }
+
+    /**
+     * Tidy up.
+     */
+    @After
+    public void tearDownConfiguration()
+    {
+        FileUtils.deleteQuietly( configuration.getDestinationFolder() );
+    }
+
+    /**
+     * An engine should minify repeatedly, telling the listener of its progress each time.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testMinifyRepeatedly()
+        throws Exception
+    {
+        final List<String> events = new CopyOnWriteArrayList<String>();
+        MinifierListener listener = new MinifierListener()
+        {
+            public void minificationStarted( int documentCount )
+            {
+                events.add( "started " + documentCount );
+            }
+
+            public void scriptMinified( File script, File minifiedScript )
+            {
+                events.add( "script " + minifiedScript.getName() );
+            }
+
+            public void documentMinified( File document )
+            {
+                events.add( "document " + document.getName() );
+            }
+
+            public void diagnosticReported( Diagnostic diagnostic )
+            {
+                events.add( "diagnostic" );
+            }
+        };
+
+        WebMinifier minifier = new WebMinifier( mock( MinifierLogger.class ) );
+        for ( int i = 0; i < 2; ++i )
+        {
+            events.clear();
+            minifier.minify( configuration, listener );
+
+            assertTrue( new File( configuration.getDestinationFolder(), "1-min.js" ).isFile() );
+            assertEquals( "started 1", events.get( 0 ) );
+            assertTrue( events.contains( "script 1-min.js" ) );
+            assertEquals( "document a.html", events.get( events.size() - 1 ) );
+        }
+    }
+
+    /**
+     * Problems should be reported to the listener and logged.
+     * 
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testDiagnosticReported()
+        throws Exception
+    {
+        final List<Diagnostic> diagnostics = new CopyOnWriteArrayList<Diagnostic>();
+        MinifierLogger logger = mock( MinifierLogger.class );
+        Diagnostics collector = new Diagnostics( logger, false );
+        collector.addListener( new MinifierListener()
+        {
+            public void minificationStarted( int documentCount )
+            {
+            }
+
+            public void scriptMinified( File script, File minifiedScript )
+            {
+            }
+
+            public void documentMinified( File document )
+            {
+            }
+
+            public void diagnosticReported( Diagnostic diagnostic )
+            {
+                diagnostics.add( diagnostic );
+            }
+        } );
+
+        configuration.setJsCompressorType( JsCompressorType.CLOSURE );
+        try
+        {
+            new WebMinifier( logger ).minifyScript( configuration, "bad.js", "var = ;".getBytes( "UTF-8" ), collector );
+        }
+        catch ( MinifierException e )
+        {
+            // Expected as the script cannot be parsed.
+        }
+        assertEquals( Diagnostic.Severity.ERROR, diagnostics.get( 0 ).getSeverity() );
+        assertEquals( "bad.js", diagnostics.get( 0 ).getBundle() );
+        verify( logger, atLeastOnce() ).error( anyString(), (Throwable) isNull() );
+    }
+}
@@ -0,0 +1,141 @@
+package org.codehaus.mojo.webminifier.closure;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.javascript.jscomp.CompilationLevel;
+
+/**
+ * Test the Closure externs generator.
+ */
+public class ClosureExternsGeneratorTest
+{
+    private static final String LIBRARY = "var lib = {};\n" //
+        + "lib.greet = function( options ) { return options.name; };\n" //
+        + "window.other = { 'quoted-key': 1, plain: 2 };\n";
+
+    private File cacheFolder;
+
+    /**
+     * Setup.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        cacheFolder = File.createTempFile( "externs", "" );
+        cacheFolder.delete();
+    }
+
+    /**
+     * Tear down.
+     */
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( cacheFolder );
+    }
+
+    /**
+     * Test that top level symbols and property names are declared.
+     */
+    @Test
+    public void testGenerateExterns()
+    {
+        String externs = ClosureExternsGenerator.generateExterns( "lib.js", LIBRARY );
+
+        assertEquals( "/**\n * @fileoverview Generated from lib.js\n * @externs\n */\n" //
+            + "var lib;\n" //
+            + "var other;\n" //
+            + "Object.prototype.greet;\n" //
+            + "Object.prototype.name;\n" //
+            + "Object.prototype.other;\n" //
+            + "Object.prototype.plain;\n", externs );
+    }
+
+    /**
+     * Test that externs are only generated once for the same content.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testGetExternsCached()
+        throws IOException
+    {
+        File script = new File( cacheFolder, "lib.js" );
+        FileUtils.writeStringToFile( script, LIBRARY, "UTF-8" );
+
+        ClosureExternsGenerator generator = new ClosureExternsGenerator( new File( cacheFolder, "cache" ), "UTF-8" );
+        File externs = generator.getExterns( script );
+        assertTrue( externs.isFile() );
+
+        long lastModified = externs.lastModified() - 10000L;
+        externs.setLastModified( lastModified );
+        assertEquals( externs, generator.getExterns( script ) );
+        assertEquals( lastModified, externs.lastModified() );
+
+        FileUtils.writeStringToFile( script, "var changed;", "UTF-8" );
+        assertFalse( externs.equals( generator.getExterns( script ) ) );
+    }
+
+    /**
+     * Test that code calling into a library keeps its calls intact when compiled with ADVANCED_OPTIMIZATIONS.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testAdvancedCompilationWithExterns()
+        throws IOException
+    {
+        File script = new File( cacheFolder, "lib.js" );
+        FileUtils.writeStringToFile( script, LIBRARY, "UTF-8" );
+        File externs = new ClosureExternsGenerator( cacheFolder, "UTF-8" ).getExterns( script );
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        ClosureJsCompressor compressor =
+            new ClosureJsCompressor( new ByteArrayInputStream( "lib.greet( { name: 'a' } );".getBytes( "UTF-8" ) ),
+                                     target, "UTF-8", Mockito.mock( Log.class ) );
+        compressor.setOptions( CompilationLevel.ADVANCED_OPTIMIZATIONS, false );
+        compressor.setExterns( Arrays.asList( externs ) );
+
+        compressor.compress();
+
+        assertFalse( compressor.getDiagnostics().hasErrors() );
+        assertEquals( "lib.greet({name:\"a\"});", target.toString( "UTF-8" ) );
+    }
+}
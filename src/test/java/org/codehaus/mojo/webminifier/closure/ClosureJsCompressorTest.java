@@ -20,6 +20,7 @@ package org.codehaus.mojo.webminifier.closure;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -27,12 +28,17 @@ import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collections;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.CompressorOptions;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -101,8 +107,113 @@ public class ClosureJsCompressorTest
         compressor.compress();
 
         verify( logger, times( 0 ) ).error( (CharSequence) any() );
+        verify( logger, times( 0 ) ).warn( (CharSequence) any() );
+        assertTrue( compressor.getDiagnostics().hasWarnings() );
+
+        compressor.getDiagnostics().logSummary( 1 );
         verify( logger, times( 1 ) )//
-        .warn( "JSC_USED_GLOBAL_THIS. dangerous use of the global this object at input line 1 : 0" );
+        .warn( "Warning: JSC_USED_GLOBAL_THIS. dangerous use of the global this object - (input:1:0)"
+                   + " and 1 other place(s) [reported 2 times]" );
         assertEquals( "this.a=1;alert(this.a);", target.toString() );
     }
+
+    /**
+     * Test that properties are renamed as declared by an existing property map, and that the maps are written.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCompressWithRenamingMaps()
+        throws IOException
+    {
+        File mapFolder = File.createTempFile( "renaming", "" );
+        mapFolder.delete();
+        try
+        {
+            File variableMapFile = new File( mapFolder, "a.js.variables.map" );
+            File propertyMapFile = new File( mapFolder, "a.js.properties.map" );
+            FileUtils.writeStringToFile( propertyMapFile, "alpha:zz\nbeta:yy\n", "UTF-8" );
+
+            source = new ByteArrayInputStream( "window['o']={alpha:1,beta:2};window['g']=function(o){return o.beta};"
+                .getBytes( "UTF-8" ) );
+            compressor = new ClosureJsCompressor( source, target, "UTF-8", logger );
+            compressor.setOptions( CompilationLevel.ADVANCED_OPTIMIZATIONS, false );
+            compressor.setRenamingMapFiles( variableMapFile, propertyMapFile );
+
+            compressor.compress();
+
+            verify( logger, times( 0 ) ).error( (CharSequence) any() );
+            assertEquals( "window.o={zz:1,yy:2};window.g=function(a){return a.yy};", target.toString() );
+            assertTrue( variableMapFile.isFile() );
+            assertEquals( "alpha:zz\nbeta:yy\n", FileUtils.readFileToString( propertyMapFile, "UTF-8" ) );
+        }
+        finally
+        {
+            FileUtils.deleteQuietly( mapFolder );
+        }
+    }
+
+    /**
+     * Test that defines are overridden and debugging calls removed.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCompressWithDefinesAndStripCalls()
+        throws IOException
+    {
+        source = new ByteArrayInputStream( ( "/** @define {boolean} */ var DEBUG = true;\n"
+            + "if (DEBUG) { alert( 'debug' ); }\n" + "console.log( 'a' );\n" + "alert( 'b' );" ).getBytes( "UTF-8" ) );
+        compressor = new ClosureJsCompressor( source, target, "UTF-8", logger );
+        compressor.setOptions( CompilationLevel.SIMPLE_OPTIMIZATIONS, false );
+        compressor.setDefines( Collections.singletonMap( "DEBUG", "false" ) );
+        compressor.setStripCalls( Arrays.asList( "console.*" ) );
+
+        compressor.compress();
+
+        verify( logger, times( 0 ) ).error( (CharSequence) any() );
+        verify( logger, times( 0 ) ).warn( (CharSequence) any() );
+        assertEquals( "var DEBUG=!1;alert(\"b\");", target.toString() );
+    }
+
+    /**
+     * Test that a quoted define may contain a comma.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCompressWithQuotedDefine()
+        throws IOException
+    {
+        source = new ByteArrayInputStream( ( "/** @define {string} */ var TITLE = 'x';\n"
+            + "/** @define {number} */ var LEVEL = 1;\n" + "alert( TITLE + LEVEL );" ).getBytes( "UTF-8" ) );
+        compressor = new ClosureJsCompressor( source, target, "UTF-8", logger );
+        compressor.setOptions( CompilationLevel.SIMPLE_OPTIMIZATIONS, false );
+        compressor.setDefines( CompressorOptions.parseMap( "TITLE='a, b', LEVEL=2" ) );
+
+        compressor.compress();
+
+        verify( logger, times( 0 ) ).error( (CharSequence) any() );
+        assertEquals( "var TITLE=\"a, b\",LEVEL=2;alert(TITLE+LEVEL);", target.toString() );
+    }
+
+    /**
+     * Test that output written in chunks is that of a regular execution, including the license.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCompressLowMemory()
+        throws IOException
+    {
+        source = new ByteArrayInputStream( "/** @license MIT */\nthis.a = 1;alert(this.a);".getBytes( "UTF-8" ) );
+        compressor = new ClosureJsCompressor( source, target, "UTF-8", logger );
+        compressor.setOptions( CompilationLevel.SIMPLE_OPTIMIZATIONS, false );
+        compressor.setLowMemory( true );
+
+        compressor.compress();
+
+        verify( logger, times( 0 ) ).error( (CharSequence) any() );
+        assertEquals( "/*\n MIT */\nthis.a=1;alert(this.a);", target.toString() );
+    }
 }
@@ -0,0 +1,124 @@
+package org.codehaus.mojo.webminifier.closure;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.javascript.jscomp.CompilationLevel;
+
+/**
+ * Test the Closure module compressor.
+ */
+public class ClosureJsModuleCompressorTest
+{
+    private ClosureJsModuleCompressor compressor;
+
+    private Log logger;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setUp()
+    {
+        logger = mock( Log.class );
+        compressor = new ClosureJsModuleCompressor( "UTF-8", logger );
+    }
+
+    /**
+     * Test that code unused by any module is removed and that code is moved to the module that uses it.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCompress()
+        throws IOException
+    {
+        compressor.setOptions( CompilationLevel.ADVANCED_OPTIMIZATIONS, false );
+
+        ByteArrayOutputStream libTarget = new ByteArrayOutputStream();
+        compressor.addModule( "lib.js", new ByteArrayInputStream( "function f(){return 1}function g(){return 2}"
+            .getBytes( "UTF-8" ) ), libTarget, Collections.<String> emptyList() );
+        ByteArrayOutputStream appTarget = new ByteArrayOutputStream();
+        compressor.addModule( "app.js", new ByteArrayInputStream( "alert(f());".getBytes( "UTF-8" ) ), appTarget,
+                              Arrays.asList( "lib.js" ) );
+
+        compressor.compress();
+
+        verify( logger, times( 0 ) ).error( (CharSequence) any() );
+        verify( logger, times( 0 ) ).warn( (CharSequence) any() );
+        assertFalse( compressor.getDiagnostics().hasErrors() );
+        assertEquals( "", libTarget.toString( "UTF-8" ) );
+        assertEquals( "alert(1);", appTarget.toString( "UTF-8" ) );
+    }
+
+    /**
+     * Test that modules without a common dependency can be compiled together.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCompressIndependentModules()
+        throws IOException
+    {
+        compressor.setOptions( CompilationLevel.SIMPLE_OPTIMIZATIONS, false );
+
+        ByteArrayOutputStream aTarget = new ByteArrayOutputStream();
+        compressor.addModule( "a.js", new ByteArrayInputStream( "alert( 1 );".getBytes( "UTF-8" ) ), aTarget,
+                              Collections.<String> emptyList() );
+        ByteArrayOutputStream bTarget = new ByteArrayOutputStream();
+        compressor.addModule( "b.js", new ByteArrayInputStream( "alert( 2 );".getBytes( "UTF-8" ) ), bTarget,
+                              Collections.<String> emptyList() );
+
+        compressor.compress();
+
+        assertFalse( compressor.getDiagnostics().hasErrors() );
+        assertEquals( "alert(1);", aTarget.toString( "UTF-8" ) );
+        assertEquals( "alert(2);", bTarget.toString( "UTF-8" ) );
+    }
+
+    /**
+     * Test that a module cannot be added before its dependencies.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test( expected = IllegalArgumentException.class )
+    public void testAddModuleBeforeDependency()
+        throws IOException
+    {
+        compressor.addModule( "app.js", new ByteArrayInputStream( new byte[0] ), new ByteArrayOutputStream(),
+                              Arrays.asList( "lib.js" ) );
+    }
+}
@@ -0,0 +1,108 @@
+package org.codehaus.mojo.webminifier.fast;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.mojo.webminifier.AbstractCompressor;
+import org.codehaus.mojo.webminifier.yui.YuiJsCompressor;
+
+/**
+ * Compares the throughput of the FAST and YUI compressors. Not run as part of the build; run with the test classpath
+ * and, optionally, the path of a script to compress. A generated script is compressed otherwise.
+ */
+public final class FastJsCompressorBenchmark
+{
+    private static final int ITERATIONS = 10;
+
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+
+    private static final String SAMPLE = "/**\n * Adds the numbers.\n * @param {number} a\n */\n"
+        + "function add( first, second ) {\n    // Add them.\n    return first + second; /* done */\n}\n"
+        + "var pattern = /[a-z]+\\/[0-9]*/g, message = 'Hello, \"world\"';\n"
+        + "if ( pattern.test( message ) ) {\n    window.result = add( 1, 2 ) / 3;\n}\n";
+
+    private static final int SAMPLE_REPETITIONS = 20000;
+
+    private FastJsCompressorBenchmark()
+    {
+    }
+
+    /**
+     * @param args optionally, the script to compress.
+     * @throws IOException if the script cannot be read.
+     */
+    public static void main( String[] args )
+        throws IOException
+    {
+        byte[] script;
+        if ( args.length > 0 )
+        {
+            script = FileUtils.readFileToByteArray( new File( args[0] ) );
+        }
+        else
+        {
+            StringBuilder builder = new StringBuilder( SAMPLE.length() * SAMPLE_REPETITIONS );
+            for ( int i = 0; i < SAMPLE_REPETITIONS; ++i )
+            {
+                builder.append( SAMPLE );
+            }
+            script = builder.toString().getBytes( "UTF-8" );
+        }
+
+        Log logger = new SystemStreamLog();
+        System.out.println( "Compressing " + script.length + " bytes " + ITERATIONS + " times" );
+        for ( String type : new String[] { "FAST", "YUI", "FAST", "YUI" } )
+        {
+            long start = System.nanoTime();
+            int compressedLength = 0;
+            for ( int i = 0; i < ITERATIONS; ++i )
+            {
+                ByteArrayOutputStream target = new ByteArrayOutputStream( script.length );
+                AbstractCompressor compressor;
+                if ( type.equals( "FAST" ) )
+                {
+                    compressor = new FastJsCompressor( new ByteArrayInputStream( script ), target, "UTF-8", logger );
+                }
+                else
+                {
+                    YuiJsCompressor yuiCompressor =
+                        new YuiJsCompressor( new ByteArrayInputStream( script ), target, "UTF-8", logger );
+                    yuiCompressor.setOptions( -1, true, false, false );
+                    compressor = yuiCompressor;
+                }
+                compressor.compress();
+                compressedLength = target.size();
+            }
+            double seconds = ( System.nanoTime() - start ) / NANOS_PER_SECOND;
+            System.out.println( String.format( "%-4s %8.1f MB/s (compressed to %d bytes)", type,
+                                               script.length * ITERATIONS / BYTES_PER_MEGABYTE / seconds,
+                                               compressedLength ) );
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.codehaus.mojo.webminifier.fast;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Test;
+
+/**
+ * Test the streaming minifier.
+ */
+public class FastJsCompressorTest
+{
+    private FastJsCompressor compressor;
+
+    private String compress( String script )
+        throws IOException
+    {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        compressor =
+            new FastJsCompressor( new ByteArrayInputStream( script.getBytes( "UTF-8" ) ), target, "UTF-8",
+                                  mock( Log.class ) );
+        compressor.compress();
+        return target.toString( "UTF-8" );
+    }
+
+    /**
+     * Whitespace and comments should be removed, other than license comments.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testWhitespaceAndComments()
+        throws IOException
+    {
+        assertEquals( "/*! MIT */\nvar a=1;function f(b,c){return b+c;}",
+                      compress( "/*! MIT */\n// A comment\nvar a = 1; /* another */\n"
+                          + "function f( b, c ) {\n    return b + c;\n}\n" ) );
+        assertFalse( compressor.getDiagnostics().hasErrors() );
+    }
+
+    /**
+     * Strings should be copied as they are.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testStrings()
+        throws IOException
+    {
+        assertEquals( "var a=\"  // not a comment \\\" \",b='/* nor this */ \\'';",
+                      compress( "var a = \"  // not a comment \\\" \", b = '/* nor this */ \\'';" ) );
+        assertEquals( "a=`x  //\n y`", compress( "a = `x  //\n y`" ) );
+    }
+
+    /**
+     * Regular expressions should be distinguished from division.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testRegularExpressions()
+        throws IOException
+    {
+        assertEquals( "var a=b/c/d,e=/[/ ]+\\/ /g.test(f);return/x y/ instanceof RegExp",
+                      compress( "var a = b / c / d, e = /[/ ]+\\/ /g.test( f );\nreturn /x y/ instanceof RegExp" ) );
+        assertEquals( "a=b/ /c/.length", compress( "a = b / /c/.length" ) );
+        assertFalse( compressor.getDiagnostics().hasErrors() );
+    }
+
+    /**
+     * License comments should not introduce line breaks that change the meaning of the script.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testLicenseCommentPlacement()
+        throws IOException
+    {
+        assertEquals( "function f(y){return/*! lic */ y}", compress( "function f( y ) { return /*! lic */ y }" ) );
+        assertEquals( "a=1\n/*! lic */\nb=2", compress( "a = 1\n/*! lic */\nb = 2" ) );
+        assertFalse( compressor.getDiagnostics().hasErrors() );
+    }
+
+    /**
+     * Spaces and line breaks that change the meaning of the script should be kept.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testSemicolonInsertionHazards()
+        throws IOException
+    {
+        assertEquals( "a=b+ +c-(-d)- -e;1 .toString()", compress( "a = b + +c - (-d) - -e; 1 .toString()" ) );
+        assertEquals( "return\na\nb\n++c\nx=y", compress( "return\na\n\nb\n++c\n/* a\n comment */ x = y" ) );
+        assertEquals( "var a=1,b=2", compress( "var a = 1,\n    b = 2" ) );
+        assertEquals( "a()\n{b()}", compress( "a()\n{ b() }" ) );
+    }
+
+    /**
+     * Unterminated literals should be reported.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testErrors()
+        throws IOException
+    {
+        compress( "var a = 'unterminated;\nvar b;" );
+        assertTrue( compressor.getDiagnostics().hasErrors() );
+        assertEquals( 1, compressor.getDiagnostics().getDiagnostics().get( 0 ).getLine() );
+
+        compress( "var a; /* unterminated" );
+        assertTrue( compressor.getDiagnostics().hasErrors() );
+    }
+}
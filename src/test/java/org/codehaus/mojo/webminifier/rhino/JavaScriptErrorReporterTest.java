@@ -20,11 +20,17 @@ package org.codehaus.mojo.webminifier.rhino;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
+import java.util.List;
+
 import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.webminifier.Diagnostic;
+import org.codehaus.mojo.webminifier.Diagnostics;
 import org.junit.Before;
 import org.junit.Test;
 import org.mozilla.javascript.EvaluatorException;
@@ -39,6 +45,8 @@ public class JavaScriptErrorReporterTest
 
     private RhinoExceptionReporter reporter;
 
+    private Diagnostics diagnostics;
+
     private Log logger;
 
     private static final int TEST_LINENO = 100;
@@ -52,7 +60,8 @@ public class JavaScriptErrorReporterTest
     public void setUp()
     {
         logger = mock( Log.class );
-        reporter = new RhinoExceptionReporter( logger );
+        diagnostics = new Diagnostics( logger, false ).forBundle( "YUI", "1.js" );
+        reporter = new RhinoExceptionReporter( diagnostics );
     }
 
     /**
@@ -62,7 +71,16 @@ public class JavaScriptErrorReporterTest
     public void testError()
     {
         reporter.error( "Whoops", "badsource.js", TEST_LINENO, "var a", TEST_COLNO );
-        verify( logger ).error( "Error: Whoops - badsource.js:100:30:var a" );
+        verify( logger ).error( "Error: Whoops: var a - 1.js (badsource.js:100:30)" );
+        assertTrue( diagnostics.hasErrors() );
+
+        Diagnostic diagnostic = diagnostics.getDiagnostics().get( 0 );
+        assertEquals( Diagnostic.Severity.ERROR, diagnostic.getSeverity() );
+        assertEquals( "badsource.js", diagnostic.getFile() );
+        assertEquals( TEST_LINENO, diagnostic.getLine() );
+        assertEquals( TEST_COLNO, diagnostic.getColumn() );
+        assertEquals( "YUI", diagnostic.getCompressor() );
+        assertEquals( "1.js", diagnostic.getBundle() );
     }
 
     /**
@@ -72,20 +90,29 @@ public class JavaScriptErrorReporterTest
     public void testRuntimeError()
     {
         EvaluatorException e = reporter.runtimeError( "Whoops", "badsource.js", TEST_LINENO, "var a", TEST_COLNO );
-        verify( logger ).error( "Runtime error: Whoops - badsource.js:100:30:var a" );
+        verify( logger ).error( "Error: Whoops: var a - 1.js (badsource.js:100:30)" );
         assertEquals( "Whoops (badsource.js#100)", e.getMessage() );
     }
 
     /**
-     * Warning.
+     * Warnings are not logged as they are reported, and duplicates are counted.
      */
     @Test
     public void testWarning()
     {
         reporter.warning( null, null, TEST_LINENO, null, TEST_COLNO );
         reporter.warning( null, "badsource.js", TEST_LINENO, null, TEST_COLNO );
+        reporter.warning( null, "badsource.js", TEST_LINENO, null, TEST_COLNO );
+
+        verify( logger, never() ).warn( "Warning - 1.js" );
+        assertFalse( diagnostics.hasErrors() );
+        assertTrue( diagnostics.hasWarnings() );
 
-        verify( logger, times( 2 ) ).warn( "Warning" );
+        List<Diagnostic> reported = diagnostics.getDiagnostics();
+        assertEquals( 2, reported.size() );
+        assertEquals( "Warning - 1.js", reported.get( 0 ).toString() );
+        assertEquals( 1, diagnostics.getOccurrences( reported.get( 0 ) ) );
+        assertEquals( 2, diagnostics.getOccurrences( reported.get( 1 ) ) );
     }
 
 }
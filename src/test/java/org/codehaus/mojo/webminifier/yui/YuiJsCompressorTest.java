@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 
 import org.apache.maven.plugin.logging.Log;
 import org.junit.Before;
@@ -84,4 +85,48 @@ public class YuiJsCompressorTest
         verify( logger, times( 0 ) ).warn( (CharSequence) any() );
         assertEquals( "this.a=1;", target.toString() );
     }
+
+    /**
+     * Test that debugging calls are removed.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCompressWithStripCalls()
+        throws IOException
+    {
+        source =
+            new ByteArrayInputStream( "if (a) { console.log( a ); } debugLog( 1 ); var b = console.warn( 2 ); alert( b );"
+                .getBytes( "UTF-8" ) );
+        compressor = new YuiJsCompressor( source, target, "UTF-8", logger );
+        compressor.setOptions( -1, true, false, false );
+        compressor.setStripCalls( Arrays.asList( "console.*", "debugLog" ) );
+
+        compressor.compress();
+
+        verify( logger, times( 0 ) ).error( (CharSequence) any() );
+        assertEquals( "if(a){}var b=void 0;alert(b);", target.toString() );
+    }
+
+    /**
+     * Test that licence comments survive the removal of debugging calls.
+     * 
+     * @throws IOException if something goes wrong.
+     */
+    @Test
+    public void testCompressWithStripCallsKeepsLicense()
+        throws IOException
+    {
+        source =
+            new ByteArrayInputStream( "/*! Copyright */\nvar a = 1; // note\nconsole.log( a ); alert( a );"
+                .getBytes( "UTF-8" ) );
+        compressor = new YuiJsCompressor( source, target, "UTF-8", logger );
+        compressor.setOptions( -1, true, false, false );
+        compressor.setStripCalls( Arrays.asList( "console.*" ) );
+
+        compressor.compress();
+
+        verify( logger, times( 0 ) ).error( (CharSequence) any() );
+        assertEquals( "/*! Copyright */\nvar a=1;alert(a);", target.toString() );
+    }
 }